@@ -1,5 +1,8 @@
 package com.demo.api.client;
 
+import org.springframework.ai.converter.StructuredOutputConverter;
+import reactor.core.publisher.Flux;
+
 public interface OpenAiClient {
 
     /**
@@ -10,5 +13,27 @@ public interface OpenAiClient {
      * @return mapped DTO
      */
     <T> T generate(String prompt, Class<T> responseType);
-}
 
+    /**
+     * Same as {@link #generate(String, Class)}, but the completion is parsed by the given converter instead of
+     * being read as JSON of {@code responseType}, e.g. for a compact wire format described in the prompt.
+     * The converter's format instructions, if any, are sent in place of the JSON schema.
+     *
+     * @param prompt       fully formatted user prompt
+     * @param responseType type the converter produces
+     * @param converter    parser of the raw completion
+     * @return mapped DTO
+     */
+    <T> T generate(String prompt, Class<T> responseType, StructuredOutputConverter<T> converter);
+
+    /**
+     * Streams the raw JSON completion for the given prompt as it is produced.
+     * The output format instructions of {@code responseType} are appended, as with {@link #generate}.
+     * No retry is applied because chunks may already have been consumed downstream.
+     *
+     * @param prompt       fully formatted user prompt
+     * @param responseType DTO type the streamed JSON should match
+     * @return content chunks in arrival order
+     */
+    Flux<String> stream(String prompt, Class<?> responseType);
+}
@@ -0,0 +1,121 @@
+package com.demo.api.client.impl;
+
+import com.demo.api.client.OpenAiClient;
+import com.demo.api.client.support.AdaptiveConcurrencyLimiter;
+import com.demo.api.client.support.AdaptiveConcurrencyLimiter.Outcome;
+import com.demo.api.client.support.AdaptiveConcurrencyLimiter.Permit;
+import com.demo.api.client.support.LlmCallContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.converter.StructuredOutputConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.net.SocketTimeoutException;
+import java.util.Locale;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Entry point for every LLM call. Wraps {@link OpenAiClientImpl} with an adaptive concurrency limit
+ * and a per-user fair wait queue (see {@link AdaptiveConcurrencyLimiter}); the user is taken from
+ * {@link LlmCallContext}. The limiter is shared with the {@link com.demo.api.client.support.LlmHedger}, whose
+ * backup calls take a permit of their own. Exposes gauges llm.gateway.inflight, llm.gateway.queue.depth and llm.gateway.limit.
+ */
+@Primary
+@Component
+public class LlmGatewayClient implements OpenAiClient {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmGatewayClient.class);
+
+    private final OpenAiClient delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    @Autowired
+    public LlmGatewayClient(OpenAiClientImpl delegate, MeterRegistry meterRegistry,
+                            AdaptiveConcurrencyLimiter limiter) {
+        this((OpenAiClient) delegate, meterRegistry, limiter);
+    }
+
+    LlmGatewayClient(OpenAiClient delegate, MeterRegistry meterRegistry, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        Gauge.builder("llm.gateway.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("LLM calls currently running").register(meterRegistry);
+        Gauge.builder("llm.gateway.queue.depth", limiter, AdaptiveConcurrencyLimiter::getQueueDepth)
+                .description("LLM calls waiting for a permit").register(meterRegistry);
+        Gauge.builder("llm.gateway.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive LLM concurrency limit").register(meterRegistry);
+    }
+
+    @Override
+    public <T> T generate(String prompt, Class<T> responseType) {
+        return withPermit(() -> delegate.generate(prompt, responseType));
+    }
+
+    @Override
+    public <T> T generate(String prompt, Class<T> responseType, StructuredOutputConverter<T> converter) {
+        return withPermit(() -> delegate.generate(prompt, responseType, converter));
+    }
+
+    private <T> T withPermit(Supplier<T> call) {
+        Permit permit = limiter.acquire(LlmCallContext.currentCaller());
+        try {
+            T result = call.get();
+            limiter.release(permit, Outcome.SUCCESS);
+            return result;
+        } catch (RuntimeException ex) {
+            limiter.release(permit, classify(ex));
+            throw ex;
+        }
+    }
+
+    @Override
+    public Flux<String> stream(String prompt, Class<?> responseType) {
+        String caller = LlmCallContext.currentCaller();
+        return Flux.defer(() -> {
+            Permit permit = limiter.acquire(caller);
+            AtomicReference<Outcome> outcome = new AtomicReference<>(Outcome.IGNORED);
+            return delegate.stream(prompt, responseType)
+                    .doOnComplete(() -> outcome.set(Outcome.SUCCESS))
+                    .doOnError(ex -> outcome.set(classify(ex)))
+                    .doFinally(signal -> limiter.release(permit, outcome.get()));
+        });
+    }
+
+    /**
+     * Rate limits and timeouts mean the upstream is saturated; anything else leaves the limit alone.
+     */
+    static Outcome classify(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RestClientResponseException rest
+                    && rest.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                return Outcome.DROPPED;
+            }
+            if (cause instanceof WebClientResponseException web
+                    && web.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                return Outcome.DROPPED;
+            }
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException) {
+                return Outcome.DROPPED;
+            }
+            String message = cause.getMessage() == null ? "" : cause.getMessage().toLowerCase(Locale.ROOT);
+            if (message.contains("429") || message.contains("rate limit")) {
+                return Outcome.DROPPED;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        log.debug("LLM call failed without a capacity signal: {}", failure.getMessage());
+        return Outcome.IGNORED;
+    }
+}
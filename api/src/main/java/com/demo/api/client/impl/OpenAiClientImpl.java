@@ -1,86 +1,418 @@
 package com.demo.api.client.impl;
 
 import com.demo.api.client.OpenAiClient;
+import com.demo.api.client.support.CircuitBreaker;
+import com.demo.api.client.support.LenientOutputConverter;
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.client.support.LlmFailure;
+import com.demo.api.client.support.LlmHedger;
+import com.demo.api.client.support.LlmModelRouter;
+import com.demo.api.client.support.LlmRetryEngine;
+import com.demo.api.client.support.StructuredOutputException;
+import com.demo.api.exception.BusinessException;
+import com.demo.api.service.LlmCompletionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.converter.StructuredOutputConverter;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
 
 import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+/**
+ * Calls OpenAI through Spring AI with retries, local output repair and token accounting.
+ * Every raw completion is recorded in {@link LlmCompletionService} before it is parsed; in {@code replay}
+ * mode ({@code app.openai.recording.mode}) the recorded completions are served instead, with no network calls.
+ * When an {@link LlmModelRouter} is configured ({@code app.openai.routing.enabled}), each call is sent with the
+ * model and max tokens of its route, a schema retry is sent one route up, and call latency is recorded per
+ * route in the {@value #ROUTE_LATENCY_METRIC} histogram. When an {@link LlmHedger} is configured
+ * ({@code app.openai.hedging.enabled}), each attempt that runs slow is hedged with a backup call.
+ */
 @Component
 public class OpenAiClientImpl implements OpenAiClient {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAiClientImpl.class);
+    public static final String VALIDATION_METRIC = "llm.output.validations";
+    public static final String CALLS_SAVED_METRIC = "llm.output.calls.saved";
+    public static final String TOKENS_METRIC = "llm.tokens";
+    public static final String ROUTE_LATENCY_METRIC = "llm.route.latency";
+    public static final String ROUTE_ESCALATIONS_METRIC = "llm.route.escalations";
     private static final String DEFAULT_SYSTEM_PROMPT =
             "You are a helpful travel planner. Return only strict JSON that matches the requested schema. "
                     + "Never include markdown code fences or natural language outside of the JSON payload.";
 
     private final ChatClient chatClient;
-    private final int maxAttempts;
-    private final Duration retryBackoff;
+    private final LlmRetryEngine retryEngine;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
     private final String systemPrompt;
+    private final LlmCompletionService completionService;
+    private final LlmCompletionService.Mode recordingMode;
+    private final LlmModelRouter modelRouter;
+    private final LlmHedger hedger;
 
+    @Autowired
     public OpenAiClientImpl(ChatClient chatClient,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            LlmCompletionService completionService,
+                            ObjectProvider<LlmModelRouter> modelRouter,
+                            ObjectProvider<LlmHedger> hedger,
+                            @Value("${app.openai.recording.mode:record}") String recordingMode,
                             @Value("${app.openai.retry.max-attempts:3}") int maxAttempts,
+                            @Value("${app.openai.retry.schema-attempts:2}") int schemaAttempts,
                             @Value("${app.openai.retry.backoff:PT0.5S}") Duration retryBackoff,
+                            @Value("${app.openai.retry.max-backoff:PT8S}") Duration maxBackoff,
+                            @Value("${app.openai.retry.max-retry-after:PT30S}") Duration maxRetryAfter,
+                            @Value("${app.openai.circuit.failure-threshold:5}") int failureThreshold,
+                            @Value("${app.openai.circuit.open-duration:PT30S}") Duration openDuration,
                             @Value("${app.openai.system-prompt:}") String systemPrompt) {
+        this(chatClient, new LlmRetryEngine(maxAttempts, schemaAttempts, retryBackoff, maxBackoff, maxRetryAfter,
+                new CircuitBreaker(failureThreshold, openDuration)), objectMapper, meterRegistry, systemPrompt,
+                completionService, LlmCompletionService.Mode.of(recordingMode), modelRouter.getIfAvailable(),
+                hedger.getIfAvailable());
+    }
+
+    public OpenAiClientImpl(ChatClient chatClient, LlmRetryEngine retryEngine, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry, String systemPrompt) {
+        this(chatClient, retryEngine, objectMapper, meterRegistry, systemPrompt, null, LlmCompletionService.Mode.OFF);
+    }
+
+    public OpenAiClientImpl(ChatClient chatClient, LlmRetryEngine retryEngine, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry, String systemPrompt,
+                            LlmCompletionService completionService, LlmCompletionService.Mode recordingMode) {
+        this(chatClient, retryEngine, objectMapper, meterRegistry, systemPrompt, completionService, recordingMode,
+                null, null);
+    }
+
+    /**
+     * @param modelRouter routes calls to per-call models, or null to use the configured chat model for all
+     * @param hedger      hedges slow calls, or null to wait for every call
+     */
+    public OpenAiClientImpl(ChatClient chatClient, LlmRetryEngine retryEngine, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry, String systemPrompt,
+                            LlmCompletionService completionService, LlmCompletionService.Mode recordingMode,
+                            LlmModelRouter modelRouter, LlmHedger hedger) {
+        Assert.isTrue(completionService != null || recordingMode == LlmCompletionService.Mode.OFF,
+                "Recording mode " + recordingMode + " needs an LlmCompletionService");
         this.chatClient = chatClient;
-        this.maxAttempts = Math.max(1, maxAttempts);
-        this.retryBackoff = retryBackoff == null ? Duration.ofMillis(500) : retryBackoff;
+        this.retryEngine = retryEngine;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
         this.systemPrompt = StringUtils.hasText(systemPrompt) ? systemPrompt : DEFAULT_SYSTEM_PROMPT;
+        this.completionService = completionService;
+        this.recordingMode = recordingMode;
+        this.modelRouter = modelRouter;
+        this.hedger = hedger;
+        if (recordingMode == LlmCompletionService.Mode.REPLAY) {
+            log.warn("OpenAI calls are served from recorded completions only");
+        }
     }
 
     @Override
     public <T> T generate(String prompt, Class<T> responseType) {
+        Assert.notNull(responseType, "Response type must not be null");
+        return execute(prompt, responseType, () -> new LenientOutputConverter<>(responseType, objectMapper, false));
+    }
+
+    @Override
+    public <T> T generate(String prompt, Class<T> responseType, StructuredOutputConverter<T> converter) {
+        Assert.notNull(converter, "Converter must not be null");
+        return execute(prompt, responseType, () -> converter);
+    }
+
+    /**
+     * @param converters supplies the converter of each attempt, since converters may keep per-call state
+     */
+    private <T> T execute(String prompt, Class<T> responseType, Supplier<StructuredOutputConverter<T>> converters) {
         Assert.hasText(prompt, "Prompt must not be empty");
         Assert.notNull(responseType, "Response type must not be null");
 
-        IllegalStateException lastFailure = null;
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+        if (recordingMode == LlmCompletionService.Mode.REPLAY) {
+            return replay(prompt, responseType, converters.get());
+        }
+        // retries run on another thread, so the workload is captured here
+        LlmCallContext.Workload workload = LlmCallContext.currentWorkload();
+        AtomicInteger schemaFailures = new AtomicInteger();
+        CompletableFuture<T> call = retryEngine.execute(() -> {
             try {
-                ChatClient.CallResponseSpec responseSpec = chatClient.prompt()
-                        .system(systemPrompt)
-                        .user(prompt)
-                        .call();
-
-                if (responseSpec == null) {
-                    throw new IllegalStateException("OpenAI returned an empty response");
+                LlmModelRouter.Route route = route(workload, schemaFailures.get());
+                if (hedger == null) {
+                    return callOnce(prompt, responseType, converters.get(), route);
                 }
-
-                T mapped = responseSpec.entity(responseType);
-                if (mapped == null) {
-                    throw new IllegalStateException("OpenAI response could not be mapped to " + responseType.getSimpleName());
+                return hedger.call(responseType.getSimpleName() + (route == null ? "" : ":" + tag(route.tier())),
+                        () -> callOnce(prompt, responseType, converters.get(), route),
+                        () -> callOnce(prompt, responseType, converters.get(), backup(route)));
+            } catch (RuntimeException ex) {
+                if (LlmFailure.classify(ex).kind() == LlmFailure.Kind.SCHEMA) {
+                    schemaFailures.incrementAndGet();
                 }
+                throw ex;
+            }
+        });
+        try {
+            return call.get();
+        } catch (InterruptedException ex) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling OpenAI", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            log.warn("OpenAI call failed: {}", cause.getMessage());
+            if (cause instanceof IllegalStateException || cause instanceof BusinessException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Failed to call OpenAI", cause);
+        }
+    }
+
+    /**
+     * The format instructions go into the system message so that everything static (system prompt, schema and
+     * the prompt builder's static prefix) precedes the request-specific data, which lets the provider reuse
+     * its cached prompt prefix across trips.
+     */
+    private <T> T callOnce(String prompt, Class<T> responseType, StructuredOutputConverter<T> converter,
+                           LlmModelRouter.Route route) {
+        String system = systemMessage(converter);
+        ChatClient.ChatClientRequestSpec request = chatClient.prompt()
+                .system(system)
+                .user(prompt);
+        if (route != null) {
+            request = request.options(options(route));
+        }
+
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            ChatClient.CallResponseSpec responseSpec = request.call();
+            if (responseSpec == null) {
+                throw new IllegalStateException("OpenAI returned an empty response");
+            }
 
-                return mapped;
+            T mapped;
+            try {
+                ResponseEntity<ChatResponse, T> response = responseSpec.responseEntity(recording(system, prompt, responseType, converter));
+                recordUsage(response.getResponse());
+                mapped = response.getEntity();
             } catch (RuntimeException ex) {
-                log.warn("OpenAI call failed on attempt {}/{}: {}", attempt, maxAttempts, ex.getMessage());
-                lastFailure = (ex instanceof IllegalStateException) ? (IllegalStateException) ex
-                        : new IllegalStateException("Failed to call OpenAI", ex);
-                if (attempt == maxAttempts) {
-                    throw lastFailure;
+                if (LlmFailure.classify(ex).kind() == LlmFailure.Kind.SCHEMA) {
+                    meterRegistry.counter(VALIDATION_METRIC, "stage", "json", "result", "unrepairable").increment();
+                    if (!(ex instanceof StructuredOutputException)) {
+                        throw new StructuredOutputException("OpenAI response could not be mapped to " + responseType.getSimpleName(), ex);
+                    }
                 }
-                sleepBackoff(attempt);
+                throw ex;
+            }
+            if (mapped == null) {
+                throw new StructuredOutputException("OpenAI response could not be mapped to " + responseType.getSimpleName());
             }
+            recordRepairs(responseType, converter);
+            success = true;
+            return mapped;
+        } finally {
+            recordLatency(route, responseType, success, System.nanoTime() - started);
         }
+    }
 
-        throw lastFailure != null ? lastFailure : new IllegalStateException("Failed to call OpenAI");
+    /**
+     * @param schemaFailures earlier attempts of this call whose completion did not match the schema
+     * @return the route of the next attempt, or null when routing is off
+     */
+    private LlmModelRouter.Route route(LlmCallContext.Workload workload, int schemaFailures) {
+        if (modelRouter == null) {
+            return null;
+        }
+        LlmModelRouter.Route route = modelRouter.route(workload, schemaFailures);
+        if (route.escalated()) {
+            meterRegistry.counter(ROUTE_ESCALATIONS_METRIC, "from", tag(route.base()), "to", tag(route.tier())).increment();
+            log.info("Escalating LLM call from the {} to the {} route ({})", tag(route.base()), tag(route.tier()), route.model());
+        }
+        return route;
+    }
+
+    /**
+     * The backup of a hedged call goes to the hedger's backup model when routing is on and one is set,
+     * otherwise to the same model as the primary.
+     */
+    private LlmModelRouter.Route backup(LlmModelRouter.Route route) {
+        if (route == null || hedger.getBackupModel() == null) {
+            return route;
+        }
+        return new LlmModelRouter.Route(route.tier(), route.base(), hedger.getBackupModel(), route.maxTokens());
     }
 
-    private void sleepBackoff(int attempt) {
-        long delay = retryBackoff.multipliedBy(Math.max(1, attempt)).toMillis();
-        if (delay <= 0) {
+    /**
+     * Only model and max tokens are set; other options such as temperature keep their configured defaults.
+     */
+    private static OpenAiChatOptions options(LlmModelRouter.Route route) {
+        return OpenAiChatOptions.builder()
+                .model(route.model())
+                .maxTokens(route.maxTokens())
+                .build();
+    }
+
+    private void recordLatency(LlmModelRouter.Route route, Class<?> responseType, boolean success, long nanos) {
+        if (route == null) {
             return;
         }
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IllegalStateException("Interrupted while retrying OpenAI call", e);
+        Timer.builder(ROUTE_LATENCY_METRIC)
+                .description("LLM call latency by route")
+                .tag("route", tag(route.tier()))
+                .tag("model", route.model())
+                .tag("type", responseType.getSimpleName())
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String tag(LlmModelRouter.Tier tier) {
+        return tier.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parses the completion recorded for this exact prompt; a miss fails instead of calling the provider.
+     */
+    private <T> T replay(String prompt, Class<T> responseType, StructuredOutputConverter<T> converter) {
+        String completion = completionService.find(systemMessage(converter), prompt, responseType)
+                .orElseThrow(() -> new IllegalStateException("No recorded completion for this "
+                        + responseType.getSimpleName() + " prompt"));
+        T mapped = converter.convert(completion);
+        if (mapped == null) {
+            throw new StructuredOutputException("Recorded response could not be mapped to " + responseType.getSimpleName());
+        }
+        recordRepairs(responseType, converter);
+        return mapped;
+    }
+
+    /**
+     * System prompt plus the JSON schema, or the custom converter's own format instructions when it has any.
+     */
+    private String systemMessage(StructuredOutputConverter<?> converter) {
+        String format = converter instanceof LenientOutputConverter<?> lenient ? lenient.getSchemaFormat() : converter.getFormat();
+        return StringUtils.hasText(format) ? systemPrompt + System.lineSeparator() + format : systemPrompt;
+    }
+
+    /**
+     * Records the raw text before the converter sees it, so a completion that fails to parse or to store
+     * downstream is not lost.
+     */
+    private <T> StructuredOutputConverter<T> recording(String system, String prompt, Class<T> responseType,
+                                                       StructuredOutputConverter<T> converter) {
+        if (recordingMode != LlmCompletionService.Mode.RECORD) {
+            return converter;
+        }
+        return new StructuredOutputConverter<>() {
+            @Override
+            public T convert(@NonNull String text) {
+                completionService.record(system, prompt, responseType, text);
+                return converter.convert(text);
+            }
+
+            @Override
+            public String getFormat() {
+                return converter.getFormat();
+            }
+        };
+    }
+
+    /**
+     * Counts the completion as clean or repaired; a repair that got past a failed strict parse saved a re-call.
+     */
+    private void recordRepairs(Class<?> responseType, StructuredOutputConverter<?> output) {
+        if (!(output instanceof LenientOutputConverter<?> converter) || converter.getRepairs().isEmpty()) {
+            meterRegistry.counter(VALIDATION_METRIC, "stage", "json", "result", "clean").increment();
+            return;
+        }
+        meterRegistry.counter(VALIDATION_METRIC, "stage", "json", "result", "repaired").increment();
+        if (converter.isStrictParseFailed()) {
+            meterRegistry.counter(CALLS_SAVED_METRIC, "stage", "json").increment();
+        }
+        log.info("Repaired {} output locally: {}", responseType.getSimpleName(), converter.getRepairs());
+    }
+
+    /**
+     * Counts prompt, cached prompt and completion tokens; cached tokens show how much of the static prompt
+     * prefix the provider served from its cache.
+     */
+    private void recordUsage(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        int prompt = usage.getPromptTokens() == null ? 0 : usage.getPromptTokens();
+        int completion = usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens();
+        int cached = 0;
+        if (usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage && nativeUsage.promptTokensDetails() != null
+                && nativeUsage.promptTokensDetails().cachedTokens() != null) {
+            cached = nativeUsage.promptTokensDetails().cachedTokens();
+        }
+        meterRegistry.counter(TOKENS_METRIC, "type", "prompt").increment(prompt);
+        meterRegistry.counter(TOKENS_METRIC, "type", "cached").increment(cached);
+        meterRegistry.counter(TOKENS_METRIC, "type", "completion").increment(completion);
+        log.debug("OpenAI usage: prompt={} (cached={}), completion={}", prompt, cached, completion);
+    }
+
+    @Override
+    public Flux<String> stream(String prompt, Class<?> responseType) {
+        Assert.hasText(prompt, "Prompt must not be empty");
+        Assert.notNull(responseType, "Response type must not be null");
+
+        String system = systemPrompt + System.lineSeparator() + new BeanOutputConverter<>(responseType).getFormat();
+        if (recordingMode == LlmCompletionService.Mode.REPLAY) {
+            return Flux.defer(() -> Flux.just(completionService.find(system, prompt, responseType)
+                    .orElseThrow(() -> new IllegalStateException("No recorded completion for this "
+                            + responseType.getSimpleName() + " prompt"))));
+        }
+        LlmModelRouter.Route route = route(LlmCallContext.currentWorkload(), 0);
+        ChatClient.ChatClientRequestSpec request = chatClient.prompt()
+                .system(system)
+                .user(prompt);
+        if (route != null) {
+            request = request.options(options(route));
+        }
+        Flux<String> streamed = request.stream().content();
+        Flux<String> content = route == null ? streamed : Flux.defer(() -> {
+            long started = System.nanoTime();
+            return streamed.doFinally(signal -> recordLatency(route, responseType,
+                    signal == SignalType.ON_COMPLETE, System.nanoTime() - started));
+        });
+        if (recordingMode != LlmCompletionService.Mode.RECORD) {
+            return content;
         }
+        // chunks may complete on a reactor thread, so the subject is captured here
+        String subject = LlmCallContext.currentSubject();
+        return Flux.defer(() -> {
+            StringBuilder completion = new StringBuilder();
+            return content.doOnNext(completion::append)
+                    .doOnComplete(() -> {
+                        try (LlmCallContext.Scope ignored = LlmCallContext.openSubject(subject)) {
+                            completionService.record(system, prompt, responseType, completion.toString());
+                        }
+                    });
+        });
     }
 }
@@ -0,0 +1,261 @@
+package com.demo.api.client.support;
+
+import com.demo.api.exception.BusinessException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD concurrency limit with a bounded, per-caller round-robin wait queue.
+ * <ul>
+ *     <li>The limit grows by 1/limit per successful call while saturated (about +1 per round trip)</li>
+ *     <li>It shrinks by {@code backoffRatio} on a rate limit / timeout, or when a call takes more than
+ *     {@code latencyTolerance} times the smoothed latency</li>
+ *     <li>Waiting calls are granted one caller at a time in turn, so a single heavy caller cannot starve others</li>
+ *     <li>A call is rejected up front when the queue is full or its expected wait exceeds {@code maxWait},
+ *     and rejected when it has waited {@code maxWait} without a permit</li>
+ * </ul>
+ * Thread-safe.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final String BUSY_MESSAGE = "AI planner is busy, please try again later";
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final LongSupplier nanoTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Deque<Waiter>> waitersByCaller = new HashMap<>();
+    private final Deque<String> callerTurns = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double smoothedLatencyMs = -1;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue,
+                                      Duration maxWait, double backoffRatio, double latencyTolerance) {
+        this(initialLimit, minLimit, maxLimit, maxQueue, maxWait, backoffRatio, latencyTolerance, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue, Duration maxWait,
+                               double backoffRatio, double latencyTolerance, LongSupplier nanoTime) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWait = maxWait == null ? Duration.ofMinutes(2) : maxWait;
+        this.backoffRatio = backoffRatio <= 0 || backoffRatio >= 1 ? 0.75 : backoffRatio;
+        this.latencyTolerance = latencyTolerance <= 1 ? 2.0 : latencyTolerance;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Blocks until a permit is available for the caller.
+     *
+     * @throws BusinessException when the call is rejected by the queue bound or the wait deadline
+     */
+    public Permit acquire(String caller) {
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (queued == 0 && inFlight < currentLimit()) {
+                inFlight++;
+                return new Permit(nanoTime.getAsLong());
+            }
+            if (queued >= maxQueue) {
+                throw new BusinessException(BUSY_MESSAGE);
+            }
+            if (smoothedLatencyMs > 0
+                    && (queued + 1) / (double) currentLimit() * smoothedLatencyMs > maxWait.toMillis()) {
+                throw new BusinessException(BUSY_MESSAGE);
+            }
+            waiter = new Waiter();
+            Deque<Waiter> waiters = waitersByCaller.computeIfAbsent(caller, key -> new ArrayDeque<>());
+            if (waiters.isEmpty()) {
+                callerTurns.addLast(caller);
+            }
+            waiters.addLast(waiter);
+            queued++;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            waiter.granted.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            return new Permit(nanoTime.getAsLong());
+        } catch (TimeoutException ex) {
+            return abandon(caller, waiter, new BusinessException(BUSY_MESSAGE));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Permit permit = abandon(caller, waiter, new IllegalStateException("Interrupted while waiting for an LLM permit"));
+            release(permit, Outcome.IGNORED);
+            throw new IllegalStateException("Interrupted while waiting for an LLM permit", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("LLM permit wait failed", ex);
+        }
+    }
+
+    /**
+     * Takes a free permit without waiting, and without overtaking callers already in the queue.
+     *
+     * @return the permit, or null when none is free
+     */
+    public Permit tryAcquire() {
+        lock.lock();
+        try {
+            if (queued > 0 || inFlight >= currentLimit()) {
+                return null;
+            }
+            inFlight++;
+            return new Permit(nanoTime.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the permit and feeds the call's outcome into the limit.
+     */
+    public void release(Permit permit, Outcome outcome) {
+        if (permit == null || !permit.released.compareAndSet(false, true)) {
+            return;
+        }
+        double latencyMs = (nanoTime.getAsLong() - permit.startNanos) / 1_000_000.0;
+        lock.lock();
+        try {
+            boolean saturated = queued > 0 || inFlight >= currentLimit();
+            inFlight--;
+            switch (outcome) {
+                case DROPPED -> limit = Math.max(minLimit, limit * backoffRatio);
+                case SUCCESS -> {
+                    boolean slow = smoothedLatencyMs > 0 && latencyMs > smoothedLatencyMs * latencyTolerance;
+                    smoothedLatencyMs = smoothedLatencyMs < 0 ? latencyMs
+                            : smoothedLatencyMs + LATENCY_SMOOTHING * (latencyMs - smoothedLatencyMs);
+                    if (slow) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                    } else if (saturated) {
+                        limit = Math.min(maxLimit, limit + 1.0 / limit);
+                    }
+                }
+                case IGNORED -> {
+                    // failures unrelated to upstream capacity (e.g. mapping errors) do not move the limit
+                }
+            }
+            grantWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int currentLimit() {
+        return (int) Math.max(minLimit, Math.floor(limit));
+    }
+
+    /**
+     * Hands free permits to waiting callers, one caller per turn.
+     */
+    private void grantWaiters() {
+        while (queued > 0 && inFlight < currentLimit()) {
+            String caller = callerTurns.pollFirst();
+            Deque<Waiter> waiters = waitersByCaller.get(caller);
+            Waiter next = waiters.pollFirst();
+            queued--;
+            if (waiters.isEmpty()) {
+                waitersByCaller.remove(caller);
+            } else {
+                callerTurns.addLast(caller);
+            }
+            inFlight++;
+            next.granted.complete(null);
+        }
+    }
+
+    /**
+     * Removes a waiter that gave up. If it was granted in the meantime, the permit is kept.
+     */
+    private Permit abandon(String caller, Waiter waiter, RuntimeException failure) {
+        lock.lock();
+        try {
+            if (waiter.granted.isDone()) {
+                return new Permit(nanoTime.getAsLong());
+            }
+            Deque<Waiter> waiters = waitersByCaller.get(caller);
+            if (waiters != null && waiters.remove(waiter)) {
+                queued--;
+                if (waiters.isEmpty()) {
+                    waitersByCaller.remove(caller);
+                    callerTurns.remove(caller);
+                }
+            }
+            throw failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public enum Outcome {
+        /** Completed normally; its latency is sampled. */
+        SUCCESS,
+        /** Rate limited or timed out upstream; the limit backs off. */
+        DROPPED,
+        /** Failed for a reason unrelated to upstream capacity. */
+        IGNORED
+    }
+
+    public static final class Permit {
+
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final class Waiter {
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+    }
+}
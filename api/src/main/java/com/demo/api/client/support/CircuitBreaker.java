@@ -0,0 +1,91 @@
+package com.demo.api.client.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker.
+ * <ul>
+ *     <li>CLOSED: calls pass; {@code failureThreshold} provider faults in a row open the circuit</li>
+ *     <li>OPEN: calls are refused until {@code openDuration} has passed</li>
+ *     <li>HALF_OPEN: a single probe call passes; its result closes or re-opens the circuit</li>
+ * </ul>
+ * Thread-safe.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoTime) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = (openDuration == null ? Duration.ofSeconds(30) : openDuration).toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return true when the call may go ahead; every permitted call must be followed by
+     * {@link #recordSuccess()} or {@link #recordFailure()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * The provider answered (even with an error that is not its fault).
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("LLM circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("LLM circuit opened after {} consecutive failures", consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = nanoTime.getAsLong();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,399 @@
+package com.demo.api.client.support;
+
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.ItineraryWithInsightsDTO;
+import org.springframework.ai.converter.StructuredOutputConverter;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the compact itinerary wire format described by {@code TripPlanPromptBuilder} and expands it into
+ * an {@link ItineraryDTO}:
+ * <pre>
+ * {"d":[[day,"summary","image phrase"],...],
+ *  "a":[[day,"T","HH:mm","title",reserve,"from","to","provider","ticket type",price,"currency"],
+ *       [day,"H","HH:mm","title",reserve,"hotel name","room type",people,nights,price,"currency"],
+ *       [day,"A","HH:mm","title",reserve,"location",ticketPrice,people,"currency"],...],
+ *  "i":[["title","content","theme","icon"],...]}
+ * </pre>
+ * {@code day} is the offset from the trip's start date, {@code reserve} is 0 or 1 and a missing trailing
+ * currency defaults to the trip currency; status is always "pending". The optional {@code "i"} rows are
+ * destination insights, asked for in combined mode; when present the result is an {@link ItineraryWithInsightsDTO}. A single hand-written pass over the
+ * text fills the DTOs directly, without a token buffer, tree or reflection. Text before the root object
+ * (e.g. a markdown fence) and trailing commas are tolerated.
+ * <p>
+ * {@link #getFormat()} is empty because the format is part of the prompt's instructions.
+ * Thread-safe once constructed; each {@link #convert(String)} uses its own cursor.
+ */
+public class CompactItineraryParser implements StructuredOutputConverter<ItineraryDTO> {
+
+    static final String PENDING = "pending";
+
+    private final LocalDate startDate;
+    private final String defaultCurrency;
+
+    public CompactItineraryParser(LocalDate startDate, String defaultCurrency) {
+        Assert.notNull(startDate, "Start date must not be null");
+        this.startDate = startDate;
+        this.defaultCurrency = defaultCurrency;
+    }
+
+    @Override
+    public String getFormat() {
+        return "";
+    }
+
+    @Override
+    public ItineraryDTO convert(@NonNull String text) {
+        int root = text.indexOf('{');
+        if (root < 0) {
+            throw new StructuredOutputException("Compact itinerary has no root object");
+        }
+        Cursor cursor = new Cursor(text, root + 1);
+        List<ItineraryDTO.DailySummaryDTO> summaries = new ArrayList<>();
+        List<ItineraryDTO.ActivityDTO> activities = new ArrayList<>();
+        List<InsightResponseDTO.InsightItem> insights = null;
+        List<Object> row = new ArrayList<>(12);
+
+        while (true) {
+            char c = cursor.nextToken();
+            if (c == '}') {
+                break;
+            }
+            if (c == ',') {
+                continue;
+            }
+            String key = cursor.string();
+            cursor.expect(':');
+            if ("d".equals(key) || "a".equals(key)) {
+                boolean days = "d".equals(key);
+                cursor.expect('[');
+                while (cursor.nextRow(row)) {
+                    if (days) {
+                        summaries.add(summary(row));
+                    } else {
+                        activities.add(activity(row));
+                    }
+                }
+            } else if ("i".equals(key)) {
+                insights = new ArrayList<>();
+                cursor.expect('[');
+                while (cursor.nextRow(row)) {
+                    insights.add(insight(row, insights.size() + 1));
+                }
+            } else {
+                cursor.skipValue();
+            }
+        }
+        ItineraryDTO itinerary = ItineraryDTO.builder()
+                .dailySummaries(summaries)
+                .activities(activities)
+                .build();
+        return insights == null ? itinerary : new ItineraryWithInsightsDTO(itinerary, insights);
+    }
+
+    private static InsightResponseDTO.InsightItem insight(List<Object> row, int id) {
+        InsightResponseDTO.InsightItem insight = new InsightResponseDTO.InsightItem();
+        insight.setId(String.valueOf(id));
+        insight.setTitle(text(row, 0));
+        insight.setContent(text(row, 1));
+        insight.setTheme(text(row, 2));
+        insight.setIcon(text(row, 3));
+        return insight;
+    }
+
+    private ItineraryDTO.DailySummaryDTO summary(List<Object> row) {
+        return ItineraryDTO.DailySummaryDTO.builder()
+                .date(date(row))
+                .summary(text(row, 1))
+                .imageDescription(text(row, 2))
+                .build();
+    }
+
+    private ItineraryDTO.ActivityDTO activity(List<Object> row) {
+        String code = text(row, 1);
+        char type = code == null || code.isEmpty() ? 'A' : Character.toUpperCase(code.charAt(0));
+        ItineraryDTO.ActivityDTO activity = switch (type) {
+            case 'T' -> ItineraryDTO.TransportationDTO.builder()
+                    .type("transportation")
+                    .from(text(row, 5))
+                    .to(text(row, 6))
+                    .provider(text(row, 7))
+                    .ticketType(text(row, 8))
+                    .price(number(row, 9))
+                    .currency(currency(row, 10))
+                    .build();
+            case 'H' -> ItineraryDTO.HotelDTO.builder()
+                    .type("hotel")
+                    .hotelName(text(row, 5))
+                    .roomType(text(row, 6))
+                    .people(number(row, 7))
+                    .nights(number(row, 8))
+                    .price(number(row, 9))
+                    .currency(currency(row, 10))
+                    .build();
+            default -> ItineraryDTO.AttractionDTO.builder()
+                    .type("attraction")
+                    .location(text(row, 5))
+                    .ticketPrice(number(row, 6))
+                    .people(number(row, 7))
+                    .currency(currency(row, 8))
+                    .build();
+        };
+        activity.setDate(date(row));
+        activity.setTime(text(row, 2));
+        activity.setTitle(text(row, 3));
+        Integer reserve = number(row, 4);
+        activity.setReservationRequired(reserve != null && reserve != 0);
+        activity.setStatus(PENDING);
+        return activity;
+    }
+
+    private LocalDate date(List<Object> row) {
+        Integer offset = number(row, 0);
+        if (offset == null || offset < 0) {
+            throw new StructuredOutputException("Compact itinerary row has no valid day offset: " + row);
+        }
+        return startDate.plusDays(offset);
+    }
+
+    private String currency(List<Object> row, int index) {
+        String currency = text(row, index);
+        return currency == null || currency.isBlank() ? defaultCurrency : currency;
+    }
+
+    private static String text(List<Object> row, int index) {
+        Object value = index < row.size() ? row.get(index) : null;
+        return value == null ? null : value.toString();
+    }
+
+    private static Integer number(List<Object> row, int index) {
+        Object value = index < row.size() ? row.get(index) : null;
+        if (value instanceof Integer number) {
+            return number;
+        }
+        if (value instanceof Boolean flag) {
+            return flag ? 1 : 0;
+        }
+        if (value instanceof String string) {
+            try {
+                return (int) Math.round(Double.parseDouble(string.trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Position in the text being parsed.
+     */
+    private static final class Cursor {
+
+        private final String text;
+        private int pos;
+
+        Cursor(String text, int pos) {
+            this.text = text;
+            this.pos = pos;
+        }
+
+        /**
+         * @return the next non-whitespace character, consumed unless it starts a value
+         */
+        char nextToken() {
+            char c = peek();
+            if (c != '"' && c != '[' && c != '{' && c != '-' && !Character.isDigit(c) && !Character.isLetter(c)) {
+                pos++;
+            }
+            return c;
+        }
+
+        void expect(char expected) {
+            char c = peek();
+            if (c != expected) {
+                throw error("expected '" + expected + "' but found '" + c + "'");
+            }
+            pos++;
+        }
+
+        /**
+         * Reads the next row of an array of rows into {@code row}.
+         *
+         * @return false when the enclosing array ended
+         */
+        boolean nextRow(List<Object> row) {
+            while (true) {
+                char c = peek();
+                if (c == ',') {
+                    pos++;
+                } else if (c == ']') {
+                    pos++;
+                    return false;
+                } else {
+                    break;
+                }
+            }
+            expect('[');
+            row.clear();
+            while (true) {
+                char c = peek();
+                if (c == ']') {
+                    pos++;
+                    return true;
+                }
+                if (c == ',') {
+                    pos++;
+                    continue;
+                }
+                row.add(scalar());
+            }
+        }
+
+        private Object scalar() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                return number();
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            if (c == '[' || c == '{') {
+                skipValue();
+                return null;
+            }
+            throw error("unexpected '" + c + "'");
+        }
+
+        String string() {
+            expect('"');
+            int start = pos;
+            int end = text.indexOf('"', start);
+            int escape = text.indexOf('\\', start);
+            if (end < 0) {
+                throw error("unterminated string");
+            }
+            if (escape < 0 || escape > end) {
+                pos = end + 1;
+                return text.substring(start, end);
+            }
+            StringBuilder value = new StringBuilder(end - start + 16);
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 't' -> value.append('\t');
+                    case 'r' -> value.append('\r');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("truncated unicode escape");
+                        }
+                        value.append((char) Integer.parseInt(text, pos, pos + 4, 16));
+                        pos += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        /**
+         * Reads a number as an int, rounding fractions.
+         */
+        private Integer number() {
+            int start = pos;
+            boolean fraction = false;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '.' || c == 'e' || c == 'E' || c == '+') {
+                    fraction = true;
+                } else if (c != '-' && !Character.isDigit(c)) {
+                    break;
+                }
+                pos++;
+            }
+            try {
+                if (fraction) {
+                    return (int) Math.round(Double.parseDouble(text.substring(start, pos)));
+                }
+                return Integer.parseInt(text, start, pos, 10);
+            } catch (NumberFormatException e) {
+                throw error("invalid number");
+            }
+        }
+
+        /**
+         * Skips any JSON value, e.g. of a key this format does not use.
+         */
+        void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                string();
+                return;
+            }
+            if (c != '[' && c != '{') {
+                scalar();
+                return;
+            }
+            int depth = 0;
+            while (pos < text.length()) {
+                char next = text.charAt(pos);
+                if (next == '"') {
+                    string();
+                    continue;
+                }
+                pos++;
+                if (next == '[' || next == '{') {
+                    depth++;
+                } else if ((next == ']' || next == '}') && --depth == 0) {
+                    return;
+                }
+            }
+            throw error("unterminated value");
+        }
+
+        private char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos >= text.length()) {
+                throw error("unexpected end of output");
+            }
+            return text.charAt(pos);
+        }
+
+        private StructuredOutputException error(String problem) {
+            return new StructuredOutputException("Compact itinerary " + problem + " at offset " + pos);
+        }
+    }
+}
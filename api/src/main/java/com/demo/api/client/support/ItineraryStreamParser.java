@@ -0,0 +1,189 @@
+package com.demo.api.client.support;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally parses a streamed itinerary JSON document.
+ * Chunks are pushed into Jackson's non-blocking parser; every element of "daily_summaries"
+ * and "activities" is buffered token by token and handed to the callbacks as soon as its
+ * closing brace arrives, long before the whole document is complete.
+ * Anything before the root object (e.g. a markdown fence) and after it is ignored.
+ * Not thread-safe: feed chunks from a single thread in arrival order.
+ */
+public class ItineraryStreamParser {
+
+    private static final String DAILY_SUMMARIES = "daily_summaries";
+    private static final String ACTIVITIES = "activities";
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<ItineraryDTO.DailySummaryDTO> onDailySummary;
+    private final Consumer<ItineraryDTO.ActivityDTO> onActivity;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private final List<ItineraryDTO.DailySummaryDTO> dailySummaries = new ArrayList<>();
+    private final List<ItineraryDTO.ActivityDTO> activities = new ArrayList<>();
+
+    private boolean started;
+    private boolean completed;
+    private int depth;
+    private String currentField;
+    private String currentArray;
+    private TokenBuffer element;
+    private int elementDepth;
+
+    public ItineraryStreamParser(ObjectMapper objectMapper,
+                                 Consumer<ItineraryDTO.DailySummaryDTO> onDailySummary,
+                                 Consumer<ItineraryDTO.ActivityDTO> onActivity) {
+        this.objectMapper = objectMapper;
+        this.onDailySummary = onDailySummary;
+        this.onActivity = onActivity;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create streaming JSON parser", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feeds the next chunk of model output and emits every element it completes.
+     */
+    public void feed(String chunk) {
+        if (completed || chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        if (!started) {
+            int rootStart = chunk.indexOf('{');
+            if (rootStart < 0) {
+                return;
+            }
+            chunk = chunk.substring(rootStart);
+            started = true;
+        }
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            throw new IllegalStateException("OpenAI stream is not valid itinerary JSON", e);
+        }
+    }
+
+    /**
+     * Signals the end of the stream.
+     *
+     * @return the complete itinerary assembled from all emitted elements
+     */
+    public ItineraryDTO finish() {
+        feeder.endOfInput();
+        if (!completed) {
+            throw new IllegalStateException("OpenAI stream ended before the itinerary JSON was complete");
+        }
+        return ItineraryDTO.builder()
+                .dailySummaries(List.copyOf(dailySummaries))
+                .activities(List.copyOf(activities))
+                .build();
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!completed && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE) {
+            if (token == null) {
+                completed = true;
+                return;
+            }
+            if (element != null) {
+                bufferElementToken(token);
+            } else {
+                handleStructureToken(token);
+            }
+        }
+    }
+
+    private void handleStructureToken(JsonToken token) {
+        switch (token) {
+            case FIELD_NAME -> currentField = depth == 1 ? currentFieldName() : currentField;
+            case START_ARRAY -> {
+                depth++;
+                if (depth == 2) {
+                    currentArray = currentField;
+                }
+            }
+            case START_OBJECT -> {
+                if (depth == 2 && (DAILY_SUMMARIES.equals(currentArray) || ACTIVITIES.equals(currentArray))) {
+                    element = new TokenBuffer(parser);
+                    elementDepth = 0;
+                    bufferElementToken(token);
+                } else {
+                    depth++;
+                }
+            }
+            case END_ARRAY, END_OBJECT -> {
+                depth--;
+                if (depth == 1) {
+                    currentArray = null;
+                } else if (depth == 0) {
+                    completed = true;
+                }
+            }
+            default -> {
+                // scalar values outside the two arrays are not needed
+            }
+        }
+    }
+
+    private void bufferElementToken(JsonToken token) {
+        try {
+            element.copyCurrentEvent(parser);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to buffer streamed itinerary element", e);
+        }
+        if (token.isStructStart()) {
+            elementDepth++;
+        } else if (token.isStructEnd()) {
+            elementDepth--;
+        }
+        if (elementDepth == 0) {
+            TokenBuffer completedElement = element;
+            element = null;
+            emit(completedElement);
+        }
+    }
+
+    private void emit(TokenBuffer buffer) {
+        try (JsonParser elementParser = buffer.asParser(objectMapper)) {
+            if (DAILY_SUMMARIES.equals(currentArray)) {
+                ItineraryDTO.DailySummaryDTO summary =
+                        objectMapper.readValue(elementParser, ItineraryDTO.DailySummaryDTO.class);
+                dailySummaries.add(summary);
+                onDailySummary.accept(summary);
+            } else {
+                ItineraryDTO.ActivityDTO activity = objectMapper.readValue(elementParser, ItineraryDTO.ActivityDTO.class);
+                activities.add(activity);
+                onActivity.accept(activity);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Streamed " + currentArray + " element could not be mapped", e);
+        }
+    }
+
+    private String currentFieldName() {
+        try {
+            return parser.currentName();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read streamed field name", e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.demo.api.client.support;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.converter.StructuredOutputConverter;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Structured output converter that repairs common model slips locally instead of failing the call:
+ * <ul>
+ *     <li>markdown fences or prose around the JSON object</li>
+ *     <li>trailing commas, comments, single quotes and unquoted field names</li>
+ *     <li>for itineraries, activity types outside transportation/hotel/attraction (mapped by synonym or by the
+ *     fields present)</li>
+ * </ul>
+ * Anything else raises a {@link StructuredOutputException} so the call is retried. The format instructions
+ * are the same as {@link BeanOutputConverter}'s; when the caller already sends them in the system message,
+ * {@link #getFormat()} returns an empty string so they are not appended to the user message again.
+ * Not thread-safe; use one instance per call.
+ */
+public class LenientOutputConverter<T> implements StructuredOutputConverter<T> {
+
+    private static final Set<String> ACTIVITY_TYPES = Set.of("transportation", "hotel", "attraction");
+    private static final Map<String, String> ACTIVITY_TYPE_SYNONYMS = Map.ofEntries(
+            Map.entry("transport", "transportation"),
+            Map.entry("flight", "transportation"),
+            Map.entry("train", "transportation"),
+            Map.entry("bus", "transportation"),
+            Map.entry("transfer", "transportation"),
+            Map.entry("accommodation", "hotel"),
+            Map.entry("lodging", "hotel"),
+            Map.entry("check-in", "hotel"),
+            Map.entry("restaurant", "attraction"),
+            Map.entry("meal", "attraction"),
+            Map.entry("food", "attraction"),
+            Map.entry("activity", "attraction"),
+            Map.entry("sightseeing", "attraction"));
+
+    private final Class<T> type;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper lenientMapper;
+    private final BeanOutputConverter<T> formatSource;
+    private final boolean formatInUserMessage;
+    private final List<String> repairs = new ArrayList<>();
+    private boolean strictParseFailed;
+
+    public LenientOutputConverter(Class<T> type, ObjectMapper objectMapper) {
+        this(type, objectMapper, true);
+    }
+
+    /**
+     * @param formatInUserMessage false when the format instructions are already part of the system message
+     */
+    public LenientOutputConverter(Class<T> type, ObjectMapper objectMapper, boolean formatInUserMessage) {
+        this.type = type;
+        this.formatInUserMessage = formatInUserMessage;
+        this.objectMapper = objectMapper;
+        this.lenientMapper = objectMapper.copy().enable(
+                JsonReadFeature.ALLOW_TRAILING_COMMA.mappedFeature(),
+                JsonReadFeature.ALLOW_JAVA_COMMENTS.mappedFeature(),
+                JsonReadFeature.ALLOW_SINGLE_QUOTES.mappedFeature(),
+                JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES.mappedFeature(),
+                JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS.mappedFeature());
+        this.formatSource = new BeanOutputConverter<>(type);
+    }
+
+    @Override
+    public String getFormat() {
+        return formatInUserMessage ? formatSource.getFormat() : "";
+    }
+
+    /**
+     * @return the format instructions regardless of where the caller sends them
+     */
+    public String getSchemaFormat() {
+        return formatSource.getFormat();
+    }
+
+    @Override
+    public T convert(@NonNull String text) {
+        if (!StringUtils.hasText(text)) {
+            throw new StructuredOutputException("OpenAI returned an empty completion");
+        }
+        String trimmed = text.trim();
+        String json = stripFences(trimmed);
+        if (!json.equals(trimmed)) {
+            repairs.add("markdown fence");
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException strict) {
+            strictParseFailed = true;
+            return repair(json, strict);
+        }
+    }
+
+    /**
+     * @return the repairs applied by the last {@link #convert(String)}, empty when the output was clean
+     */
+    public List<String> getRepairs() {
+        return List.copyOf(repairs);
+    }
+
+    /**
+     * @return true when the output only mapped after a repair, i.e. the repair saved a re-call
+     */
+    public boolean isStrictParseFailed() {
+        return strictParseFailed;
+    }
+
+    private T repair(String json, JsonProcessingException strict) {
+        String body = extractObject(json);
+        if (body == null) {
+            throw new StructuredOutputException("OpenAI response could not be mapped to " + type.getSimpleName(), strict);
+        }
+        if (!body.equals(json)) {
+            repairs.add("text around JSON");
+        }
+        JsonNode tree;
+        try {
+            tree = objectMapper.readTree(body);
+        } catch (JsonProcessingException syntax) {
+            try {
+                tree = lenientMapper.readTree(body);
+                repairs.add("lenient JSON syntax");
+            } catch (JsonProcessingException unrepairable) {
+                throw new StructuredOutputException("OpenAI response could not be mapped to " + type.getSimpleName(), unrepairable);
+            }
+        }
+        if (ItineraryDTO.class.isAssignableFrom(type)) {
+            normalizeActivityTypes(tree);
+        }
+        try {
+            return objectMapper.treeToValue(tree, type);
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            throw new StructuredOutputException("OpenAI response could not be mapped to " + type.getSimpleName(), ex);
+        }
+    }
+
+    private void normalizeActivityTypes(JsonNode tree) {
+        JsonNode activities = tree.path("activities");
+        if (!activities.isArray()) {
+            return;
+        }
+        for (JsonNode node : activities) {
+            if (!(node instanceof ObjectNode activity)) {
+                continue;
+            }
+            String raw = activity.path("type").asText("");
+            String normalized = raw.trim().toLowerCase(Locale.ROOT);
+            if (!ACTIVITY_TYPES.contains(normalized)) {
+                normalized = ACTIVITY_TYPE_SYNONYMS.getOrDefault(normalized, inferActivityType(activity));
+            }
+            if (!normalized.equals(raw)) {
+                activity.put("type", normalized);
+                repairs.add("activity type '" + raw + "' -> " + normalized);
+            }
+        }
+    }
+
+    private static String inferActivityType(ObjectNode activity) {
+        if (activity.hasNonNull("hotel_name") || activity.hasNonNull("room_type") || activity.hasNonNull("nights")) {
+            return "hotel";
+        }
+        if (activity.hasNonNull("from") && activity.hasNonNull("to")) {
+            return "transportation";
+        }
+        return "attraction";
+    }
+
+    private static String stripFences(String text) {
+        if (!text.startsWith("```")) {
+            return text;
+        }
+        int firstLineEnd = text.indexOf('\n');
+        String body = firstLineEnd < 0 ? "" : text.substring(firstLineEnd + 1);
+        if (body.stripTrailing().endsWith("```")) {
+            body = body.stripTrailing();
+            body = body.substring(0, body.length() - 3);
+        }
+        return body.trim();
+    }
+
+    /**
+     * @return the outermost {...} of the text, or null when there is none
+     */
+    private static String extractObject(String text) {
+        int start = text.indexOf('{');
+        int end = text.lastIndexOf('}');
+        return start < 0 || end <= start ? null : text.substring(start, end + 1);
+    }
+}
@@ -0,0 +1,127 @@
+package com.demo.api.client.support;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Carries the identity of the user an LLM call is made for, so the gateway can schedule calls fairly
+ * without widening the {@code OpenAiClient} signatures, optionally the subject the call is made about
+ * (e.g. {@code trip:42}) so recorded completions can be found again, and the {@link Workload} of the call
+ * that {@link LlmModelRouter} picks a model by. Bound per thread; use {@link #wrap(Runnable)}
+ * (e.g. as a TaskDecorator) to carry it onto pool threads.
+ */
+public final class LlmCallContext {
+
+    /** Caller used when no user is bound, e.g. for scheduled tasks. */
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final ThreadLocal<String> CALLER = new ThreadLocal<>();
+    private static final ThreadLocal<String> SUBJECT = new ThreadLocal<>();
+    private static final ThreadLocal<Workload> WORKLOAD = new ThreadLocal<>();
+
+    private LlmCallContext() {
+    }
+
+    /**
+     * Binds the caller to the current thread until the returned scope is closed.
+     */
+    public static Scope open(String callerId) {
+        return bind(CALLER, callerId);
+    }
+
+    /**
+     * Binds the subject to the current thread until the returned scope is closed; the caller is kept.
+     */
+    public static Scope openSubject(String subject) {
+        return bind(SUBJECT, subject);
+    }
+
+    /**
+     * Binds the workload of the calls made on the current thread until the returned scope is closed.
+     */
+    public static Scope openWorkload(Workload workload) {
+        return bind(WORKLOAD, workload);
+    }
+
+    /**
+     * Subject of calls made for a trip's plan and insights.
+     */
+    public static String tripSubject(Long tripId) {
+        return "trip:" + tripId;
+    }
+
+    public static String currentCaller() {
+        String caller = CALLER.get();
+        return caller == null || caller.isBlank() ? ANONYMOUS : caller;
+    }
+
+    /**
+     * @return the bound subject, or null when the call is not made about anything in particular
+     */
+    public static String currentSubject() {
+        return SUBJECT.get();
+    }
+
+    /**
+     * @return the bound workload, or null for calls that plan no trip days (e.g. insights)
+     */
+    public static Workload currentWorkload() {
+        return WORKLOAD.get();
+    }
+
+    /**
+     * Captures the current caller, subject and workload and re-binds them while {@code task} runs on another
+     * thread.
+     */
+    public static Runnable wrap(Runnable task) {
+        String caller = CALLER.get();
+        String subject = SUBJECT.get();
+        Workload workload = WORKLOAD.get();
+        if (caller == null && subject == null && workload == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope ignoredCaller = open(caller); Scope ignoredSubject = openSubject(subject);
+                 Scope ignoredWorkload = openWorkload(workload)) {
+                task.run();
+            }
+        };
+    }
+
+    private static <T> Scope bind(ThreadLocal<T> holder, T value) {
+        T previous = holder.get();
+        holder.set(value);
+        return () -> {
+            if (previous == null) {
+                holder.remove();
+            } else {
+                holder.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Size of an itinerary call: the days it plans and the length of the traveller's free-text preferences.
+     *
+     * @param escalation how many times this call is being repeated because an earlier completion failed
+     *                   validation; each repeat may be routed to a stronger model
+     */
+    public record Workload(int days, int preferenceChars, int escalation) {
+
+        public static Workload of(LocalDate from, LocalDate to, String preferences) {
+            int days = from == null || to == null || to.isBefore(from)
+                    ? 0 : (int) ChronoUnit.DAYS.between(from, to) + 1;
+            return new Workload(days, preferences == null ? 0 : preferences.strip().length(), 0);
+        }
+
+        public Workload escalated() {
+            return new Workload(days, preferenceChars, escalation + 1);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
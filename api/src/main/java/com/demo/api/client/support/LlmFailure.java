@@ -0,0 +1,145 @@
+package com.demo.api.client.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classification of a failed LLM call, plus the provider's Retry-After hint when it sent one.
+ */
+public record LlmFailure(Kind kind, Duration retryAfter) {
+
+    /** Spring AI reports HTTP errors as "429 - body" (default handler) or "HTTP 429 - body" (auto-configured). */
+    private static final Pattern STATUS_PREFIX = Pattern.compile("^(?:HTTP\\s+)?([45]\\d{2})\\b");
+    /** OpenAI repeats the wait in the error body, e.g. "Please try again in 1.2s" or "in 350ms". */
+    private static final Pattern TRY_AGAIN_IN = Pattern.compile("try again in (\\d+(?:\\.\\d+)?)\\s*(ms|s)\\b");
+
+    public enum Kind {
+        /** Connection, read or timeout failure before a response arrived. */
+        TRANSPORT(true, true),
+        /** HTTP 429. */
+        RATE_LIMITED(true, false),
+        /** HTTP 5xx or an empty response. */
+        SERVER(true, true),
+        /** The response did not match the requested schema. */
+        SCHEMA(true, false),
+        /** HTTP 4xx other than 429; the same request will fail again. */
+        CLIENT(false, false),
+        /** Anything else. */
+        UNKNOWN(true, false);
+
+        private final boolean retryable;
+        private final boolean providerFault;
+
+        Kind(boolean retryable, boolean providerFault) {
+            this.retryable = retryable;
+            this.providerFault = providerFault;
+        }
+
+        public boolean retryable() {
+            return retryable;
+        }
+
+        /**
+         * @return true when the failure suggests the provider is unreachable or broken (counts towards the circuit)
+         */
+        public boolean providerFault() {
+            return providerFault;
+        }
+    }
+
+    public static LlmFailure classify(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StructuredOutputException || cause instanceof JsonProcessingException) {
+                return new LlmFailure(Kind.SCHEMA, null);
+            }
+            if (cause instanceof RestClientResponseException rest) {
+                return fromStatus(rest.getStatusCode().value(), retryAfter(rest.getResponseHeaders(), rest.getMessage()));
+            }
+            if (cause instanceof WebClientResponseException web) {
+                return fromStatus(web.getStatusCode().value(), retryAfter(web.getHeaders(), web.getMessage()));
+            }
+            if (cause instanceof TransientAiException || cause instanceof NonTransientAiException) {
+                String message = cause.getMessage() == null ? "" : cause.getMessage();
+                Matcher status = STATUS_PREFIX.matcher(message);
+                if (status.find()) {
+                    return fromStatus(Integer.parseInt(status.group(1)), retryAfter(null, message));
+                }
+                return new LlmFailure(cause instanceof TransientAiException ? Kind.SERVER : Kind.CLIENT, null);
+            }
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                    || cause instanceof ResourceAccessException || cause instanceof WebClientRequestException) {
+                return new LlmFailure(Kind.TRANSPORT, null);
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return new LlmFailure(Kind.UNKNOWN, null);
+    }
+
+    private static LlmFailure fromStatus(int status, Duration retryAfter) {
+        if (status == 429) {
+            return new LlmFailure(Kind.RATE_LIMITED, retryAfter);
+        }
+        if (status == 408) {
+            return new LlmFailure(Kind.TRANSPORT, retryAfter);
+        }
+        if (status >= 500) {
+            return new LlmFailure(Kind.SERVER, retryAfter);
+        }
+        return new LlmFailure(Kind.CLIENT, null);
+    }
+
+    /**
+     * Reads retry-after-ms / Retry-After (seconds or HTTP date), falling back to the wait quoted in the error body.
+     */
+    static Duration retryAfter(HttpHeaders headers, String message) {
+        if (headers != null) {
+            String millis = headers.getFirst("retry-after-ms");
+            if (millis != null) {
+                try {
+                    return Duration.ofMillis(Math.max(0, (long) Double.parseDouble(millis.trim())));
+                } catch (NumberFormatException ignored) {
+                    // fall through to Retry-After
+                }
+            }
+            String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            if (value != null) {
+                try {
+                    return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+                } catch (NumberFormatException notSeconds) {
+                    try {
+                        Instant at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                        Duration wait = Duration.between(Instant.now(), at);
+                        return wait.isNegative() ? Duration.ZERO : wait;
+                    } catch (RuntimeException ignored) {
+                        // unparseable header, fall through to the message
+                    }
+                }
+            }
+        }
+        if (message != null) {
+            Matcher matcher = TRY_AGAIN_IN.matcher(message);
+            if (matcher.find()) {
+                double amount = Double.parseDouble(matcher.group(1));
+                return Duration.ofMillis((long) ("ms".equals(matcher.group(2)) ? amount : amount * 1000));
+            }
+        }
+        return null;
+    }
+}
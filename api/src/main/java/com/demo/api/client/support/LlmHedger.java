@@ -0,0 +1,248 @@
+package com.demo.api.client.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedges slow LLM calls: when the primary call has not finished after the {@code percentile} latency of the
+ * recent calls of the same kind, a backup call is started and the first valid result wins; the other call is
+ * cancelled (its thread is interrupted). A call that fails is not a result, so the other one is waited for.
+ * <ul>
+ *     <li>No call is hedged until {@code minSamples} latencies of its kind are known, nor before {@code minDelay}</li>
+ *     <li>Each call earns {@code budgetRatio} of a hedge, up to {@code maxBurst}; a hedge spends one, so at most
+ *     about {@code budgetRatio} of the calls are doubled, however slow the provider gets</li>
+ *     <li>A backup call takes its own permit from the {@link AdaptiveConcurrencyLimiter} without waiting; when
+ *     none is free the call is not hedged, so hedging never pushes the provider past the adaptive limit</li>
+ *     <li>The latency window holds the last {@code window} primaries, counting a cancelled primary as the time
+ *     it ran, so hedging does not hide the tail it is measured on</li>
+ * </ul>
+ * Calls run on virtual threads with the {@link LlmCallContext} of the caller.
+ * Counts hedges in {@value #HEDGE_METRIC} by outcome: backup-won, primary-won, over-budget or no-permit.
+ */
+public class LlmHedger {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmHedger.class);
+    public static final String HEDGE_METRIC = "llm.hedges";
+
+    private final double percentile;
+    private final Duration minDelay;
+    private final int minSamples;
+    private final int window;
+    private final double budgetRatio;
+    private final double maxBurst;
+    private final String backupModel;
+    private final MeterRegistry meterRegistry;
+    private final Executor executor;
+    /** Null when backup calls do not take a permit. */
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private double budget;
+
+    public LlmHedger(double percentile, Duration minDelay, int minSamples, int window, double budgetRatio,
+                     int maxBurst, String backupModel, MeterRegistry meterRegistry,
+                     AdaptiveConcurrencyLimiter limiter) {
+        this(percentile, minDelay, minSamples, window, budgetRatio, maxBurst, backupModel, meterRegistry, limiter,
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    LlmHedger(double percentile, Duration minDelay, int minSamples, int window, double budgetRatio, int maxBurst,
+              String backupModel, MeterRegistry meterRegistry, AdaptiveConcurrencyLimiter limiter,
+              Executor executor) {
+        Assert.isTrue(percentile > 0 && percentile < 1, "Hedging percentile must be between 0 and 1");
+        Assert.isTrue(window > 0, "Latency window must be positive");
+        this.percentile = percentile;
+        this.minDelay = minDelay == null || minDelay.isNegative() ? Duration.ZERO : minDelay;
+        this.minSamples = Math.max(1, Math.min(minSamples, window));
+        this.window = window;
+        this.budgetRatio = Math.max(0, budgetRatio);
+        this.maxBurst = Math.max(1, maxBurst);
+        this.backupModel = StringUtils.hasText(backupModel) ? backupModel.trim() : null;
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        this.limiter = limiter;
+        this.budget = 1;
+    }
+
+    /**
+     * @return model the backup call should use, or null to repeat the primary's model
+     */
+    public String getBackupModel() {
+        return backupModel;
+    }
+
+    /**
+     * Runs {@code primary}, hedging it with {@code backup} when it is slow.
+     *
+     * @param kind calls of the same kind share a latency window, e.g. one per response type and route
+     * @return the first valid result
+     */
+    public <T> T call(String kind, Callable<T> primary, Callable<T> backup) {
+        LatencyWindow latency = latencies.computeIfAbsent(kind, ignored -> new LatencyWindow(window));
+        earn();
+        Duration delay = latency.percentile(percentile, minSamples);
+        long started = System.nanoTime();
+        if (delay == null) {
+            try {
+                return primary.call();
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IllegalStateException("LLM call failed", ex);
+            } finally {
+                latency.record(System.nanoTime() - started);
+            }
+        }
+        delay = delay.compareTo(minDelay) < 0 ? minDelay : delay;
+
+        ExecutorCompletionService<T> calls = new ExecutorCompletionService<>(task -> executor.execute(LlmCallContext.wrap(task)));
+        Future<T> first = calls.submit(primary);
+        Future<T> second = null;
+        AdaptiveConcurrencyLimiter.Permit permit = null;
+        try {
+            Future<T> done = calls.poll(delay.toNanos(), TimeUnit.NANOSECONDS);
+            if (done == null) {
+                permit = limiter == null ? null : limiter.tryAcquire();
+                if (limiter != null && permit == null) {
+                    meterRegistry.counter(HEDGE_METRIC, "outcome", "no-permit").increment();
+                } else if (spend()) {
+                    log.debug("Hedging {} call after {} ms", kind, delay.toMillis());
+                    second = calls.submit(withPermit(backup, permit));
+                } else {
+                    meterRegistry.counter(HEDGE_METRIC, "outcome", "over-budget").increment();
+                }
+                done = calls.take();
+            }
+            return race(calls, done, first, second, latency, started);
+        } catch (InterruptedException ex) {
+            first.cancel(true);
+            if (second != null) {
+                second.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling OpenAI", ex);
+        } finally {
+            // a backup that lost the race or never started hands its permit back here; release is idempotent
+            if (permit != null) {
+                limiter.release(permit, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+            }
+        }
+    }
+
+    /**
+     * Releases the backup's permit as soon as it finishes, with a rate limit counting as a capacity signal.
+     */
+    private <T> Callable<T> withPermit(Callable<T> backup, AdaptiveConcurrencyLimiter.Permit permit) {
+        if (permit == null) {
+            return backup;
+        }
+        return () -> {
+            try {
+                T result = backup.call();
+                limiter.release(permit, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+                return result;
+            } catch (Exception ex) {
+                limiter.release(permit, LlmFailure.classify(ex).kind() == LlmFailure.Kind.RATE_LIMITED
+                        ? AdaptiveConcurrencyLimiter.Outcome.DROPPED
+                        : AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                throw ex;
+            }
+        };
+    }
+
+    private <T> T race(ExecutorCompletionService<T> calls, Future<T> done, Future<T> first, Future<T> second,
+                       LatencyWindow latency, long started) throws InterruptedException {
+        RuntimeException failure = null;
+        boolean primaryDone = false;
+        int pending = second == null ? 1 : 2;
+        while (true) {
+            pending--;
+            if (done == first) {
+                primaryDone = true;
+                latency.record(System.nanoTime() - started);
+            }
+            try {
+                T result = done.get();
+                if (second != null) {
+                    if (!primaryDone) {
+                        latency.record(System.nanoTime() - started);
+                    }
+                    (done == first ? second : first).cancel(true);
+                    meterRegistry.counter(HEDGE_METRIC, "outcome", done == first ? "primary-won" : "backup-won").increment();
+                }
+                return result;
+            } catch (ExecutionException ex) {
+                RuntimeException cause = unwrap(ex);
+                failure = failure == null || done == first ? cause : failure;
+            }
+            if (pending == 0) {
+                throw failure;
+            }
+            done = calls.take();
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException("LLM call failed", cause);
+    }
+
+    private synchronized void earn() {
+        budget = Math.min(maxBurst, budget + budgetRatio);
+    }
+
+    private synchronized boolean spend() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    /**
+     * Ring buffer of the latest call latencies, in nanoseconds.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized Duration percentile(double percentile, int minSamples) {
+            if (size < minSamples) {
+                return null;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return Duration.ofNanos(sorted[Math.max(0, Math.min(index, size - 1))]);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.demo.api.client.support;
+
+import org.springframework.util.Assert;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Picks the model and output token limit of each LLM call by what the call has to produce:
+ * <ul>
+ *     <li>Calls with no {@link LlmCallContext.Workload} (insights and other short answers) take {@link Tier#LIGHT}</li>
+ *     <li>Itinerary calls of 1 to {@code lightMaxDays} days with short preferences take {@link Tier#LIGHT}</li>
+ *     <li>Calls of at least {@code heavyMinDays} days, or with preferences of at least
+ *     {@code heavyMinPreferenceChars} characters, take {@link Tier#HEAVY}</li>
+ *     <li>Everything else takes {@link Tier#STANDARD}</li>
+ * </ul>
+ * A segment of a long trip is routed by the days of the segment, not of the trip. When escalation is enabled,
+ * each repeat of a call whose completion failed validation moves one tier up, up to {@link Tier#HEAVY}.
+ */
+public class LlmModelRouter {
+
+    public enum Tier {
+        LIGHT, STANDARD, HEAVY;
+
+        Tier stronger() {
+            return this == HEAVY ? HEAVY : values()[ordinal() + 1];
+        }
+    }
+
+    /**
+     * @param base tier the call would take without escalation
+     */
+    public record Route(Tier tier, Tier base, String model, int maxTokens) {
+
+        public boolean escalated() {
+            return tier != base;
+        }
+    }
+
+    private final Map<Tier, Route> routes = new EnumMap<>(Tier.class);
+    private final int lightMaxDays;
+    private final int lightMaxPreferenceChars;
+    private final int heavyMinDays;
+    private final int heavyMinPreferenceChars;
+    private final boolean escalate;
+
+    public LlmModelRouter(String lightModel, int lightMaxTokens,
+                          String standardModel, int standardMaxTokens,
+                          String heavyModel, int heavyMaxTokens,
+                          int lightMaxDays, int lightMaxPreferenceChars,
+                          int heavyMinDays, int heavyMinPreferenceChars,
+                          boolean escalate) {
+        Assert.hasText(lightModel, "Light model must not be empty");
+        Assert.hasText(standardModel, "Standard model must not be empty");
+        Assert.hasText(heavyModel, "Heavy model must not be empty");
+        Assert.isTrue(lightMaxDays < heavyMinDays, "Light max days must be below heavy min days");
+        routes.put(Tier.LIGHT, new Route(Tier.LIGHT, Tier.LIGHT, lightModel, lightMaxTokens));
+        routes.put(Tier.STANDARD, new Route(Tier.STANDARD, Tier.STANDARD, standardModel, standardMaxTokens));
+        routes.put(Tier.HEAVY, new Route(Tier.HEAVY, Tier.HEAVY, heavyModel, heavyMaxTokens));
+        this.lightMaxDays = lightMaxDays;
+        this.lightMaxPreferenceChars = lightMaxPreferenceChars;
+        this.heavyMinDays = heavyMinDays;
+        this.heavyMinPreferenceChars = heavyMinPreferenceChars;
+        this.escalate = escalate;
+    }
+
+    /**
+     * @param workload     workload bound by the caller, or null
+     * @param extraRepeats repeats of the call on top of {@code workload.escalation()}, e.g. schema retries
+     */
+    public Route route(LlmCallContext.Workload workload, int extraRepeats) {
+        Tier base = tierOf(workload);
+        Tier tier = base;
+        if (escalate) {
+            int repeats = extraRepeats + (workload == null ? 0 : workload.escalation());
+            for (int i = 0; i < repeats; i++) {
+                tier = tier.stronger();
+            }
+        }
+        Route route = routes.get(tier);
+        return new Route(tier, base, route.model(), route.maxTokens());
+    }
+
+    Tier tierOf(LlmCallContext.Workload workload) {
+        if (workload == null) {
+            return Tier.LIGHT;
+        }
+        if (workload.days() >= heavyMinDays || workload.preferenceChars() >= heavyMinPreferenceChars) {
+            return Tier.HEAVY;
+        }
+        if (workload.days() > 0 && workload.days() <= lightMaxDays
+                && workload.preferenceChars() <= lightMaxPreferenceChars) {
+            return Tier.LIGHT;
+        }
+        return Tier.STANDARD;
+    }
+}
@@ -0,0 +1,134 @@
+package com.demo.api.client.support;
+
+import com.demo.api.exception.BusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Retries LLM calls by failure kind (see {@link LlmFailure}) behind a {@link CircuitBreaker}.
+ * <ul>
+ *     <li>Transport, 429, 5xx and unclassified failures get up to {@code maxAttempts} attempts with full-jitter
+ *     exponential backoff ({@code random(0, min(maxBackoff, backoff * 2^(attempt-1)))})</li>
+ *     <li>A provider Retry-After replaces the backoff; one longer than {@code maxRetryAfter} is not waited for</li>
+ *     <li>Schema mismatches get up to {@code schemaAttempts} immediate re-asks; other 4xx are not retried</li>
+ *     <li>While the circuit is open, calls fail fast with a {@link BusinessException}</li>
+ * </ul>
+ * The first attempt runs on the calling thread. Retries are scheduled on a timer and run on a virtual
+ * thread, so no thread sleeps through the backoff.
+ */
+public class LlmRetryEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmRetryEngine.class);
+    static final String UNAVAILABLE_MESSAGE = "AI planner is temporarily unavailable, please try again later";
+
+    private final int maxAttempts;
+    private final int schemaAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Duration maxRetryAfter;
+    private final CircuitBreaker circuitBreaker;
+    private final Executor executor;
+    private final DoubleSupplier random;
+
+    public LlmRetryEngine(int maxAttempts, int schemaAttempts, Duration backoff, Duration maxBackoff,
+                          Duration maxRetryAfter, CircuitBreaker circuitBreaker) {
+        this(maxAttempts, schemaAttempts, backoff, maxBackoff, maxRetryAfter, circuitBreaker,
+                Executors.newVirtualThreadPerTaskExecutor(), () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    LlmRetryEngine(int maxAttempts, int schemaAttempts, Duration backoff, Duration maxBackoff, Duration maxRetryAfter,
+                   CircuitBreaker circuitBreaker, Executor executor, DoubleSupplier random) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.schemaAttempts = Math.max(1, Math.min(this.maxAttempts, schemaAttempts));
+        this.backoff = backoff == null || backoff.isNegative() ? Duration.ofMillis(500) : backoff;
+        this.maxBackoff = maxBackoff == null || maxBackoff.compareTo(this.backoff) < 0 ? this.backoff : maxBackoff;
+        this.maxRetryAfter = maxRetryAfter == null ? Duration.ofSeconds(30) : maxRetryAfter;
+        this.circuitBreaker = circuitBreaker;
+        this.executor = executor;
+        this.random = random;
+    }
+
+    /**
+     * @return a future completed with the first successful result, or with the last failure
+     */
+    public <T> CompletableFuture<T> execute(Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(call, 1, result);
+        return result;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private <T> void attempt(Supplier<T> call, int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            result.completeExceptionally(new BusinessException(UNAVAILABLE_MESSAGE));
+            return;
+        }
+
+        T value;
+        try {
+            value = call.get();
+        } catch (RuntimeException ex) {
+            LlmFailure failure = LlmFailure.classify(ex);
+            if (failure.kind().providerFault()) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+            Duration delay = nextDelay(failure, attempt);
+            if (delay == null) {
+                result.completeExceptionally(ex);
+                return;
+            }
+            log.warn("LLM call failed on attempt {}/{} ({}), retrying in {} ms: {}", attempt, maxAttempts,
+                    failure.kind(), delay.toMillis(), ex.getMessage());
+            Executor next = delay.isZero() ? executor
+                    : CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS, executor);
+            try {
+                next.execute(() -> attempt(call, attempt + 1, result));
+            } catch (RejectedExecutionException rejected) {
+                result.completeExceptionally(ex);
+            }
+            return;
+        } catch (Error error) {
+            circuitBreaker.recordSuccess();
+            result.completeExceptionally(error);
+            throw error;
+        }
+        circuitBreaker.recordSuccess();
+        result.complete(value);
+    }
+
+    /**
+     * @return the wait before the next attempt, or null when the failure should not be retried
+     */
+    Duration nextDelay(LlmFailure failure, int attempt) {
+        LlmFailure.Kind kind = failure.kind();
+        if (!kind.retryable() || attempt >= maxAttempts) {
+            return null;
+        }
+        if (kind == LlmFailure.Kind.SCHEMA) {
+            return attempt < schemaAttempts ? Duration.ZERO : null;
+        }
+        if (failure.retryAfter() != null) {
+            return failure.retryAfter().compareTo(maxRetryAfter) > 0 ? null : failure.retryAfter();
+        }
+        long ceiling = Math.min(maxBackoff.toMillis(), backoff.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis((long) (random.getAsDouble() * ceiling));
+    }
+}
@@ -0,0 +1,33 @@
+package com.demo.api.client.support;
+
+/**
+ * Rough BPE token count for prompt sizing without a tokenizer dependency: ASCII letter/digit runs count one
+ * token per 4 characters, each other visible ASCII character one token and each non-ASCII character one
+ * token. Whitespace is folded into the following token. Good to about ±15% for English prompts.
+ */
+public final class PromptTokenEstimator {
+
+    private PromptTokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            tokens += (run + 3) / 4;
+            run = 0;
+            if (!Character.isWhitespace(c) && !Character.isLowSurrogate(c)) {
+                tokens++;
+            }
+        }
+        return tokens + (run + 3) / 4;
+    }
+}
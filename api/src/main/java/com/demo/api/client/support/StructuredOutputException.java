@@ -0,0 +1,15 @@
+package com.demo.api.client.support;
+
+/**
+ * The model answered, but its output could not be mapped to the requested type.
+ */
+public class StructuredOutputException extends IllegalStateException {
+
+    public StructuredOutputException(String message) {
+        super(message);
+    }
+
+    public StructuredOutputException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
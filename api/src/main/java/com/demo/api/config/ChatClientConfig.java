@@ -1,11 +1,21 @@
 package com.demo.api.config;
 
+import com.demo.api.client.support.AdaptiveConcurrencyLimiter;
+import com.demo.api.client.support.LlmHedger;
+import com.demo.api.client.support.LlmModelRouter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
- * Exposes a {@link ChatClient} bean backed by the Spring AI auto-configured builder.
+ * Exposes a {@link ChatClient} bean backed by the Spring AI auto-configured builder, the
+ * {@link AdaptiveConcurrencyLimiter} every LLM call takes a permit from, the {@link LlmModelRouter} that picks a model per call when {@code app.openai.routing.enabled} is set and the
+ * {@link LlmHedger} that hedges slow calls when {@code app.openai.hedging.enabled} is set.
  */
 @Configuration
 public class ChatClientConfig {
@@ -14,5 +24,51 @@ public class ChatClientConfig {
     public ChatClient chatClient(ChatClient.Builder builder) {
         return builder.build();
     }
-}
 
+    @Bean
+    public AdaptiveConcurrencyLimiter llmConcurrencyLimiter(
+            @Value("${app.openai.gateway.initial-limit:8}") int initialLimit,
+            @Value("${app.openai.gateway.min-limit:2}") int minLimit,
+            @Value("${app.openai.gateway.max-limit:32}") int maxLimit,
+            @Value("${app.openai.gateway.max-queue:200}") int maxQueue,
+            @Value("${app.openai.gateway.max-wait:PT2M}") Duration maxWait,
+            @Value("${app.openai.gateway.backoff-ratio:0.75}") double backoffRatio,
+            @Value("${app.openai.gateway.latency-tolerance:2.0}") double latencyTolerance) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, maxQueue, maxWait, backoffRatio,
+                latencyTolerance);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.openai.routing", name = "enabled", havingValue = "true")
+    public LlmModelRouter llmModelRouter(
+            @Value("${app.openai.routing.light.model:gpt-4o-mini}") String lightModel,
+            @Value("${app.openai.routing.light.max-tokens:2500}") int lightMaxTokens,
+            @Value("${app.openai.routing.standard.model:gpt-4o-mini}") String standardModel,
+            @Value("${app.openai.routing.standard.max-tokens:6000}") int standardMaxTokens,
+            @Value("${app.openai.routing.heavy.model:gpt-4o}") String heavyModel,
+            @Value("${app.openai.routing.heavy.max-tokens:12000}") int heavyMaxTokens,
+            @Value("${app.openai.routing.light-max-days:3}") int lightMaxDays,
+            @Value("${app.openai.routing.light-max-preference-chars:200}") int lightMaxPreferenceChars,
+            @Value("${app.openai.routing.heavy-min-days:8}") int heavyMinDays,
+            @Value("${app.openai.routing.heavy-min-preference-chars:800}") int heavyMinPreferenceChars,
+            @Value("${app.openai.routing.escalate:true}") boolean escalate) {
+        return new LlmModelRouter(lightModel, lightMaxTokens, standardModel, standardMaxTokens, heavyModel,
+                heavyMaxTokens, lightMaxDays, lightMaxPreferenceChars, heavyMinDays, heavyMinPreferenceChars, escalate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.openai.hedging", name = "enabled", havingValue = "true")
+    public LlmHedger llmHedger(
+            MeterRegistry meterRegistry,
+            AdaptiveConcurrencyLimiter llmConcurrencyLimiter,
+            @Value("${app.openai.hedging.percentile:0.95}") double percentile,
+            @Value("${app.openai.hedging.min-delay:PT5S}") Duration minDelay,
+            @Value("${app.openai.hedging.min-samples:20}") int minSamples,
+            @Value("${app.openai.hedging.window:200}") int window,
+            @Value("${app.openai.hedging.budget-ratio:0.05}") double budgetRatio,
+            @Value("${app.openai.hedging.max-burst:5}") int maxBurst,
+            @Value("${app.openai.hedging.model:}") String backupModel) {
+        return new LlmHedger(percentile, minDelay, minSamples, window, budgetRatio, maxBurst, backupModel, meterRegistry,
+                llmConcurrencyLimiter);
+    }
+}
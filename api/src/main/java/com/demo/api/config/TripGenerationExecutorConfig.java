@@ -0,0 +1,112 @@
+package com.demo.api.config;
+
+import com.demo.api.client.support.LlmCallContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded worker pool that runs trip generation jobs off the servlet request threads.
+ * Generation throughput is governed by the pool size rather than by HTTP timeouts.
+ * Insights precomputed after a plan is stored, trip cover images and weather refreshes get small pools of their own.
+ */
+@Configuration
+public class TripGenerationExecutorConfig {
+
+    @Bean(name = "tripGenerationExecutor")
+    public ThreadPoolTaskExecutor tripGenerationExecutor(
+            @Value("${app.trip.generation.workers:4}") int workers,
+            @Value("${app.trip.generation.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, workers));
+        executor.setMaxPoolSize(Math.max(1, workers));
+        executor.setQueueCapacity(Math.max(0, queueCapacity));
+        executor.setThreadNamePrefix("trip-gen-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the per-segment LLM calls of long trips in parallel, and the evergreen insight call next to the contextual
+     * one on a destination cache miss. Kept separate from the job pool so a job never waits on a segment queued
+     * behind other jobs; when saturated the job thread runs the segment itself.
+     */
+    @Bean(name = "tripSegmentExecutor")
+    public ThreadPoolTaskExecutor tripSegmentExecutor(
+            @Value("${app.trip.generation.segment.workers:8}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, workers));
+        executor.setMaxPoolSize(Math.max(1, workers));
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("trip-seg-");
+        // segment calls are scheduled under the user of the job that spawned them
+        executor.setTaskDecorator(LlmCallContext::wrap);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs background insight generation. Rejects work when the queue is full; the insights are then
+     * generated on a later request.
+     */
+    @Bean(name = "tripInsightExecutor")
+    public ThreadPoolTaskExecutor tripInsightExecutor(
+            @Value("${app.trip.insights.workers:2}") int workers,
+            @Value("${app.trip.insights.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, workers));
+        executor.setMaxPoolSize(Math.max(1, workers));
+        executor.setQueueCapacity(Math.max(0, queueCapacity));
+        executor.setThreadNamePrefix("trip-insight-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Looks up the cover images of new trips. Rejects work when the queue is full; those trips are then
+     * covered by the periodic backfill.
+     */
+    @Bean(name = "tripCoverImageExecutor")
+    public ThreadPoolTaskExecutor tripCoverImageExecutor(
+            @Value("${app.trip.cover.workers:1}") int workers,
+            @Value("${app.trip.cover.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, workers));
+        executor.setMaxPoolSize(Math.max(1, workers));
+        executor.setQueueCapacity(Math.max(0, queueCapacity));
+        executor.setThreadNamePrefix("trip-cover-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Fetches the forecasts of the scheduled weather refresh, one destination per task, so the pool size bounds
+     * the OpenWeather calls in flight. Destinations rejected by a full queue are refreshed on the next run.
+     */
+    @Bean(name = "weatherRefreshExecutor")
+    public ThreadPoolTaskExecutor weatherRefreshExecutor(
+            @Value("${app.weather.refresh.workers:4}") int workers,
+            @Value("${app.weather.refresh.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, workers));
+        executor.setMaxPoolSize(Math.max(1, workers));
+        executor.setQueueCapacity(Math.max(0, queueCapacity));
+        executor.setThreadNamePrefix("weather-refresh-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
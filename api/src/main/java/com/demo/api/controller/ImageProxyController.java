@@ -0,0 +1,190 @@
+package com.demo.api.controller;
+
+import com.demo.api.service.ImageProxyService;
+import com.demo.api.utils.UnsplashImgUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Same-origin proxy for Unsplash images: /ext/unsplash/&lt;image-path&gt; serves
+ * https://images.unsplash.com/&lt;image-path&gt; from the local disk cache.
+ * Unknown query parameters answer 404 and misses beyond the upstream rate limit 503.
+ * Supports conditional requests (ETag / If-None-Match) and single byte ranges. Files are handed to Tomcat's
+ * sendfile when the connector supports it, otherwise copied with {@link FileChannel#transferTo}.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/ext/unsplash")
+@RequiredArgsConstructor
+public class ImageProxyController {
+
+    static final String PREFIX = "/ext/unsplash/";
+    private static final String CACHE_CONTROL = "public, max-age=604800, immutable";
+    private static final String RETRY_AFTER_SECONDS = "60";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    /** Returned by {@link #parseRange} for a range outside the file. */
+    static final long[] UNSATISFIABLE = new long[0];
+
+    private final ImageProxyService imageProxyService;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @GetMapping("/**")
+    public void image(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = urlPathHelper.getPathWithinApplication(request);
+        path = path.startsWith(PREFIX) ? path.substring(PREFIX.length()) : "";
+        ImageProxyService.CachedImage image;
+        try {
+            image = imageProxyService.get(path, request.getQueryString());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        } catch (UnsplashImgUtils.RateLimitedException e) {
+            log.warn("Image proxy rate limited for {}", path);
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        } catch (IllegalStateException e) {
+            log.warn("Image proxy failed for {}", path, e);
+            response.sendError(HttpStatus.BAD_GATEWAY.value());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, image.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), image.etag())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long length = image.length();
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(image.etag()))) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (parsed != null) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        response.setContentLengthLong(end - start + 1);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return;
+        }
+        transfer(request, response, image.file(), start, end - start + 1);
+    }
+
+    /**
+     * Parses a single byte range; multiple or malformed ranges are ignored and the whole file is served.
+     *
+     * @return inclusive start and end, null to ignore the header, or {@link #UNSATISFIABLE}
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (start < 0 || start >= length) {
+                return UNSATISFIABLE;
+            }
+            return end < start ? null : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the bytes without copying them through the heap: Tomcat's sendfile when available, otherwise
+     * {@link FileChannel#transferTo} into the response stream.
+     */
+    private void transfer(HttpServletRequest request, HttpServletResponse response, Path file, long start, long count)
+            throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (NoSuchFileException e) {
+            // Evicted between the lookup and now; the browser retries the image.
+            log.warn("Cached image {} was evicted while serving", file);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+}
@@ -2,15 +2,21 @@ package com.demo.api.controller;
 
 import com.demo.api.ApiRespond;
 import com.demo.api.dto.*;
+import com.demo.api.service.TripGenerationJobService;
 import com.demo.api.service.TripGenerationService;
 import com.demo.api.service.TripInsightService;
+import com.demo.api.service.TripPlanStreamListener;
 import com.demo.api.service.TripService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,6 +25,9 @@ import java.util.List;
 public class TripController {
 
     private static final Logger log = LoggerFactory.getLogger(TripController.class);
+    private static final long STREAM_TIMEOUT_MS = 300_000L;
+
+    private final TripGenerationJobService tripGenerationJobService;
 
     private final TripGenerationService tripGenerationService;
 
@@ -26,34 +35,80 @@ public class TripController {
 
     private final TripService tripServiceImpl;
 
+    /**
+     * Queue a trip generation job; returns immediately with the job id to poll
+     * @param dto
+     * @param userId
+     * @return
+     */
     @PostMapping("/generate-plan")
-    public ApiRespond<Void> generatePlan(@RequestBody TripPreferenceRequestDTO dto,
-                                         @AuthenticationPrincipal String userId) {
+    public ApiRespond<TripGenerationJobDTO> generatePlan(@RequestBody TripPreferenceRequestDTO dto,
+                                                         @AuthenticationPrincipal String userId) {
 
         log.info("Received trip generation request: {}", dto);
 
-        tripGenerationService.generateTripAndReturnJson(dto, userId);
+        return ApiRespond.success(tripGenerationJobService.submitGeneration(dto, userId));
+    }
 
-        // return the generated JSON as the response body
-        return ApiRespond.success();
+    /**
+     * Queue a streaming trip generation job and push its progress as server-sent events:
+     * "job" (the queued job), "trip" (trip id), "timeline" (stored timeline after each day),
+     * then "done" or "error". The job can still be polled through /generation-job.
+     * @param dto
+     * @param userId
+     * @return
+     */
+    @PostMapping("/generate-plan/stream")
+    public SseEmitter generatePlanStream(@RequestBody TripPreferenceRequestDTO dto,
+                                        @AuthenticationPrincipal String userId) {
+        log.info("Received streaming trip generation request: {}", dto);
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        tripGenerationJobService.submitStreamingGeneration(dto, userId, new TimelineSseListener(emitter, tripServiceImpl));
+        return emitter;
     }
 
     /**
-     * replan a trip based on user new modification
+     * replan a trip based on user new modification; returns immediately with the job id to poll
      * @param tripId
      * @param modifyPlanDTO
      * @param userId
      * @return
      */
     @PostMapping("/regenerate-plan")
-    public ApiRespond<Void> regeneratePlan(@RequestParam("tripId") Long tripId,
-                                           @RequestBody ModifyPlanDTO modifyPlanDTO,
-                                           @AuthenticationPrincipal String userId) {
+    public ApiRespond<TripGenerationJobDTO> regeneratePlan(@RequestParam("tripId") Long tripId,
+                                                           @RequestBody ModifyPlanDTO modifyPlanDTO,
+                                                           @AuthenticationPrincipal String userId) {
         log.info("Received trip regeneration request: {}", modifyPlanDTO);
-        tripGenerationService.regenerateTrip(tripId, modifyPlanDTO, userId);
+        return ApiRespond.success(tripGenerationJobService.submitRegeneration(tripId, modifyPlanDTO, userId));
+    }
+
+    /**
+     * Restore a trip's plan from its recorded LLM completions without calling the model again
+     * @param tripId
+     * @param userId
+     * @return
+     */
+    @PostMapping("/replay-plan")
+    public ApiRespond<Void> replayPlan(@RequestParam("tripId") Long tripId,
+                                       @AuthenticationPrincipal String userId) {
+        log.info("Received trip plan replay request for trip {}", tripId);
+        tripGenerationService.replayTripPlan(tripId, userId);
         return ApiRespond.success();
     }
 
+    /**
+     * Get the status of a generation/regeneration job
+     * @param jobId
+     * @param userId
+     * @return
+     */
+    @GetMapping("/generation-job")
+    public ApiRespond<TripGenerationJobDTO> getGenerationJob(@RequestParam("jobId") Long jobId,
+                                                             @AuthenticationPrincipal String userId) {
+        return ApiRespond.success(tripGenerationJobService.getJob(jobId, userId));
+    }
+
     /**
      * Get the all trips details for the authenticated user
      * @param userId
@@ -65,9 +120,14 @@ public class TripController {
         return ApiRespond.success(tripServiceImpl.getTripDetails(Long.valueOf(userId)));
     }
 
+    /**
+     * Get the stored insights of a trip, or the status of their background generation to poll
+     * @param tripId
+     * @return
+     */
     @GetMapping("/insights")
-    public ApiRespond<List<TripInsightDTO>> getInsights(@RequestParam("tripId") Long tripId) {
-        return ApiRespond.success(tripInsightService.getOrGenerateInsights(tripId));
+    public ApiRespond<TripInsightsDTO> getInsights(@RequestParam("tripId") Long tripId) {
+        return ApiRespond.success(tripInsightService.getInsights(tripId));
     }
 
     /**
@@ -89,5 +149,46 @@ public class TripController {
         tripServiceImpl.deleteTripByIds(tripIds);
         return ApiRespond.success();
     }
-}
 
+    /**
+     * Forwards streamed generation progress to the browser. Send failures (e.g. the client went away)
+     * are logged and ignored so the generation job itself keeps running.
+     */
+    private record TimelineSseListener(SseEmitter emitter, TripService tripService) implements TripPlanStreamListener {
+
+        @Override
+        public void onQueued(TripGenerationJobDTO job) {
+            send(emitter, "job", job);
+        }
+
+        @Override
+        public void onTripCreated(Long tripId) {
+            send(emitter, "trip", tripId);
+        }
+
+        @Override
+        public void onDayStored(Long tripId, LocalDate date) {
+            send(emitter, "timeline", tripService.getTimeLine(tripId));
+        }
+
+        @Override
+        public void onCompleted(Long tripId) {
+            send(emitter, "done", tripId);
+            emitter.complete();
+        }
+
+        @Override
+        public void onFailed(Long tripId, Exception ex) {
+            send(emitter, "error", ex.getMessage() == null ? "Trip generation failed" : ex.getMessage());
+            emitter.complete();
+        }
+
+        static void send(SseEmitter emitter, String event, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping SSE event '{}': {}", event, e.getMessage());
+            }
+        }
+    }
+}
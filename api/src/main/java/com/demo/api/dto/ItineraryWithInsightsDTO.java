@@ -0,0 +1,29 @@
+package com.demo.api.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * An itinerary completion that also carries the destination insights, for prompts that ask for both in one
+ * call. Kept apart from {@link ItineraryDTO} so the schema of every other itinerary call stays unchanged.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class ItineraryWithInsightsDTO extends ItineraryDTO {
+
+    private List<InsightResponseDTO.InsightItem> insights;
+
+    public ItineraryWithInsightsDTO(ItineraryDTO itinerary, List<InsightResponseDTO.InsightItem> insights) {
+        super(itinerary.getDailySummaries(), itinerary.getActivities());
+        this.insights = insights;
+    }
+}
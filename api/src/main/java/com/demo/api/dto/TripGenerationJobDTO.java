@@ -0,0 +1,27 @@
+package com.demo.api.dto;
+
+import com.demo.api.enums.TripJobStatus;
+import com.demo.api.enums.TripJobType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Status view of a background trip generation job returned to the frontend for polling.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripGenerationJobDTO {
+    private Long jobId;
+    private Long tripId;
+    private TripJobType type;
+    private TripJobStatus status;
+    private String errorMessage;
+    private OffsetDateTime createdTime;
+    private OffsetDateTime finishedTime;
+}
@@ -0,0 +1,22 @@
+package com.demo.api.dto;
+
+import com.demo.api.enums.TripInsightStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Insights of a trip returned to the frontend for polling: the stored insights once {@link TripInsightStatus#READY},
+ * an empty list otherwise.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripInsightsDTO {
+    private TripInsightStatus status;
+    private List<TripInsightDTO> insights;
+}
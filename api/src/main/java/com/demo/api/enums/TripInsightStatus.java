@@ -0,0 +1,13 @@
+package com.demo.api.enums;
+
+/**
+ * Availability of a trip's insights, as seen by a client polling for them.
+ */
+public enum TripInsightStatus {
+    /** Insights are stored and returned with the status. */
+    READY,
+    /** Insights are being generated in the background; poll again. */
+    IN_PROGRESS,
+    /** Nothing is being generated, e.g. the trip has no attractions or the last attempt failed. */
+    UNAVAILABLE
+}
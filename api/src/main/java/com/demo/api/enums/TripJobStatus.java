@@ -0,0 +1,18 @@
+package com.demo.api.enums;
+
+/**
+ * Lifecycle states of a background trip generation job.
+ */
+public enum TripJobStatus {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    /**
+     * @return true once the job will not change state any more
+     */
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
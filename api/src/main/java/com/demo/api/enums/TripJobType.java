@@ -0,0 +1,9 @@
+package com.demo.api.enums;
+
+/**
+ * Kind of work a trip generation job performs.
+ */
+public enum TripJobType {
+    GENERATE,
+    REGENERATE
+}
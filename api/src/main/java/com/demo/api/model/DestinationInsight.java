@@ -0,0 +1,42 @@
+package com.demo.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Evergreen insights on a destination for a travel month, shared by every trip going there in that month.
+ * City and country are stored normalized, so "Paris " and "paris" map to one row.
+ */
+@Entity
+@Table(name = "destination_insight", indexes = {
+        @Index(name = "uk_destination_insight_key", columnList = "country_key, city_key, travel_month", unique = true)
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DestinationInsight extends BaseModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "city_key", nullable = false, length = 128)
+    private String cityKey;
+
+    @Column(name = "country_key", nullable = false, length = 128)
+    private String countryKey;
+
+    /** 1 (January) to 12 (December). */
+    @Column(name = "travel_month", nullable = false)
+    private Integer travelMonth;
+
+    /** Insight items as a JSON array. */
+    @ToString.Exclude
+    @Column(name = "insights", nullable = false, columnDefinition = "TEXT")
+    private String insights;
+}
@@ -0,0 +1,36 @@
+package com.demo.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Image urls found for a search query, keyed by the canonical form of the query.
+ * Urls are stored unsized; width and height are added per use.
+ */
+@Entity
+@Table(name = "image_search_cache", indexes = {
+        @Index(name = "uk_image_search_cache_query_key", columnList = "query_key", unique = true)
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageSearchCache extends BaseModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Canonical query, e.g. "night tokyo tower" for "Tokyo tower at night". */
+    @Column(name = "query_key", nullable = false, length = 255)
+    private String queryKey;
+
+    /** Unsized image urls as a JSON array, in the order the search returned them. */
+    @ToString.Exclude
+    @Column(name = "urls", nullable = false, columnDefinition = "TEXT")
+    private String urls;
+}
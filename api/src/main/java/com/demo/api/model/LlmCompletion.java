@@ -0,0 +1,49 @@
+package com.demo.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Raw LLM completion as returned by the provider, before any parsing.
+ * Content-addressed by the hash of the prompt that produced it, so an identical prompt maps to one row.
+ */
+@Entity
+@Table(name = "llm_completion", indexes = {
+        @Index(name = "uk_llm_completion_prompt_hash", columnList = "prompt_hash", unique = true),
+        @Index(name = "idx_llm_completion_subject", columnList = "subject")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmCompletion extends BaseModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** SHA-256 of response type, system message and user prompt, hex encoded. */
+    @Column(name = "prompt_hash", nullable = false, length = 64)
+    private String promptHash;
+
+    /** Simple name of the DTO the completion was requested as, e.g. "ItineraryDTO". */
+    @Column(name = "response_type", nullable = false, length = 128)
+    private String responseType;
+
+    /** What the completion was generated for, e.g. "trip:42"; null when not bound. */
+    @Column(name = "subject", length = 64)
+    private String subject;
+
+    /** GZIP-compressed UTF-8 completion text. */
+    @ToString.Exclude
+    @Column(name = "completion", nullable = false)
+    private byte[] completion;
+
+    /** Length of the uncompressed completion in characters. */
+    @Column(name = "completion_length")
+    private Integer completionLength;
+}
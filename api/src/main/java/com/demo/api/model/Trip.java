@@ -63,5 +63,9 @@ public class Trip extends BaseModel{
     /** Additional free-form notes or preferences from the user. */
     @Column(length = 1024)
     private String preferences;
+
+    /** Destination cover image url; blank when none was found, null until it has been looked up. */
+    @Column(name = "cover_image_url", length = 1024)
+    private String coverImageUrl;
 }
 
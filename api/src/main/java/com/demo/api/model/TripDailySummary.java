@@ -34,6 +34,7 @@ public class TripDailySummary extends BaseModel{
     @Column(nullable = false)
     private LocalDate date;
 
+    // Blank when no image was found, null while the lookup waits for Unsplash rate limit budget.
     @Column(name = "image_url")
     private String imageUrl;
 
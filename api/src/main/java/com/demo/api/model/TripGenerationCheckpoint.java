@@ -0,0 +1,47 @@
+package com.demo.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of a trip generation workflow after one of its nodes completed.
+ * A failed or interrupted run resumes from the newest checkpoint of its thread; the rows are removed
+ * once the run finishes.
+ */
+@Entity
+@Table(name = "trip_generation_checkpoint", indexes = {
+        @Index(name = "idx_trip_generation_checkpoint_thread_id", columnList = "thread_id"),
+        @Index(name = "uk_trip_generation_checkpoint_checkpoint_id", columnList = "checkpoint_id", unique = true)
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripGenerationCheckpoint extends BaseModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Workflow run the checkpoint belongs to, e.g. "trip:42". */
+    @Column(name = "thread_id", nullable = false, length = 128)
+    private String threadId;
+
+    @Column(name = "checkpoint_id", nullable = false, length = 64)
+    private String checkpointId;
+
+    /** Node that produced the state. */
+    @Column(name = "node_id", length = 64)
+    private String nodeId;
+
+    /** Node to run when resuming from this checkpoint. */
+    @Column(name = "next_node_id", length = 64)
+    private String nextNodeId;
+
+    /** Workflow state as a JSON object. */
+    @Column(columnDefinition = "TEXT")
+    private String state;
+}
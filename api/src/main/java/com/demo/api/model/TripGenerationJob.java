@@ -0,0 +1,82 @@
+package com.demo.api.model;
+
+import com.demo.api.enums.TripJobStatus;
+import com.demo.api.enums.TripJobType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Queued trip generation or regeneration request processed by the background worker pool.
+ * Persisted so that pending work survives an application restart.
+ */
+@Entity
+@Table(name = "trip_generation_job", indexes = {
+        @Index(name = "idx_trip_generation_job_user_id", columnList = "user_id"),
+        @Index(name = "idx_trip_generation_job_status", columnList = "status"),
+        @Index(name = "idx_trip_generation_job_coalesce_key", columnList = "coalesce_key")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripGenerationJob extends BaseModel {
+
+    /** Primary key, returned to the client as the job id. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Owner of the job. */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** Trip produced (generate) or targeted (regenerate) by the job; null until the trip row exists. */
+    @Column(name = "trip_id")
+    private Long tripId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TripJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @Builder.Default
+    private TripJobStatus status = TripJobStatus.PENDING;
+
+    /** JSON request body (TripPreferenceRequestDTO or ModifyPlanDTO) replayed by the worker. */
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    /**
+     * Identity of the request for single-flight coalescing: user plus payload fingerprint for generation,
+     * trip id for regeneration, where only one regeneration may be unfinished at a time. Null for jobs that
+     * are never coalesced.
+     */
+    @Column(name = "coalesce_key", length = 128)
+    private String coalesceKey;
+
+    /**
+     * Instance holding the job's lease. The lease lasts while the owner renews updated_time; a job whose
+     * owner stopped renewing it is taken over by another instance.
+     */
+    @Column(length = 64)
+    private String owner;
+
+    /** Number of times a worker has started this job. */
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "error_message", length = 1024)
+    private String errorMessage;
+
+    @Column(name = "started_time", columnDefinition = "timestamptz")
+    private OffsetDateTime startedTime;
+
+    @Column(name = "finished_time", columnDefinition = "timestamptz")
+    private OffsetDateTime finishedTime;
+}
@@ -0,0 +1,12 @@
+package com.demo.api.repository;
+
+import com.demo.api.model.DestinationInsight;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface DestinationInsightRepository extends JpaRepository<DestinationInsight, Long> {
+
+    Optional<DestinationInsight> findByCountryKeyAndCityKeyAndTravelMonth(String countryKey, String cityKey,
+                                                                          Integer travelMonth);
+}
@@ -0,0 +1,11 @@
+package com.demo.api.repository;
+
+import com.demo.api.model.ImageSearchCache;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ImageSearchCacheRepository extends JpaRepository<ImageSearchCache, Long> {
+
+    Optional<ImageSearchCache> findByQueryKey(String queryKey);
+}
@@ -0,0 +1,23 @@
+package com.demo.api.repository;
+
+import com.demo.api.model.LlmCompletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface LlmCompletionRepository extends JpaRepository<LlmCompletion, Long> {
+
+    Optional<LlmCompletion> findByPromptHash(String promptHash);
+
+    List<LlmCompletion> findBySubjectAndResponseTypeOrderByUpdatedTimeDesc(String subject, String responseType);
+
+    @Modifying
+    @Transactional
+    @Query("delete from LlmCompletion c where c.updatedTime < :updatedTime")
+    int deleteByUpdatedTimeBefore(OffsetDateTime updatedTime);
+}
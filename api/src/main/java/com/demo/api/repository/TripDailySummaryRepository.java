@@ -1,7 +1,11 @@
 package com.demo.api.repository;
 
 import com.demo.api.model.TripDailySummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.List;
@@ -11,5 +15,12 @@ public interface TripDailySummaryRepository extends JpaRepository<TripDailySumma
     List<TripDailySummary> findByTripId(Long tripId);
 
     void deleteByTripIdIn(Collection<Long> tripIds);
+
+    List<TripDailySummary> findByImageUrlIsNullOrderByIdAsc(Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update TripDailySummary s set s.imageUrl = :imageUrl where s.id = :id")
+    int updateImageUrl(Long id, String imageUrl);
 }
 
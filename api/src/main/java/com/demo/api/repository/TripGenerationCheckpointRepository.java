@@ -0,0 +1,28 @@
+package com.demo.api.repository;
+
+import com.demo.api.model.TripGenerationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface TripGenerationCheckpointRepository extends JpaRepository<TripGenerationCheckpoint, Long> {
+
+    List<TripGenerationCheckpoint> findByThreadIdOrderByIdDesc(String threadId);
+
+    Optional<TripGenerationCheckpoint> findByCheckpointId(String checkpointId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TripGenerationCheckpoint c where c.threadId = :threadId")
+    int deleteByThreadId(String threadId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TripGenerationCheckpoint c where c.createdTime < :createdTime")
+    int deleteByCreatedTimeBefore(OffsetDateTime createdTime);
+}
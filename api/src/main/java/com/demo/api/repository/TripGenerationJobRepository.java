@@ -0,0 +1,44 @@
+package com.demo.api.repository;
+
+import com.demo.api.enums.TripJobStatus;
+import com.demo.api.model.TripGenerationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TripGenerationJobRepository extends JpaRepository<TripGenerationJob, Long> {
+
+    Optional<TripGenerationJob> findByIdAndUserId(Long id, Long userId);
+
+    List<TripGenerationJob> findByStatusInAndUpdatedTimeBeforeOrderByIdAsc(Collection<TripJobStatus> statuses,
+                                                                          OffsetDateTime updatedBefore);
+
+    /**
+     * Takes the lease of an unfinished job for {@code owner}: succeeds when the owner already holds it or the
+     * holder stopped renewing it before {@code staleBefore}. The row-level update makes the claim atomic
+     * across instances.
+     *
+     * @return 1 when the lease was taken, 0 when the job is finished or leased by another instance
+     */
+    @Modifying
+    @Transactional
+    @Query("update TripGenerationJob j set j.owner = :owner, j.updatedTime = :now " +
+            "where j.id = :id and j.status in :statuses " +
+            "and (j.owner = :owner or j.updatedTime < :staleBefore)")
+    int claim(Long id, Collection<TripJobStatus> statuses, String owner, OffsetDateTime now,
+              OffsetDateTime staleBefore);
+
+    /**
+     * Renews the leases of every unfinished job held by {@code owner}.
+     */
+    @Modifying
+    @Transactional
+    @Query("update TripGenerationJob j set j.updatedTime = :now where j.owner = :owner and j.status in :statuses")
+    int renewLeases(String owner, Collection<TripJobStatus> statuses, OffsetDateTime now);
+}
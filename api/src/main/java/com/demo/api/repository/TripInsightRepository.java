@@ -16,4 +16,6 @@ public interface TripInsightRepository extends JpaRepository<TripInsight, Long>
     List<TripInsight> findByTripIdOrderById(@Param("tripId") Long tripId);
 
     void deleteByTripIdIn(Collection<Long> tripIds);
+
+    void deleteByTripId(Long tripId);
 }
@@ -1,9 +1,13 @@
 package com.demo.api.repository;
 
 import com.demo.api.model.Trip;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -26,4 +30,20 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
 
     void deleteByUserIdIn(Collection<Long> userIds);
 
+    List<Trip> findByCoverImageUrlIsNullOrderByIdDesc(Pageable pageable);
+
+    /**
+     * Trips that start on or before {@code horizon} and have not ended before {@code today}.
+     */
+    @Query("select t from Trip t where t.startDate <= :horizon and coalesce(t.endDate, t.startDate) >= :today")
+    List<Trip> findUpcoming(LocalDate today, LocalDate horizon);
+
+    /**
+     * Sets the cover image without touching updated_time, which orders the trip listing.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Trip t set t.coverImageUrl = :coverImageUrl where t.id = :tripId")
+    int updateCoverImageUrl(Long tripId, String coverImageUrl);
+
 }
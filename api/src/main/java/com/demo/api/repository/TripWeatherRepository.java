@@ -10,6 +10,8 @@ public interface TripWeatherRepository extends JpaRepository<TripWeather, Long>
 
     List<TripWeather> findByTripId(Long tripId);
 
+    List<TripWeather> findByTripIdIn(Collection<Long> tripIds);
+
     void deleteByTripIdIn(Collection<Long> tripIds);
 
     List<TripWeather> findAllByTripId(Long tripId);
@@ -0,0 +1,32 @@
+package com.demo.api.service;
+
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.model.Trip;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Shares the evergreen insights of a destination across all users, keyed by normalized city, country and the
+ * month the trip starts in. Only the insights tied to a trip's own attractions still need a call per trip.
+ */
+public interface DestinationInsightCacheService {
+
+    /**
+     * @return whether insights are split into a shared evergreen part and a per-trip part
+     */
+    boolean isEnabled();
+
+    /**
+     * Looks up the evergreen insights for the trip's destination and month.
+     *
+     * @return a private copy of the cached items, or empty on a miss or when the trip has no destination or start date
+     */
+    Optional<List<InsightResponseDTO.InsightItem>> lookup(Trip trip);
+
+    /**
+     * Stores the evergreen insights for the trip's destination and month, replacing any earlier ones.
+     * Failures are logged and do not propagate.
+     */
+    void store(Trip trip, List<InsightResponseDTO.InsightItem> insights);
+}
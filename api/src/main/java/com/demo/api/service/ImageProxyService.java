@@ -0,0 +1,30 @@
+package com.demo.api.service;
+
+import com.demo.api.utils.UnsplashImgUtils;
+
+import java.nio.file.Path;
+
+/**
+ * Serves Unsplash images from a local disk cache so repeated views never leave the box.
+ */
+public interface ImageProxyService {
+
+    /**
+     * Returns the cached copy of the image at the given images.unsplash.com path and query, fetching it once on a miss.
+     * Concurrent misses for the same image share one fetch.
+     *
+     * @param path  image path without a leading slash, e.g. {@code photo-123}
+     * @param query query string with the sizing parameters ({@code w}, {@code h}, {@code fit}, {@code fm}, {@code q},
+     *              {@code auto}), may be null
+     * @throws IllegalArgumentException when the path is not an Unsplash image path or a parameter is not supported
+     * @throws IllegalStateException    when the image cannot be fetched
+     * @throws UnsplashImgUtils.RateLimitedException when a miss would exceed the upstream rate limit
+     */
+    CachedImage get(String path, String query);
+
+    /**
+     * A cached image file; the ETag only depends on the url, as Unsplash never changes the bytes behind one.
+     */
+    record CachedImage(Path file, long length, String etag) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.demo.api.service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Caches image search results by a canonical form of the query, so "Tokyo tower at night" and
+ * "tokyo tower night" share one entry and repeated searches skip the image provider.
+ */
+public interface ImageSearchCacheService {
+
+    /**
+     * @return the unsized image urls cached for an equivalent query, or empty on a miss
+     */
+    Optional<List<String>> lookup(String query);
+
+    /**
+     * Stores the unsized image urls found for the query, replacing any earlier ones.
+     * Failures are logged and do not propagate.
+     */
+    void store(String query, List<String> urls);
+}
@@ -0,0 +1,27 @@
+package com.demo.api.service;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.model.Trip;
+
+import java.util.Optional;
+
+/**
+ * Caches generated itineraries by a canonical form of the trip preferences,
+ * so identical requests can skip the LLM call.
+ */
+public interface ItineraryCacheService {
+
+    /**
+     * Looks up an itinerary generated for equivalent preferences.
+     *
+     * @param trip           trip being planned
+     * @param weatherPresent whether a forecast is part of the prompt
+     * @return a private copy re-dated onto the trip's start date, or empty on a miss
+     */
+    Optional<ItineraryDTO> lookup(Trip trip, boolean weatherPresent);
+
+    /**
+     * Stores a copy of the itinerary for later lookups. Later changes to {@code itinerary} do not affect the cache.
+     */
+    void store(Trip trip, boolean weatherPresent, ItineraryDTO itinerary);
+}
@@ -0,0 +1,368 @@
+package com.demo.api.service;
+
+import com.demo.api.client.OpenAiClient;
+import com.demo.api.client.impl.OpenAiClientImpl;
+import com.demo.api.client.support.CompactItineraryParser;
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.ItineraryWithInsightsDTO;
+import com.demo.api.model.Trip;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Checks a generated itinerary against the hard constraints stated by {@link TripPlanPromptBuilder} and
+ * fixes what can be fixed deterministically, so the model is only re-called for real gaps.
+ * <ul>
+ *     <li>Repaired: entries outside the planned dates, duplicate summaries, a missing summary on a day that
+ *     has activities, activities out of date order, a departure/return leg that is misplaced or has
+ *     from/to swapped, more than {@value #MAX_ATTRACTIONS_PER_DAY} attractions on a day</li>
+ *     <li>Not repairable: a day with no activities, a missing departure or return leg</li>
+ * </ul>
+ * Outcomes are counted in llm.output.validations{stage=itinerary}; repairs that avoided a re-call in
+ * llm.output.calls.saved{stage=itinerary}.
+ */
+@Slf4j
+@Component
+public class ItineraryValidator {
+
+    static final int MAX_ATTRACTIONS_PER_DAY = 5;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxRecalls;
+    private final TripPlanPromptBuilder.Output output;
+
+    public ItineraryValidator(MeterRegistry meterRegistry, int maxRecalls) {
+        this(meterRegistry, maxRecalls, TripPlanPromptBuilder.Output.JSON);
+    }
+
+    /**
+     * @param output must match the prompt builder's, since it decides how completions are parsed
+     */
+    public ItineraryValidator(MeterRegistry meterRegistry, int maxRecalls, TripPlanPromptBuilder.Output output) {
+        this.meterRegistry = meterRegistry;
+        this.maxRecalls = Math.max(0, maxRecalls);
+        this.output = output == null ? TripPlanPromptBuilder.Output.JSON : output;
+    }
+
+    @Autowired
+    public ItineraryValidator(MeterRegistry meterRegistry,
+                              @Value("${app.trip.generation.validation.max-recalls:1}") int maxRecalls,
+                              @Value("${app.trip.prompt.output:json}") String output) {
+        this(meterRegistry, maxRecalls, TripPlanPromptBuilder.Output.of(output));
+    }
+
+    /**
+     * Generates the itinerary for {@code from..to} of the trip, repairing it locally and re-calling the model
+     * (at most {@code max-recalls} times) only while it has defects that cannot be repaired. When the budget
+     * runs out, the last repaired itinerary is returned as is. Calls are made with the
+     * {@link LlmCallContext.Workload} of {@code from..to}, escalated once per re-call.
+     */
+    public ItineraryDTO generate(OpenAiClient openAiClient, String prompt, Trip trip, LocalDate from, LocalDate to) {
+        return generate(openAiClient, prompt, trip, from, to, false);
+    }
+
+    /**
+     * Same as {@link #generate(OpenAiClient, String, Trip, LocalDate, LocalDate)} for a prompt that also asks
+     * for the destination insights (see {@link TripPlanPromptBuilder#isCombinedInsights()}). Only the itinerary
+     * is validated; when a re-call returns no insights, those of an earlier completion are kept.
+     *
+     * @return an {@link ItineraryWithInsightsDTO} when the model returned any insights, a plain itinerary otherwise
+     */
+    public ItineraryDTO generateWithInsights(OpenAiClient openAiClient, String prompt, Trip trip, LocalDate from, LocalDate to) {
+        return generate(openAiClient, prompt, trip, from, to, true);
+    }
+
+    private ItineraryDTO generate(OpenAiClient openAiClient, String prompt, Trip trip, LocalDate from, LocalDate to,
+                                  boolean withInsights) {
+        Assert.notNull(openAiClient, "OpenAiClient must not be null");
+        Assert.notNull(trip, "Trip must not be null");
+
+        LlmCallContext.Workload workload = LlmCallContext.Workload.of(from, to, trip.getPreferences());
+        ItineraryDTO itinerary = complete(openAiClient, prompt, trip, workload, withInsights);
+        List<InsightResponseDTO.InsightItem> insights = insightsOf(itinerary);
+        if (from == null || to == null || to.isBefore(from)) {
+            return withInsights(itinerary, insights);
+        }
+        for (int recall = 0; ; recall++) {
+            Report report = validate(trip, from, to, itinerary);
+            if (report.valid()) {
+                if (report.repaired()) {
+                    count("repaired");
+                    meterRegistry.counter(OpenAiClientImpl.CALLS_SAVED_METRIC, "stage", "itinerary").increment();
+                    log.info("Repaired itinerary for trip {} locally: {}", trip.getId(), report.repairs());
+                } else {
+                    count("clean");
+                }
+                return withInsights(itinerary, insights);
+            }
+            count("unrepairable");
+            if (recall >= maxRecalls) {
+                log.warn("Itinerary for trip {} still has defects after {} re-calls: {}",
+                        trip.getId(), recall, report.defects());
+                return withInsights(itinerary, insights);
+            }
+            log.info("Re-calling the model for trip {}: {}", trip.getId(), report.defects());
+            workload = workload.escalated();
+            itinerary = complete(openAiClient, prompt, trip, workload, withInsights);
+            if (insights == null) {
+                insights = insightsOf(itinerary);
+            }
+        }
+    }
+
+    private ItineraryDTO complete(OpenAiClient openAiClient, String prompt, Trip trip, LlmCallContext.Workload workload,
+                                  boolean withInsights) {
+        try (LlmCallContext.Scope ignored = LlmCallContext.openWorkload(workload)) {
+            if (output.compactFor(trip)) {
+                // the parser returns an ItineraryWithInsightsDTO when the completion has insight rows
+                return openAiClient.generate(prompt, ItineraryDTO.class, new CompactItineraryParser(trip.getStartDate(),
+                        StringUtils.hasText(trip.getCurrency()) ? trip.getCurrency() : "AUD"));
+            }
+            if (withInsights) {
+                return openAiClient.generate(prompt, ItineraryWithInsightsDTO.class);
+            }
+            return openAiClient.generate(prompt, ItineraryDTO.class);
+        }
+    }
+
+    private static List<InsightResponseDTO.InsightItem> insightsOf(ItineraryDTO itinerary) {
+        return itinerary instanceof ItineraryWithInsightsDTO combined && combined.getInsights() != null
+                && !combined.getInsights().isEmpty() ? combined.getInsights() : null;
+    }
+
+    /**
+     * @return an {@link ItineraryWithInsightsDTO} exactly when there are insights
+     */
+    private static ItineraryDTO withInsights(ItineraryDTO itinerary, List<InsightResponseDTO.InsightItem> insights) {
+        if (insights == null) {
+            return itinerary instanceof ItineraryWithInsightsDTO ? ItineraryDTO.builder()
+                    .dailySummaries(itinerary.getDailySummaries())
+                    .activities(itinerary.getActivities())
+                    .build() : itinerary;
+        }
+        return insightsOf(itinerary) != null ? itinerary : new ItineraryWithInsightsDTO(itinerary, insights);
+    }
+
+    /**
+     * Validates and repairs the itinerary in place for the dates {@code from..to}. The departure rule applies
+     * when {@code from} is the trip's first day and the return rule when {@code to} is its last day.
+     */
+    public Report validate(Trip trip, LocalDate from, LocalDate to, ItineraryDTO itinerary) {
+        Assert.notNull(itinerary, "Itinerary must not be null");
+        List<String> repairs = new ArrayList<>();
+        List<String> defects = new ArrayList<>();
+
+        List<ItineraryDTO.ActivityDTO> activities = Objects.requireNonNullElse(itinerary.getActivities(), List.of());
+        Map<LocalDate, List<ItineraryDTO.ActivityDTO>> byDate = new TreeMap<>();
+        int dropped = 0;
+        for (ItineraryDTO.ActivityDTO activity : activities) {
+            if (activity == null || !within(activity.getDate(), from, to)) {
+                dropped++;
+                continue;
+            }
+            byDate.computeIfAbsent(activity.getDate(), date -> new ArrayList<>()).add(activity);
+        }
+        if (dropped > 0) {
+            repairs.add("dropped " + dropped + " activities outside " + from + " to " + to);
+        }
+
+        List<ItineraryDTO.DailySummaryDTO> summaries = Objects.requireNonNullElse(itinerary.getDailySummaries(), List.of());
+        Map<LocalDate, ItineraryDTO.DailySummaryDTO> summaryByDate = new TreeMap<>();
+        int extra = 0;
+        for (ItineraryDTO.DailySummaryDTO summary : summaries) {
+            if (summary == null || !within(summary.getDate(), from, to)
+                    || summaryByDate.putIfAbsent(summary.getDate(), summary) != null) {
+                extra++;
+            }
+        }
+        if (extra > 0) {
+            repairs.add("dropped " + extra + " duplicate or out-of-range daily summaries");
+        }
+
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<ItineraryDTO.ActivityDTO> day = byDate.getOrDefault(date, List.of());
+            if (day.isEmpty()) {
+                defects.add("no activities on " + date);
+            } else if (!summaryByDate.containsKey(date)) {
+                summaryByDate.put(date, summarize(trip, date, day));
+                repairs.add("added missing daily summary for " + date);
+            }
+        }
+
+        String fromCity = trip.getFromCity();
+        String toCity = trip.getToCity();
+        ItineraryDTO.TransportationDTO departure = null;
+        if (from.equals(trip.getStartDate()) && byDate.containsKey(from)) {
+            departure = placeLeg(byDate.get(from), fromCity, toCity, true, null, repairs);
+            if (departure == null) {
+                defects.add("no departure transport on " + from);
+            }
+        }
+        if (to.equals(trip.getEndDate()) && byDate.containsKey(to)
+                && placeLeg(byDate.get(to), toCity, fromCity, false, departure, repairs) == null) {
+            defects.add("no return transport on " + to);
+        }
+        byDate.forEach((date, day) -> capAttractions(date, day, repairs));
+
+        List<ItineraryDTO.ActivityDTO> repairedActivities = byDate.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(ArrayList::new));
+        List<ItineraryDTO.DailySummaryDTO> repairedSummaries = new ArrayList<>(summaryByDate.values());
+        if (repairs.isEmpty() && (!sameOrder(activities, repairedActivities) || !sameOrder(summaries, repairedSummaries))) {
+            repairs.add("sorted entries by date");
+        }
+        itinerary.setActivities(repairedActivities);
+        itinerary.setDailySummaries(repairedSummaries);
+        return new Report(List.copyOf(repairs), List.copyOf(defects));
+    }
+
+    /**
+     * Finds the departure (first) or return (last) leg of the day, swaps its from/to when reversed and
+     * moves it to the required end of the day.
+     *
+     * @param skip a leg already used as the departure on a one-day trip
+     * @return the leg, or null when the day has no transportation to use
+     */
+    private ItineraryDTO.TransportationDTO placeLeg(List<ItineraryDTO.ActivityDTO> day, String origin, String destination,
+                                                    boolean first, ItineraryDTO.TransportationDTO skip, List<String> repairs) {
+        ItineraryDTO.TransportationDTO fallback = null;
+        ItineraryDTO.TransportationDTO leg = null;
+        for (int i = 0; i < day.size(); i++) {
+            ItineraryDTO.ActivityDTO activity = day.get(first ? i : day.size() - 1 - i);
+            if (!(activity instanceof ItineraryDTO.TransportationDTO transport) || transport == skip) {
+                continue;
+            }
+            if (fallback == null) {
+                fallback = transport;
+            }
+            if (matches(transport.getFrom(), origin) || matches(transport.getTo(), destination) || isSwapped(transport, origin, destination)) {
+                leg = transport;
+                break;
+            }
+        }
+        if (leg == null) {
+            leg = fallback;
+        }
+        if (leg == null) {
+            return null;
+        }
+        String which = first ? "departure" : "return";
+        if (isSwapped(leg, origin, destination)) {
+            String legFrom = leg.getFrom();
+            leg.setFrom(leg.getTo());
+            leg.setTo(legFrom);
+            repairs.add("swapped from/to of the " + which + " leg on " + leg.getDate());
+        }
+        int index = 0;
+        while (day.get(index) != leg) {
+            index++;
+        }
+        int target = first ? 0 : day.size() - 1;
+        if (index != target) {
+            day.remove(index);
+            if (first) {
+                day.add(0, leg);
+            } else {
+                day.add(leg);
+            }
+            repairs.add("moved the " + which + " leg to the " + (first ? "start" : "end") + " of " + leg.getDate());
+        }
+        return leg;
+    }
+
+    private void capAttractions(LocalDate date, List<ItineraryDTO.ActivityDTO> day, List<String> repairs) {
+        int attractions = 0;
+        int removed = 0;
+        for (Iterator<ItineraryDTO.ActivityDTO> it = day.iterator(); it.hasNext(); ) {
+            if (it.next() instanceof ItineraryDTO.AttractionDTO && ++attractions > MAX_ATTRACTIONS_PER_DAY) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            repairs.add("dropped " + removed + " attractions over the daily limit on " + date);
+        }
+    }
+
+    private ItineraryDTO.DailySummaryDTO summarize(Trip trip, LocalDate date, List<ItineraryDTO.ActivityDTO> day) {
+        String city = StringUtils.hasText(trip.getToCity()) ? trip.getToCity() : "the destination";
+        String titles = day.stream()
+                .map(ItineraryDTO.ActivityDTO::getTitle)
+                .filter(StringUtils::hasText)
+                .limit(3)
+                .collect(Collectors.joining(", "));
+        return ItineraryDTO.DailySummaryDTO.builder()
+                .date(date)
+                .summary(titles.isEmpty() ? "Exploring " + city : titles)
+                .imageDescription(city + " city sights")
+                .build();
+    }
+
+    private void count(String result) {
+        meterRegistry.counter(OpenAiClientImpl.VALIDATION_METRIC, "stage", "itinerary", "result", result).increment();
+    }
+
+    private static boolean isSwapped(ItineraryDTO.TransportationDTO leg, String origin, String destination) {
+        return matches(leg.getFrom(), destination) && matches(leg.getTo(), origin) && !matches(leg.getFrom(), origin);
+    }
+
+    /**
+     * Loose place match, e.g. "Sydney Airport (SYD)" matches "Sydney".
+     */
+    private static boolean matches(String place, String city) {
+        if (!StringUtils.hasText(place) || !StringUtils.hasText(city)) {
+            return false;
+        }
+        String a = place.trim().toLowerCase(Locale.ROOT);
+        String b = city.trim().toLowerCase(Locale.ROOT);
+        return a.contains(b) || b.contains(a);
+    }
+
+    private static boolean within(LocalDate date, LocalDate from, LocalDate to) {
+        return date != null && !date.isBefore(from) && !date.isAfter(to);
+    }
+
+    private static boolean sameOrder(List<?> original, List<?> repaired) {
+        if (original.size() != repaired.size()) {
+            return false;
+        }
+        for (int i = 0; i < original.size(); i++) {
+            if (original.get(i) != repaired.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param repairs fixes applied in place
+     * @param defects problems that need a new completion
+     */
+    public record Report(List<String> repairs, List<String> defects) {
+
+        public boolean valid() {
+            return defects.isEmpty();
+        }
+
+        public boolean repaired() {
+            return !repairs.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.demo.api.service;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Content-addressed store of raw LLM completions, keyed by the hash of the prompt that produced them.
+ * Completions are recorded before they are parsed so a plan that fails later can be replayed without
+ * paying for another call, and the same store serves the {@code replay} mode used by load tests and CI.
+ */
+public interface LlmCompletionService {
+
+    /**
+     * How {@code OpenAiClient} uses the store ({@code app.openai.recording.mode}).
+     */
+    enum Mode {
+        /** Call the provider and record every completion. */
+        RECORD,
+        /** Never call the provider; answer from recorded completions and fail on a miss. */
+        REPLAY,
+        /** Call the provider without recording. */
+        OFF;
+
+        public static Mode of(String value) {
+            return value == null || value.isBlank() ? RECORD : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Stores the raw completion under the prompt's hash, tagged with the subject bound in
+     * {@code LlmCallContext}. Never throws: a failure to record must not fail a paid call.
+     */
+    void record(String system, String user, Class<?> responseType, String completion);
+
+    /**
+     * @return the completion recorded for exactly this prompt, if any
+     */
+    Optional<String> find(String system, String user, Class<?> responseType);
+
+    /**
+     * @return completions of the given type recorded for the subject, newest first
+     */
+    List<String> findBySubject(String subject, Class<?> responseType);
+
+    /**
+     * Removes completions not recorded again since the cutoff.
+     *
+     * @return number of rows deleted
+     */
+    long purgeOlderThan(OffsetDateTime cutoff);
+}
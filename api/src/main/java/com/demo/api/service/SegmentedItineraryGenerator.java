@@ -0,0 +1,167 @@
+package com.demo.api.service;
+
+import com.demo.api.client.OpenAiClient;
+import com.demo.api.dto.DailyWeatherDTO;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.model.Trip;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Generates long trips as several short date segments planned by concurrent LLM calls.
+ * Every segment prompt carries the whole trip overview; only the edge segments carry the
+ * departure and return transport rules. Each part is repaired by {@link ItineraryValidator} for its own
+ * dates, then the parts are stitched in date order and validated so the result looks like a single-call itinerary.
+ */
+@Slf4j
+@Component
+public class SegmentedItineraryGenerator {
+
+    private final TripPlanPromptBuilder tripPlanPromptBuilder;
+    private final ItineraryValidator itineraryValidator;
+    private final TaskExecutor tripSegmentExecutor;
+    private final boolean enabled;
+    private final int minDays;
+    private final int segmentDays;
+
+    public SegmentedItineraryGenerator(TripPlanPromptBuilder tripPlanPromptBuilder,
+                                       ItineraryValidator itineraryValidator,
+                                       @Qualifier("tripSegmentExecutor") TaskExecutor tripSegmentExecutor,
+                                       @Value("${app.trip.generation.segment.enabled:true}") boolean enabled,
+                                       @Value("${app.trip.generation.segment.min-days:7}") int minDays,
+                                       @Value("${app.trip.generation.segment.days:4}") int segmentDays) {
+        this.tripPlanPromptBuilder = tripPlanPromptBuilder;
+        this.itineraryValidator = itineraryValidator;
+        this.tripSegmentExecutor = tripSegmentExecutor;
+        this.enabled = enabled;
+        this.minDays = Math.max(2, minDays);
+        this.segmentDays = Math.max(1, segmentDays);
+    }
+
+    /**
+     * @return true when the trip is long enough to be generated in segments
+     */
+    public boolean supports(Trip trip) {
+        if (!enabled || trip == null || trip.getStartDate() == null || trip.getEndDate() == null
+                || trip.getEndDate().isBefore(trip.getStartDate())) {
+            return false;
+        }
+        long days = ChronoUnit.DAYS.between(trip.getStartDate(), trip.getEndDate()) + 1;
+        return days >= minDays && days > segmentDays;
+    }
+
+    /**
+     * Plans every segment concurrently and stitches the parts into one itinerary.
+     *
+     * @throws IllegalStateException when a segment call fails or the stitched plan misses a day
+     */
+    public ItineraryDTO generate(Trip trip, List<DailyWeatherDTO> weatherList, OpenAiClient openAiClient) {
+        Assert.isTrue(supports(trip), "Trip is not eligible for segmented generation");
+        Assert.notNull(openAiClient, "OpenAiClient must not be null");
+
+        List<Segment> segments = split(trip.getStartDate(), trip.getEndDate(), segmentDays);
+        log.info("Generating trip {} in {} segments", trip.getId(), segments.size());
+
+        List<CompletableFuture<ItineraryDTO>> parts = new ArrayList<>();
+        for (Segment segment : segments) {
+            String prompt = tripPlanPromptBuilder.buildSegment(trip, weatherList, segment.start(), segment.end());
+            parts.add(CompletableFuture.supplyAsync(() -> itineraryValidator.generate(openAiClient, prompt, trip,
+                    segment.start(), segment.end()), tripSegmentExecutor));
+        }
+
+        List<ItineraryDTO> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<ItineraryDTO> part : parts) {
+                results.add(part.join());
+            }
+        } catch (CompletionException ex) {
+            parts.forEach(part -> part.cancel(true));
+            Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Segmented trip generation failed", cause);
+        }
+        return stitch(trip, segments, results);
+    }
+
+    /**
+     * Splits the inclusive date range into the fewest segments of at most {@code maxDays},
+     * spreading the days evenly (e.g. 14 days by 4 gives 4/4/3/3).
+     */
+    static List<Segment> split(LocalDate start, LocalDate end, int maxDays) {
+        int days = (int) ChronoUnit.DAYS.between(start, end) + 1;
+        int count = (days + maxDays - 1) / maxDays;
+        int base = days / count;
+        int remainder = days % count;
+
+        List<Segment> segments = new ArrayList<>(count);
+        LocalDate cursor = start;
+        for (int i = 0; i < count; i++) {
+            int length = base + (i < remainder ? 1 : 0);
+            LocalDate segmentEnd = cursor.plusDays(length - 1L);
+            segments.add(new Segment(cursor, segmentEnd));
+            cursor = segmentEnd.plusDays(1);
+        }
+        return segments;
+    }
+
+    /**
+     * Keeps each part's entries inside its own segment, one summary per date, and checks that
+     * every day of the trip is covered.
+     */
+    static ItineraryDTO stitch(Trip trip, List<Segment> segments, List<ItineraryDTO> parts) {
+        Map<LocalDate, ItineraryDTO.DailySummaryDTO> summaries = new TreeMap<>();
+        List<ItineraryDTO.ActivityDTO> activities = new ArrayList<>();
+
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            ItineraryDTO part = parts.get(i);
+            if (part == null) {
+                throw new IllegalStateException("Segment " + segment.start() + " to " + segment.end() + " returned no itinerary");
+            }
+            if (part.getDailySummaries() != null) {
+                part.getDailySummaries().stream()
+                        .filter(summary -> summary != null && segment.contains(summary.getDate()))
+                        .forEach(summary -> summaries.putIfAbsent(summary.getDate(), summary));
+            }
+            if (part.getActivities() != null) {
+                part.getActivities().stream()
+                        .filter(activity -> activity != null && segment.contains(activity.getDate()))
+                        .forEach(activities::add);
+            }
+        }
+
+        List<LocalDate> missing = trip.getStartDate().datesUntil(trip.getEndDate().plusDays(1))
+                .filter(date -> !summaries.containsKey(date))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Segmented itinerary is missing daily summaries for " + missing);
+        }
+
+        return ItineraryDTO.builder()
+                .dailySummaries(new ArrayList<>(summaries.values()))
+                .activities(activities)
+                .build();
+    }
+
+    record Segment(LocalDate start, LocalDate end) {
+
+        boolean contains(LocalDate date) {
+            return date != null && !date.isBefore(start) && !date.isAfter(end);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.demo.api.service;
+
+import com.demo.api.model.Trip;
+import com.demo.api.repository.TripRepository;
+import com.demo.api.utils.UnsplashImgUtils;
+import com.demo.api.utils.UnsplashRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up destination cover images once per trip and stores them on the trip, so listing trips needs no
+ * outbound calls. New trips are looked up in the background on the {@code tripCoverImageExecutor} pool;
+ * trips created before covers were stored, or whose lookup was rejected, are picked up by {@link #backfill(int)}.
+ * A trip whose destination has no image gets a blank cover and is not looked up again.
+ */
+@Slf4j
+@Component
+public class TripCoverImageResolver {
+
+    static final int WIDTH = 600;
+    static final int HEIGHT = 400;
+
+    private final TripRepository tripRepository;
+    private final UnsplashImgUtils unsplashImgUtils;
+    private final TaskExecutor tripCoverImageExecutor;
+
+    public TripCoverImageResolver(TripRepository tripRepository,
+                                  UnsplashImgUtils unsplashImgUtils,
+                                  @Qualifier("tripCoverImageExecutor") TaskExecutor tripCoverImageExecutor) {
+        this.tripRepository = tripRepository;
+        this.unsplashImgUtils = unsplashImgUtils;
+        this.tripCoverImageExecutor = tripCoverImageExecutor;
+    }
+
+    /**
+     * Looks up the cover image of the trip in the background, after the current transaction commits if there is one.
+     */
+    public void schedule(Trip trip) {
+        if (trip == null || trip.getId() == null || trip.getCoverImageUrl() != null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(trip);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override public void afterCommit() {
+                submit(trip);
+            }
+        });
+    }
+
+    /**
+     * Looks up the covers of up to {@code batchSize} trips that have none yet, newest first.
+     *
+     * @return the number of trips whose cover was stored
+     */
+    public int backfill(int batchSize) {
+        return resolve(tripRepository.findByCoverImageUrlIsNullOrderByIdDesc(PageRequest.of(0, Math.max(1, batchSize))));
+    }
+
+    /**
+     * Looks up each distinct destination once, all of them concurrently, and stores the covers.
+     * Trips whose lookup was rate limited keep no cover and are picked up again by the backfill.
+     */
+    int resolve(List<Trip> trips) {
+        List<Trip> pending = trips.stream().filter(trip -> trip.getCoverImageUrl() == null).toList();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<String> cities = pending.stream().map(Trip::getToCity).distinct().toList();
+        List<String> urls = unsplashImgUtils.getFirstImgUrls(cities, WIDTH, HEIGHT,
+                UnsplashRateLimiter.Priority.BACKGROUND);
+        Map<String, String> coverByCity = new HashMap<>();
+        for (int i = 0; i < cities.size(); i++) {
+            String url = i < urls.size() ? urls.get(i) : "";
+            if (url != null) {
+                coverByCity.put(cities.get(i), StringUtils.hasText(url) ? url : "");
+            }
+        }
+        int stored = 0;
+        for (Trip trip : pending) {
+            String cover = coverByCity.get(trip.getToCity());
+            if (cover == null) {
+                // Rate limited: the next backfill tries again.
+                continue;
+            }
+            tripRepository.updateCoverImageUrl(trip.getId(), cover);
+            trip.setCoverImageUrl(cover);
+            stored++;
+        }
+        return stored;
+    }
+
+    private void submit(Trip trip) {
+        try {
+            tripCoverImageExecutor.execute(() -> {
+                try {
+                    resolve(List.of(trip));
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to store the cover image of trip {}", trip.getId(), ex);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            log.debug("Cover image lookup of trip {} left to the backfill", trip.getId());
+        }
+    }
+}
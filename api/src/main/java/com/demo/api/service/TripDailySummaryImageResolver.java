@@ -0,0 +1,83 @@
+package com.demo.api.service;
+
+import com.demo.api.model.TripDailySummary;
+import com.demo.api.repository.TripDailySummaryRepository;
+import com.demo.api.utils.UnsplashImgUtils;
+import com.demo.api.utils.UnsplashRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills in daily summary images whose lookup was deferred because the Unsplash rate limit budget was spent.
+ * A null image url marks a deferred lookup, so the trip_daily_summary table itself is the queue and survives
+ * restarts. Lookups run at background priority and only as many as the budget allows, oldest first.
+ */
+@Slf4j
+@Component
+public class TripDailySummaryImageResolver {
+
+    static final int WIDTH = 500;
+    static final int HEIGHT = 500;
+
+    private final TripDailySummaryRepository tripDailySummaryRepository;
+    private final UnsplashImgUtils unsplashImgUtils;
+
+    public TripDailySummaryImageResolver(TripDailySummaryRepository tripDailySummaryRepository,
+                                         UnsplashImgUtils unsplashImgUtils) {
+        this.tripDailySummaryRepository = tripDailySummaryRepository;
+        this.unsplashImgUtils = unsplashImgUtils;
+    }
+
+    /**
+     * Looks up the images of up to {@code batchSize} deferred daily summaries, fewer when the background budget
+     * is lower.
+     *
+     * @return the number of daily summaries whose image url was stored
+     */
+    public int backfill(int batchSize) {
+        int budget = Math.min(Math.max(1, batchSize),
+                unsplashImgUtils.availableRequests(UnsplashRateLimiter.Priority.BACKGROUND));
+        if (budget <= 0) {
+            return 0;
+        }
+        List<TripDailySummary> deferred =
+                tripDailySummaryRepository.findByImageUrlIsNullOrderByIdAsc(PageRequest.of(0, budget));
+        if (deferred.isEmpty()) {
+            return 0;
+        }
+        List<String> descriptions = deferred.stream()
+                .map(TripDailySummary::getImageDescription)
+                .filter(StringUtils::hasText)
+                .distinct()
+                .toList();
+        List<String> urls = unsplashImgUtils.getFirstImgUrls(descriptions, WIDTH, HEIGHT,
+                UnsplashRateLimiter.Priority.BACKGROUND);
+        Map<String, String> urlByDescription = new HashMap<>();
+        for (int i = 0; i < descriptions.size(); i++) {
+            String url = i < urls.size() ? urls.get(i) : "";
+            if (url != null) {
+                urlByDescription.put(descriptions.get(i), StringUtils.hasText(url) ? url : "");
+            }
+        }
+        int stored = 0;
+        for (TripDailySummary summary : deferred) {
+            String url = StringUtils.hasText(summary.getImageDescription())
+                    ? urlByDescription.get(summary.getImageDescription())
+                    : "";
+            if (url == null) {
+                // Still rate limited: stays queued.
+                continue;
+            }
+            tripDailySummaryRepository.updateImageUrl(summary.getId(), url);
+            summary.setImageUrl(url);
+            stored++;
+        }
+        return stored;
+    }
+}
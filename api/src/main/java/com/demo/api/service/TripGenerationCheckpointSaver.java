@@ -0,0 +1,111 @@
+package com.demo.api.service;
+
+import com.demo.api.model.TripGenerationCheckpoint;
+import com.demo.api.repository.TripGenerationCheckpointRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.checkpoint.MemorySaver;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * langgraph4j checkpoint saver that writes every checkpoint through to trip_generation_checkpoint, so a run
+ * interrupted by a failure or a restart can resume from its last completed node. Checkpoints of a thread
+ * are read from the database the first time the thread is used in this process.
+ * State values must be JSON scalars (the trip generation workflow stores its DTOs as JSON strings).
+ */
+@Slf4j
+@Component
+public class TripGenerationCheckpointSaver extends MemorySaver {
+
+    private static final TypeReference<Map<String, Object>> STATE_TYPE = new TypeReference<>() {
+    };
+
+    private final TripGenerationCheckpointRepository checkpointRepository;
+    private final ObjectMapper objectMapper;
+
+    public TripGenerationCheckpointSaver(TripGenerationCheckpointRepository checkpointRepository, ObjectMapper objectMapper) {
+        this.checkpointRepository = checkpointRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Drops the in-memory copy of a thread whose run gave up; its rows stay for a later resume.
+     */
+    public void evict(String threadId) {
+        remove(threadId);
+    }
+
+    /**
+     * Removes checkpoints of runs that never finished and were not resumed.
+     *
+     * @return number of rows deleted
+     */
+    public long purgeOlderThan(OffsetDateTime cutoff) {
+        return checkpointRepository.deleteByCreatedTimeBefore(cutoff);
+    }
+
+    @Override
+    protected LinkedList<Checkpoint> loadedCheckpoints(RunnableConfig config, LinkedList<Checkpoint> checkpoints) throws Exception {
+        if (!checkpoints.isEmpty()) {
+            return checkpoints;
+        }
+        for (TripGenerationCheckpoint row : checkpointRepository.findByThreadIdOrderByIdDesc(threadId(config))) {
+            checkpoints.add(Checkpoint.builder()
+                    .id(row.getCheckpointId())
+                    .nodeId(row.getNodeId())
+                    .nextNodeId(row.getNextNodeId())
+                    .state(objectMapper.readValue(row.getState(), STATE_TYPE))
+                    .build());
+        }
+        if (!checkpoints.isEmpty()) {
+            log.info("Loaded {} checkpoints of {}, last node {}", checkpoints.size(), threadId(config),
+                    checkpoints.getFirst().getNodeId());
+        }
+        return checkpoints;
+    }
+
+    @Override
+    protected void insertedCheckpoint(RunnableConfig config, LinkedList<Checkpoint> checkpoints, Checkpoint checkpoint) throws Exception {
+        checkpointRepository.save(TripGenerationCheckpoint.builder()
+                .threadId(threadId(config))
+                .checkpointId(checkpoint.getId())
+                .nodeId(checkpoint.getNodeId())
+                .nextNodeId(checkpoint.getNextNodeId())
+                .state(writeState(checkpoint))
+                .build());
+    }
+
+    @Override
+    protected void updatedCheckpoint(RunnableConfig config, LinkedList<Checkpoint> checkpoints, Checkpoint checkpoint) throws Exception {
+        TripGenerationCheckpoint row = checkpointRepository.findByCheckpointId(checkpoint.getId())
+                .orElseGet(() -> TripGenerationCheckpoint.builder()
+                        .threadId(threadId(config))
+                        .checkpointId(checkpoint.getId())
+                        .build());
+        row.setNodeId(checkpoint.getNodeId());
+        row.setNextNodeId(checkpoint.getNextNodeId());
+        row.setState(writeState(checkpoint));
+        checkpointRepository.save(row);
+    }
+
+    @Override
+    protected void releasedCheckpoints(RunnableConfig config, LinkedList<Checkpoint> checkpoints, Tag releaseTag) throws Exception {
+        checkpointRepository.deleteByThreadId(threadId(config));
+    }
+
+    private String writeState(Checkpoint checkpoint) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(checkpoint.getState());
+    }
+
+    private static String threadId(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+}
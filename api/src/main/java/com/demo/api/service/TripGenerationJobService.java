@@ -0,0 +1,52 @@
+package com.demo.api.service;
+
+import com.demo.api.dto.ModifyPlanDTO;
+import com.demo.api.dto.TripGenerationJobDTO;
+import com.demo.api.dto.TripPreferenceRequestDTO;
+
+/**
+ * Queues trip generation work onto the background worker pool and exposes job status for polling.
+ */
+public interface TripGenerationJobService {
+
+    /**
+     * Persists a generation job and hands it to the worker pool. Returns immediately.
+     * While an identical request of the same user is unfinished, that job is returned instead.
+     */
+    TripGenerationJobDTO submitGeneration(TripPreferenceRequestDTO dto, String userId);
+
+    /**
+     * Like {@link #submitGeneration}, but the worker streams the itinerary and reports each stored day
+     * to the listener. A job resumed after a restart falls back to the non-streaming pipeline.
+     * Streaming submissions are not coalesced, since every stream needs its own listener.
+     */
+    TripGenerationJobDTO submitStreamingGeneration(TripPreferenceRequestDTO dto, String userId,
+                                                   TripPlanStreamListener listener);
+
+    /**
+     * Persists a regeneration job for an owned trip and hands it to the worker pool. Returns immediately.
+     * While a regeneration of the same trip with the same instructions is unfinished, that job is returned
+     * instead; while one with different instructions is unfinished, a BusinessException is thrown so the
+     * caller can resubmit once it has finished.
+     */
+    TripGenerationJobDTO submitRegeneration(Long tripId, ModifyPlanDTO modifyPlanDTO, String userId);
+
+    /**
+     * Returns the current state of a job owned by the user.
+     */
+    TripGenerationJobDTO getJob(Long jobId, String userId);
+
+    /**
+     * Renews the leases of the unfinished jobs queued or running on this instance.
+     *
+     * @return the number of renewed jobs
+     */
+    int renewLeases();
+
+    /**
+     * Claims and re-dispatches unfinished jobs whose lease expired, e.g. because their instance stopped.
+     *
+     * @return the number of resumed jobs
+     */
+    int resumeUnfinishedJobs();
+}
@@ -2,6 +2,7 @@ package com.demo.api.service;
 
 import com.demo.api.dto.TripPreferenceRequestDTO;
 import com.demo.api.dto.ModifyPlanDTO;
+import com.demo.api.model.Trip;
 
 public interface TripGenerationService {
 
@@ -14,5 +15,41 @@ public interface TripGenerationService {
 
     void generateTripAndReturnJson(TripPreferenceRequestDTO dto, String userId); // for testing purposes !!!
 
+    /**
+     * Persists the trip row for the submitted preferences without generating the itinerary.
+     *
+     * @param dto    user-submitted trip preference payload
+     * @param userId owner of the trip
+     * @return saved trip with its generated id
+     */
+    Trip createTrip(TripPreferenceRequestDTO dto, String userId);
+
+    /**
+     * Runs the itinerary pipeline (weather, prompt, LLM, storage) for an already persisted trip.
+     *
+     * @param trip persisted trip
+     */
+    void generateTripPlan(Trip trip);
+
+    /**
+     * Same pipeline as {@link #generateTripPlan(Trip)}, but consumes the LLM output as a stream and
+     * persists each day as soon as it is parsed, reporting progress to the listener. The stream is consumed and
+     * the listener called on the calling thread. The completed plan goes through the same repair pass and is
+     * stored again when that changed it.
+     *
+     * @param trip     persisted trip
+     * @param listener progress callback
+     */
+    void streamTripPlan(Trip trip, TripPlanStreamListener listener);
+
     void regenerateTrip(Long tripId, ModifyPlanDTO modifyPlanDTO, String userId);
+
+    /**
+     * Re-runs parsing, repair and storage of the trip's plan from its recorded LLM completions,
+     * e.g. after storing the generated plan failed. Makes no LLM call.
+     *
+     * @param tripId trip to restore
+     * @param userId owner of the trip
+     */
+    void replayTripPlan(Long tripId, String userId);
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.demo.api.service;
+
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.model.Trip;
+import com.demo.api.model.TripAttraction;
+import com.demo.api.repository.TripAttractionRepository;
+import com.demo.api.repository.TripInsightRepository;
+import com.demo.api.repository.TripRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Generates trip insights in the background on the {@code tripInsightExecutor} pool, so neither plan storage
+ * nor the insights endpoint waits for the LLM.
+ * <ul>
+ *     <li>At most one generation per trip is queued or running; scheduling a trip again meanwhile is a no-op</li>
+ *     <li>Scheduled inside a transaction, the generation starts after the commit, so it sees the stored plan</li>
+ *     <li>A trip whose insights are already stored is skipped without an LLM call</li>
+ *     <li>When a generation fails or stores nothing (no attractions), the trip is not scheduled again for
+ *     {@code app.trip.insights.retry-after}, so a polling client does not trigger a call per poll</li>
+ *     <li>Storing a plan {@link #reschedule reschedules} the trip regardless of that period, and a generation
+ *     still running from before the plan was stored is run once more</li>
+ * </ul>
+ * The LLM call runs without a transaction; only storing the insights opens a short one.
+ */
+@Slf4j
+@Component
+public class TripInsightPrecomputer {
+
+    private static final int MAX_TRACKED_FAILURES = 1_000;
+
+    private final ObjectProvider<TripInsightService> tripInsightServiceProvider;
+    private final TripRepository tripRepository;
+    private final TripAttractionRepository tripAttractionRepository;
+    private final TripInsightRepository tripInsightRepository;
+    private final TaskExecutor tripInsightExecutor;
+    private final Duration retryAfter;
+    /** Trips queued or running; true when their plan was stored meanwhile and they must run again. */
+    private final Map<Long, Boolean> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, Instant> unavailableUntil = new ConcurrentHashMap<>();
+
+    public TripInsightPrecomputer(ObjectProvider<TripInsightService> tripInsightServiceProvider,
+                                  TripRepository tripRepository,
+                                  TripAttractionRepository tripAttractionRepository,
+                                  TripInsightRepository tripInsightRepository,
+                                  @Qualifier("tripInsightExecutor") TaskExecutor tripInsightExecutor,
+                                  @Value("${app.trip.insights.retry-after:PT5M}") Duration retryAfter) {
+        this.tripInsightServiceProvider = tripInsightServiceProvider;
+        this.tripRepository = tripRepository;
+        this.tripAttractionRepository = tripAttractionRepository;
+        this.tripInsightRepository = tripInsightRepository;
+        this.tripInsightExecutor = tripInsightExecutor;
+        this.retryAfter = retryAfter == null || retryAfter.isNegative() ? Duration.ZERO : retryAfter;
+    }
+
+    /**
+     * Schedules the generation of the trip's insights, after the current transaction commits if there is one.
+     *
+     * @return true when a generation is queued or running for the trip, or will be after the commit; false
+     * when the trip is in its retry-after period or the pool is full
+     */
+    public boolean schedule(Long tripId) {
+        Assert.notNull(tripId, "tripId must not be null");
+        return afterCommit(() -> submit(tripId));
+    }
+
+    /**
+     * Same as {@link #schedule(Long)} for a trip whose plan was just stored: an earlier generation that found
+     * no plan yet does not hold the trip in its retry-after period, and one still running is run once more.
+     */
+    public boolean reschedule(Long tripId) {
+        Assert.notNull(tripId, "tripId must not be null");
+        return afterCommit(() -> {
+            // the running generation may have missed the plan; it runs again when it finishes
+            if (inFlight.computeIfPresent(tripId, (id, rerun) -> Boolean.TRUE) != null) {
+                return true;
+            }
+            unavailableUntil.remove(tripId);
+            return submit(tripId);
+        });
+    }
+
+    private boolean afterCommit(BooleanSupplier task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return task.getAsBoolean();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override public void afterCommit() {
+                task.getAsBoolean();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return true while a generation is queued or running for the trip
+     */
+    public boolean isInProgress(Long tripId) {
+        return inFlight.containsKey(tripId);
+    }
+
+    private boolean submit(Long tripId) {
+        Instant until = unavailableUntil.get(tripId);
+        if (until != null) {
+            if (Instant.now().isBefore(until)) {
+                return false;
+            }
+            unavailableUntil.remove(tripId, until);
+        }
+        if (inFlight.putIfAbsent(tripId, Boolean.FALSE) != null) {
+            return true;
+        }
+        try {
+            tripInsightExecutor.execute(() -> run(tripId));
+            return true;
+        } catch (TaskRejectedException ex) {
+            inFlight.remove(tripId);
+            log.warn("Insight worker pool rejected trip {}", tripId);
+            return false;
+        }
+    }
+
+    private void run(Long tripId) {
+        boolean stored = false;
+        try {
+            stored = tripInsightRepository.existsByTripId(tripId) || generateAndStore(tripId);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to precompute insights for trip {}", tripId, ex);
+        } finally {
+            if (!stored) {
+                if (unavailableUntil.size() >= MAX_TRACKED_FAILURES) {
+                    Instant now = Instant.now();
+                    unavailableUntil.values().removeIf(now::isAfter);
+                }
+                unavailableUntil.put(tripId, Instant.now().plus(retryAfter));
+            }
+            if (Boolean.TRUE.equals(inFlight.remove(tripId))) {
+                unavailableUntil.remove(tripId);
+                submit(tripId);
+            }
+        }
+    }
+
+    private boolean generateAndStore(Long tripId) {
+        Trip trip = tripRepository.findById(tripId).orElse(null);
+        if (trip == null) {
+            return false;
+        }
+        List<String> locations = tripAttractionRepository.findByTripId(tripId).stream()
+                .map(TripAttraction::getLocation)
+                .filter(StringUtils::hasText)
+                .distinct()
+                .toList();
+        TripInsightService tripInsightService = Optional.ofNullable(tripInsightServiceProvider.getIfAvailable())
+                .orElseThrow(() -> new IllegalStateException("TripInsightService bean is not configured"));
+        InsightResponseDTO insights = tripInsightService.generateInsights(trip, locations);
+        boolean stored = !tripInsightService.storeInsights(tripId, insights).isEmpty();
+        log.info(stored ? "Precomputed insights for trip {}" : "No insights to precompute for trip {}", tripId);
+        return stored;
+    }
+}
@@ -1,12 +1,31 @@
 package com.demo.api.service;
 
-import com.demo.api.dto.TripInsightDTO;
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.dto.TripInsightsDTO;
+import com.demo.api.model.Trip;
 import com.demo.api.model.TripInsight;
 
 import java.util.List;
 
 public interface TripInsightService {
-    List<TripInsight> generateAndStoreInsights(Long tripId);
+    /**
+     * Returns the stored insights of the trip without waiting for the LLM. When there are none yet, their
+     * generation is scheduled in the background (see {@link TripInsightPrecomputer}) and the status tells the
+     * client whether to poll again.
+     */
+    TripInsightsDTO getInsights(Long tripId);
 
-    List<TripInsightDTO> getOrGenerateInsights(Long tripId);
+    /**
+     * Asks the model for insights on the given itinerary locations. The evergreen part is shared across trips
+     * to the same destination and month (see {@link DestinationInsightCacheService}). Touches none of the trip's
+     * rows, so it can run before the plan is stored.
+     *
+     * @return the model's insights, or null when there are no locations
+     */
+    InsightResponseDTO generateInsights(Trip trip, List<String> locations);
+
+    /**
+     * Replaces the stored insights of the trip with the given ones in one short transaction.
+     */
+    List<TripInsight> storeInsights(Long tripId, InsightResponseDTO insightResponse);
 }
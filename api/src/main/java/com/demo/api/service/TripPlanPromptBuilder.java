@@ -1,9 +1,12 @@
 package com.demo.api.service;
 
+import com.demo.api.client.support.PromptTokenEstimator;
 import com.demo.api.dto.DailyWeatherDTO;
 import com.demo.api.dto.ModifyPlanDTO;
 import com.demo.api.model.Trip;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
@@ -14,12 +17,245 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Locale;
 
+/**
+ * Builds the itinerary prompts. Two layouts are supported ({@code app.trip.prompt.layout}):
+ * <ul>
+ *     <li>{@link Layout#INLINE}: trip values are written into the rules where they apply</li>
+ *     <li>{@link Layout#PREFIX_CACHED}: every prompt starts with the same {@link #STATIC_PREFIX}, whose rules
+ *     refer to a TRIP DATA block appended at the end, so the provider can reuse its cached prompt prefix</li>
+ * </ul>
+ * and two output formats ({@code app.trip.prompt.output}):
+ * <ul>
+ *     <li>{@link Output#JSON}: the snake_case itinerary JSON read by {@code LenientOutputConverter}</li>
+ *     <li>{@link Output#COMPACT}: positional rows with type codes and day offsets, read by
+ *     {@code CompactItineraryParser}; about half the output tokens. Streaming always uses JSON.</li>
+ * </ul>
+ * With {@code app.trip.prompt.combined-insights}, the first-generation prompt of {@link #build(Trip, List)} also
+ * asks for the destination insights, so a trip needs one LLM round trip instead of two. The request is appended
+ * after the trip data, leaving the static prefix shared with the other prompts.
+ */
 @Slf4j
 @Component
 public class TripPlanPromptBuilder {
 
+    public enum Layout { INLINE, PREFIX_CACHED }
+
+    public enum Output {
+        JSON, COMPACT;
+
+        public static Output of(String value) {
+            return value == null || value.isBlank() ? JSON : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+
+        /**
+         * Day offsets need a start date, so trips without one fall back to JSON.
+         */
+        public boolean compactFor(Trip trip) {
+            return this == COMPACT && trip != null && trip.getStartDate() != null;
+        }
+    }
+
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd", Locale.ENGLISH);
 
+    private static final String INSTRUCTIONS = """
+
+            Instructions for the itinerary generation:
+
+            You must return **ONLY** a JSON object with two keys: "daily_summaries" and "activities".
+            During the travel dates, "daily_summaries" MUST contain exactly one entry per calendar day. For example, If travel dates are 2025-11-01 to 2025-11-12, then "daily_summaries" must have 12 entries dated.
+
+            "daily_summaries" is a list of objects, each with (in order):
+                - "date": travel date in yyyy-MM-dd format
+                - "summary": a short natural language description of the day
+                - "image_description": a short and adaptable Unsplash search phrase in ENGLISH (3–7 words)
+
+            "activities" is a list of scheduled activities. Each activity has (in order):
+                - "date": yyyy-MM-dd
+                - "type": one of "transportation", "hotel", or "attraction"
+                - "time": HH:mm format (e.g., "14:00")
+                - "title": short title to show on a timeline
+                - "status": always set to "pending"
+                - "reservation_required": true if booking is needed, else false
+
+            For "transportation" type, include (in order):
+                - "from": starting location
+                - "to": destination
+                - "provider": airline/bus company/etc.
+                - "ticket_type": e.g., "economy"
+                - "price": number
+                - "currency": e.g., "JPY" or "AUD"
+
+            For "hotel" type, include (in order):
+                - "hotel_name": hotel name
+                - "room_type": e.g., "Double room"
+                - "people": number of guests
+                - "nights": how many nights
+                - "price": number
+                - "currency": e.g., "JPY"
+
+            For "attraction" type (includes restaurants, parks, temples) (in order):
+                - "location": e.g., "Shinjuku, Tokyo"
+                - "ticket_price": number (meal or entry cost)
+                - "people": number of attendees
+                - "currency": e.g., "JPY"
+
+            Scheduling rules:
+                - All fields MUST have a value, cannot be null! Do not invent impossible data.
+                - For EVERY calendar date within the travel window, there MUST be AT LEAST ONE item in "activities" whose "date" equals that day. Empty days are NOT allowed.
+
+            Do NOT return markdown, explanation, or any wrapper text. Just return pure JSON object, well-formatted!
+            """;
+
+    private static final String COMPACT_INSTRUCTIONS = """
+
+            Instructions for the itinerary generation:
+
+            You must return **ONLY** a compact JSON object {"d":[...],"a":[...]}. "d" holds the daily summaries and "a" the activities; rules that mention "daily_summaries" and "activities" apply to them.
+            Every entry is a positional array, never an object. "day" is the number of days after the first travel date: the first travel date is 0, the next day 1, and so on.
+
+            "d" has exactly one row per calendar day:
+                [day, "short description of the day", "Unsplash search phrase in ENGLISH, 2–4 words"]
+
+            "a" has one row per scheduled activity, starting with:
+                [day, type, "HH:mm", "short timeline title", reserve, ...]
+            type is "T" (transportation), "H" (hotel) or "A" (attraction, includes restaurants, parks, temples); reserve is 1 if booking is needed, else 0. The row continues by type:
+                "T": "from", "to", "provider", "ticket type", price, "currency"
+                "H": "hotel name", "room type", people, nights, price, "currency"
+                "A": "location", ticket price (meal or entry cost), people, "currency"
+            Prices are numbers. The final "currency" may be left out when it is the budget currency.
+
+            Example with travel dates starting 2025-11-01:
+            {"d":[[0,"Arrive and explore Shinjuku","Shinjuku neon street"]],"a":[[0,"T","08:00","Fly to Tokyo",1,"Sydney","Tokyo","Qantas","economy",1200,"AUD"],[0,"H","15:00","Check in",1,"Hotel Gracery","Double room",2,3,45000,"JPY"],[0,"A","18:00","Dinner at Omoide Yokocho",0,"Shinjuku, Tokyo",3000,2,"JPY"]]}
+
+            Scheduling rules:
+                - Fill every position with a real value. Do not invent impossible data.
+                - For EVERY calendar date within the travel window, there MUST be AT LEAST ONE row in "a" with that day. Empty days are NOT allowed.
+
+            Do NOT return markdown, explanation, whitespace or any wrapper text. Just return the compact JSON object.
+            """;
+
+    private static final String INSIGHTS_INSTRUCTIONS = """
+
+            Destination insights:
+
+            Also add a third key "insights" to the JSON object, next to "daily_summaries" and "activities".
+            "insights" is a list of up to 6 short, concrete destination insights tied to the planned attractions and the season. Each has (in order):
+                - "id": "1", "2", ...
+                - "title": short headline
+                - "content": 2–3 sentences
+                - "theme": one of "history", "culture", "food", "etiquette", "nature", "festival"
+                - "icon": an emoji representing the theme
+            Aim for 60–70% evergreen facts and 30–40% contextual tips. Avoid prices or live data.
+            """;
+
+    private static final String COMPACT_INSIGHTS_INSTRUCTIONS = """
+
+            Destination insights:
+
+            Also add a third key "i" to the compact object, after "d" and "a". "i" has one row per destination insight, up to 6, tied to the planned attractions and the season:
+                ["short headline", "2–3 sentences", theme, "emoji icon"]
+            theme is one of "history", "culture", "food", "etiquette", "nature", "festival".
+            Aim for 60–70% evergreen facts and 30–40% contextual tips. Avoid prices or live data.
+            """;
+
+    private static final String TASK_RULES = """
+            You are an expert travel planner. Craft a comprehensive trip itinerary from the TRIP DATA block at the end of this message.
+            Names in angle brackets refer to TRIP DATA fields: <departure>, <destination>, <planned_from>, <planned_to>, <planned_days>.
+
+            Task rules:
+                - Plan ONLY the dates from <planned_from> to <planned_to>. When they are narrower than the travel dates, the other days are planned separately.
+                - "daily_summaries" MUST contain exactly <planned_days> entries, one per date in that range.
+                - If TRIP DATA lists "Strict preferences", they are hard constraints with the highest priority and override "Notes". Adjust anything that conflicts with them.
+                - If TRIP DATA includes a weather forecast, plan outdoor activities around it.
+
+            Hard constraints:
+                Routing:
+                    - The traveler STARTS in <departure> and ENDS in <destination>. Do not swap them.
+                    - When "Departure leg" is yes: on <planned_from>, depart from <departure> to <destination>. The FIRST item in "activities" on that day MUST be a transportation event: { "type":"transportation", "from":<departure city>, "to":<destination city> }.
+                    - When "Departure leg" is no: the traveler is already in <destination> when the planned dates begin. Do NOT add the outbound trip.
+                    - When "Return leg" is yes: on <planned_to>, return from <destination> to <departure>. The LAST item in "activities" on that day MUST be a transportation event: { "type":"transportation", "from":<destination city>, "to":<departure city> }.
+                    - When "Return leg" is no: the traveler is still in <destination> when the planned dates end. Do NOT add the return trip.
+                Hotels:
+                    - When "Departure leg" is yes, <planned_from> MUST include one hotel check-in in <destination>. Otherwise the traveler already has a hotel in <destination>; add a check-in only when switching hotels.
+                    - If the trip lasts over 3 days, aim to add 1–2 additional hotel check-ins beyond Day 1 in <destination>.
+                Attractions per day:
+                    - Multiple "attraction" items are allowed per day; NEVER more than 5.
+                    - Prefer 3–4 attractions per full sightseeing day (2–3 acceptable on light or travel-heavy days).
+                    - Search for real restaurants, cafe, which have authentic local cuisine.
+                Transportation on non-first/last days:
+                    - You MAY add transportation only within <destination>; both "from" and "to" MUST be within <destination>.
+                    - Prefer public transit: "bus", "subway"/"metro", "train". Avoid flights on these days.
+            """;
+
+    /**
+     * Byte-stable start of every {@link Layout#PREFIX_CACHED} prompt. Never format trip values into it.
+     */
+    static final String STATIC_PREFIX = TASK_RULES + INSTRUCTIONS;
+
+    /**
+     * {@link #STATIC_PREFIX} for {@link Output#COMPACT}.
+     */
+    static final String STATIC_PREFIX_COMPACT = TASK_RULES + COMPACT_INSTRUCTIONS;
+
+    private final Layout layout;
+    private final Output output;
+    private final boolean combinedInsights;
+
+    /**
+     * Uses the {@link Layout#INLINE} layout.
+     */
+    public TripPlanPromptBuilder() {
+        this(Layout.INLINE);
+    }
+
+    public TripPlanPromptBuilder(Layout layout) {
+        this(layout, Output.JSON);
+    }
+
+    public TripPlanPromptBuilder(Layout layout, Output output) {
+        this(layout, output, false);
+    }
+
+    /**
+     * @param combinedInsights whether first-generation prompts also ask for the destination insights
+     */
+    public TripPlanPromptBuilder(Layout layout, Output output, boolean combinedInsights) {
+        this.layout = layout == null ? Layout.INLINE : layout;
+        this.output = output == null ? Output.JSON : output;
+        this.combinedInsights = combinedInsights;
+        if (this.layout == Layout.PREFIX_CACHED) {
+            log.info("Trip prompts use a static prefix of about {} tokens", PromptTokenEstimator.estimate(
+                    this.output == Output.COMPACT ? STATIC_PREFIX_COMPACT : STATIC_PREFIX));
+        }
+    }
+
+    public TripPlanPromptBuilder(String layout) {
+        this(layout, null);
+    }
+
+    public TripPlanPromptBuilder(String layout, String output) {
+        this(layout, output, false);
+    }
+
+    @Autowired
+    public TripPlanPromptBuilder(@Value("${app.trip.prompt.layout:prefix-cached}") String layout,
+                                 @Value("${app.trip.prompt.output:json}") String output,
+                                 @Value("${app.trip.prompt.combined-insights:false}") boolean combinedInsights) {
+        this(Layout.valueOf(layout.trim().toUpperCase(Locale.ROOT).replace('-', '_')), Output.of(output), combinedInsights);
+    }
+
+    public Output getOutput() {
+        return output;
+    }
+
+    /**
+     * @return true when {@link #build(Trip, List)} asks for the insights as well, to be read into an
+     * {@code ItineraryWithInsightsDTO}
+     */
+    public boolean isCombinedInsights() {
+        return combinedInsights;
+    }
+
     /**
      * Builds a natural language prompt that can be sent to a GPT-style model in order to
      * generate a detailed trip plan.
@@ -29,7 +265,26 @@ public class TripPlanPromptBuilder {
      * @return formatted prompt string
      */
     public String build(Trip preference, List<DailyWeatherDTO> weatherList) {
+        boolean compact = output.compactFor(preference);
+        String prompt = build(preference, weatherList, compact);
+        if (!combinedInsights) {
+            return prompt;
+        }
+        return prompt + (compact ? COMPACT_INSIGHTS_INSTRUCTIONS : INSIGHTS_INSTRUCTIONS);
+    }
+
+    /**
+     * Same as {@link #build(Trip, List)}, but always asks for JSON, which the stream parser reads day by day.
+     */
+    public String buildForStreaming(Trip preference, List<DailyWeatherDTO> weatherList) {
+        return build(preference, weatherList, false);
+    }
+
+    private String build(Trip preference, List<DailyWeatherDTO> weatherList, boolean compact) {
         Assert.notNull(preference, "Trip preference must not be null");
+        if (layout == Layout.PREFIX_CACHED) {
+            return withTripData(preference, weatherList, preference.getStartDate(), preference.getEndDate(), null, compact);
+        }
 
         StringBuilder prompt = new StringBuilder();
         prompt.append("""
@@ -38,10 +293,10 @@ public class TripPlanPromptBuilder {
                 Trip Overview:
                 """);
 
-        appendTripOverview(prompt, preference);
+        appendTripOverview(prompt, preference, true, true);
         appendPreferences(prompt, preference);
         appendWeather(prompt, weatherList);
-        appendInstructions(prompt);
+        appendInstructions(prompt, compact);
         log.info("generated prompt to ai:{}", prompt);
         return prompt.toString();
     }
@@ -56,6 +311,11 @@ public class TripPlanPromptBuilder {
     public String buildForRegeneration(Trip trip, List<DailyWeatherDTO> weatherList, ModifyPlanDTO modifyPlanDTO) {
         Assert.notNull(trip, "Trip must not be null");
         Assert.notNull(modifyPlanDTO, "ModifyPlanDTO must not be null");
+        if (layout == Layout.PREFIX_CACHED) {
+            return withTripData(trip, weatherList, trip.getStartDate(), trip.getEndDate(),
+                    defaultString(modifyPlanDTO.getSecondPreference(), "No new strict preferences provided"),
+                    output.compactFor(trip));
+        }
 
         StringBuilder prompt = new StringBuilder();
         prompt.append("""
@@ -65,7 +325,7 @@ public class TripPlanPromptBuilder {
                 Trip Overview:
                 """);
 
-        appendTripOverview(prompt, trip);
+        appendTripOverview(prompt, trip, true, true);
 
         prompt.append("\nExisting Notes (lower priority):\n");
         prompt.append(String.format("- Notes: %s%n", defaultString(trip.getPreferences(), "No additional preferences")));
@@ -77,11 +337,111 @@ public class TripPlanPromptBuilder {
         prompt.append(String.format("- %s%n", defaultString(strict, "No new strict preferences provided")));
 
         prompt.append("\nIf any previous plan conflicts with these strict preferences, you MUST adjust it accordingly.\n");
-        appendInstructions(prompt);
+        appendInstructions(prompt, output.compactFor(trip));
         return prompt.toString();
     }
 
-    private void appendTripOverview(StringBuilder prompt, Trip preference) {
+    /**
+     * Builds a prompt for one date segment of a long trip. The overview still describes the whole trip,
+     * but the model is asked for the segment's days only; departure and return rules are kept
+     * only when the segment contains the first or the final day.
+     *
+     * @param preference   the user's trip preference data
+     * @param weatherList  optional weather summaries; only those inside the segment are included
+     * @param segmentStart first day of the segment (inclusive)
+     * @param segmentEnd   last day of the segment (inclusive)
+     * @return formatted prompt string
+     */
+    public String buildSegment(Trip preference, List<DailyWeatherDTO> weatherList,
+                               LocalDate segmentStart, LocalDate segmentEnd) {
+        Assert.notNull(preference, "Trip preference must not be null");
+        Assert.notNull(segmentStart, "Segment start must not be null");
+        Assert.notNull(segmentEnd, "Segment end must not be null");
+        Assert.isTrue(!segmentEnd.isBefore(segmentStart), "Segment end must not be before its start");
+        if (layout == Layout.PREFIX_CACHED) {
+            return withTripData(preference, weatherList == null ? List.of() : weatherList.stream()
+                    .filter(weather -> weather.getDate() != null
+                            && !weather.getDate().isBefore(segmentStart) && !weather.getDate().isAfter(segmentEnd))
+                    .toList(), segmentStart, segmentEnd, null, output.compactFor(preference));
+        }
+
+        boolean firstSegment = segmentStart.equals(preference.getStartDate());
+        boolean lastSegment = segmentEnd.equals(preference.getEndDate());
+        String from = segmentStart.format(DATE_FORMATTER);
+        String to = segmentEnd.format(DATE_FORMATTER);
+        long days = ChronoUnit.DAYS.between(segmentStart, segmentEnd) + 1;
+
+        StringBuilder prompt = new StringBuilder();
+        prompt.append(String.format("""
+                You are an expert travel planner. The itinerary of the trip below is planned in parts.
+                Plan ONLY the days from %s to %s; other days are planned separately.
+
+                Trip Overview:
+                """, from, to));
+
+        appendTripOverview(prompt, preference, firstSegment, lastSegment);
+        appendPreferences(prompt, preference);
+        appendWeather(prompt, weatherList == null ? List.of() : weatherList.stream()
+                .filter(weather -> weather.getDate() != null
+                        && !weather.getDate().isBefore(segmentStart) && !weather.getDate().isAfter(segmentEnd))
+                .toList());
+        appendInstructions(prompt, output.compactFor(preference));
+        prompt.append(String.format("""
+
+                Scope of this part:
+                    - Only use dates from %s to %s (%d days) in "daily_summaries" and "activities".
+                    - "daily_summaries" MUST contain exactly %d entries, one per date in this range.
+                """, from, to, days, days));
+        log.debug("generated segment prompt for {} to {}", from, to);
+        return prompt.toString();
+    }
+
+    /**
+     * Appends the TRIP DATA block that {@link #STATIC_PREFIX} refers to. All trip-specific text goes here.
+     *
+     * @param strictPreferences regeneration preferences, or null for a first generation
+     */
+    private String withTripData(Trip preference, List<DailyWeatherDTO> weatherList,
+                                LocalDate plannedFrom, LocalDate plannedTo, String strictPreferences, boolean compact) {
+        StringBuilder prompt = new StringBuilder(compact ? STATIC_PREFIX_COMPACT : STATIC_PREFIX);
+        prompt.append("\nTRIP DATA\n");
+        prompt.append(String.format("- Departure: %s, %s%n", defaultString(preference.getFromCity(), "Unknown city"),
+                defaultString(preference.getFromCountry(), "Unknown country")));
+        prompt.append(String.format("- Destination: %s, %s%n", defaultString(preference.getToCity(), "Unknown city"),
+                defaultString(preference.getToCountry(), "Unknown country")));
+        LocalDate startDate = preference.getStartDate();
+        LocalDate endDate = preference.getEndDate();
+        Long duration = calculateDuration(startDate, endDate);
+        if (startDate != null && endDate != null) {
+            prompt.append(String.format("- Travel dates: %s to %s%s%n", startDate.format(DATE_FORMATTER),
+                    endDate.format(DATE_FORMATTER), duration != null ? " (" + duration + " days)" : ""));
+        } else {
+            prompt.append("- Travel dates: Not specified\n");
+        }
+        Long plannedDays = calculateDuration(plannedFrom, plannedTo);
+        if (plannedDays != null) {
+            prompt.append(String.format("- Planned dates: %s to %s (%d days)%n",
+                    plannedFrom.format(DATE_FORMATTER), plannedTo.format(DATE_FORMATTER), plannedDays));
+        }
+        prompt.append(String.format("- Departure leg: %s%n",
+                plannedFrom != null && plannedFrom.equals(startDate) ? "yes" : "no"));
+        prompt.append(String.format("- Return leg: %s%n",
+                plannedTo != null && plannedTo.equals(endDate) ? "yes" : "no"));
+        String currency = defaultString(preference.getCurrency(), "AUD");
+        Integer budget = preference.getBudget();
+        prompt.append(String.format("- Budget: %s%n", budget != null ? budget + " " + currency : "Not specified"));
+        Integer people = preference.getPeople();
+        prompt.append(String.format("- Travelers: %s%n", people != null ? people + " people" : "Not specified"));
+        prompt.append(String.format("- Notes: %s%n", defaultString(preference.getPreferences(), "No additional preferences")));
+        if (strictPreferences != null) {
+            prompt.append(String.format("- Strict preferences: %s%n", strictPreferences));
+        }
+        appendWeather(prompt, weatherList);
+        log.debug("generated prefix-cached prompt for {} to {}", plannedFrom, plannedTo);
+        return prompt.toString();
+    }
+
+    private void appendTripOverview(StringBuilder prompt, Trip preference, boolean includeDeparture, boolean includeReturn) {
         String fromCity = defaultString(preference.getFromCity(), "Unknown city");
         String fromCountry = defaultString(preference.getFromCountry(), "Unknown country");
         String toCity = defaultString(preference.getToCity(), "Unknown city");
@@ -113,28 +473,57 @@ public class TripPlanPromptBuilder {
         Integer people = preference.getPeople();
         prompt.append(String.format("- Travelers: %s%n", people != null ? people + " people" : "Not specified"));
         prompt.append('\n');
-        prompt.append(String.format(
-        """
-        Hard constraints:
-            Routing:
-                - The traveler STARTS in "%s, %s" (Departure) and ENDS in "%s, %s" (Destination). Do not swap them.
-                - On day 1, depart from "%s" to "%s".
-                - On Day 1, the FIRST item in "activities" MUST be a transportation event: { "type":"transportation", "from":"%s", "to":"%s" }.
-                - On the final day, return from "%s" to "%s".
-                - On the FINAL day, the LAST item in "activities" MUST be a transportation event: { "type":"transportation", "from":"%s", "to":"%s" }.
-            Hotels:
-                - Day 1 MUST include one hotel check-in in "%s".
-                - If the trip lasts over 3 days, aim to add 1–2 additional hotel check-ins beyond Day 1 in "%s".
-            Attractions per day:
-                - Multiple "attraction" items are allowed per day; NEVER more than 5.
-                - Prefer 3–4 attractions per full sightseeing day (2–3 acceptable on light or travel-heavy days).
-                - Search for real restaurants, cafe, which have authentic local cuisine.
-            Transportation on non-first/last days:
-                - You MAY add transportation only within "%s"; both "from" and "to" MUST be within "%s".
-                - Prefer public transit: "bus", "subway"/"metro", "train". Avoid flights on these days.
-        """, fromCity, fromCountry, toCity, toCountry, fromCity, toCity, fromCity, toCity, toCity, fromCity, toCity, fromCity,
-                        toCity, toCity, toCity, toCity)
-        );
+        appendHardConstraints(prompt, preference, includeDeparture, includeReturn);
+    }
+
+    /**
+     * Appends the routing/hotel/attraction rules. Segments in the middle of a long trip neither
+     * depart nor return, so the first-day and final-day transport rules are only added to the edge segments.
+     */
+    private void appendHardConstraints(StringBuilder prompt, Trip preference, boolean includeDeparture, boolean includeReturn) {
+        String fromCity = defaultString(preference.getFromCity(), "Unknown city");
+        String fromCountry = defaultString(preference.getFromCountry(), "Unknown country");
+        String toCity = defaultString(preference.getToCity(), "Unknown city");
+        String toCountry = defaultString(preference.getToCountry(), "Unknown country");
+
+        prompt.append("Hard constraints:\n");
+        prompt.append("    Routing:\n");
+        prompt.append(String.format("        - The traveler STARTS in \"%s, %s\" (Departure) and ENDS in \"%s, %s\" (Destination). Do not swap them.%n",
+                fromCity, fromCountry, toCity, toCountry));
+        if (includeDeparture) {
+            prompt.append(String.format("        - On day 1, depart from \"%s\" to \"%s\".%n", fromCity, toCity));
+            prompt.append(String.format("        - On Day 1, the FIRST item in \"activities\" MUST be a transportation event: { \"type\":\"transportation\", \"from\":\"%s\", \"to\":\"%s\" }.%n",
+                    fromCity, toCity));
+        } else {
+            prompt.append(String.format("        - The traveler is already in \"%s\" when these dates begin. Do NOT add the outbound trip from \"%s\".%n",
+                    toCity, fromCity));
+        }
+        if (includeReturn) {
+            prompt.append(String.format("        - On the final day, return from \"%s\" to \"%s\".%n", toCity, fromCity));
+            prompt.append(String.format("        - On the FINAL day, the LAST item in \"activities\" MUST be a transportation event: { \"type\":\"transportation\", \"from\":\"%s\", \"to\":\"%s\" }.%n",
+                    toCity, fromCity));
+        } else {
+            prompt.append(String.format("        - The traveler is still in \"%s\" when these dates end. Do NOT add the return trip to \"%s\".%n",
+                    toCity, fromCity));
+        }
+        prompt.append("    Hotels:\n");
+        if (includeDeparture) {
+            prompt.append(String.format("        - Day 1 MUST include one hotel check-in in \"%s\".%n", toCity));
+        } else {
+            prompt.append(String.format("        - The traveler already has a hotel in \"%s\"; add a check-in only when switching hotels.%n", toCity));
+        }
+        prompt.append(String.format("        - If the trip lasts over 3 days, aim to add 1–2 additional hotel check-ins beyond Day 1 in \"%s\".%n", toCity));
+        prompt.append("""
+                    Attractions per day:
+                        - Multiple "attraction" items are allowed per day; NEVER more than 5.
+                        - Prefer 3–4 attractions per full sightseeing day (2–3 acceptable on light or travel-heavy days).
+                        - Search for real restaurants, cafe, which have authentic local cuisine.
+                """);
+        prompt.append(String.format("""
+                    Transportation on non-first/last days:
+                        - You MAY add transportation only within "%s"; both "from" and "to" MUST be within "%s".
+                        - Prefer public transit: "bus", "subway"/"metro", "train". Avoid flights on these days.
+                """, toCity, toCity));
     }
 
     private void appendPreferences(StringBuilder prompt, Trip preference) {
@@ -173,55 +562,8 @@ public class TripPlanPromptBuilder {
                 });
     }
 
-    private void appendInstructions(StringBuilder prompt) {
-        prompt.append("""
-
-                    Instructions for the itinerary generation:
-
-                    You must return **ONLY** a JSON object with two keys: "daily_summaries" and "activities".
-                    During the travel dates, "daily_summaries" MUST contain exactly one entry per calendar day. For example, If travel dates are 2025-11-01 to 2025-11-12, then "daily_summaries" must have 12 entries dated.
-
-                    "daily_summaries" is a list of objects, each with (in order):
-                        - "date": travel date in yyyy-MM-dd format
-                        - "summary": a short natural language description of the day
-                        - "image_description": a short and adaptable Unsplash search phrase in ENGLISH (3–7 words)
-
-                    "activities" is a list of scheduled activities. Each activity has (in order):
-                        - "date": yyyy-MM-dd
-                        - "type": one of "transportation", "hotel", or "attraction"
-                        - "time": HH:mm format (e.g., "14:00")
-                        - "title": short title to show on a timeline
-                        - "status": always set to "pending"
-                        - "reservation_required": true if booking is needed, else false
-
-                    For "transportation" type, include (in order):
-                        - "from": starting location
-                        - "to": destination
-                        - "provider": airline/bus company/etc.
-                        - "ticket_type": e.g., "economy"
-                        - "price": number
-                        - "currency": e.g., "JPY" or "AUD"
-
-                    For "hotel" type, include (in order):
-                        - "hotel_name": hotel name
-                        - "room_type": e.g., "Double room"
-                        - "people": number of guests
-                        - "nights": how many nights
-                        - "price": number
-                        - "currency": e.g., "JPY"
-
-                    For "attraction" type (includes restaurants, parks, temples) (in order):
-                        - "location": e.g., "Shinjuku, Tokyo"
-                        - "ticket_price": number (meal or entry cost)
-                        - "people": number of attendees
-                        - "currency": e.g., "JPY"
-
-                    Scheduling rules:
-                        - All fields MUST have a value, cannot be null! Do not invent impossible data.
-                        - For EVERY calendar date within the travel window, there MUST be AT LEAST ONE item in "activities" whose "date" equals that day. Empty days are NOT allowed.
-
-                    Do NOT return markdown, explanation, or any wrapper text. Just return pure JSON object, well-formatted!
-                    """);
+    private void appendInstructions(StringBuilder prompt, boolean compact) {
+        prompt.append(compact ? COMPACT_INSTRUCTIONS : INSTRUCTIONS);
     }
 
     private Long calculateDuration(LocalDate startDate, LocalDate endDate) {
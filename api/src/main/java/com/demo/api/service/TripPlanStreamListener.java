@@ -0,0 +1,37 @@
+package com.demo.api.service;
+
+import com.demo.api.dto.TripGenerationJobDTO;
+
+import java.time.LocalDate;
+
+/**
+ * Receives progress of a streamed trip generation. Callbacks other than {@link #onQueued} run on the
+ * generation worker thread; all default to no-ops and implementations must not throw.
+ */
+public interface TripPlanStreamListener {
+
+    /**
+     * The job is stored and about to be handed to the worker pool; runs on the submitting thread, before
+     * any other callback.
+     */
+    default void onQueued(TripGenerationJobDTO job) {
+    }
+
+    /**
+     * The trip row exists and can be queried by id.
+     */
+    default void onTripCreated(Long tripId) {
+    }
+
+    /**
+     * A daily summary or a batch of activities for {@code date} has been committed.
+     */
+    default void onDayStored(Long tripId, LocalDate date) {
+    }
+
+    default void onCompleted(Long tripId) {
+    }
+
+    default void onFailed(Long tripId, Exception ex) {
+    }
+}
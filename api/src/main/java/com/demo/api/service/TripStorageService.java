@@ -3,8 +3,31 @@ package com.demo.api.service;
 import com.demo.api.dto.ItineraryDTO;
 import com.demo.api.model.Trip;
 
+import java.util.List;
+
 public interface TripStorageService {
 
+    /**
+     * Fills missing daily summary image urls via Unsplash, looking the days up concurrently; a day whose lookup
+     * fails or times out gets a blank url. Performs outbound HTTP only,
+     * so it must be called before (and outside of) {@link #storeTripPlan(Trip, ItineraryDTO)}.
+     */
+    void resolveImages(Trip preference, ItineraryDTO itinerary);
+
     void storeTripPlan(Trip preference, ItineraryDTO itinerary);
-}
 
+    /**
+     * Removes every stored summary and activity of the trip.
+     */
+    void clearTripPlan(Trip preference);
+
+    /**
+     * Appends one daily summary in its own short transaction. Used while streaming.
+     */
+    void storeDailySummary(Trip preference, ItineraryDTO.DailySummaryDTO summary);
+
+    /**
+     * Appends a batch of activities in its own short transaction. Used while streaming.
+     */
+    void storeActivities(Trip preference, List<ItineraryDTO.ActivityDTO> activities);
+}
@@ -1,9 +1,45 @@
 package com.demo.api.service;
 
+import com.demo.api.dto.DailyWeatherDTO;
 import com.demo.api.model.Trip;
 
+import java.util.List;
+
 public interface WeatherService {
 
     void fetchAndStoreWeather(Trip preference);
-}
 
+    /**
+     * Calls OpenWeather and returns the daily summaries inside the trip window.
+     * Performs no database access, so callers can run it outside any transaction.
+     *
+     * @return daily summaries, empty when the forecast is unavailable
+     */
+    List<DailyWeatherDTO> fetchForecast(Trip preference);
+
+    /**
+     * Upserts the given daily summaries into trip_weather in one short transaction.
+     */
+    void storeWeather(Trip preference, List<DailyWeatherDTO> summaries);
+
+    /**
+     * Returns every forecast day of the destination, without slicing it to a trip window.
+     * Performs no database access.
+     *
+     * @return daily summaries, empty when the forecast is unavailable
+     */
+    List<DailyWeatherDTO> fetchDestinationForecast(String city, String country);
+
+    /**
+     * Upserts the forecast days inside each trip's window for trips sharing one destination, in one transaction.
+     * Rows whose values did not change are not written.
+     *
+     * @return the number of rows inserted or updated
+     */
+    int refreshWeather(List<Trip> trips, List<DailyWeatherDTO> forecast);
+
+    /**
+     * Replaces all stored weather of the trip with the given daily summaries in one short transaction.
+     */
+    void replaceWeather(Trip preference, List<DailyWeatherDTO> summaries);
+}
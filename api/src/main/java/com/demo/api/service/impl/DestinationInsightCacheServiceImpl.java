@@ -0,0 +1,223 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.model.DestinationInsight;
+import com.demo.api.model.Trip;
+import com.demo.api.repository.DestinationInsightRepository;
+import com.demo.api.service.DestinationInsightCacheService;
+import com.demo.api.utils.CacheKeyUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Two-tier cache of evergreen destination insights: a bounded in-memory LRU in front of the
+ * destination_insight table. Both tiers expire entries {@code app.trip.insights.cache.ttl} after they were
+ * stored; an expired row stays until the next store for its key overwrites it.
+ * Entries are kept as JSON so every hit gets its own copy.
+ */
+@Service
+public class DestinationInsightCacheServiceImpl implements DestinationInsightCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(DestinationInsightCacheServiceImpl.class);
+    private static final TypeReference<List<InsightResponseDTO.InsightItem>> ITEMS = new TypeReference<>() {
+    };
+
+    private final DestinationInsightRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Map<String, Entry> entries;
+    private final Counter memoryHits;
+    private final Counter memoryMisses;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+
+    @Autowired
+    public DestinationInsightCacheServiceImpl(DestinationInsightRepository repository,
+                                              ObjectMapper objectMapper,
+                                              MeterRegistry meterRegistry,
+                                              @Value("${app.trip.insights.cache.enabled:true}") boolean enabled,
+                                              @Value("${app.trip.insights.cache.max-entries:200}") int maxEntries,
+                                              @Value("${app.trip.insights.cache.ttl:P30D}") Duration ttl) {
+        this(repository, objectMapper, meterRegistry, enabled, maxEntries, ttl, Clock.systemUTC());
+    }
+
+    DestinationInsightCacheServiceImpl(DestinationInsightRepository repository, ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry, boolean enabled, int maxEntries, Duration ttl,
+                                       Clock clock) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = ttl == null ? Duration.ofDays(30) : ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DestinationInsightCacheServiceImpl.this.maxEntries;
+            }
+        };
+        this.memoryHits = requests(meterRegistry, "memory", "hit");
+        this.memoryMisses = requests(meterRegistry, "memory", "miss");
+        this.databaseHits = requests(meterRegistry, "database", "hit");
+        this.databaseMisses = requests(meterRegistry, "database", "miss");
+        Gauge.builder("trip.insight.cache.size", this, DestinationInsightCacheServiceImpl::size)
+                .description("Destination insights held in memory").register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("trip.insight.cache.requests").tag("tier", tier).tag("result", result)
+                .description("Destination insight cache lookups per tier").register(meterRegistry);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Optional<List<InsightResponseDTO.InsightItem>> lookup(Trip trip) {
+        Key key = key(trip);
+        if (!enabled || key == null) {
+            return Optional.empty();
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key.value());
+            if (entry != null && !clock.instant().isBefore(entry.expiresAt())) {
+                entries.remove(key.value());
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            Optional<List<InsightResponseDTO.InsightItem>> items = read(key, entry.json());
+            if (items.isPresent()) {
+                memoryHits.increment();
+                return items;
+            }
+        }
+        memoryMisses.increment();
+
+        Optional<DestinationInsight> row;
+        try {
+            row = repository.findByCountryKeyAndCityKeyAndTravelMonth(key.country(), key.city(), key.month())
+                    .filter(found -> found.getUpdatedTime() == null
+                            || clock.instant().isBefore(found.getUpdatedTime().toInstant().plus(ttl)));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to read destination insights for {}", key.value(), ex);
+            row = Optional.empty();
+        }
+        Optional<List<InsightResponseDTO.InsightItem>> items = row.flatMap(found -> read(key, found.getInsights()));
+        if (items.isEmpty()) {
+            databaseMisses.increment();
+            return Optional.empty();
+        }
+        databaseHits.increment();
+        Instant storedAt = row.get().getUpdatedTime() == null ? clock.instant() : row.get().getUpdatedTime().toInstant();
+        remember(key, row.get().getInsights(), storedAt.plus(ttl));
+        log.debug("Destination insights for {} served from the database", key.value());
+        return items;
+    }
+
+    @Override
+    public void store(Trip trip, List<InsightResponseDTO.InsightItem> insights) {
+        Key key = key(trip);
+        if (!enabled || key == null || insights == null || insights.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(insights);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize destination insights for {}", key.value(), e);
+            return;
+        }
+        remember(key, json, clock.instant().plus(ttl));
+        try {
+            DestinationInsight row = repository
+                    .findByCountryKeyAndCityKeyAndTravelMonth(key.country(), key.city(), key.month())
+                    .orElseGet(() -> DestinationInsight.builder()
+                            .countryKey(key.country())
+                            .cityKey(key.city())
+                            .travelMonth(key.month())
+                            .build());
+            row.setInsights(json);
+            repository.save(row);
+        } catch (DataIntegrityViolationException ex) {
+            log.debug("Destination insights for {} were stored concurrently", key.value());
+        } catch (RuntimeException ex) {
+            log.warn("Failed to store destination insights for {}", key.value(), ex);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Normalized destination and month of the trip, or null when any of them is missing.
+     */
+    static Key key(Trip trip) {
+        if (trip == null || trip.getStartDate() == null) {
+            return null;
+        }
+        String city = CacheKeyUtils.normalize(trip.getToCity());
+        String country = CacheKeyUtils.normalize(trip.getToCountry());
+        if (!StringUtils.hasText(city)) {
+            return null;
+        }
+        return new Key(country, city, trip.getStartDate().getMonthValue());
+    }
+
+    private void remember(Key key, String json, Instant expiresAt) {
+        synchronized (entries) {
+            entries.put(key.value(), new Entry(json, expiresAt));
+        }
+    }
+
+    private Optional<List<InsightResponseDTO.InsightItem>> read(Key key, String json) {
+        try {
+            List<InsightResponseDTO.InsightItem> items = objectMapper.readValue(json, ITEMS);
+            return items == null || items.isEmpty() ? Optional.empty() : Optional.of(items);
+        } catch (JsonProcessingException e) {
+            log.warn("Dropping unreadable destination insights for {}", key.value(), e);
+            synchronized (entries) {
+                entries.remove(key.value());
+            }
+            return Optional.empty();
+        }
+    }
+
+    record Key(String country, String city, int month) {
+
+        String value() {
+            return country + "|" + city + "|" + month;
+        }
+    }
+
+    private record Entry(String json, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,403 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.service.ImageProxyService;
+import com.demo.api.utils.UnsplashImgUtils;
+import com.demo.api.utils.UnsplashRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded LRU of Unsplash images on disk, one file per url under {@code app.image-proxy.cache.dir}.
+ * Files already in the directory are picked up on startup, oldest first in the LRU order. Images are written to a
+ * temporary file and moved into place, so a file under its final name is always complete.
+ * <p>
+ * Only the Unsplash sizing parameters in {@link #PARAMS} are accepted, each with a bounded set of values, and the
+ * cache key and upstream url are built from them in a fixed order, so callers cannot mint unlimited distinct keys.
+ * Misses are fetched within the {@code app.image-proxy.rate-limit} budget.
+ */
+@Service
+public class ImageProxyServiceImpl implements ImageProxyService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageProxyServiceImpl.class);
+    private static final Pattern IMAGE_PATH = Pattern.compile(
+            "[A-Za-z0-9_~-][A-Za-z0-9._~-]*(/[A-Za-z0-9_~-][A-Za-z0-9._~-]*)*");
+    private static final int MAX_PATH_LENGTH = 512;
+    /** Accepted query parameters and their values, in the order they appear in the key. */
+    private static final Map<String, Pattern> PARAMS = orderedParams();
+    /** Tracking parameters Unsplash adds to its urls; accepted but neither keyed nor sent upstream. */
+    private static final Set<String> IGNORED_PARAMS = Set.of("ixid", "ixlib");
+    private static final long MAX_IMAGE_BYTES = DataSize.ofMegabytes(10).toBytes();
+    private static final String SUFFIX = ".jpg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Copies the image at the url to the target file, failing when it is not an image or is larger than maxBytes.
+     */
+    @FunctionalInterface
+    interface Downloader {
+        void download(URI uri, Path target, long maxBytes) throws IOException;
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+    private final URI upstream;
+    private final Duration timeout;
+    private final Downloader downloader;
+    /** Null when upstream fetches are not rate limited. */
+    private final UnsplashRateLimiter rateLimiter;
+    /** Cached file sizes by key, in access order. */
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<CachedImage>> inFlight = new ConcurrentHashMap<>();
+    private long totalBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter shared;
+
+    @Autowired
+    public ImageProxyServiceImpl(MeterRegistry meterRegistry,
+                                 @Value("${app.image-proxy.cache.dir:${java.io.tmpdir}/trip-image-cache}") String dir,
+                                 @Value("${app.image-proxy.cache.max-size:512MB}") DataSize maxSize,
+                                 @Value("${app.image-proxy.upstream:https://images.unsplash.com}") String upstream,
+                                 @Value("${app.image-proxy.timeout:PT20S}") Duration timeout,
+                                 @Value("${app.image-proxy.rate-limit.requests-per-hour:1000}") int requestsPerHour) {
+        this(meterRegistry, Paths.get(dir), maxSize.toBytes(), URI.create(upstream), timeout,
+                httpDownloader(timeout), new UnsplashRateLimiter(requestsPerHour, 0));
+    }
+
+    ImageProxyServiceImpl(MeterRegistry meterRegistry, Path dir, long maxBytes, URI upstream, Duration timeout,
+                          Downloader downloader, UnsplashRateLimiter rateLimiter) {
+        this.dir = dir;
+        this.maxBytes = Math.max(1, maxBytes);
+        this.upstream = upstream;
+        this.timeout = timeout == null ? Duration.ofSeconds(20) : timeout;
+        this.downloader = downloader;
+        this.rateLimiter = rateLimiter;
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.shared = requests(meterRegistry, "shared");
+        Gauge.builder("image.proxy.cache.bytes", this, ImageProxyServiceImpl::size)
+                .description("Bytes of images cached on disk").register(meterRegistry);
+        load();
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("image.proxy.requests").tag("result", result)
+                .description("Image proxy requests by cache result; shared misses waited on another fetch")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CachedImage get(String path, String query) {
+        if (path == null || path.length() > MAX_PATH_LENGTH || !IMAGE_PATH.matcher(path).matches()) {
+            throw new IllegalArgumentException("Not an Unsplash image path: " + path);
+        }
+        String params = canonicalQuery(query);
+        String url = params.isEmpty() ? path : path + "?" + params;
+        String key = key(url);
+        CachedImage cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<CachedImage> mine = new CompletableFuture<>();
+        CompletableFuture<CachedImage> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            shared.increment();
+            return await(url, existing);
+        }
+        try {
+            // Another fetch may have finished between the lookup and claiming the key.
+            CachedImage image = lookup(key);
+            if (image == null) {
+                misses.increment();
+                image = fetch(key, url);
+            }
+            mine.complete(image);
+            return image;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    long size() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private CachedImage lookup(String key) {
+        Long length;
+        synchronized (entries) {
+            length = entries.get(key);
+        }
+        if (length == null) {
+            return null;
+        }
+        Path file = file(key);
+        if (!Files.isRegularFile(file)) {
+            forget(key);
+            return null;
+        }
+        return new CachedImage(file, length, etag(key));
+    }
+
+    private CachedImage fetch(String key, String url) {
+        if (rateLimiter != null && !rateLimiter.tryAcquire(UnsplashRateLimiter.Priority.INTERACTIVE)) {
+            throw new UnsplashImgUtils.RateLimitedException(url);
+        }
+        URI uri = URI.create(upstream.toString().replaceAll("/+$", "") + "/" + url);
+        Path temp = dir.resolve(key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            Files.createDirectories(dir);
+            downloader.download(uri, temp, Math.min(MAX_IMAGE_BYTES, maxBytes));
+            long length = Files.size(temp);
+            Path file = file(key);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            remember(key, length);
+            return new CachedImage(file, length, etag(key));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to fetch image " + url, ex);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ex) {
+                log.debug("Failed to delete temporary image {}", temp, ex);
+            }
+        }
+    }
+
+    private CachedImage await(String url, CompletableFuture<CachedImage> fetch) {
+        try {
+            return fetch.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause
+                    ? cause
+                    : new IllegalStateException("Failed to fetch image " + url, ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Timed out waiting for image " + url, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for image " + url, ex);
+        }
+    }
+
+    /**
+     * Adds the file and deletes least recently used ones, never the new one, until the cache fits its size.
+     */
+    private void remember(String key, long length) {
+        synchronized (entries) {
+            Long previous = entries.put(key, length);
+            totalBytes += length - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    continue;
+                }
+                eldest.remove();
+                totalBytes -= entry.getValue();
+                delete(file(entry.getKey()));
+            }
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (entries) {
+            Long length = entries.remove(key);
+            if (length != null) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    private void load() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read image cache " + dir, ex);
+        }
+        files.stream()
+                .filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                .forEach(ImageProxyServiceImpl::delete);
+        files.stream()
+                .filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                .sorted(Comparator.comparing(ImageProxyServiceImpl::lastModified))
+                .forEach(file -> {
+                    String name = file.getFileName().toString();
+                    try {
+                        remember(name.substring(0, name.length() - SUFFIX.length()), Files.size(file));
+                    } catch (IOException ex) {
+                        log.debug("Skipping unreadable cached image {}", file, ex);
+                    }
+                });
+        log.info("Image cache {} holds {} files, {} bytes", dir, entries.size(), totalBytes);
+    }
+
+    /**
+     * Keeps the accepted parameters in {@link #PARAMS} order and drops the tracking ones.
+     *
+     * @throws IllegalArgumentException on an unknown, repeated or out of range parameter
+     */
+    static String canonicalQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return "";
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String param : query.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int eq = param.indexOf('=');
+            String name = eq < 0 ? param : param.substring(0, eq);
+            String value = eq < 0 ? "" : param.substring(eq + 1);
+            if (IGNORED_PARAMS.contains(name)) {
+                continue;
+            }
+            Pattern allowed = PARAMS.get(name);
+            if (allowed == null || !allowed.matcher(value).matches() || values.put(name, value) != null) {
+                throw new IllegalArgumentException("Unsupported image parameter: " + param);
+            }
+        }
+        StringJoiner canonical = new StringJoiner("&");
+        PARAMS.keySet().stream()
+                .filter(values::containsKey)
+                .forEach(name -> canonical.add(name + "=" + values.get(name)));
+        return canonical.toString();
+    }
+
+    private static Map<String, Pattern> orderedParams() {
+        Pattern size = Pattern.compile("[1-9][0-9]{0,3}");
+        Map<String, Pattern> params = new LinkedHashMap<>();
+        params.put("w", size);
+        params.put("h", size);
+        params.put("fit", Pattern.compile("crop|clamp|clip|facearea|fill|fillmax|max|min|scale"));
+        params.put("fm", Pattern.compile("jpg|pjpg"));
+        params.put("q", Pattern.compile("[1-9][0-9]?|100"));
+        params.put("auto", Pattern.compile("(format|compress|enhance)(,(format|compress|enhance)){0,2}"));
+        return Collections.unmodifiableMap(params);
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key + SUFFIX);
+    }
+
+    private static String etag(String key) {
+        return "\"" + key.substring(0, 32) + "\"";
+    }
+
+    private static String key(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException ex) {
+            return 0L;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Failed to delete cached image {}", file, ex);
+        }
+    }
+
+    private static Downloader httpDownloader(Duration timeout) {
+        HttpClient client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        return (uri, target, maxBytes) -> {
+            // fm=jpg in the url decides the format; asking for JPEG keeps auto=format from switching to AVIF/WebP.
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(timeout)
+                    .header("Accept", "image/jpeg")
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response;
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted fetching " + uri, e);
+            }
+            try (InputStream in = response.body(); OutputStream out = Files.newOutputStream(target)) {
+                if (response.statusCode() / 100 != 2) {
+                    throw new IOException("Fetch image failed, http status=" + response.statusCode());
+                }
+                String contentType = response.headers().firstValue("Content-Type").orElse("");
+                if (!contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+                    throw new IOException("Unsupported content-type: " + contentType);
+                }
+                byte[] buf = new byte[8192];
+                long total = 0;
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    total += n;
+                    if (total > maxBytes) {
+                        throw new IOException("Image larger than " + maxBytes + " bytes");
+                    }
+                    out.write(buf, 0, n);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.model.ImageSearchCache;
+import com.demo.api.repository.ImageSearchCacheRepository;
+import com.demo.api.service.ImageSearchCacheService;
+import com.demo.api.utils.CacheKeyUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Two-tier image search cache: a bounded in-memory LRU in front of the image_search_cache table.
+ * Both tiers expire entries {@code unsplash.cache.ttl} after they were stored; an expired row stays until the
+ * next store for its query overwrites it.
+ */
+@Service
+public class ImageSearchCacheServiceImpl implements ImageSearchCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageSearchCacheServiceImpl.class);
+    private static final TypeReference<List<String>> URLS = new TypeReference<>() {
+    };
+    private static final int MAX_KEY_LENGTH = 255;
+    /** Words that do not change what a photo search finds. */
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "at", "in", "on", "of", "and", "with", "by", "for", "to", "from", "near", "during",
+            "photo", "image", "picture", "view");
+
+    private final ImageSearchCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Map<String, Entry> entries;
+    private final Counter memoryHits;
+    private final Counter memoryMisses;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+
+    @Autowired
+    public ImageSearchCacheServiceImpl(ImageSearchCacheRepository repository,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${unsplash.cache.enabled:true}") boolean enabled,
+                                       @Value("${unsplash.cache.max-entries:1000}") int maxEntries,
+                                       @Value("${unsplash.cache.ttl:P7D}") Duration ttl) {
+        this(repository, objectMapper, meterRegistry, enabled, maxEntries, ttl, Clock.systemUTC());
+    }
+
+    ImageSearchCacheServiceImpl(ImageSearchCacheRepository repository, ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry, boolean enabled, int maxEntries, Duration ttl,
+                                Clock clock) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = ttl == null ? Duration.ofDays(7) : ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ImageSearchCacheServiceImpl.this.maxEntries;
+            }
+        };
+        this.memoryHits = requests(meterRegistry, "memory", "hit");
+        this.memoryMisses = requests(meterRegistry, "memory", "miss");
+        this.databaseHits = requests(meterRegistry, "database", "hit");
+        this.databaseMisses = requests(meterRegistry, "database", "miss");
+        Gauge.builder("unsplash.search.cache.size", this, ImageSearchCacheServiceImpl::size)
+                .description("Image searches held in memory").register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("unsplash.search.cache.requests").tag("tier", tier).tag("result", result)
+                .description("Image search cache lookups per tier").register(meterRegistry);
+    }
+
+    @Override
+    public Optional<List<String>> lookup(String query) {
+        String key = canonicalQuery(query);
+        if (!enabled || key == null) {
+            return Optional.empty();
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !clock.instant().isBefore(entry.expiresAt())) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            memoryHits.increment();
+            return Optional.of(entry.urls());
+        }
+        memoryMisses.increment();
+
+        Optional<ImageSearchCache> row;
+        try {
+            row = repository.findByQueryKey(key)
+                    .filter(found -> found.getUpdatedTime() == null
+                            || clock.instant().isBefore(found.getUpdatedTime().toInstant().plus(ttl)));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to read cached image search for '{}'", key, ex);
+            row = Optional.empty();
+        }
+        Optional<List<String>> urls = row.flatMap(found -> read(key, found.getUrls()));
+        if (urls.isEmpty()) {
+            databaseMisses.increment();
+            return Optional.empty();
+        }
+        databaseHits.increment();
+        Instant storedAt = row.get().getUpdatedTime() == null ? clock.instant() : row.get().getUpdatedTime().toInstant();
+        remember(key, urls.get(), storedAt.plus(ttl));
+        return urls;
+    }
+
+    @Override
+    public void store(String query, List<String> urls) {
+        String key = canonicalQuery(query);
+        if (!enabled || key == null || urls == null || urls.isEmpty()) {
+            return;
+        }
+        List<String> copy = List.copyOf(urls);
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(copy);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize image search for '{}'", key, e);
+            return;
+        }
+        remember(key, copy, clock.instant().plus(ttl));
+        try {
+            ImageSearchCache row = repository.findByQueryKey(key)
+                    .orElseGet(() -> ImageSearchCache.builder().queryKey(key).build());
+            row.setUrls(json);
+            repository.save(row);
+        } catch (DataIntegrityViolationException ex) {
+            log.debug("Image search for '{}' was stored concurrently", key);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to store image search for '{}'", key, ex);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Normalized query words without stopwords or repeats, sorted, so "Tokyo tower at night" and
+     * "tokyo tower night" share a key. Null when nothing is left or the key would not fit the column.
+     */
+    static String canonicalQuery(String query) {
+        String normalized = CacheKeyUtils.normalize(query);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        String key = Arrays.stream(normalized.split(" "))
+                .filter(word -> !STOPWORDS.contains(word))
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(" "));
+        if (key.isEmpty()) {
+            key = normalized;
+        }
+        return key.length() > MAX_KEY_LENGTH ? null : key;
+    }
+
+    private void remember(String key, List<String> urls, Instant expiresAt) {
+        synchronized (entries) {
+            entries.put(key, new Entry(urls, expiresAt));
+        }
+    }
+
+    private Optional<List<String>> read(String key, String json) {
+        try {
+            List<String> urls = objectMapper.readValue(json, URLS);
+            return urls == null || urls.isEmpty() ? Optional.empty() : Optional.of(List.copyOf(urls));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable cached image search for '{}'", key, e);
+            return Optional.empty();
+        }
+    }
+
+    private record Entry(List<String> urls, Instant expiresAt) {
+    }
+}
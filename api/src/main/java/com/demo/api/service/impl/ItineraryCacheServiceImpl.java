@@ -0,0 +1,189 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.model.Trip;
+import com.demo.api.service.ItineraryCacheService;
+import com.demo.api.utils.CacheKeyUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory LRU cache of generated itineraries with a fixed time-to-live.
+ * Keys are a canonical form of the trip: route, duration, people, budget band, currency,
+ * normalized preference text and whether a forecast was part of the prompt.
+ * Entries are kept as JSON so every hit gets its own copy, which is then shifted onto the new start date.
+ */
+@Service
+public class ItineraryCacheServiceImpl implements ItineraryCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(ItineraryCacheServiceImpl.class);
+    /** Budget bands grow geometrically: each band covers 1.5x the per-person daily budget of the previous one. */
+    private static final double BUDGET_BAND_RATIO = 1.5;
+
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Map<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public ItineraryCacheServiceImpl(ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.trip.cache.enabled:true}") boolean enabled,
+                                     @Value("${app.trip.cache.max-entries:500}") int maxEntries,
+                                     @Value("${app.trip.cache.ttl:PT6H}") Duration ttl) {
+        this(objectMapper, meterRegistry, enabled, maxEntries, ttl, Clock.systemUTC());
+    }
+
+    ItineraryCacheServiceImpl(ObjectMapper objectMapper, MeterRegistry meterRegistry, boolean enabled,
+                              int maxEntries, Duration ttl, Clock clock) {
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = ttl == null ? Duration.ofHours(6) : ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ItineraryCacheServiceImpl.this.maxEntries;
+            }
+        };
+        this.hits = Counter.builder("trip.itinerary.cache.requests").tag("result", "hit")
+                .description("Itinerary cache lookups").register(meterRegistry);
+        this.misses = Counter.builder("trip.itinerary.cache.requests").tag("result", "miss")
+                .description("Itinerary cache lookups").register(meterRegistry);
+        Gauge.builder("trip.itinerary.cache.size", this, ItineraryCacheServiceImpl::size)
+                .description("Cached itineraries").register(meterRegistry);
+    }
+
+    @Override
+    public Optional<ItineraryDTO> lookup(Trip trip, boolean weatherPresent) {
+        if (!enabled || trip == null) {
+            return Optional.empty();
+        }
+        String key = cacheKey(trip, weatherPresent);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !clock.instant().isBefore(entry.expiresAt())) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        try {
+            ItineraryDTO copy = objectMapper.readValue(entry.json(), ItineraryDTO.class);
+            redate(copy, entry.startDate(), trip.getStartDate());
+            hits.increment();
+            log.debug("Itinerary cache hit for trip {}", trip.getId());
+            return Optional.of(copy);
+        } catch (JsonProcessingException e) {
+            log.warn("Dropping unreadable cached itinerary for key {}", key, e);
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            misses.increment();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void store(Trip trip, boolean weatherPresent, ItineraryDTO itinerary) {
+        if (!enabled || trip == null || itinerary == null) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(itinerary);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize itinerary of trip {} for caching", trip.getId(), e);
+            return;
+        }
+        Entry entry = new Entry(json, trip.getStartDate(), clock.instant().plus(ttl));
+        synchronized (entries) {
+            entries.put(cacheKey(trip, weatherPresent), entry);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Canonical cache key of the trip preferences.
+     */
+    static String cacheKey(Trip trip, boolean weatherPresent) {
+        long days = trip.getStartDate() == null || trip.getEndDate() == null
+                ? -1 : ChronoUnit.DAYS.between(trip.getStartDate(), trip.getEndDate()) + 1;
+        return String.join("|",
+                CacheKeyUtils.normalize(trip.getFromCountry()),
+                CacheKeyUtils.normalize(trip.getFromCity()),
+                CacheKeyUtils.normalize(trip.getToCountry()),
+                CacheKeyUtils.normalize(trip.getToCity()),
+                "days=" + days,
+                "people=" + (trip.getPeople() == null ? 1 : trip.getPeople()),
+                "budget=" + budgetBand(trip.getBudget(), trip.getPeople(), days),
+                StringUtils.hasText(trip.getCurrency()) ? trip.getCurrency().trim().toUpperCase(Locale.ROOT) : "",
+                CacheKeyUtils.normalize(trip.getPreferences()),
+                weatherPresent ? "weather" : "no-weather");
+    }
+
+    private static String budgetBand(Integer budget, Integer people, long days) {
+        if (budget == null || budget <= 0) {
+            return "none";
+        }
+        double perPersonPerDay = budget / (double) Math.max(1, people == null ? 1 : people) / Math.max(1, days);
+        return String.valueOf((int) Math.floor(Math.log(Math.max(1, perPersonPerDay)) / Math.log(BUDGET_BAND_RATIO)));
+    }
+
+    private static void redate(ItineraryDTO itinerary, LocalDate cachedStart, LocalDate newStart) {
+        if (cachedStart == null || newStart == null) {
+            return;
+        }
+        long shift = ChronoUnit.DAYS.between(cachedStart, newStart);
+        if (shift == 0) {
+            return;
+        }
+        if (itinerary.getDailySummaries() != null) {
+            itinerary.getDailySummaries().stream()
+                    .filter(summary -> summary != null && summary.getDate() != null)
+                    .forEach(summary -> summary.setDate(summary.getDate().plusDays(shift)));
+        }
+        if (itinerary.getActivities() != null) {
+            itinerary.getActivities().stream()
+                    .filter(activity -> activity != null && activity.getDate() != null)
+                    .forEach(activity -> activity.setDate(activity.getDate().plusDays(shift)));
+        }
+    }
+
+    private record Entry(String json, LocalDate startDate, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.model.LlmCompletion;
+import com.demo.api.repository.LlmCompletionRepository;
+import com.demo.api.service.LlmCompletionService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps completions GZIP-compressed in llm_completion. Recording the same prompt again overwrites the row,
+ * so the table holds the latest completion per distinct prompt.
+ */
+@Service
+@RequiredArgsConstructor
+public class LlmCompletionServiceImpl implements LlmCompletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmCompletionServiceImpl.class);
+
+    private final LlmCompletionRepository completionRepository;
+
+    @Override
+    public void record(String system, String user, Class<?> responseType, String completion) {
+        if (completion == null) {
+            return;
+        }
+        try {
+            String hash = promptHash(system, user, responseType);
+            LlmCompletion row = completionRepository.findByPromptHash(hash)
+                    .orElseGet(() -> LlmCompletion.builder()
+                            .promptHash(hash)
+                            .responseType(responseType.getSimpleName())
+                            .build());
+            String subject = LlmCallContext.currentSubject();
+            if (subject != null) {
+                row.setSubject(subject);
+            }
+            row.setCompletion(compress(completion));
+            row.setCompletionLength(completion.length());
+            completionRepository.save(row);
+            log.debug("Recorded {} completion {} ({} chars, {} bytes stored)", responseType.getSimpleName(), hash,
+                    completion.length(), row.getCompletion().length);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to record {} completion", responseType.getSimpleName(), ex);
+        }
+    }
+
+    @Override
+    public Optional<String> find(String system, String user, Class<?> responseType) {
+        return completionRepository.findByPromptHash(promptHash(system, user, responseType))
+                .map(row -> decompress(row.getCompletion()));
+    }
+
+    @Override
+    public List<String> findBySubject(String subject, Class<?> responseType) {
+        Assert.hasText(subject, "Subject must not be empty");
+        return completionRepository
+                .findBySubjectAndResponseTypeOrderByUpdatedTimeDesc(subject, responseType.getSimpleName())
+                .stream()
+                .map(row -> decompress(row.getCompletion()))
+                .toList();
+    }
+
+    @Override
+    public long purgeOlderThan(OffsetDateTime cutoff) {
+        return completionRepository.deleteByUpdatedTimeBefore(cutoff);
+    }
+
+    static String promptHash(String system, String user, Class<?> responseType) {
+        Assert.notNull(responseType, "Response type must not be null");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(responseType.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(system).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(user).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static byte[] compress(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, text.length() / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static String decompress(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Recorded completion is corrupt", e);
+        }
+    }
+}
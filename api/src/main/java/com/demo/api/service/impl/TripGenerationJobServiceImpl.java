@@ -0,0 +1,422 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.dto.ModifyPlanDTO;
+import com.demo.api.dto.TripGenerationJobDTO;
+import com.demo.api.dto.TripPreferenceRequestDTO;
+import com.demo.api.enums.TripJobStatus;
+import com.demo.api.enums.TripJobType;
+import com.demo.api.exception.BusinessException;
+import com.demo.api.model.Trip;
+import com.demo.api.model.TripGenerationJob;
+import com.demo.api.repository.TripGenerationJobRepository;
+import com.demo.api.repository.TripRepository;
+import com.demo.api.service.TripGenerationJobService;
+import com.demo.api.service.TripGenerationService;
+import com.demo.api.service.TripPlanStreamListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs trip generation and regeneration as persisted background jobs.
+ * Flow:
+ * 1. The controller submits a job, which is stored as PENDING and handed to the bounded worker pool
+ * 2. A worker marks it RUNNING and executes the regular TripGenerationService pipeline
+ * 3. The job ends as SUCCEEDED or FAILED; clients poll {@link #getJob(Long, String)}
+ *    or, for streaming submissions, receive progress through a {@link TripPlanStreamListener}
+ *
+ * Every unfinished job is leased by the instance running it: the owner renews the lease periodically and a
+ * worker only starts a job after atomically claiming it. Jobs whose owner stopped renewing the lease, e.g.
+ * after a crash or shutdown, are taken over by whichever instance claims them first, so with several
+ * instances each job still runs on one node at a time.
+ *
+ * Duplicate submissions (double clicks, frontend retries) are coalesced: while a job with the same
+ * coalesce key and payload is unfinished, submitting again returns that job instead of starting another LLM
+ * call and another delete/insert of the same plan. A regeneration with different instructions for a trip
+ * that is still being regenerated is rejected rather than coalesced, so the new instructions are never
+ * silently dropped. Coalescing only sees submissions made to this instance.
+ */
+@Service
+public class TripGenerationJobServiceImpl implements TripGenerationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(TripGenerationJobServiceImpl.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String QUEUE_FULL_MESSAGE = "Trip generation queue is full, please try again later";
+    private static final String BUSY_MESSAGE =
+            "This trip is still being regenerated, please try again once it has finished";
+    private static final List<TripJobStatus> UNFINISHED = List.of(TripJobStatus.PENDING, TripJobStatus.RUNNING);
+
+    private final TripGenerationJobRepository jobRepository;
+    private final TripRepository tripRepository;
+    private final TripGenerationService tripGenerationService;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor tripGenerationExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lease;
+    /** Lease owner id of this instance. */
+    private final String instanceId = UUID.randomUUID().toString();
+    /** Unfinished jobs by coalesce key; the future completes once the owning submission has stored its job. */
+    private final ConcurrentMap<String, CompletableFuture<TripGenerationJob>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TripGenerationJobServiceImpl(TripGenerationJobRepository jobRepository,
+                                        TripRepository tripRepository,
+                                        TripGenerationService tripGenerationService,
+                                        ObjectMapper objectMapper,
+                                        @Qualifier("tripGenerationExecutor") TaskExecutor tripGenerationExecutor,
+                                        TransactionTemplate transactionTemplate,
+                                        @Value("${app.trip.generation.jobs.lease:PT2M}") Duration lease) {
+        this.jobRepository = jobRepository;
+        this.tripRepository = tripRepository;
+        this.tripGenerationService = tripGenerationService;
+        this.objectMapper = objectMapper;
+        this.tripGenerationExecutor = tripGenerationExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.lease = lease == null ? Duration.ofMinutes(2) : lease;
+    }
+
+    @Override
+    public TripGenerationJobDTO submitGeneration(TripPreferenceRequestDTO dto, String userId) {
+        Assert.notNull(dto, "Trip preference DTO must not be null");
+        Assert.hasText(userId, "userId must not be empty");
+
+        String payload = writeJson(dto);
+        String coalesceKey = "generate:" + userId + ":" + DigestUtils.md5DigestAsHex(payload.getBytes(StandardCharsets.UTF_8));
+        return submitCoalesced(coalesceKey, payload, () -> {
+            TripGenerationJob job = jobRepository.save(TripGenerationJob.builder()
+                    .userId(Long.valueOf(userId))
+                    .type(TripJobType.GENERATE)
+                    .payload(payload)
+                    .coalesceKey(coalesceKey)
+                    .owner(instanceId)
+                    .build());
+            log.info("Queued trip generation job {} for user {}", job.getId(), userId);
+            return job;
+        });
+    }
+
+    @Override
+    public TripGenerationJobDTO submitStreamingGeneration(TripPreferenceRequestDTO dto, String userId,
+                                                          TripPlanStreamListener listener) {
+        Assert.notNull(dto, "Trip preference DTO must not be null");
+        Assert.hasText(userId, "userId must not be empty");
+        Assert.notNull(listener, "listener must not be null");
+
+        TripGenerationJob job = jobRepository.save(TripGenerationJob.builder()
+                .userId(Long.valueOf(userId))
+                .type(TripJobType.GENERATE)
+                .payload(writeJson(dto))
+                .owner(instanceId)
+                .build());
+        log.info("Queued streaming trip generation job {} for user {}", job.getId(), userId);
+        listener.onQueued(toDto(job));
+        return submit(job, listener);
+    }
+
+    @Override
+    public TripGenerationJobDTO submitRegeneration(Long tripId, ModifyPlanDTO modifyPlanDTO, String userId) {
+        Assert.notNull(tripId, "tripId must not be null");
+        Assert.notNull(modifyPlanDTO, "modifyPlanDTO must not be null");
+        Assert.hasText(userId, "userId must not be empty");
+
+        // Reject foreign or missing trips up front instead of failing later in the worker
+        tripRepository.findByIdAndUserId(tripId, Long.valueOf(userId))
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found or not owned by user: " + tripId));
+
+        String payload = writeJson(modifyPlanDTO);
+        String coalesceKey = "regenerate:" + tripId;
+        return submitCoalesced(coalesceKey, payload, () -> {
+            TripGenerationJob job = jobRepository.save(TripGenerationJob.builder()
+                    .userId(Long.valueOf(userId))
+                    .tripId(tripId)
+                    .type(TripJobType.REGENERATE)
+                    .payload(payload)
+                    .coalesceKey(coalesceKey)
+                    .owner(instanceId)
+                    .build());
+            log.info("Queued trip regeneration job {} for trip {}", job.getId(), tripId);
+            return job;
+        });
+    }
+
+    @Override
+    public TripGenerationJobDTO getJob(Long jobId, String userId) {
+        Assert.notNull(jobId, "jobId must not be null");
+        Assert.hasText(userId, "userId must not be empty");
+        return jobRepository.findByIdAndUserId(jobId, Long.valueOf(userId))
+                .map(this::toDto)
+                .orElseThrow(() -> new IllegalArgumentException("Generation job not found: " + jobId));
+    }
+
+    @Override
+    public int renewLeases() {
+        return jobRepository.renewLeases(instanceId, UNFINISHED, OffsetDateTime.now());
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public int resumeUnfinishedJobs() {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<TripGenerationJob> stale =
+                jobRepository.findByStatusInAndUpdatedTimeBeforeOrderByIdAsc(UNFINISHED, now.minus(lease));
+        int resumed = 0;
+        for (TripGenerationJob job : stale) {
+            if (!claim(job.getId())) {
+                continue;
+            }
+            job.setOwner(instanceId);
+            if (job.getCoalesceKey() != null) {
+                inFlight.putIfAbsent(job.getCoalesceKey(), CompletableFuture.completedFuture(job));
+            }
+            if (dispatch(job, null)) {
+                resumed++;
+            }
+        }
+        if (resumed > 0) {
+            log.info("Resumed {} abandoned trip generation jobs", resumed);
+        }
+        return resumed;
+    }
+
+    /**
+     * Executes a single job on the calling (worker) thread.
+     */
+    void runJob(Long jobId) {
+        runJob(jobId, null);
+    }
+
+    /**
+     * Executes a single job on the calling (worker) thread, streaming progress to the listener when given.
+     */
+    void runJob(Long jobId, TripPlanStreamListener listener) {
+        TripGenerationJob job = claim(jobId) ? jobRepository.findById(jobId).orElse(null) : null;
+        if (job == null || job.getStatus().isTerminal()) {
+            log.debug("Skipping trip generation job {}: missing, finished or leased by another instance", jobId);
+            return;
+        }
+
+        job.setStatus(TripJobStatus.RUNNING);
+        job.setAttempts(job.getAttempts() == null ? 1 : job.getAttempts() + 1);
+        job.setStartedTime(OffsetDateTime.now());
+        job = jobRepository.save(job);
+
+        Exception failure = null;
+        try (LlmCallContext.Scope ignored = LlmCallContext.open(String.valueOf(job.getUserId()))) {
+            switch (job.getType()) {
+                case GENERATE -> runGeneration(job, listener);
+                case REGENERATE -> runRegeneration(job);
+            }
+            job.setStatus(TripJobStatus.SUCCEEDED);
+            job.setErrorMessage(null);
+            log.info("Trip generation job {} succeeded for trip {}", jobId, job.getTripId());
+        } catch (Exception ex) {
+            log.error("Trip generation job {} failed", jobId, ex);
+            job.setStatus(TripJobStatus.FAILED);
+            job.setErrorMessage(truncate(ex.getMessage()));
+            failure = ex;
+        }
+        job.setFinishedTime(OffsetDateTime.now());
+        try {
+            jobRepository.save(job);
+        } finally {
+            release(job);
+        }
+
+        if (listener != null) {
+            if (failure == null) {
+                listener.onCompleted(job.getTripId());
+            } else {
+                listener.onFailed(job.getTripId(), failure);
+            }
+        }
+    }
+
+    private void runGeneration(TripGenerationJob job, TripPlanStreamListener listener) {
+        // A restarted job may already have created its trip; reuse it instead of inserting a duplicate
+        Trip trip = job.getTripId() == null ? null : tripRepository.findById(job.getTripId()).orElse(null);
+        if (trip == null) {
+            TripPreferenceRequestDTO dto = readJson(job.getPayload(), TripPreferenceRequestDTO.class);
+            // The trip and the job's link to it are stored together, so a crash cannot leave either one alone
+            trip = transactionTemplate.execute(status -> {
+                Trip created = tripGenerationService.createTrip(dto, String.valueOf(job.getUserId()));
+                job.setTripId(created.getId());
+                jobRepository.save(job);
+                return created;
+            });
+        }
+        if (listener == null) {
+            tripGenerationService.generateTripPlan(trip);
+            return;
+        }
+        listener.onTripCreated(trip.getId());
+        tripGenerationService.streamTripPlan(trip, listener);
+    }
+
+    private void runRegeneration(TripGenerationJob job) {
+        ModifyPlanDTO modifyPlanDTO = readJson(job.getPayload(), ModifyPlanDTO.class);
+        tripGenerationService.regenerateTrip(job.getTripId(), modifyPlanDTO, String.valueOf(job.getUserId()));
+    }
+
+    /**
+     * Takes the job's lease for this instance; false when it is finished or another instance holds it.
+     */
+    private boolean claim(Long jobId) {
+        OffsetDateTime now = OffsetDateTime.now();
+        return jobRepository.claim(jobId, UNFINISHED, instanceId, now, now.minus(lease)) > 0;
+    }
+
+    /**
+     * Single-flight submission: the first caller for a key stores and dispatches the job, concurrent
+     * duplicates wait for that job to be stored and get the same job back. A submission whose payload
+     * differs from the unfinished job's is rejected with a {@link BusinessException}.
+     */
+    private TripGenerationJobDTO submitCoalesced(String coalesceKey, String payload,
+                                                 Supplier<TripGenerationJob> createJob) {
+        CompletableFuture<TripGenerationJob> owned = new CompletableFuture<>();
+        CompletableFuture<TripGenerationJob> existing = inFlight.putIfAbsent(coalesceKey, owned);
+        if (existing != null) {
+            TripGenerationJob job = awaitInFlight(existing);
+            if (!payload.equals(job.getPayload())) {
+                log.info("Rejected submission for {}: job {} with other instructions is unfinished",
+                        coalesceKey, job.getId());
+                throw new BusinessException(BUSY_MESSAGE);
+            }
+            log.info("Coalesced duplicate submission onto trip generation job {}", job.getId());
+            return jobRepository.findById(job.getId()).map(this::toDto).orElseGet(() -> toDto(job));
+        }
+
+        TripGenerationJob job;
+        try {
+            job = createJob.get();
+        } catch (RuntimeException ex) {
+            inFlight.remove(coalesceKey, owned);
+            owned.completeExceptionally(ex);
+            throw ex;
+        }
+        owned.complete(job);
+        try {
+            return submit(job, null);
+        } catch (BusinessException ex) {
+            release(job);
+            throw ex;
+        }
+    }
+
+    private TripGenerationJob awaitInFlight(CompletableFuture<TripGenerationJob> existing) {
+        try {
+            return existing.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Forgets the job's coalesce key so later submissions start a fresh job.
+     */
+    private void release(TripGenerationJob job) {
+        if (job.getCoalesceKey() == null) {
+            return;
+        }
+        inFlight.computeIfPresent(job.getCoalesceKey(), (key, future) ->
+                future.isDone() && !future.isCompletedExceptionally() && job.getId().equals(future.join().getId())
+                        ? null : future);
+    }
+
+    private TripGenerationJobDTO submit(TripGenerationJob job, TripPlanStreamListener listener) {
+        if (!dispatch(job, listener)) {
+            throw new BusinessException(QUEUE_FULL_MESSAGE);
+        }
+        return toDto(job);
+    }
+
+    /**
+     * Hands the job to the worker pool. The job's coalesce key is released however the job ends: after it ran,
+     * including a skipped or failing run, or right away when the pool rejects it.
+     */
+    private boolean dispatch(TripGenerationJob job, TripPlanStreamListener listener) {
+        Long jobId = job.getId();
+        try {
+            tripGenerationExecutor.execute(() -> {
+                try {
+                    runJob(jobId, listener);
+                } finally {
+                    release(job);
+                }
+            });
+            return true;
+        } catch (TaskRejectedException ex) {
+            log.warn("Trip generation worker pool rejected job {}", jobId);
+            try {
+                job.setStatus(TripJobStatus.FAILED);
+                job.setErrorMessage(QUEUE_FULL_MESSAGE);
+                job.setFinishedTime(OffsetDateTime.now());
+                jobRepository.save(job);
+            } finally {
+                release(job);
+            }
+            return false;
+        }
+    }
+
+    private TripGenerationJobDTO toDto(TripGenerationJob job) {
+        return TripGenerationJobDTO.builder()
+                .jobId(job.getId())
+                .tripId(job.getTripId())
+                .type(job.getType())
+                .status(job.getStatus())
+                .errorMessage(job.getErrorMessage())
+                .createdTime(job.getCreatedTime())
+                .finishedTime(job.getFinishedTime())
+                .build();
+    }
+
+    private String writeJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize generation job payload", e);
+        }
+    }
+
+    private <T> T readJson(String payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read generation job payload", e);
+        }
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return "Trip generation failed";
+        }
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -1,31 +1,67 @@
 package com.demo.api.service.impl;
 
 import com.demo.api.client.OpenAiClient;
+import com.demo.api.client.support.LenientOutputConverter;
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.client.support.ItineraryStreamParser;
 import com.demo.api.dto.DailyWeatherDTO;
+import com.demo.api.dto.InsightResponseDTO;
 import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.ItineraryWithInsightsDTO;
 import com.demo.api.dto.TripPreferenceRequestDTO;
 import com.demo.api.dto.ModifyPlanDTO;
 import com.demo.api.model.Trip;
-import com.demo.api.model.TripWeather;
 import com.demo.api.repository.TripRepository;
-import com.demo.api.repository.TripWeatherRepository;
+import com.demo.api.service.ItineraryCacheService;
+import com.demo.api.service.ItineraryValidator;
+import com.demo.api.service.LlmCompletionService;
+import com.demo.api.service.SegmentedItineraryGenerator;
+import com.demo.api.service.TripGenerationCheckpointSaver;
 import com.demo.api.service.TripGenerationService;
+import com.demo.api.service.TripCoverImageResolver;
+import com.demo.api.service.TripInsightPrecomputer;
+import com.demo.api.service.TripInsightService;
 import com.demo.api.service.TripStorageService;
 import com.demo.api.service.WeatherService;
 import com.demo.api.service.TripPlanPromptBuilder;
-import lombok.RequiredArgsConstructor;
+import com.demo.api.service.TripPlanStreamListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphInput;
+import org.bsc.langgraph4j.GraphStateException;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.StateGraph;
+import org.bsc.langgraph4j.state.AgentState;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.bsc.langgraph4j.StateGraph.END;
+import static org.bsc.langgraph4j.StateGraph.START;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
 
 /**
  * Implementation of the TripGenerationService interface.
@@ -33,76 +69,323 @@ import java.util.stream.Collectors;
  * 1. Converting user input (DTO) into entity
  * 2. Optionally fetching weather data
  * 3. Building GPT prompt
- * 4. Calling OpenAI to generate a plan
- * 5. Storing the plan into database
+ * 4. Calling OpenAI to generate a plan, unless an equivalent plan is cached;
+ *    long trips are planned as parallel date segments, and each completion is
+ *    checked and repaired by ItineraryValidator
+ * 5. Resolving daily summary images and generating destination insights, concurrently
+ * 6. Storing the plan and the insights into database; insights missing at that point (failed, or not
+ *    generated by the streaming and regeneration flows) are generated in the background by TripInsightPrecomputer
+ *
+ * With {@code app.trip.prompt.combined-insights}, a single-call itinerary also carries the insights, and
+ * step 5 only resolves images; the insights call is made only when the completion had none.
+ *
+ * Steps 2-6 run as a langgraph4j workflow (weather → itinerary → images ∥ insights → store) whose state
+ * is checkpointed to trip_generation_checkpoint after every node. A failed run is resumed from its last
+ * completed node up to {@code app.trip.generation.workflow.max-resumes} times, and a job restarted after
+ * a shutdown resumes the same way, so a paid completion is never requested twice.
+ *
+ * Only steps 1 and 6 (plus the weather upsert and checkpoint writes) open a transaction, each a short one.
+ * Weather, OpenAI and Unsplash calls run without a transaction so no pooled
+ * connection is held for the duration of the LLM call.
  */
 @Service
-@RequiredArgsConstructor
 public class TripGenerationServiceImpl implements TripGenerationService {
 
     private static final Logger log = LoggerFactory.getLogger(TripGenerationServiceImpl.class);
 
+    static final String WEATHER_NODE = "weather";
+    static final String ITINERARY_NODE = "itinerary";
+    static final String IMAGES_NODE = "images";
+    static final String INSIGHTS_NODE = "insights";
+    static final String STORE_NODE = "store";
+    /** Workflow state keys; DTOs are kept as JSON so checkpoints stay plain text. */
+    private static final String WEATHER_STATE = "weather_json";
+    private static final String ITINERARY_STATE = "itinerary_json";
+    private static final String FROM_CACHE_STATE = "from_cache";
+    private static final String INSIGHTS_STATE = "insights_json";
+
     private final ModelMapper modelMapper;
     private final WeatherService weatherService;
-    private final TripWeatherRepository tripWeatherRepository;
     private final TripPlanPromptBuilder tripPlanPromptBuilder;
     private final ObjectProvider<OpenAiClient> openAiClientProvider;
     private final ObjectProvider<TripStorageService> tripStorageServiceProvider;
     private final TripRepository tripRepository;
+    private final ObjectMapper objectMapper;
+    private final ItineraryCacheService itineraryCacheService;
+    private final SegmentedItineraryGenerator segmentedItineraryGenerator;
+    private final ItineraryValidator itineraryValidator;
+    private final TripInsightService tripInsightService;
+    private final TripInsightPrecomputer tripInsightPrecomputer;
+    private final TripCoverImageResolver tripCoverImageResolver;
+    private final TripGenerationCheckpointSaver checkpointSaver;
+    private final TaskExecutor tripSegmentExecutor;
+    private final LlmCompletionService llmCompletionService;
+    private final int maxResumes;
+
+    public TripGenerationServiceImpl(ModelMapper modelMapper,
+                                     WeatherService weatherService,
+                                     TripPlanPromptBuilder tripPlanPromptBuilder,
+                                     ObjectProvider<OpenAiClient> openAiClientProvider,
+                                     ObjectProvider<TripStorageService> tripStorageServiceProvider,
+                                     TripRepository tripRepository,
+                                     ObjectMapper objectMapper,
+                                     ItineraryCacheService itineraryCacheService,
+                                     SegmentedItineraryGenerator segmentedItineraryGenerator,
+                                     ItineraryValidator itineraryValidator,
+                                     TripInsightService tripInsightService,
+                                     TripInsightPrecomputer tripInsightPrecomputer,
+                                     TripCoverImageResolver tripCoverImageResolver,
+                                     TripGenerationCheckpointSaver checkpointSaver,
+                                     @Qualifier("tripSegmentExecutor") TaskExecutor tripSegmentExecutor,
+                                     LlmCompletionService llmCompletionService,
+                                     @Value("${app.trip.generation.workflow.max-resumes:1}") int maxResumes) {
+        this.modelMapper = modelMapper;
+        this.weatherService = weatherService;
+        this.tripPlanPromptBuilder = tripPlanPromptBuilder;
+        this.openAiClientProvider = openAiClientProvider;
+        this.tripStorageServiceProvider = tripStorageServiceProvider;
+        this.tripRepository = tripRepository;
+        this.objectMapper = objectMapper;
+        this.itineraryCacheService = itineraryCacheService;
+        this.segmentedItineraryGenerator = segmentedItineraryGenerator;
+        this.itineraryValidator = itineraryValidator;
+        this.tripInsightService = tripInsightService;
+        this.tripInsightPrecomputer = tripInsightPrecomputer;
+        this.tripCoverImageResolver = tripCoverImageResolver;
+        this.checkpointSaver = checkpointSaver;
+        this.tripSegmentExecutor = tripSegmentExecutor;
+        this.llmCompletionService = llmCompletionService;
+        this.maxResumes = Math.max(0, maxResumes);
+    }
 
     @Override
-    @Transactional
     public void generateTripAndReturnJson(TripPreferenceRequestDTO dto, String userId) {
+        Trip preference = createTrip(dto, userId);
+        generateTripPlan(preference);
+    }
+
+    @Override
+    @Transactional
+    public Trip createTrip(TripPreferenceRequestDTO dto, String userId) {
         Assert.notNull(dto, "Trip preference DTO must not be null");
 
         // 1. Convert the request DTO into a TripPreference entity
         Trip preference = modelMapper.map(dto, Trip.class);
         preference.setUserId(Long.valueOf(userId));
         tripRepository.save(preference);
+        tripCoverImageResolver.schedule(preference);
         log.debug("Mapped trip preference request to entity: {}", preference);
+        return preference;
+    }
 
-        // 2. Check if weather data is needed (only if trip starts within 5 days from today)
-        LocalDate startDate = preference.getStartDate();
-        LocalDate weatherWindow = LocalDate.now().plusDays(5);
-        boolean shouldFetchWeather = startDate != null && weatherWindow.isAfter(startDate);
-        List<DailyWeatherDTO> weatherSummaries = List.of();
+    @Override
+    public void generateTripPlan(Trip preference) {
+        Assert.notNull(preference, "Trip must not be null");
+        Assert.notNull(preference.getId(), "Trip must be persisted before generating its plan");
 
-        if (shouldFetchWeather) {
-            if (preference.getId() == null) {
-                log.warn("Trip ID is null, skipping weather fetch for preference {}", preference);
-            } else {
-                log.debug("Fetching weather for trip {} starting {}", preference.getId(), startDate);
-                weatherService.fetchAndStoreWeather(preference);
-                List<TripWeather> storedWeather = tripWeatherRepository.findByTripId(preference.getId());
-                weatherSummaries = storedWeather.stream()
-                        .map(weather -> DailyWeatherDTO.builder()
-                                .date(weather.getDate())
-                                .minTemp(weather.getMinTemp())
-                                .maxTemp(weather.getMaxTemp())
-                                .weatherCondition(weather.getWeatherCondition())
-                                .build())
-                        .collect(Collectors.toList());
-                log.debug("Retrieved {} weather summaries for trip {}", weatherSummaries.size(), preference.getId());
+        CompiledGraph<AgentState> workflow = buildWorkflow(preference);
+        String threadId = "trip:" + preference.getId();
+        RunnableConfig config = RunnableConfig.builder()
+                .threadId(threadId)
+                .addParallelNodeExecutor(ITINERARY_NODE, tripSegmentExecutor)
+                .build();
+        try (LlmCallContext.Scope ignored = LlmCallContext.openSubject(LlmCallContext.tripSubject(preference.getId()))) {
+            for (int resumes = 0; ; resumes++) {
+                boolean resume = checkpointSaver.get(config).isPresent();
+                if (resume) {
+                    log.info("Resuming trip generation for trip {} from its last checkpoint", preference.getId());
+                }
+                try {
+                    workflow.invoke(resume ? GraphInput.resume() : GraphInput.args(Map.of()), config);
+                    break;
+                } catch (RuntimeException ex) {
+                    RuntimeException failure = unwrap(ex);
+                    if (resumes >= maxResumes) {
+                        checkpointSaver.evict(threadId);
+                        throw failure;
+                    }
+                    log.warn("Trip generation for trip {} failed, resuming: {}", preference.getId(), failure.getMessage());
+                }
             }
-        } else {
-            log.debug("Skipping weather fetch. Trip start {}, threshold {}", startDate, weatherWindow);
         }
 
-        // 3. Build the prompt for OpenAI based on trip preference and weather
-        String prompt = tripPlanPromptBuilder.build(preference, weatherSummaries);
-        log.debug("Constructed trip generation prompt");
+        log.info("Successfully generated and stored trip plan for user {}", preference.getUserId());
+    }
 
-        // 4. Get OpenAiClient and call GPT API using the built prompt
-        OpenAiClient openAiClient = Optional.ofNullable(openAiClientProvider.getIfAvailable())
-                .orElseThrow(() -> new IllegalStateException("OpenAiClient bean is not configured"));
-        ItineraryDTO itineraryDTO = openAiClient.generate(prompt, ItineraryDTO.class);
+    /**
+     * Builds the generation workflow of one trip. Compiling is cheap, and binding the trip into the node
+     * actions keeps the checkpointed state down to the intermediate results.
+     */
+    private CompiledGraph<AgentState> buildWorkflow(Trip preference) {
+        try {
+            return new StateGraph<>(AgentState::new)
+                    .addNode(WEATHER_NODE, node_async(state -> loadWeatherNode(preference)))
+                    .addNode(ITINERARY_NODE, node_async(state -> itineraryNode(preference, state)))
+                    .addNode(IMAGES_NODE, node_async(state -> imagesNode(preference, state)))
+                    .addNode(INSIGHTS_NODE, node_async(state -> insightsNode(preference, state)))
+                    .addNode(STORE_NODE, node_async(state -> storeNode(preference, state)))
+                    .addEdge(START, WEATHER_NODE)
+                    .addEdge(WEATHER_NODE, ITINERARY_NODE)
+                    // images and insights only depend on the itinerary and run in parallel
+                    .addEdge(ITINERARY_NODE, IMAGES_NODE)
+                    .addEdge(ITINERARY_NODE, INSIGHTS_NODE)
+                    .addEdge(IMAGES_NODE, STORE_NODE)
+                    .addEdge(INSIGHTS_NODE, STORE_NODE)
+                    .addEdge(STORE_NODE, END)
+                    .compile(CompileConfig.builder()
+                            .checkpointSaver(checkpointSaver)
+                            .releaseThread(true)
+                            .build());
+        } catch (GraphStateException e) {
+            throw new IllegalStateException("Invalid trip generation workflow", e);
+        }
+    }
 
-        // 5. Store the generated trip plan using TripStorageService
-        TripStorageService tripStorageService = Optional.ofNullable(tripStorageServiceProvider.getIfAvailable())
-                .orElseThrow(() -> new IllegalStateException("TripStorageService bean is not configured"));
-        tripStorageService.storeTripPlan(preference, itineraryDTO);
+    // 2. Fetch weather if the trip starts soon
+    private Map<String, Object> loadWeatherNode(Trip preference) {
+        return Map.of(WEATHER_STATE, writeState(loadWeather(preference)));
+    }
 
-        log.info("Successfully generated and stored trip plan for user {}", preference.getUserId());
+    // 3-4. Reuse a cached plan for equivalent preferences, otherwise prompt GPT (see generateItinerary)
+    private Map<String, Object> itineraryNode(Trip preference, AgentState state) {
+        List<DailyWeatherDTO> weatherSummaries = readWeather(state);
+        Optional<ItineraryDTO> cached = itineraryCacheService.lookup(preference, !weatherSummaries.isEmpty());
+        ItineraryDTO itineraryDTO = cached.orElseGet(() -> generateItinerary(preference, weatherSummaries));
+        if (itineraryDTO instanceof ItineraryWithInsightsDTO combined) {
+            // the state, the itinerary cache and storage all take the plain itinerary
+            return Map.of(ITINERARY_STATE, writeState(ItineraryDTO.builder()
+                            .dailySummaries(combined.getDailySummaries())
+                            .activities(combined.getActivities())
+                            .build()),
+                    FROM_CACHE_STATE, false,
+                    INSIGHTS_STATE, writeState(insightResponse(preference, combined)));
+        }
+        return Map.of(ITINERARY_STATE, writeState(itineraryDTO), FROM_CACHE_STATE, cached.isPresent());
+    }
+
+    // 5a. Resolve daily summary images
+    private Map<String, Object> imagesNode(Trip preference, AgentState state) {
+        ItineraryDTO itineraryDTO = readState(state, ITINERARY_STATE, ItineraryDTO.class);
+        requireTripStorageService().resolveImages(preference, itineraryDTO);
+        return Map.of(ITINERARY_STATE, writeState(itineraryDTO));
+    }
+
+    // 5b. Generate insights for the planned attractions; optional, they are otherwise generated on first view
+    private Map<String, Object> insightsNode(Trip preference, AgentState state) {
+        if (state.value(INSIGHTS_STATE).isPresent()) {
+            log.debug("Insights for trip {} came with the itinerary", preference.getId());
+            return Map.of();
+        }
+        ItineraryDTO itineraryDTO = readState(state, ITINERARY_STATE, ItineraryDTO.class);
+        List<String> locations = Optional.ofNullable(itineraryDTO.getActivities()).orElse(List.of()).stream()
+                .filter(ItineraryDTO.AttractionDTO.class::isInstance)
+                .map(activity -> ((ItineraryDTO.AttractionDTO) activity).getLocation())
+                .filter(StringUtils::hasText)
+                .distinct()
+                .toList();
+        try {
+            InsightResponseDTO insights = tripInsightService.generateInsights(preference, locations);
+            return insights == null ? Map.of() : Map.of(INSIGHTS_STATE, writeState(insights));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to generate insights for trip {}", preference.getId(), ex);
+            return Map.of();
+        }
+    }
+
+    // 6. Store the generated trip plan using TripStorageService
+    private Map<String, Object> storeNode(Trip preference, AgentState state) {
+        ItineraryDTO itineraryDTO = readState(state, ITINERARY_STATE, ItineraryDTO.class);
+        if (!state.value(FROM_CACHE_STATE, Boolean.FALSE)) {
+            // cached after image resolution so hits skip the Unsplash lookups as well
+            itineraryCacheService.store(preference, !readWeather(state).isEmpty(), itineraryDTO);
+        }
+        // insights first: storing the plan schedules their background generation unless they are stored
+        state.<String>value(INSIGHTS_STATE).ifPresent(json -> {
+            try {
+                tripInsightService.storeInsights(preference.getId(), readJson(json, InsightResponseDTO.class));
+            } catch (RuntimeException ex) {
+                log.warn("Failed to store insights for trip {}", preference.getId(), ex);
+            }
+        });
+        requireTripStorageService().storeTripPlan(preference, itineraryDTO);
+        return Map.of();
+    }
+
+    @Override
+    public void streamTripPlan(Trip preference, TripPlanStreamListener listener) {
+        Assert.notNull(preference, "Trip must not be null");
+        Assert.notNull(preference.getId(), "Trip must be persisted before streaming its plan");
+        Assert.notNull(listener, "listener must not be null");
+
+        List<DailyWeatherDTO> weatherSummaries = loadWeather(preference);
+        String prompt = tripPlanPromptBuilder.buildForStreaming(preference, weatherSummaries);
+        log.debug("Constructed streaming trip generation prompt");
+
+        TripStorageService tripStorageService = requireTripStorageService();
+        boolean weatherPresent = !weatherSummaries.isEmpty();
+        Optional<ItineraryDTO> cached = itineraryCacheService.lookup(preference, weatherPresent);
+        if (cached.isPresent()) {
+            // Nothing to stream: store the cached plan at once and report every day as stored
+            tripStorageService.resolveImages(preference, cached.get());
+            tripStorageService.storeTripPlan(preference, cached.get());
+            Optional.ofNullable(cached.get().getDailySummaries()).orElse(List.of()).stream()
+                    .map(ItineraryDTO.DailySummaryDTO::getDate)
+                    .filter(Objects::nonNull)
+                    .forEach(date -> listener.onDayStored(preference.getId(), date));
+            log.info("Stored cached trip plan for trip {}", preference.getId());
+            return;
+        }
+
+        OpenAiClient openAiClient = requireOpenAiClient();
+        // A resumed or retried job may have stored part of a plan already
+        tripStorageService.clearTripPlan(preference);
+
+        DayByDayWriter writer = new DayByDayWriter(preference, tripStorageService, listener);
+        ItineraryStreamParser parser =
+                new ItineraryStreamParser(objectMapper, writer::onDailySummary, writer::onActivity);
+        try (LlmCallContext.Scope ignoredSubject = LlmCallContext.openSubject(LlmCallContext.tripSubject(preference.getId()));
+             LlmCallContext.Scope ignoredWorkload = LlmCallContext.openWorkload(LlmCallContext.Workload.of(
+                     preference.getStartDate(), preference.getEndDate(), preference.getPreferences()))) {
+            // consumed on this job thread: storing a day blocks on Unsplash and the database,
+            // which must not happen on the HTTP client's event loop
+            for (String chunk : openAiClient.stream(prompt, ItineraryDTO.class).toIterable()) {
+                parser.feed(chunk);
+            }
+        }
+        ItineraryDTO itinerary = parser.finish();
+        writer.flush();
+        if (repairStreamed(preference, itinerary)) {
+            // replaces the days stored so far and schedules the insights once committed
+            tripStorageService.resolveImages(preference, itinerary);
+            tripStorageService.storeTripPlan(preference, itinerary);
+        } else {
+            // streamed days are stored one by one, so nothing else schedules the insights
+            tripInsightPrecomputer.reschedule(preference.getId());
+        }
+        itineraryCacheService.store(preference, weatherPresent, itinerary);
+
+        log.info("Successfully streamed and stored trip plan for trip {} ({} days / {} activities)",
+                preference.getId(), itinerary.getDailySummaries().size(), itinerary.getActivities().size());
+    }
+
+    /**
+     * Runs the repair pass of the non-streamed path on the completed plan. Defects that would need another
+     * completion are only logged, since the streamed days have been shown already.
+     *
+     * @return true when the plan was changed and has to be stored again
+     */
+    private boolean repairStreamed(Trip trip, ItineraryDTO itinerary) {
+        if (trip.getStartDate() == null || trip.getEndDate() == null || trip.getEndDate().isBefore(trip.getStartDate())) {
+            return false;
+        }
+        ItineraryValidator.Report report = itineraryValidator.validate(trip, trip.getStartDate(), trip.getEndDate(), itinerary);
+        if (!report.valid()) {
+            log.warn("Streamed itinerary for trip {} still has defects: {}", trip.getId(), report.defects());
+        }
+        if (report.repaired()) {
+            log.info("Repaired streamed itinerary for trip {}: {}", trip.getId(), report.repairs());
+        }
+        return report.repaired();
     }
 
     /**
@@ -112,7 +395,6 @@ public class TripGenerationServiceImpl implements TripGenerationService {
      * @param userId
      */
     @Override
-    @Transactional
     public void regenerateTrip(Long tripId, ModifyPlanDTO modifyPlanDTO, String userId) {
         Assert.notNull(tripId, "tripId must not be null");
         Assert.notNull(modifyPlanDTO, "modifyPlanDTO must not be null");
@@ -121,37 +403,254 @@ public class TripGenerationServiceImpl implements TripGenerationService {
         Trip trip = tripRepository.findByIdAndUserId(tripId, Long.valueOf(userId))
                 .orElseThrow(() -> new IllegalArgumentException("Trip not found or not owned by user: " + tripId));
 
+        List<DailyWeatherDTO> weatherSummaries = List.of();
         try {
-            tripWeatherRepository.deleteByTripIdIn(List.of(trip.getId()));
+            weatherSummaries = weatherService.fetchForecast(trip);
         } catch (Exception e) {
-            log.warn("Failed to clear existing weather for trip {}", tripId, e);
+            log.warn("Failed to fetch latest weather for trip {}", tripId, e);
         }
         try {
-            weatherService.fetchAndStoreWeather(trip);
+            weatherService.replaceWeather(trip, weatherSummaries);
         } catch (Exception e) {
-            log.warn("Failed to fetch/store latest weather for trip {}", tripId, e);
+            log.warn("Failed to store latest weather for trip {}", tripId, e);
         }
 
-        List<TripWeather> storedWeather = tripWeatherRepository.findByTripId(trip.getId());
-        List<DailyWeatherDTO> weatherSummaries = storedWeather.stream()
-                .map(weather -> DailyWeatherDTO.builder()
-                        .date(weather.getDate())
-                        .minTemp(weather.getMinTemp())
-                        .maxTemp(weather.getMaxTemp())
-                        .weatherCondition(weather.getWeatherCondition())
-                        .build())
-                .collect(Collectors.toList());
-
         String prompt = tripPlanPromptBuilder.buildForRegeneration(trip, weatherSummaries, modifyPlanDTO);
         log.debug("Constructed regeneration prompt");
 
-        OpenAiClient openAiClient = Optional.ofNullable(openAiClientProvider.getIfAvailable())
-                .orElseThrow(() -> new IllegalStateException("OpenAiClient bean is not configured"));
-        ItineraryDTO itineraryDTO = openAiClient.generate(prompt, ItineraryDTO.class);
+        ItineraryDTO itineraryDTO;
+        try (LlmCallContext.Scope ignored = LlmCallContext.openSubject(LlmCallContext.tripSubject(tripId))) {
+            itineraryDTO = itineraryValidator.generate(requireOpenAiClient(), prompt, trip,
+                    trip.getStartDate(), trip.getEndDate());
+        }
 
-        TripStorageService tripStorageService = Optional.ofNullable(tripStorageServiceProvider.getIfAvailable())
-                .orElseThrow(() -> new IllegalStateException("TripStorageService bean is not configured"));
+        TripStorageService tripStorageService = requireTripStorageService();
+        tripStorageService.resolveImages(trip, itineraryDTO);
         tripStorageService.storeTripPlan(trip, itineraryDTO);
         log.info("Successfully regenerated and stored trip plan for trip {}", tripId);
     }
-}
\ No newline at end of file
+
+    /**
+     * Rebuilds the trip's plan from the completions recorded for it, without calling the model: the newest
+     * completion that covers a date supplies that date, so segmented plans are stitched back together and a
+     * later regeneration wins over the original plan. The result goes through the usual repair and storage.
+     */
+    @Override
+    public void replayTripPlan(Long tripId, String userId) {
+        Assert.notNull(tripId, "tripId must not be null");
+        Assert.hasText(userId, "userId must not be empty");
+
+        Trip trip = tripRepository.findByIdAndUserId(tripId, Long.valueOf(userId))
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found or not owned by user: " + tripId));
+        String subject = LlmCallContext.tripSubject(tripId);
+        List<String> completions = llmCompletionService.findBySubject(subject, ItineraryDTO.class);
+        // combined completions only come from a first generation, so any other completion is newer
+        List<ItineraryWithInsightsDTO> combined = llmCompletionService.findBySubject(subject, ItineraryWithInsightsDTO.class).stream()
+                .map(completion -> new LenientOutputConverter<>(ItineraryWithInsightsDTO.class, objectMapper).convert(completion))
+                .filter(Objects::nonNull)
+                .toList();
+        if (completions.isEmpty() && combined.isEmpty()) {
+            throw new IllegalArgumentException("No recorded itinerary for trip: " + tripId);
+        }
+
+        List<ItineraryDTO> parts = new ArrayList<>();
+        completions.stream()
+                .map(completion -> new LenientOutputConverter<>(ItineraryDTO.class, objectMapper).convert(completion))
+                .filter(Objects::nonNull)
+                .forEach(parts::add);
+        parts.addAll(combined);
+        ItineraryDTO itineraryDTO = mergeRecorded(parts);
+        if (trip.getStartDate() != null && trip.getEndDate() != null && !trip.getEndDate().isBefore(trip.getStartDate())) {
+            ItineraryValidator.Report report = itineraryValidator.validate(trip, trip.getStartDate(), trip.getEndDate(), itineraryDTO);
+            if (!report.valid()) {
+                log.warn("Replayed itinerary for trip {} still has defects: {}", tripId, report.defects());
+            }
+        }
+
+        TripStorageService tripStorageService = requireTripStorageService();
+        tripStorageService.resolveImages(trip, itineraryDTO);
+        tripStorageService.storeTripPlan(trip, itineraryDTO);
+        llmCompletionService.findBySubject(subject, InsightResponseDTO.class).stream()
+                .findFirst()
+                .map(completion -> new LenientOutputConverter<>(InsightResponseDTO.class, objectMapper).convert(completion))
+                .or(() -> combined.stream()
+                        .filter(part -> part.getInsights() != null && !part.getInsights().isEmpty())
+                        .findFirst()
+                        .map(part -> insightResponse(trip, part)))
+                .ifPresent(insights -> tripInsightService.storeInsights(tripId, insights));
+        log.info("Replayed trip plan for trip {} from {} recorded completions", tripId, parts.size());
+    }
+
+    /**
+     * @param parts parsed completions, newest first
+     */
+    static ItineraryDTO mergeRecorded(List<ItineraryDTO> parts) {
+        Set<LocalDate> claimed = new HashSet<>();
+        List<ItineraryDTO.DailySummaryDTO> summaries = new ArrayList<>();
+        List<ItineraryDTO.ActivityDTO> activities = new ArrayList<>();
+        for (ItineraryDTO part : parts) {
+            List<ItineraryDTO.DailySummaryDTO> partSummaries = Optional.ofNullable(part.getDailySummaries()).orElse(List.of());
+            List<ItineraryDTO.ActivityDTO> partActivities = Optional.ofNullable(part.getActivities()).orElse(List.of());
+            Set<LocalDate> dates = new HashSet<>();
+            partSummaries.stream().filter(Objects::nonNull).map(ItineraryDTO.DailySummaryDTO::getDate).forEach(dates::add);
+            partActivities.stream().filter(Objects::nonNull).map(ItineraryDTO.ActivityDTO::getDate).forEach(dates::add);
+            dates.removeAll(claimed);
+            partSummaries.stream().filter(summary -> summary != null && dates.contains(summary.getDate())).forEach(summaries::add);
+            partActivities.stream().filter(activity -> activity != null && dates.contains(activity.getDate())).forEach(activities::add);
+            claimed.addAll(dates);
+        }
+        summaries.sort(Comparator.comparing(ItineraryDTO.DailySummaryDTO::getDate, Comparator.nullsLast(Comparator.naturalOrder())));
+        activities.sort(Comparator.comparing(ItineraryDTO.ActivityDTO::getDate, Comparator.nullsLast(Comparator.naturalOrder())));
+        return ItineraryDTO.builder()
+                .dailySummaries(summaries)
+                .activities(activities)
+                .build();
+    }
+
+    /**
+     * Calls GPT once with the full prompt, or once per date segment in parallel when the trip is long.
+     * A completion is only requested again when it has defects ItineraryValidator cannot repair.
+     */
+    private ItineraryDTO generateItinerary(Trip preference, List<DailyWeatherDTO> weatherSummaries) {
+        OpenAiClient openAiClient = requireOpenAiClient();
+        if (segmentedItineraryGenerator.supports(preference)) {
+            return segmentedItineraryGenerator.generate(preference, weatherSummaries, openAiClient);
+        }
+
+        // 3. Build the prompt for OpenAI based on trip preference and weather
+        String prompt = tripPlanPromptBuilder.build(preference, weatherSummaries);
+        log.debug("Constructed trip generation prompt");
+        if (tripPlanPromptBuilder.isCombinedInsights()) {
+            return itineraryValidator.generateWithInsights(openAiClient, prompt, preference,
+                    preference.getStartDate(), preference.getEndDate());
+        }
+        return itineraryValidator.generate(openAiClient, prompt, preference,
+                preference.getStartDate(), preference.getEndDate());
+    }
+
+    /**
+     * Wraps the insights of a combined completion the way the insights call returns them.
+     */
+    private static InsightResponseDTO insightResponse(Trip trip, ItineraryWithInsightsDTO combined) {
+        InsightResponseDTO.Meta meta = new InsightResponseDTO.Meta();
+        meta.setDestination(trip.getToCity() + ", " + trip.getToCountry());
+        meta.setDates(trip.getStartDate() + " → " + trip.getEndDate());
+        meta.setGenerated_at(Instant.now().toString());
+        InsightResponseDTO response = new InsightResponseDTO();
+        response.setInsights(combined.getInsights());
+        response.setMeta(meta);
+        return response;
+    }
+
+    /**
+     * Fetches and stores weather when the trip starts within the 5-day forecast window.
+     */
+    private List<DailyWeatherDTO> loadWeather(Trip preference) {
+        LocalDate startDate = preference.getStartDate();
+        LocalDate weatherWindow = LocalDate.now().plusDays(5);
+        boolean shouldFetchWeather = startDate != null && weatherWindow.isAfter(startDate);
+        if (!shouldFetchWeather) {
+            log.debug("Skipping weather fetch. Trip start {}, threshold {}", startDate, weatherWindow);
+            return List.of();
+        }
+        if (preference.getId() == null) {
+            log.warn("Trip ID is null, skipping weather fetch for preference {}", preference);
+            return List.of();
+        }
+        log.debug("Fetching weather for trip {} starting {}", preference.getId(), startDate);
+        List<DailyWeatherDTO> weatherSummaries = weatherService.fetchForecast(preference);
+        weatherService.storeWeather(preference, weatherSummaries);
+        log.debug("Retrieved {} weather summaries for trip {}", weatherSummaries.size(), preference.getId());
+        return weatherSummaries;
+    }
+
+    private List<DailyWeatherDTO> readWeather(AgentState state) {
+        DailyWeatherDTO[] weather = readState(state, WEATHER_STATE, DailyWeatherDTO[].class);
+        return weather == null ? List.of() : List.of(weather);
+    }
+
+    private <T> T readState(AgentState state, String key, Class<T> type) {
+        return state.<String>value(key).map(json -> readJson(json, type)).orElse(null);
+    }
+
+    private <T> T readJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read trip generation state", e);
+        }
+    }
+
+    private String writeState(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write trip generation state", e);
+        }
+    }
+
+    /**
+     * Node failures surface wrapped by the graph runner; rethrow the original exception.
+     */
+    private static RuntimeException unwrap(RuntimeException ex) {
+        Throwable failure = ex;
+        while (failure.getCause() != null && (failure instanceof CompletionException
+                || failure instanceof ExecutionException || failure.getClass() == RuntimeException.class)) {
+            failure = failure.getCause();
+        }
+        return failure instanceof RuntimeException runtime ? runtime
+                : new IllegalStateException("Trip generation failed", failure);
+    }
+
+    private OpenAiClient requireOpenAiClient() {
+        return Optional.ofNullable(openAiClientProvider.getIfAvailable())
+                .orElseThrow(() -> new IllegalStateException("OpenAiClient bean is not configured"));
+    }
+
+    private TripStorageService requireTripStorageService() {
+        return Optional.ofNullable(tripStorageServiceProvider.getIfAvailable())
+                .orElseThrow(() -> new IllegalStateException("TripStorageService bean is not configured"));
+    }
+
+    /**
+     * Persists streamed elements as they arrive: each daily summary right away (with its image),
+     * activities grouped per date and flushed once the stream moves on to another date.
+     */
+    private static final class DayByDayWriter {
+
+        private final Trip trip;
+        private final TripStorageService storage;
+        private final TripPlanStreamListener listener;
+        private final List<ItineraryDTO.ActivityDTO> pendingActivities = new ArrayList<>();
+        private LocalDate pendingDate;
+
+        private DayByDayWriter(Trip trip, TripStorageService storage, TripPlanStreamListener listener) {
+            this.trip = trip;
+            this.storage = storage;
+            this.listener = listener;
+        }
+
+        void onDailySummary(ItineraryDTO.DailySummaryDTO summary) {
+            storage.resolveImages(trip, ItineraryDTO.builder().dailySummaries(List.of(summary)).build());
+            storage.storeDailySummary(trip, summary);
+            listener.onDayStored(trip.getId(), summary.getDate());
+        }
+
+        void onActivity(ItineraryDTO.ActivityDTO activity) {
+            if (!pendingActivities.isEmpty() && !Objects.equals(pendingDate, activity.getDate())) {
+                flush();
+            }
+            pendingDate = activity.getDate();
+            pendingActivities.add(activity);
+        }
+
+        void flush() {
+            if (pendingActivities.isEmpty()) {
+                return;
+            }
+            storage.storeActivities(trip, List.copyOf(pendingActivities));
+            listener.onDayStored(trip.getId(), pendingDate);
+            pendingActivities.clear();
+        }
+    }
+}
@@ -1,98 +1,167 @@
 package com.demo.api.service.impl;
 
 import com.demo.api.client.OpenAiClient;
+import com.demo.api.client.support.LlmCallContext;
 import com.demo.api.dto.InsightResponseDTO;
-import com.demo.api.dto.TripInsightDTO;
+import com.demo.api.dto.TripInsightsDTO;
+import com.demo.api.enums.TripInsightStatus;
 import com.demo.api.mapper.TripInsightMapper;
 import com.demo.api.model.Trip;
-import com.demo.api.model.TripAttraction;
 import com.demo.api.model.TripInsight;
-import com.demo.api.repository.TripAttractionRepository;
 import com.demo.api.repository.TripInsightRepository;
-import com.demo.api.repository.TripRepository;
+import com.demo.api.service.DestinationInsightCacheService;
+import com.demo.api.service.TripInsightPrecomputer;
 import com.demo.api.service.TripInsightService;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.time.format.TextStyle;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class TripInsightServiceImpl implements TripInsightService {
 
     private static final Logger log = LoggerFactory.getLogger(TripInsightServiceImpl.class);
+    /** Of the 6 insights per trip, the shared evergreen part and the part tied to the trip's attractions. */
+    private static final int EVERGREEN_ITEMS = 4;
+    private static final int CONTEXTUAL_ITEMS = 2;
 
     private final TripInsightMapper tripInsightMapper;
 
     private final TripInsightRepository insightRepository;
 
-    private final TripRepository tripRepository;
+    private final ObjectProvider<OpenAiClient> openAiClientProvider;
 
-    private final TripAttractionRepository tripAttractionRepository;
+    private final TripInsightPrecomputer tripInsightPrecomputer;
 
-    private final ObjectProvider<OpenAiClient> openAiClientProvider;
+    private final DestinationInsightCacheService destinationInsightCacheService;
 
-    public TripInsightServiceImpl(TripInsightMapper tripInsightMapper, TripInsightRepository insightRepository, TripRepository tripRepository, TripAttractionRepository tripAttractionRepository, ObjectProvider<OpenAiClient> openAiClientProvider) {
+    private final TaskExecutor llmCallExecutor;
+
+    public TripInsightServiceImpl(TripInsightMapper tripInsightMapper, TripInsightRepository insightRepository, ObjectProvider<OpenAiClient> openAiClientProvider, TripInsightPrecomputer tripInsightPrecomputer, DestinationInsightCacheService destinationInsightCacheService,
+                                  @Qualifier("tripSegmentExecutor") TaskExecutor llmCallExecutor) {
         this.tripInsightMapper = tripInsightMapper;
         this.insightRepository = insightRepository;
-        this.tripRepository = tripRepository;
-        this.tripAttractionRepository = tripAttractionRepository;
         this.openAiClientProvider = openAiClientProvider;
+        this.tripInsightPrecomputer = tripInsightPrecomputer;
+        this.destinationInsightCacheService = destinationInsightCacheService;
+        this.llmCallExecutor = llmCallExecutor;
     }
 
 
     @Override
-    @Transactional
-    public List<TripInsight> generateAndStoreInsights(Long tripId) {
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new IllegalArgumentException("Trip not found: " + tripId));
-        List<TripAttraction> tripAttractions = tripAttractionRepository.findByTripId(tripId);
-        if (tripAttractions.isEmpty()) {
-            return Collections.emptyList();
+    public TripInsightsDTO getInsights(Long tripId) {
+        List<TripInsight> insights = insightRepository.findByTripIdOrderById(tripId);
+        if (!insights.isEmpty()) {
+            return new TripInsightsDTO(TripInsightStatus.READY, tripInsightMapper.toDtoList(insights));
         }
+        TripInsightStatus status = tripInsightPrecomputer.schedule(tripId)
+                ? TripInsightStatus.IN_PROGRESS : TripInsightStatus.UNAVAILABLE;
+        return new TripInsightsDTO(status, List.of());
+    }
 
-        List<String> locations = tripAttractions.stream().map(TripAttraction::getLocation).toList();
-        String userPrompt = buildUserPrompt(trip, locations);
-
+    @Override
+    public InsightResponseDTO generateInsights(Trip trip, List<String> locations) {
+        if (trip == null || locations == null || locations.isEmpty()) {
+            return null;
+        }
         OpenAiClient openAiClient = Optional.ofNullable(openAiClientProvider.getIfAvailable())
                 .orElseThrow(() -> new IllegalStateException("OpenAiClient bean is not configured"));
-        InsightResponseDTO insightResponse = openAiClient.generate(userPrompt, InsightResponseDTO.class);
+        try (LlmCallContext.Scope ignoredCaller = LlmCallContext.open(String.valueOf(trip.getUserId()));
+             LlmCallContext.Scope ignoredSubject = LlmCallContext.openSubject(LlmCallContext.tripSubject(trip.getId()))) {
+            if (!destinationInsightCacheService.isEnabled() || trip.getStartDate() == null) {
+                return openAiClient.generate(buildUserPrompt(trip, locations), InsightResponseDTO.class);
+            }
+            // evergreen insights are shared by every trip to the destination in that month;
+            // only the tips on this trip's attractions need a call of their own
+            Optional<List<InsightResponseDTO.InsightItem>> cached = destinationInsightCacheService.lookup(trip);
+            if (cached.isPresent()) {
+                InsightResponseDTO evergreen = new InsightResponseDTO();
+                evergreen.setInsights(cached.get());
+                return merge(evergreen, openAiClient.generate(buildContextualPrompt(trip, locations), InsightResponseDTO.class));
+            }
+            // on a miss both parts are asked for at once; the evergreen one is cached even if the other fails
+            CompletableFuture<InsightResponseDTO> evergreen = CompletableFuture.supplyAsync(
+                    () -> generateEvergreenInsights(openAiClient, trip), llmCallExecutor);
+            InsightResponseDTO contextual = openAiClient.generate(buildContextualPrompt(trip, locations), InsightResponseDTO.class);
+            return merge(join(evergreen), contextual);
+        }
+    }
 
-        List<TripInsight> results = new ArrayList<>();
-        if (insightResponse != null) {
-            insightResponse.getInsights().forEach(insight -> {
-                TripInsight i = new TripInsight();
-                i.setTripId(trip.getId());
-                i.setTitle(insight.getTitle());
-                i.setContent(insight.getContent());
-                i.setTheme(insight.getTheme());
-                i.setIcon(insight.getIcon());
-                results.add(i);
-            });
+    private InsightResponseDTO generateEvergreenInsights(OpenAiClient openAiClient, Trip trip) {
+        InsightResponseDTO response = openAiClient.generate(buildEvergreenPrompt(trip), InsightResponseDTO.class);
+        InsightResponseDTO evergreen = new InsightResponseDTO();
+        evergreen.setInsights(response == null || response.getInsights() == null
+                ? List.of()
+                : response.getInsights().stream().filter(Objects::nonNull).limit(EVERGREEN_ITEMS).toList());
+        evergreen.setMeta(response == null ? null : response.getMeta());
+        destinationInsightCacheService.store(trip, evergreen.getInsights());
+        log.debug("Generated {} evergreen insights for {}, {}", evergreen.getInsights().size(), trip.getToCity(), trip.getToCountry());
+        return evergreen;
+    }
+
+    private static InsightResponseDTO join(CompletableFuture<InsightResponseDTO> call) {
+        try {
+            return call.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
         }
-        return insightRepository.saveAll(results);
+    }
+
+    /**
+     * Evergreen insights first, then the contextual ones, numbered in that order. The meta comes from the
+     * contextual part, which covers this trip's dates, or else from a freshly generated evergreen part.
+     */
+    private static InsightResponseDTO merge(InsightResponseDTO evergreen, InsightResponseDTO contextual) {
+        List<InsightResponseDTO.InsightItem> items = new ArrayList<>(evergreen.getInsights());
+        if (contextual != null && contextual.getInsights() != null) {
+            contextual.getInsights().stream().filter(Objects::nonNull).limit(CONTEXTUAL_ITEMS).forEach(items::add);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setId(String.valueOf(i + 1));
+        }
+        InsightResponseDTO merged = new InsightResponseDTO();
+        merged.setInsights(items);
+        merged.setMeta(contextual != null && contextual.getMeta() != null ? contextual.getMeta() : evergreen.getMeta());
+        return merged;
     }
 
     @Override
     @Transactional
-    public List<TripInsightDTO> getOrGenerateInsights(Long tripId) {
-        List<TripInsight> insights = Collections.emptyList();
-
-        if (insightRepository.existsByTripId(tripId)) {
-            insights =  insightRepository.findByTripIdOrderById(tripId);
-        } else {
-            insights = generateAndStoreInsights(tripId);
+    public List<TripInsight> storeInsights(Long tripId, InsightResponseDTO insightResponse) {
+        if (insightResponse == null || insightResponse.getInsights() == null) {
+            return Collections.emptyList();
         }
-
-        return tripInsightMapper.toDtoList(insights);
+        insightRepository.deleteByTripId(tripId);
+        List<TripInsight> results = new ArrayList<>();
+        insightResponse.getInsights().forEach(insight -> {
+            TripInsight i = new TripInsight();
+            i.setTripId(tripId);
+            i.setTitle(insight.getTitle());
+            i.setContent(insight.getContent());
+            i.setTheme(insight.getTheme());
+            i.setIcon(insight.getIcon());
+            results.add(i);
+        });
+        return insightRepository.saveAll(results);
     }
 
-    private String buildUserPrompt(Trip trip, List<String> pois) {
+    static String buildUserPrompt(Trip trip, List<String> pois) {
         return """
         Produce short, concrete destination insights tied to the user's itinerary.
         Each item: title, content (2–3 sentences), theme, and an emoji icon representing the theme.
@@ -119,4 +188,59 @@ public class TripInsightServiceImpl implements TripInsightService {
                 pois.toString()
         );
     }
+
+    static String buildEvergreenPrompt(Trip trip) {
+        return """
+        Produce short, evergreen destination insights that hold for any visitor in the given month.
+        Each item: title, content (2–3 sentences), theme, and an emoji icon representing the theme.
+        Do not refer to specific attractions, exact dates or live data. Avoid prices.
+        Output strictly valid JSON per schema. No extra text.
+        Do NOT include any markdown formatting, code fences, or language hints.
+        Return only raw JSON text starting with '{' and ending with '}'.
+
+        Destination: %s, %s
+        Travel month: %s
+        Tone: magazine
+        Max items: %d
+        Preferred themes: ["history","culture","food","etiquette","nature","festival"]
+
+        Task:
+        1) Create up to %d evergreen insights; seasonal notes and festivals must fit the month.
+        2) Return JSON: {"insights":[{id,title,content,theme,icon}]}
+        Return JSON only.
+        """.formatted(
+                trip.getToCity(), trip.getToCountry(),
+                trip.getStartDate().getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH),
+                EVERGREEN_ITEMS, EVERGREEN_ITEMS
+        );
+    }
+
+    static String buildContextualPrompt(Trip trip, List<String> pois) {
+        return """
+        Produce short, concrete tips tied to the attractions in the user's itinerary.
+        General facts about the destination are covered separately; do not repeat them.
+        Each item: title, content (2–3 sentences), theme, and an emoji icon representing the theme.
+        Avoid prices or live data.
+        Output strictly valid JSON per schema. No extra text.
+        Do NOT include any markdown formatting, code fences, or language hints.
+        Return only raw JSON text starting with '{' and ending with '}'.
+
+        Destination: %s, %s
+        Dates: %s → %s
+        Tone: magazine
+        Max items: %d
+        Top POIs in plan: %s
+
+        Task:
+        1) Create up to %d tips on the POIs and their timing within the dates.
+        2) Return JSON: {"insights":[{id,title,content,theme,icon}], "meta":{destination,dates,generated_at}}
+        Return JSON only.
+        """.formatted(
+                trip.getToCity(), trip.getToCountry(),
+                trip.getStartDate(), trip.getEndDate(),
+                CONTEXTUAL_ITEMS,
+                pois.toString(),
+                CONTEXTUAL_ITEMS
+        );
+    }
 }
@@ -5,8 +5,8 @@ import com.demo.api.dto.TimeLineDTO;
 import com.demo.api.dto.TripDetailDTO;
 import com.demo.api.model.*;
 import com.demo.api.repository.*;
+import com.demo.api.service.TripCoverImageResolver;
 import com.demo.api.service.TripService;
-import com.demo.api.utils.UnsplashImgUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -24,7 +24,6 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TripServiceImpl implements TripService {
     private final TripRepository tripRepository;
-    private final UnsplashImgUtils unsplashImgUtils;
     private final TripAttractionRepository tripAttractionRepository;
     private final TripHotelRepository tripHotelRepository;
     private final TripTransportationRepository tripTransportationRepository;
@@ -33,15 +32,19 @@ public class TripServiceImpl implements TripService {
     private final TripInsightRepository insightRepository;
     private final TripWeatherRepository tripWeatherRepository;
 
+    /**
+     * Lists the user's trips with their stored cover images; makes no outbound calls.
+     * Covers not looked up yet (see {@link TripCoverImageResolver}) are null.
+     */
     @Override
     public List<TripDetailDTO> getTripDetails(Long userId) {
         List<Trip> userTrips = tripRepository.findByUserIdOrderByUpdatedTimeDesc(userId);
         return userTrips.stream().map(trip -> {
-            String imgUrl = unsplashImgUtils.getImgUrls(trip.getToCity(), 1, 600, 400).getFirst();
+            String imgUrl = trip.getCoverImageUrl();
             // 如果有图：把 Unsplash 直链改成 /ext/unsplash/ 相对路径；没有就保持 null
             String proxied = (ObjectUtil.isNotEmpty(imgUrl))
                     ? imgUrl.replaceFirst("^https?://images\\.unsplash\\.com/?", "/ext/unsplash/")
-                    : imgUrl;
+                    : null;
             return TripDetailDTO.builder()
                     .tripId(trip.getId())
                     .fromCountry(trip.getFromCountry())
@@ -155,7 +158,7 @@ public class TripServiceImpl implements TripService {
                     return TimeLineDTO.builder()
                             .date(currentDate.format(dateFormatter))
                             .summary(summary.getSummary())
-                            .imageUrl(summary.getImageUrl())
+                            .imageUrl(summary.getImageUrl() == null ? "" : summary.getImageUrl())
                             .maxTemperature(weather != null ? weather.getMaxTemp() : null)
                             .minTemperature(weather != null ? weather.getMinTemp() : null)
                             .weatherCondition(weather != null ? weather.getWeatherCondition() : null)
@@ -10,6 +10,7 @@ import com.demo.api.repository.TripAttractionRepository;
 import com.demo.api.repository.TripDailySummaryRepository;
 import com.demo.api.repository.TripHotelRepository;
 import com.demo.api.repository.TripTransportationRepository;
+import com.demo.api.service.TripInsightPrecomputer;
 import com.demo.api.service.TripStorageService;
 import com.demo.api.utils.UnsplashImgUtils;
 import lombok.RequiredArgsConstructor;
@@ -38,54 +39,132 @@ public class TripStorageServiceImpl implements TripStorageService {
     private final TripAttractionRepository tripAttractionRepository;
     private final TripDailySummaryRepository tripDailySummaryRepository;
     private final UnsplashImgUtils unsplashImgUtils;
+    private final TripInsightPrecomputer tripInsightPrecomputer;
 
+    @Override
+    public void resolveImages(Trip preference, ItineraryDTO itinerary) {
+        if (itinerary == null || itinerary.getDailySummaries() == null) {
+            return;
+        }
+        List<ItineraryDTO.DailySummaryDTO> missing = itinerary.getDailySummaries().stream()
+                .filter(dto -> dto != null && dto.getDate() != null && !StringUtils.hasText(dto.getImageUrl()))
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<String> imageUrls = List.of();
+        try {
+            imageUrls = unsplashImgUtils.getFirstImgUrls(
+                    missing.stream().map(ItineraryDTO.DailySummaryDTO::getImageDescription).toList(), 500, 500);
+        } catch (Exception e) {
+            log.warn("Failed to load image urls for trip {}", preference == null ? null : preference.getId(), e);
+        }
+        for (int i = 0; i < missing.size(); i++) {
+            if (i < imageUrls.size() && imageUrls.get(i) == null) {
+                // Rate limited: left null so the deferred lookup fills it in once budget is back.
+                missing.get(i).setImageUrl(null);
+                continue;
+            }
+            String imageUrl = i < imageUrls.size() ? imageUrls.get(i) : null;
+            missing.get(i).setImageUrl(StringUtils.hasText(imageUrl) ? imageUrl : "");
+        }
+    }
+
+    /**
+     * Replaces the stored plan of the trip in a single write transaction.
+     * No outbound calls happen here; image urls are expected to be resolved beforehand.
+     * Once committed, the trip's insights are generated in the background unless already stored.
+     */
     @Override
     @Transactional
     public void storeTripPlan(Trip preference, ItineraryDTO itinerary) {
-        if (preference == null || preference.getId() == null) {
-            throw new IllegalArgumentException("Trip preference with persistent tripId is required");
-        }
+        requirePersistentTrip(preference);
         if (itinerary == null) {
             log.warn("Empty itinerary DTO for trip {}", preference.getId());
             return;
         }
 
         try {
-            // Daily summaries
-            tripDailySummaryRepository.deleteAll(tripDailySummaryRepository.findByTripId(preference.getId()));
+            // Clear previously generated plan for idempotency.
+            deleteTripPlan(preference);
+
             List<TripDailySummary> summariesToSave = readDailySummaries(itinerary.getDailySummaries(), preference);
             tripDailySummaryRepository.saveAll(summariesToSave);
 
-            // Clear previously generated activities for idempotency.
-            tripTransportationRepository.deleteAll(tripTransportationRepository.findByTripId(preference.getId()));
-            tripHotelRepository.deleteAll(tripHotelRepository.findByTripId(preference.getId()));
-            tripAttractionRepository.deleteAll(tripAttractionRepository.findByTripId(preference.getId()));
-
-            List<TripTransportation> transportation = new ArrayList<>();
-            List<TripHotel> hotels = new ArrayList<>();
-            List<TripAttraction> attractions = new ArrayList<>();
-
-            if (itinerary.getActivities() != null) {
-                for (ItineraryDTO.ActivityDTO activity : itinerary.getActivities()) {
-                    String type = activity.getType() == null ? "" : activity.getType().toLowerCase();
-                    switch (type) {
-                        case "transportation" -> transportation.add(mapTransportation((ItineraryDTO.TransportationDTO) activity, preference));
-                        case "hotel" -> hotels.add(mapHotel((ItineraryDTO.HotelDTO) activity, preference));
-                        case "attraction" -> attractions.add(mapAttraction((ItineraryDTO.AttractionDTO) activity, preference));
-                        default -> log.debug("Skipping activity with unsupported type '{}' for trip {}", type, preference.getId());
-                    }
-                }
-            }
+            saveActivities(itinerary.getActivities(), preference);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to persist trip plan DTO", ex);
+        }
+        tripInsightPrecomputer.reschedule(preference.getId());
+    }
 
-            tripTransportationRepository.saveAll(transportation);
-            tripHotelRepository.saveAll(hotels);
-            tripAttractionRepository.saveAll(attractions);
+    @Override
+    @Transactional
+    public void clearTripPlan(Trip preference) {
+        requirePersistentTrip(preference);
+        deleteTripPlan(preference);
+    }
+
+    @Override
+    @Transactional
+    public void storeDailySummary(Trip preference, ItineraryDTO.DailySummaryDTO summary) {
+        requirePersistentTrip(preference);
+        if (summary == null) {
+            return;
+        }
+        tripDailySummaryRepository.saveAll(readDailySummaries(List.of(summary), preference));
+    }
 
-            log.info("Stored trip plan for trip {} ({} transportation / {} hotels / {} attractions)",
-                    preference.getId(), transportation.size(), hotels.size(), attractions.size());
+    @Override
+    @Transactional
+    public void storeActivities(Trip preference, List<ItineraryDTO.ActivityDTO> activities) {
+        requirePersistentTrip(preference);
+        if (activities == null || activities.isEmpty()) {
+            return;
+        }
+        try {
+            saveActivities(activities, preference);
         } catch (Exception ex) {
-            throw new IllegalStateException("Failed to persist trip plan DTO", ex);
+            throw new IllegalStateException("Failed to persist streamed activities", ex);
+        }
+    }
+
+    private void requirePersistentTrip(Trip preference) {
+        if (preference == null || preference.getId() == null) {
+            throw new IllegalArgumentException("Trip preference with persistent tripId is required");
+        }
+    }
+
+    private void deleteTripPlan(Trip preference) {
+        tripDailySummaryRepository.deleteAll(tripDailySummaryRepository.findByTripId(preference.getId()));
+        tripTransportationRepository.deleteAll(tripTransportationRepository.findByTripId(preference.getId()));
+        tripHotelRepository.deleteAll(tripHotelRepository.findByTripId(preference.getId()));
+        tripAttractionRepository.deleteAll(tripAttractionRepository.findByTripId(preference.getId()));
+    }
+
+    private void saveActivities(List<ItineraryDTO.ActivityDTO> activities, Trip preference) {
+        List<TripTransportation> transportation = new ArrayList<>();
+        List<TripHotel> hotels = new ArrayList<>();
+        List<TripAttraction> attractions = new ArrayList<>();
+
+        if (activities != null) {
+            for (ItineraryDTO.ActivityDTO activity : activities) {
+                String type = activity.getType() == null ? "" : activity.getType().toLowerCase();
+                switch (type) {
+                    case "transportation" -> transportation.add(mapTransportation((ItineraryDTO.TransportationDTO) activity, preference));
+                    case "hotel" -> hotels.add(mapHotel((ItineraryDTO.HotelDTO) activity, preference));
+                    case "attraction" -> attractions.add(mapAttraction((ItineraryDTO.AttractionDTO) activity, preference));
+                    default -> log.debug("Skipping activity with unsupported type '{}' for trip {}", type, preference.getId());
+                }
+            }
         }
+
+        tripTransportationRepository.saveAll(transportation);
+        tripHotelRepository.saveAll(hotels);
+        tripAttractionRepository.saveAll(attractions);
+
+        log.info("Stored trip plan for trip {} ({} transportation / {} hotels / {} attractions)",
+                preference.getId(), transportation.size(), hotels.size(), attractions.size());
     }
 
     // ----- mapping helpers ------
@@ -103,27 +182,24 @@ public class TripStorageServiceImpl implements TripStorageService {
             summary.setSummary(dto.getSummary());
             summary.setImageDescription(dto.getImageDescription());
 
-            String imageUrl = dto.getImageUrl();
-            if (!StringUtils.hasText(imageUrl)) {
-                try {
-                    var imgUrls = unsplashImgUtils.getImgUrls(dto.getImageDescription(), 1, 500, 500);
-                    if (imgUrls != null && !imgUrls.isEmpty()) {
-                        imageUrl = imgUrls.getFirst();
-                    } else {
-                        imageUrl = "";
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to load image urls for trip {}", preference.getId(), e);
-                    imageUrl = "";
-                }
-            }
-            summary.setImageUrl(imageUrl);
+            summary.setImageUrl(readImageUrl(dto));
 
             result.add(summary);
         }
         return result;
     }
 
+    /**
+     * Null only for a lookup that was deferred, so {@link com.demo.api.service.TripDailySummaryImageResolver}
+     * picks it up.
+     */
+    private String readImageUrl(ItineraryDTO.DailySummaryDTO dto) {
+        if (StringUtils.hasText(dto.getImageUrl())) {
+            return dto.getImageUrl();
+        }
+        return dto.getImageUrl() == null && StringUtils.hasText(dto.getImageDescription()) ? null : "";
+    }
+
     private TripTransportation mapTransportation(ItineraryDTO.TransportationDTO dto, Trip preference) {
         TripTransportation transport = new TripTransportation();
         populateCommonActivityFields(transport, dto, preference);
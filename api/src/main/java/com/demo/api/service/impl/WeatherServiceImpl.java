@@ -5,6 +5,7 @@ import com.demo.api.model.Trip;
 import com.demo.api.model.TripWeather;
 import com.demo.api.repository.TripWeatherRepository;
 import com.demo.api.service.WeatherService;
+import com.demo.api.utils.CacheKeyUtils;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -26,10 +27,15 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -39,6 +45,10 @@ import java.util.stream.Stream;
  * the 5-day/3-hour forecast, summarize daily weather information,
  * and store it into the database for a given trip.
  *
+ * Forecasts only depend on the destination, so the parsed daily summaries are cached per (city, country) until
+ * OpenWeather's next update, and concurrent requests for the same destination share one call. Each trip then
+ * takes the days inside its own window.
+ *
  * ⚠️ Note: Only supports forecast for trips starting within 5 days from today.
  */
 @Service
@@ -56,6 +66,18 @@ public class WeatherServiceImpl implements WeatherService {
     @Value("${openweather.api.key}")
     private String apiKey;
 
+    /** OpenWeather updates the 5-day forecast every 3 hours; cached forecasts expire at the next boundary. */
+    @Value("${openweather.cache.ttl:PT3H}")
+    private Duration forecastTtl = Duration.ofHours(3);
+
+    @Value("${openweather.cache.max-entries:500}")
+    private int maxForecasts = 500;
+
+    private Clock clock = Clock.systemUTC();
+
+    /** Daily summaries by destination; an entry that is not done yet is a call in flight. */
+    private final Map<String, CompletableFuture<CachedForecast>> forecasts = new ConcurrentHashMap<>();
+
     /**
      * Main entry point for this service.
      *
@@ -65,12 +87,83 @@ public class WeatherServiceImpl implements WeatherService {
      * 4. Groups 3-hour entries by day
      * 5. Summarizes daily weather (min/max temperature and condition)
      * 6. Saves summarized results into TripWeather table
+     *
+     * Steps 1-5 run without a transaction; only the final upsert touches the database.
      */
     @Override
-    @Transactional
     public void fetchAndStoreWeather(Trip preference) {
+        List<DailyWeatherDTO> summaries = fetchForecast(preference);
+        if (summaries.isEmpty()) {
+            return;
+        }
+        storeWeather(preference, summaries);
+    }
+
+    @Override
+    public List<DailyWeatherDTO> fetchForecast(Trip preference) {
         validatePreference(preference);  // Check tripId and city presence
 
+        List<DailyWeatherDTO> filteredSummaries = loadForecast(preference).stream()
+                .filter(dto -> isWithinTripWindow(dto.getDate(), preference))
+                .map(WeatherServiceImpl::copy)
+                .toList();
+
+        if (filteredSummaries.isEmpty()) {
+            log.info("No weather summaries within trip window for trip {}", preference.getId());
+        }
+        return filteredSummaries;
+    }
+
+    @Override
+    public List<DailyWeatherDTO> fetchDestinationForecast(String city, String country) {
+        if (!StringUtils.hasText(city)) {
+            throw new IllegalArgumentException("Destination must include a city");
+        }
+        Trip destination = Trip.builder().toCity(city).toCountry(country).build();
+        return loadForecast(destination).stream().map(WeatherServiceImpl::copy).toList();
+    }
+
+    /**
+     * Daily summaries of the destination's whole forecast, from the cache while it is fresh.
+     * Only one call per destination is in flight; other callers wait for it. Empty results are not cached.
+     */
+    private List<DailyWeatherDTO> loadForecast(Trip preference) {
+        String key = CacheKeyUtils.normalize(preference.getToCity()) + "|"
+                + CacheKeyUtils.normalize(preference.getToCountry());
+        while (true) {
+            CompletableFuture<CachedForecast> existing = forecasts.get(key);
+            if (existing != null && (!existing.isDone() || isFresh(existing))) {
+                log.debug("Weather for '{}' served from the forecast cache", key);
+                return join(existing).days();
+            }
+            CompletableFuture<CachedForecast> mine = new CompletableFuture<>();
+            boolean claimed = existing == null
+                    ? forecasts.putIfAbsent(key, mine) == null
+                    : forecasts.replace(key, existing, mine);
+            if (!claimed) {
+                continue;
+            }
+            try {
+                List<DailyWeatherDTO> days = callForecast(preference);
+                mine.complete(new CachedForecast(days, nextUpdate()));
+                if (days.isEmpty()) {
+                    forecasts.remove(key, mine);
+                } else {
+                    evictExpired();
+                }
+                return days;
+            } catch (RuntimeException ex) {
+                mine.completeExceptionally(ex);
+                forecasts.remove(key, mine);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Calls OpenWeather for the trip's destination and summarizes every forecast day.
+     */
+    private List<DailyWeatherDTO> callForecast(Trip preference) {
         // 1. Build API URL based on trip city and country
         URI uri = buildForecastUri(preference);
 
@@ -80,18 +173,18 @@ public class WeatherServiceImpl implements WeatherService {
             responseJson = restTemplate.getForObject(uri, String.class);
         } catch (HttpClientErrorException.NotFound e){
             log.warn("Skip weather: OpenWeather 404 for q='{},{}'", preference.getToCity(), preference.getToCountry());
-            return;
+            return List.of();
         } catch (RestClientException e){
             log.warn("Skip weather: OpenWeather call failed: {}", e.getMessage());
-            return;
+            return List.of();
         }
         if (!StringUtils.hasText(responseJson)) {
             log.warn("Skip weather: empty response for trip {}", preference.getId());
-            return;
+            return List.of();
         }
         if (responseJson.contains("\"cod\":\"404\"") || responseJson.contains("\"cod\":404")) {
             log.warn("Skip weather: response cod=404 (city not found) for trip {}", preference.getId());
-            return;
+            return List.of();
         }
         log.debug("OpenWeatherMap raw response: {}", responseJson);
 
@@ -99,7 +192,7 @@ public class WeatherServiceImpl implements WeatherService {
         OpenWeatherForecastResponse forecastResponse = parseResponse(responseJson);
         if (forecastResponse == null || forecastResponse.getList() == null || forecastResponse.getList().isEmpty()) {
             log.warn("No forecast data returned for trip {}", preference.getId());
-            return;
+            return List.of();
         }
 
         // Extract timezone offset from response (in seconds)
@@ -113,18 +206,17 @@ public class WeatherServiceImpl implements WeatherService {
                 .collect(Collectors.groupingBy(entry -> toLocalDate(entry, timezoneOffsetSeconds)));
 
         // 5. Generate daily summaries (min/max temp, dominant condition)
-        List<DailyWeatherDTO> dailySummaries = groupedByDate.entrySet().stream()
+        return groupedByDate.entrySet().stream()
                 .map(entry -> buildDailySummary(entry.getKey(), entry.getValue()))
                 .sorted(Comparator.comparing(DailyWeatherDTO::getDate))
                 .toList();
+    }
 
-        // Filter summaries to the trip's date window (if defined)
-        List<DailyWeatherDTO> filteredSummaries = dailySummaries.stream()
-                .filter(dto -> isWithinTripWindow(dto.getDate(), preference))
-                .toList();
-
-        if (filteredSummaries.isEmpty()) {
-            log.info("No weather summaries within trip window for trip {}", preference.getId());
+    @Override
+    @Transactional
+    public void storeWeather(Trip preference, List<DailyWeatherDTO> summaries) {
+        validatePreference(preference);
+        if (summaries == null || summaries.isEmpty()) {
             return;
         }
 
@@ -134,7 +226,7 @@ public class WeatherServiceImpl implements WeatherService {
                 .collect(Collectors.toMap(TripWeather::getDate, Function.identity()));
 
         List<TripWeather> toSave = new ArrayList<>();
-        for (DailyWeatherDTO summary : filteredSummaries) {
+        for (DailyWeatherDTO summary : summaries) {
             TripWeather weather = existingByDate.get(summary.getDate());
             if (weather == null) {
                 weather = modelMapper.map(summary, TripWeather.class);
@@ -153,8 +245,122 @@ public class WeatherServiceImpl implements WeatherService {
         log.info("Stored {} daily weather records for trip {}", toSave.size(), preference.getId());
     }
 
+    @Override
+    @Transactional
+    public int refreshWeather(List<Trip> trips, List<DailyWeatherDTO> forecast) {
+        if (trips == null || trips.isEmpty() || forecast == null || forecast.isEmpty()) {
+            return 0;
+        }
+        List<Trip> persistent = trips.stream().filter(trip -> trip != null && trip.getId() != null).toList();
+        Map<Long, Map<LocalDate, TripWeather>> existing = tripWeatherRepository
+                .findByTripIdIn(persistent.stream().map(Trip::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(TripWeather::getTripId,
+                        Collectors.toMap(TripWeather::getDate, Function.identity(), (first, second) -> first)));
+
+        List<TripWeather> toSave = new ArrayList<>();
+        for (Trip trip : persistent) {
+            Map<LocalDate, TripWeather> byDate = existing.getOrDefault(trip.getId(), Map.of());
+            for (DailyWeatherDTO summary : forecast) {
+                if (!isWithinTripWindow(summary.getDate(), trip)) {
+                    continue;
+                }
+                TripWeather weather = byDate.get(summary.getDate());
+                if (weather == null) {
+                    weather = modelMapper.map(summary, TripWeather.class);
+                    weather.setTripId(trip.getId());
+                    toSave.add(weather);
+                } else if (!Objects.equals(weather.getMinTemp(), summary.getMinTemp())
+                        || !Objects.equals(weather.getMaxTemp(), summary.getMaxTemp())
+                        || !Objects.equals(weather.getWeatherCondition(), summary.getWeatherCondition())) {
+                    weather.setMinTemp(summary.getMinTemp());
+                    weather.setMaxTemp(summary.getMaxTemp());
+                    weather.setWeatherCondition(summary.getWeatherCondition());
+                    toSave.add(weather);
+                }
+            }
+        }
+        if (!toSave.isEmpty()) {
+            tripWeatherRepository.saveAll(toSave);
+        }
+        log.debug("Refreshed weather of {} trips, {} rows written", persistent.size(), toSave.size());
+        return toSave.size();
+    }
+
+    @Override
+    @Transactional
+    public void replaceWeather(Trip preference, List<DailyWeatherDTO> summaries) {
+        validatePreference(preference);
+        tripWeatherRepository.deleteByTripIdIn(List.of(preference.getId()));
+        if (summaries == null || summaries.isEmpty()) {
+            return;
+        }
+        List<TripWeather> toSave = summaries.stream()
+                .map(summary -> {
+                    TripWeather weather = modelMapper.map(summary, TripWeather.class);
+                    weather.setTripId(preference.getId());
+                    return weather;
+                })
+                .toList();
+        tripWeatherRepository.saveAll(toSave);
+        log.info("Replaced weather with {} daily records for trip {}", toSave.size(), preference.getId());
+    }
+
     // ---------------- Helper Methods ---------------- //
 
+    private boolean isFresh(CompletableFuture<CachedForecast> forecast) {
+        if (forecast.isCompletedExceptionally()) {
+            return false;
+        }
+        return clock.instant().isBefore(forecast.join().expiresAt());
+    }
+
+    /**
+     * Start of the next update period, e.g. the next 00/03/06/.. UTC hour for the default 3 hours.
+     */
+    private Instant nextUpdate() {
+        long period = Math.max(60, forecastTtl.toSeconds());
+        long now = clock.instant().getEpochSecond();
+        return Instant.ofEpochSecond((now / period + 1) * period);
+    }
+
+    /**
+     * Drops expired forecasts, and the oldest ones when more than {@code maxForecasts} destinations are cached.
+     */
+    private void evictExpired() {
+        forecasts.entrySet().removeIf(entry -> entry.getValue().isDone() && !isFresh(entry.getValue()));
+        int excess = forecasts.size() - Math.max(1, maxForecasts);
+        if (excess <= 0) {
+            return;
+        }
+        forecasts.entrySet().stream()
+                .filter(entry -> entry.getValue().isDone())
+                .sorted(Comparator.comparing(entry -> entry.getValue().join().expiresAt()))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> forecasts.remove(entry.getKey(), entry.getValue()));
+    }
+
+    private static DailyWeatherDTO copy(DailyWeatherDTO dto) {
+        return DailyWeatherDTO.builder()
+                .date(dto.getDate())
+                .minTemp(dto.getMinTemp())
+                .maxTemp(dto.getMaxTemp())
+                .weatherCondition(dto.getWeatherCondition())
+                .build();
+    }
+
+    private static CachedForecast join(CompletableFuture<CachedForecast> forecast) {
+        try {
+            return forecast.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
     /**
      * Validates the trip preference input before API call.
      */
@@ -272,6 +478,12 @@ public class WeatherServiceImpl implements WeatherService {
                 .build();
     }
 
+    /**
+     * Parsed daily summaries of one destination, shared by all trips going there; trips get copies.
+     */
+    private record CachedForecast(List<DailyWeatherDTO> days, Instant expiresAt) {
+    }
+
     // ---------------- JSON Response Mapping Classes ---------------- //
 
     @Data
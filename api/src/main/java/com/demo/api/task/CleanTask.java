@@ -3,6 +3,8 @@ package com.demo.api.task;
 import cn.hutool.core.util.ObjectUtil;
 import com.demo.api.model.EmailToken;
 import com.demo.api.repository.*;
+import com.demo.api.service.LlmCompletionService;
+import com.demo.api.service.TripGenerationCheckpointSaver;
 import com.demo.api.utils.AliyunOSSUtils;
 import com.demo.api.utils.AwsS3Utils;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 /**
@@ -36,6 +39,8 @@ public class CleanTask {
     private final TripBookingQuoteRepository tripBookingQuoteRepository;
     private final TripInsightRepository insightRepository;
     private final TripWeatherRepository tripWeatherRepository;
+    private final TripGenerationCheckpointSaver tripGenerationCheckpointSaver;
+    private final LlmCompletionService llmCompletionService;
 
 //    @Value("${aws.s3.dir-name}")
     @Value("${aliyun.oss.dirName}")
@@ -124,4 +129,22 @@ public class CleanTask {
         log.info("Clean finished");
     }
 
+    /**
+     * Clean checkpoints of trip generation runs that gave up and were never resumed, every day at 5 AM
+     */
+    @Scheduled(cron = "0 0 5 * * ?")
+    public void cleanGenerationCheckpoints() {
+        long deleted = tripGenerationCheckpointSaver.purgeOlderThan(OffsetDateTime.now().minusDays(7));
+        log.info("cleaned {} trip generation checkpoints", deleted);
+    }
+
+    /**
+     * Clean recorded LLM completions not recorded again for 30 days, every day at 5 AM
+     */
+    @Scheduled(cron = "0 30 5 * * ?")
+    public void cleanLlmCompletions() {
+        long deleted = llmCompletionService.purgeOlderThan(OffsetDateTime.now().minusDays(30));
+        log.info("cleaned {} recorded LLM completions", deleted);
+    }
+
 }
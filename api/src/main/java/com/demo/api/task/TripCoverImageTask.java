@@ -0,0 +1,37 @@
+package com.demo.api.task;
+
+import com.demo.api.service.TripCoverImageResolver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spring scheduled task: fill in the cover images of trips that have none yet
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TripCoverImageTask {
+    private final TripCoverImageResolver tripCoverImageResolver;
+
+    @Value("${app.trip.cover.backfill.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * Look up one batch of missing cover images every 10 minutes by default
+     */
+    @Scheduled(initialDelayString = "${app.trip.cover.backfill.initial-delay:PT1M}",
+            fixedDelayString = "${app.trip.cover.backfill.delay:PT10M}")
+    public void backfillCoverImages() {
+        try {
+            int stored = tripCoverImageResolver.backfill(batchSize);
+            if (stored > 0) {
+                log.info("Stored cover images of {} trips", stored);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Cover image backfill failed", ex);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.demo.api.task;
+
+import com.demo.api.service.TripDailySummaryImageResolver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spring scheduled task: fill in daily summary images deferred by the Unsplash rate limit
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TripDailySummaryImageTask {
+    private final TripDailySummaryImageResolver tripDailySummaryImageResolver;
+
+    @Value("${app.trip.images.backfill.batch-size:20}")
+    private int batchSize;
+
+    /**
+     * Look up one batch of deferred images every 5 minutes by default
+     */
+    @Scheduled(initialDelayString = "${app.trip.images.backfill.initial-delay:PT2M}",
+            fixedDelayString = "${app.trip.images.backfill.delay:PT5M}")
+    public void backfillDeferredImages() {
+        try {
+            int stored = tripDailySummaryImageResolver.backfill(batchSize);
+            if (stored > 0) {
+                log.info("Stored {} deferred daily summary images", stored);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Deferred daily summary image lookup failed", ex);
+        }
+    }
+}
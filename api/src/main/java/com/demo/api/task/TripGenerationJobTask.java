@@ -0,0 +1,44 @@
+package com.demo.api.task;
+
+import com.demo.api.service.TripGenerationJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spring scheduled task: keep the leases of this instance's generation jobs alive and take over jobs
+ * abandoned by a stopped instance
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TripGenerationJobTask {
+    private final TripGenerationJobService tripGenerationJobService;
+
+    /**
+     * Renew leases every 30 seconds by default, well within app.trip.generation.jobs.lease
+     */
+    @Scheduled(initialDelayString = "${app.trip.generation.jobs.heartbeat:PT30S}",
+            fixedDelayString = "${app.trip.generation.jobs.heartbeat:PT30S}")
+    public void renewLeases() {
+        try {
+            tripGenerationJobService.renewLeases();
+        } catch (RuntimeException ex) {
+            log.warn("Renewing trip generation job leases failed", ex);
+        }
+    }
+
+    /**
+     * Look for jobs with an expired lease every minute by default
+     */
+    @Scheduled(initialDelayString = "${app.trip.generation.jobs.resume-delay:PT1M}",
+            fixedDelayString = "${app.trip.generation.jobs.resume-delay:PT1M}")
+    public void resumeAbandonedJobs() {
+        try {
+            tripGenerationJobService.resumeUnfinishedJobs();
+        } catch (RuntimeException ex) {
+            log.warn("Resuming abandoned trip generation jobs failed", ex);
+        }
+    }
+}
@@ -1,7 +1,128 @@
 package com.demo.api.task;
 
+import com.demo.api.dto.DailyWeatherDTO;
+import com.demo.api.model.Trip;
+import com.demo.api.repository.TripRepository;
+import com.demo.api.service.WeatherService;
+import com.demo.api.utils.CacheKeyUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
- * TODO: Weather monitoring task: call the weather API every three days
+ * Spring scheduled task: refresh the stored weather of trips starting within the forecast horizon.
+ * Trips are grouped by destination so each city costs one OpenWeather call however many trips go there;
+ * the calls run on the weatherRefreshExecutor pool and at most {@code app.weather.refresh.max-calls}
+ * destinations are refreshed per run, soonest departures first. The rest wait for the next run.
  */
+@Slf4j
+@Component
 public class WeatherMonitorTask {
+    private final TripRepository tripRepository;
+    private final WeatherService weatherService;
+    private final TaskExecutor executor;
+    private final Clock clock;
+
+    @Value("${app.weather.refresh.horizon-days:5}")
+    private int horizonDays = 5;
+
+    @Value("${app.weather.refresh.max-calls:50}")
+    private int maxCalls = 50;
+
+    @Autowired
+    public WeatherMonitorTask(TripRepository tripRepository,
+                              WeatherService weatherService,
+                              @Qualifier("weatherRefreshExecutor") TaskExecutor executor) {
+        this(tripRepository, weatherService, executor, Clock.systemUTC());
+    }
+
+    WeatherMonitorTask(TripRepository tripRepository, WeatherService weatherService, TaskExecutor executor,
+                       Clock clock) {
+        this.tripRepository = tripRepository;
+        this.weatherService = weatherService;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Refresh upcoming trips every 3 hours by default, matching how often the cached forecasts expire
+     */
+    @Scheduled(initialDelayString = "${app.weather.refresh.initial-delay:PT5M}",
+            fixedDelayString = "${app.weather.refresh.delay:PT3H}")
+    public void refreshUpcomingWeather() {
+        try {
+            int written = refresh();
+            if (written > 0) {
+                log.info("Refreshed {} weather rows of upcoming trips", written);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Weather refresh failed", ex);
+        }
+    }
+
+    /**
+     * @return the number of weather rows inserted or updated
+     */
+    int refresh() {
+        LocalDate today = LocalDate.now(clock);
+        List<Trip> trips = tripRepository.findUpcoming(today, today.plusDays(Math.max(0, horizonDays)));
+        Map<String, List<Trip>> byDestination = new LinkedHashMap<>();
+        trips.stream()
+                .filter(trip -> trip.getId() != null && StringUtils.hasText(trip.getToCity()))
+                .sorted(Comparator.comparing(Trip::getStartDate, Comparator.nullsLast(Comparator.naturalOrder())))
+                .forEach(trip -> byDestination.computeIfAbsent(destination(trip), key -> new ArrayList<>()).add(trip));
+        if (byDestination.size() > maxCalls) {
+            log.info("Refreshing weather of {} of {} destinations, the rest wait for the next run",
+                    maxCalls, byDestination.size());
+        }
+
+        List<CompletableFuture<Integer>> refreshes = new ArrayList<>();
+        for (Map.Entry<String, List<Trip>> group : byDestination.entrySet()) {
+            if (refreshes.size() >= Math.max(0, maxCalls)) {
+                break;
+            }
+            try {
+                refreshes.add(CompletableFuture.supplyAsync(() -> refresh(group.getKey(), group.getValue()), executor));
+            } catch (TaskRejectedException ex) {
+                log.warn("Weather refresh queue is full, skipping {} for this run", group.getKey());
+            }
+        }
+        return refreshes.stream().mapToInt(CompletableFuture::join).sum();
+    }
+
+    private int refresh(String destination, List<Trip> trips) {
+        try {
+            Trip first = trips.getFirst();
+            List<DailyWeatherDTO> forecast = weatherService.fetchDestinationForecast(first.getToCity(), first.getToCountry());
+            if (forecast.isEmpty()) {
+                return 0;
+            }
+            return weatherService.refreshWeather(trips, forecast);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to refresh weather of {} trips to {}", trips.size(), destination, ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Same key as the forecast cache of {@link WeatherService}, so one call covers every trip it would serve.
+     */
+    private static String destination(Trip trip) {
+        return CacheKeyUtils.normalize(trip.getToCity()) + "|" + CacheKeyUtils.normalize(trip.getToCountry());
+    }
 }
@@ -0,0 +1,26 @@
+package com.demo.api.utils;
+
+import org.springframework.util.StringUtils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalises free text (cities, countries, preferences, search queries) into cache key parts.
+ */
+public final class CacheKeyUtils {
+
+    private CacheKeyUtils() {
+    }
+
+    /**
+     * Lower-cases, strips punctuation and collapses whitespace, so "Tokyo " and "tokyo" share a key.
+     */
+    public static String normalize(String text) {
+        if (!StringUtils.hasText(text)) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return normalized.replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+}
@@ -1,14 +1,24 @@
 package com.demo.api.utils;
 
+import com.demo.api.service.ImageSearchCacheService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 /**
  * Unsplash Image Utils
@@ -18,13 +28,48 @@ import java.util.NoSuchElementException;
 public class UnsplashImgUtils {
 
     private final WebClient unsplashWebClient;
+    private final int concurrency;
+    private final Duration timeout;
+    /** Null when searches are not cached. */
+    private final ImageSearchCacheService imageSearchCache;
+    /** Null when requests are not rate limited. */
+    private final UnsplashRateLimiter rateLimiter;
 
+    public UnsplashImgUtils(WebClient.Builder builder, String accessKey) {
+        this(builder, accessKey, 4, Duration.ofSeconds(3));
+    }
+
+    public UnsplashImgUtils(WebClient.Builder builder, String accessKey, int concurrency, Duration timeout) {
+        this(builder, accessKey, concurrency, timeout, null);
+    }
+
+    public UnsplashImgUtils(WebClient.Builder builder, String accessKey, int concurrency, Duration timeout,
+                            ImageSearchCacheService imageSearchCache) {
+        this(builder, accessKey, concurrency, timeout, imageSearchCache, null);
+    }
+
+    @Autowired
     public UnsplashImgUtils(WebClient.Builder builder,
-                            @Value("${unsplash.access-key}") String accessKey) {
+                            @Value("${unsplash.access-key}") String accessKey,
+                            @Value("${unsplash.concurrency:4}") int concurrency,
+                            @Value("${unsplash.timeout:PT3S}") Duration timeout,
+                            ImageSearchCacheService imageSearchCache,
+                            @Value("${unsplash.rate-limit.requests-per-hour:50}") int requestsPerHour,
+                            @Value("${unsplash.rate-limit.background-reserve:10}") int backgroundReserve) {
+        this(builder, accessKey, concurrency, timeout, imageSearchCache,
+                new UnsplashRateLimiter(requestsPerHour, backgroundReserve));
+    }
+
+    public UnsplashImgUtils(WebClient.Builder builder, String accessKey, int concurrency, Duration timeout,
+                            ImageSearchCacheService imageSearchCache, UnsplashRateLimiter rateLimiter) {
         this.unsplashWebClient = builder
                 .baseUrl("https://api.unsplash.com")
                 .defaultHeader("Authorization", "Client-ID " + accessKey)
                 .build();
+        this.concurrency = Math.max(1, concurrency);
+        this.timeout = timeout == null || timeout.isNegative() || timeout.isZero() ? Duration.ofSeconds(3) : timeout;
+        this.imageSearchCache = imageSearchCache;
+        this.rateLimiter = rateLimiter;
     }
 
     /**
@@ -36,8 +81,8 @@ public class UnsplashImgUtils {
      * @return a list of Aws S3 URLs
      */
     public List<String> getImgUrls(String q, int n, int width, int height) {
-        return searchNImg(q, n).stream()
-                .map(photo -> imgUrlFormat(photo, width, height)).toList();
+        return searchNImg(q, n, UnsplashRateLimiter.Priority.INTERACTIVE).stream()
+                .map(base -> imgUrlFormat(base, width, height)).toList();
     }
 
     /**
@@ -47,59 +92,175 @@ public class UnsplashImgUtils {
      * @return a list of Aws S3 URLs
      */
     public List<String> getImgUrls(String q, int n){
-        return searchNImg(q, n).stream()
-                .map(photo -> imgUrlFormat(photo, 1600, 900)).toList();
+        return searchNImg(q, n, UnsplashRateLimiter.Priority.INTERACTIVE).stream()
+                .map(base -> imgUrlFormat(base, 1600, 900)).toList();
     }
 
     /**
-     * Get N image Details (JSON) from Unsplash API.
+     * Looks up the first image of every query for a user who is waiting on the result.
+     * @see #getFirstImgUrls(List, int, int, UnsplashRateLimiter.Priority)
      */
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> searchNImg(String query, int n) {
-        if(n > 10){
-            n = 10;
-            log.warn("maximum number is 10, automatically adjusted to 10");
-        }
-        if(n < 1){
-            throw new IllegalArgumentException("number must be greater than 0");
+    public List<String> getFirstImgUrls(List<String> queries, int width, int height) {
+        return getFirstImgUrls(queries, width, height, UnsplashRateLimiter.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Looks up the first image of every query at once, with at most {@code unsplash.concurrency} requests in
+     * flight and each one limited to {@code unsplash.timeout}, so the whole batch takes about as long as its
+     * slowest lookup rather than the sum of all of them.
+     * @param queries search keywords
+     * @param width width of the images
+     * @param height height of the images
+     * @param priority share of the rate limit budget the lookups may use
+     * @return one url per query in the same order; blank where the query is blank, has no result or fails,
+     * null where the rate limit budget is spent and the lookup should be retried later
+     */
+    public List<String> getFirstImgUrls(List<String> queries, int width, int height,
+                                        UnsplashRateLimiter.Priority priority) {
+        if (queries == null || queries.isEmpty()) {
+            return List.of();
         }
-        if (query == null || query.isBlank()) {
-            throw new IllegalArgumentException("query must not be blank");
+        List<Optional<String>> urls = Flux.range(0, queries.size())
+                .flatMapSequential(index -> searchNImgAsync(queries.get(index), 1, priority)
+                        .timeout(timeout)
+                        .map(found -> Optional.of(imgUrlFormat(found.getFirst(), width, height)))
+                        .onErrorResume(RateLimitedException.class, e -> Mono.just(Optional.empty()))
+                        .onErrorResume(e -> {
+                            log.warn("Failed to load image url for: {}", queries.get(index), e);
+                            return Mono.just(Optional.of(""));
+                        }), concurrency)
+                .collectList()
+                .block();
+        return urls.stream().map(url -> url.orElse(null)).toList();
+    }
+
+    /**
+     * @return how many Unsplash requests of the given priority may be sent now
+     */
+    public int availableRequests(UnsplashRateLimiter.Priority priority) {
+        return rateLimiter == null ? Integer.MAX_VALUE : rateLimiter.available(priority);
+    }
+
+    /**
+     * Get N unsized image urls for the query, from the search cache when an equivalent query was searched before.
+     */
+    private List<String> searchNImg(String query, int n, UnsplashRateLimiter.Priority priority) {
+        return searchNImgAsync(query, n, priority).block();
+    }
+
+    /**
+     * Get N unsized image urls without blocking; invalid arguments are signalled as errors.
+     * Cache reads and writes may hit the database, so they run on the bounded elastic scheduler.
+     */
+    private Mono<List<String>> searchNImgAsync(String query, int n, UnsplashRateLimiter.Priority priority) {
+        return Mono.defer(() -> {
+            int count = n;
+            if (count > 10) {
+                count = 10;
+                log.warn("maximum number is 10, automatically adjusted to 10");
+            }
+            if (count < 1) {
+                return Mono.error(new IllegalArgumentException("number must be greater than 0"));
+            }
+            if (query == null || query.isBlank()) {
+                return Mono.error(new IllegalArgumentException("query must not be blank"));
+            }
+            final int perPage = count;
+            if (imageSearchCache == null) {
+                return fetchBaseUrls(query, perPage, priority);
+            }
+            return Mono.fromCallable(() -> imageSearchCache.lookup(query))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(cached -> cached.filter(urls -> urls.size() >= perPage)
+                            .map(urls -> Mono.just(urls.subList(0, perPage)))
+                            .orElseGet(() -> fetchBaseUrls(query, perPage, priority)
+                                    .publishOn(Schedulers.boundedElastic())
+                                    .doOnNext(urls -> imageSearchCache.store(query, urls))));
+        });
+    }
+
+    /**
+     * Get N image Details (JSON) from Unsplash API and keep their unsized urls.
+     * Fails with {@link RateLimitedException} without calling Unsplash when the rate limit budget is spent.
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<List<String>> fetchBaseUrls(String query, int perPage, UnsplashRateLimiter.Priority priority) {
+        if (rateLimiter != null && !rateLimiter.tryAcquire(priority)) {
+            return Mono.error(new RateLimitedException(query));
         }
-        final int count = n;
-        Map<String, Object> body = unsplashWebClient.get()
+        return unsplashWebClient.get()
                 .uri(uri -> uri.path("/search/photos")
                         .queryParam("query", query)
-                        .queryParam("per_page", count)
+                        .queryParam("per_page", perPage)
                         .build())
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
-                .bodyToMono(Map.class)
-                .block();
+                .toEntity(Map.class)
+                .doOnNext(entity -> updateRateLimit(entity.getHeaders()))
+                .onErrorMap(WebClientResponseException.class, e -> rateLimitError(query, e))
+                .map(entity -> entity.getBody() == null ? Map.of() : entity.getBody())
+                .flatMap(body -> {
+                    List<Map<String, Object>> results =
+                            (List<Map<String, Object>>) body.getOrDefault("results", List.of());
+                    if (results.isEmpty()) {
+                        return Mono.error(new NoSuchElementException("Unsplash has no result for: " + query));
+                    }
+                    return Mono.fromCallable(() -> results.stream().map(UnsplashImgUtils::baseUrl).toList());
+                });
+    }
 
-        List<Map<String, Object>> results =
-                (List<Map<String, Object>>) (body != null ? body.getOrDefault("results", List.of()) : List.of());
+    private void updateRateLimit(HttpHeaders headers) {
+        if (rateLimiter != null) {
+            rateLimiter.update(headers);
+        }
+    }
 
-        if (results.isEmpty()) {
-            throw new NoSuchElementException("Unsplash has no result for: " + query);
+    /**
+     * Unsplash answers 429, or 403 with no requests remaining, once the quota is spent.
+     */
+    private Throwable rateLimitError(String query, WebClientResponseException e) {
+        updateRateLimit(e.getHeaders());
+        boolean exceeded = e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || (e.getStatusCode().value() == HttpStatus.FORBIDDEN.value()
+                && "0".equals(e.getHeaders().getFirst(UnsplashRateLimiter.REMAINING_HEADER)));
+        if (!exceeded) {
+            return e;
+        }
+        if (rateLimiter != null) {
+            rateLimiter.exhausted();
         }
-        return results;
+        return new RateLimitedException(query);
     }
 
     /**
-     * Generate url and format the img.
+     * Unsized url of the photo.
      */
     @SuppressWarnings("unchecked")
-    private String imgUrlFormat(Map<String, Object> photo, int width, int height) {
-        Map<String, Object> urls = (Map<String, Object>) photo.get("urls");
+    private static String baseUrl(Map<String, Object> photo) {
+        Map<String, Object> urls = (Map<String, Object>) Optional.ofNullable(photo.get("urls")).orElse(Map.of());
         String base = (String) (urls.getOrDefault("raw",
                 urls.getOrDefault("full", urls.get("regular"))));
         if (base == null || base.isBlank()) {
             throw new IllegalStateException("No downloadable url in photo.urls");
         }
+        return base;
+    }
 
+    /**
+     * Generate url and format the img.
+     */
+    private String imgUrlFormat(String base, int width, int height) {
         String join = base.contains("?") ? "&" : "?";
         // q: compress img quality 1-100
         return base + join + "w=" + width + "&h=" + height + "&fit=crop&fm=jpg&q=60&auto=format";
     }
+
+    /**
+     * The Unsplash rate limit budget is spent; the lookup may succeed once it refills.
+     */
+    public static class RateLimitedException extends IllegalStateException {
+        public RateLimitedException(String query) {
+            super("Unsplash rate limit reached, lookup deferred for: " + query);
+        }
+    }
 }
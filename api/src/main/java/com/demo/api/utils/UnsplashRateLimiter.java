@@ -0,0 +1,120 @@
+package com.demo.api.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket in front of the Unsplash API, whose quota is a number of requests per hour.
+ * <ul>
+ *     <li>the bucket holds up to the hourly quota and refills evenly over the hour</li>
+ *     <li>{@code X-Ratelimit-Limit} replaces the configured quota; a lower {@code X-Ratelimit-Remaining}
+ *     drains the bucket down to it, so requests made elsewhere with the same key are accounted for</li>
+ *     <li>background lookups leave {@code backgroundReserve} tokens to interactive ones</li>
+ * </ul>
+ * Thread-safe.
+ */
+public class UnsplashRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(UnsplashRateLimiter.class);
+    private static final double HOUR_NANOS = Duration.ofHours(1).toNanos();
+
+    static final String LIMIT_HEADER = "X-Ratelimit-Limit";
+    static final String REMAINING_HEADER = "X-Ratelimit-Remaining";
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    private final int backgroundReserve;
+    private final LongSupplier nanoTime;
+
+    private double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    public UnsplashRateLimiter(int requestsPerHour, int backgroundReserve) {
+        this(requestsPerHour, backgroundReserve, System::nanoTime);
+    }
+
+    UnsplashRateLimiter(int requestsPerHour, int backgroundReserve, LongSupplier nanoTime) {
+        this.capacity = Math.max(1, requestsPerHour);
+        this.tokens = capacity;
+        this.backgroundReserve = Math.max(0, backgroundReserve);
+        this.nanoTime = nanoTime;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * @return true when a request of the given priority may be sent now; its token is spent
+     */
+    public synchronized boolean tryAcquire(Priority priority) {
+        refill();
+        if (tokens - reserveFor(priority) < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * @return how many requests of the given priority may be sent now
+     */
+    public synchronized int available(Priority priority) {
+        refill();
+        return (int) Math.max(0, Math.floor(tokens - reserveFor(priority)));
+    }
+
+    /**
+     * Syncs the bucket with the rate limit headers of an Unsplash response; missing or unreadable headers are ignored.
+     */
+    public synchronized void update(HttpHeaders headers) {
+        if (headers == null) {
+            return;
+        }
+        refill();
+        Integer limit = readHeader(headers, LIMIT_HEADER);
+        if (limit != null && limit > 0) {
+            capacity = limit;
+            tokens = Math.min(tokens, capacity);
+        }
+        Integer remaining = readHeader(headers, REMAINING_HEADER);
+        if (remaining != null && remaining < tokens) {
+            tokens = Math.max(0, remaining);
+        }
+    }
+
+    /**
+     * Unsplash refused a request for exceeding the quota: nothing is sent until the bucket refills.
+     */
+    public synchronized void exhausted() {
+        refill();
+        if (tokens >= 1) {
+            log.warn("Unsplash rate limit exceeded, deferring image lookups");
+        }
+        tokens = 0;
+    }
+
+    private double reserveFor(Priority priority) {
+        return priority == Priority.BACKGROUND ? backgroundReserve : 0;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * capacity / HOUR_NANOS);
+        refilledAt = now;
+    }
+
+    private static Integer readHeader(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.demo.api;
+
+import com.demo.api.model.LlmCompletion;
+import com.demo.api.model.TripGenerationCheckpoint;
+import com.demo.api.repository.LlmCompletionRepository;
+import com.demo.api.repository.TripGenerationCheckpointRepository;
+import com.demo.api.support.IntegrationTestSupport;
+import com.demo.api.task.CleanTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the daily purges of {@link CleanTask} against the database with several stale rows at once.
+ */
+@Tag("integration")
+class CleanTaskPurgeIT extends IntegrationTestSupport {
+
+    @Autowired
+    private CleanTask cleanTask;
+
+    @Autowired
+    private TripGenerationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private LlmCompletionRepository completionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        checkpointRepository.deleteAll();
+        completionRepository.deleteAll();
+    }
+
+    private TripGenerationCheckpoint checkpoint(String threadId) {
+        return checkpointRepository.save(TripGenerationCheckpoint.builder()
+                .threadId(threadId)
+                .checkpointId(UUID.randomUUID().toString())
+                .state("{}")
+                .build());
+    }
+
+    private LlmCompletion completion() {
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        return completionRepository.save(LlmCompletion.builder()
+                .promptHash(UUID.randomUUID().toString().replace("-", ""))
+                .responseType("ItineraryDTO")
+                .completion(body)
+                .completionLength(body.length)
+                .build());
+    }
+
+    /** Timestamps are assigned by Hibernate, so rows are aged directly in the table. */
+    private void age(String table, String column, Long id, int days) {
+        jdbcTemplate.update("update " + table + " set " + column + " = ? where id = ?",
+                OffsetDateTime.now().minusDays(days), id);
+    }
+
+    @Test
+    @DisplayName("cleanGenerationCheckpoints removes every checkpoint older than a week")
+    void cleanGenerationCheckpoints_removesAllStaleRows() {
+        for (int i = 0; i < 3; i++) {
+            age("trip_generation_checkpoint", "created_time", checkpoint("trip:1").getId(), 8);
+        }
+        TripGenerationCheckpoint fresh = checkpoint("trip:2");
+
+        cleanTask.cleanGenerationCheckpoints();
+
+        assertThat(checkpointRepository.findAll()).extracting(TripGenerationCheckpoint::getId)
+                .containsExactly(fresh.getId());
+    }
+
+    @Test
+    @DisplayName("cleanLlmCompletions removes every recording not updated for 30 days")
+    void cleanLlmCompletions_removesAllStaleRows() {
+        for (int i = 0; i < 3; i++) {
+            age("llm_completion", "updated_time", completion().getId(), 31);
+        }
+        LlmCompletion fresh = completion();
+
+        cleanTask.cleanLlmCompletions();
+
+        assertThat(completionRepository.findAll()).extracting(LlmCompletion::getId)
+                .containsExactly(fresh.getId());
+    }
+}
@@ -0,0 +1,64 @@
+package com.demo.api;
+
+import com.demo.api.model.TripGenerationCheckpoint;
+import com.demo.api.repository.TripGenerationCheckpointRepository;
+import com.demo.api.support.IntegrationTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the checkpoint deletes against the database; every workflow run leaves several rows per thread.
+ */
+@Tag("integration")
+class TripGenerationCheckpointRepositoryIT extends IntegrationTestSupport {
+
+    @Autowired
+    private TripGenerationCheckpointRepository checkpointRepository;
+
+    @BeforeEach
+    void setUp() {
+        checkpointRepository.deleteAll();
+    }
+
+    private void save(String threadId, int count) {
+        for (int i = 0; i < count; i++) {
+            checkpointRepository.save(TripGenerationCheckpoint.builder()
+                    .threadId(threadId)
+                    .checkpointId(UUID.randomUUID().toString())
+                    .nodeId("node" + i)
+                    .state("{}")
+                    .build());
+        }
+    }
+
+    @Test
+    @DisplayName("deleteByThreadId removes every checkpoint of the thread and keeps the others")
+    void deleteByThreadId_removesAllRowsOfThread() {
+        save("trip:1", 5);
+        save("trip:2", 2);
+
+        assertThat(checkpointRepository.deleteByThreadId("trip:1")).isEqualTo(5);
+
+        assertThat(checkpointRepository.findByThreadIdOrderByIdDesc("trip:1")).isEmpty();
+        assertThat(checkpointRepository.findByThreadIdOrderByIdDesc("trip:2")).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("deleteByCreatedTimeBefore removes every checkpoint created before the cutoff")
+    void deleteByCreatedTimeBefore_removesAllOlderRows() {
+        save("trip:1", 3);
+        save("trip:2", 2);
+
+        assertThat(checkpointRepository.deleteByCreatedTimeBefore(OffsetDateTime.now().plusMinutes(1))).isEqualTo(5);
+        assertThat(checkpointRepository.deleteByCreatedTimeBefore(OffsetDateTime.now().plusMinutes(1))).isZero();
+        assertThat(checkpointRepository.count()).isZero();
+    }
+}
@@ -0,0 +1,133 @@
+package com.demo.api;
+
+import com.demo.api.client.OpenAiClient;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.TripPreferenceRequestDTO;
+import com.demo.api.model.Trip;
+import com.demo.api.model.TripDailySummary;
+import com.demo.api.repository.TripDailySummaryRepository;
+import com.demo.api.repository.TripGenerationCheckpointRepository;
+import com.demo.api.repository.TripRepository;
+import com.demo.api.service.TripGenerationService;
+import com.demo.api.support.IntegrationTestSupport;
+import com.demo.api.utils.UnsplashImgUtils;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that trip generation does not pin a pooled connection or an open transaction
+ * while waiting on OpenAI, OpenWeather or Unsplash.
+ */
+@Tag("integration")
+class TripGenerationConnectionIT extends IntegrationTestSupport {
+
+    @Autowired
+    private TripGenerationService tripGenerationService;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private TripDailySummaryRepository tripDailySummaryRepository;
+
+    @Autowired
+    private TripGenerationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockitoBean
+    private OpenAiClient openAiClient;
+
+    @MockitoBean
+    private UnsplashImgUtils unsplashImgUtils;
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    private HikariDataSource hikari;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        hikari = dataSource.unwrap(HikariDataSource.class);
+        tripDailySummaryRepository.deleteAll();
+        tripRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("No transaction or connection is held during outbound calls of generation")
+    void generateTrip_releasesConnectionDuringOutboundCalls() {
+        AtomicInteger llmActiveConnections = new AtomicInteger(-1);
+        AtomicInteger weatherActiveConnections = new AtomicInteger(-1);
+        AtomicInteger imageActiveConnections = new AtomicInteger(-1);
+
+        when(restTemplate.getForObject(any(URI.class), eq(String.class))).thenAnswer(invocation -> {
+            assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+            weatherActiveConnections.set(activeConnections());
+            return null;
+        });
+        when(openAiClient.generate(anyString(), eq(ItineraryDTO.class))).thenAnswer(invocation -> {
+            assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+            llmActiveConnections.set(activeConnections());
+            return ItineraryDTO.builder()
+                    .dailySummaries(List.of(ItineraryDTO.DailySummaryDTO.builder()
+                            .date(LocalDate.now().plusDays(1))
+                            .summary("Arrival")
+                            .imageDescription("harbour")
+                            .build()))
+                    .activities(List.of())
+                    .build();
+        });
+        when(unsplashImgUtils.getFirstImgUrls(anyList(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+            imageActiveConnections.set(activeConnections());
+            return List.of("https://img/harbour.jpg");
+        });
+
+        TripPreferenceRequestDTO dto = TripPreferenceRequestDTO.builder()
+                .fromCity("Sydney")
+                .toCity("Melbourne")
+                .toCountry("AU")
+                .currency("AUD")
+                .people(2)
+                .startDate(LocalDate.now().plusDays(1))
+                .endDate(LocalDate.now().plusDays(3))
+                .build();
+
+        tripGenerationService.generateTripAndReturnJson(dto, "1");
+
+        assertThat(weatherActiveConnections.get()).isZero();
+        assertThat(llmActiveConnections.get()).isZero();
+        assertThat(imageActiveConnections.get()).isZero();
+
+        Trip trip = tripRepository.findAll().getFirst();
+        List<TripDailySummary> summaries = tripDailySummaryRepository.findByTripId(trip.getId());
+        assertThat(summaries).singleElement()
+                .extracting(TripDailySummary::getImageUrl)
+                .isEqualTo("https://img/harbour.jpg");
+        // a finished run releases every checkpoint it saved along the way
+        assertThat(checkpointRepository.findByThreadIdOrderByIdDesc("trip:" + trip.getId())).isEmpty();
+    }
+
+    private int activeConnections() {
+        return hikari.getHikariPoolMXBean().getActiveConnections();
+    }
+}
@@ -1,6 +1,16 @@
 package com.demo.api.client;
 
 import com.demo.api.client.impl.OpenAiClientImpl;
+import com.demo.api.client.support.CircuitBreaker;
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.client.support.LlmHedger;
+import com.demo.api.client.support.LlmModelRouter;
+import com.demo.api.client.support.LlmRetryEngine;
+import com.demo.api.client.support.StructuredOutputException;
+import com.demo.api.exception.BusinessException;
+import com.demo.api.service.LlmCompletionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
@@ -10,12 +20,38 @@ import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.converter.StructuredOutputConverter;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,19 +61,21 @@ class OpenAiClientImplTest {
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private ChatClient chatClient;
     @Mock private ChatClient.CallResponseSpec callResponseSpec;
+    @Mock private LlmCompletionService completionService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     private OpenAiClientImpl client;
 
     @BeforeEach
     void setUp() {
-        client = new OpenAiClientImpl(chatClient, 1, Duration.ZERO, "system prompt");
+        client = newClient(chatClient, retryEngine(1, 1, 5));
     }
 
     @Test
     void generate_returnsMappedEntity() {
         TestDto dto = new TestDto("Tokyo");
         when(chatClient.prompt().system(anyString()).user(anyString()).call()).thenReturn(callResponseSpec);
-        when(callResponseSpec.entity(TestDto.class)).thenReturn(dto);
+        when(callResponseSpec.responseEntity(any(StructuredOutputConverter.class))).thenReturn(new ResponseEntity<>(null, dto));
 
         TestDto result = client.generate("Plan a trip", TestDto.class);
 
@@ -66,7 +104,7 @@ class OpenAiClientImplTest {
     @Test
     void generate_whenMappingFails_throwsIllegalState() {
         when(chatClient.prompt().system(anyString()).user(anyString()).call()).thenReturn(callResponseSpec);
-        when(callResponseSpec.entity(TestDto.class)).thenReturn(null);
+        when(callResponseSpec.responseEntity(any(StructuredOutputConverter.class))).thenReturn(new ResponseEntity<>(null, null));
 
         assertThatThrownBy(() -> client.generate("prompt", TestDto.class))
                 .isInstanceOf(IllegalStateException.class)
@@ -77,12 +115,319 @@ class OpenAiClientImplTest {
     void generate_retriesAndPropagatesFailure() {
         when(chatClient.prompt().system(anyString()).user(anyString()).call()).thenThrow(new IllegalStateException("boom"));
 
-        OpenAiClientImpl retryingClient = new OpenAiClientImpl(chatClient, 2, Duration.ZERO, "system prompt");
+        OpenAiClientImpl retryingClient = newClient(chatClient, retryEngine(2, 1, 5));
 
         assertThatThrownBy(() -> retryingClient.generate("prompt", TestDto.class))
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("boom");
     }
 
+    @Test
+    void generate_whenProviderFailsTransiently_retriesUntilSuccess() {
+        StubChatModel model = new StubChatModel()
+                .thenFail(new TransientAiException("HTTP 503 - upstream unavailable"))
+                .thenFail(new NonTransientAiException("HTTP 429 - Rate limit reached. Please try again in 5ms."))
+                .thenAnswer("{\"city\":\"Tokyo\"}");
+        OpenAiClientImpl stubbed = newClient(ChatClient.create(model), retryEngine(3, 1, 5));
+
+        TestDto result = stubbed.generate("Plan a trip", TestDto.class);
+
+        assertThat(result).isEqualTo(new TestDto("Tokyo"));
+        assertThat(model.calls()).isEqualTo(3);
+    }
+
+    @Test
+    void generate_whenClientError_doesNotRetry() {
+        StubChatModel model = new StubChatModel()
+                .thenFail(new NonTransientAiException("HTTP 400 - invalid request"))
+                .thenAnswer("{\"city\":\"Tokyo\"}");
+        OpenAiClientImpl stubbed = newClient(ChatClient.create(model), retryEngine(3, 1, 5));
+
+        assertThatThrownBy(() -> stubbed.generate("prompt", TestDto.class))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Failed to call OpenAI");
+        assertThat(model.calls()).isEqualTo(1);
+    }
+
+    @Test
+    void generate_whenOutputDoesNotMatchSchema_retriesOnlyUpToSchemaAttempts() {
+        StubChatModel model = new StubChatModel()
+                .thenAnswer("not json")
+                .thenAnswer("{\"city\": [")
+                .thenAnswer("{\"city\":\"Tokyo\"}");
+        OpenAiClientImpl stubbed = newClient(ChatClient.create(model), retryEngine(3, 2, 5));
+
+        assertThatThrownBy(() -> stubbed.generate("prompt", TestDto.class))
+                .isInstanceOf(StructuredOutputException.class)
+                .hasMessageContaining("mapped");
+        assertThat(model.calls()).isEqualTo(2);
+    }
+
+    @Test
+    void generate_whenCircuitOpen_failsFastWithoutCallingProvider() {
+        StubChatModel model = new StubChatModel()
+                .thenFail(new TransientAiException("HTTP 502 - bad gateway"))
+                .thenFail(new TransientAiException("HTTP 502 - bad gateway"))
+                .thenAnswer("{\"city\":\"Tokyo\"}");
+        OpenAiClientImpl stubbed = newClient(ChatClient.create(model), retryEngine(2, 1, 2));
+
+        assertThatThrownBy(() -> stubbed.generate("prompt", TestDto.class)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> stubbed.generate("prompt", TestDto.class))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("unavailable");
+        assertThat(model.calls()).isEqualTo(2);
+    }
+
+    @Test
+    void generate_whenOutputIsSlightlyMalformed_repairsLocallyWithoutRetry() {
+        StubChatModel model = new StubChatModel()
+                .thenAnswer("Here is your plan:\n```json\n{\"city\":\"Tokyo\",}\n```");
+        OpenAiClientImpl stubbed = newClient(ChatClient.create(model), retryEngine(3, 2, 5));
+
+        TestDto result = stubbed.generate("prompt", TestDto.class);
+
+        assertThat(result).isEqualTo(new TestDto("Tokyo"));
+        assertThat(model.calls()).isEqualTo(1);
+        assertThat(meterRegistry.counter(OpenAiClientImpl.VALIDATION_METRIC, "stage", "json", "result", "repaired").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter(OpenAiClientImpl.CALLS_SAVED_METRIC, "stage", "json").count()).isEqualTo(1);
+    }
+
+    @Test
+    void generate_sendsFormatInSystemMessageAndCountsCachedTokens() {
+        OpenAiApi.Usage nativeUsage = new OpenAiApi.Usage(20, 1200, 1220,
+                new OpenAiApi.Usage.PromptTokensDetails(null, 1024), null);
+        StubChatModel model = new StubChatModel()
+                .thenAnswer("{\"city\":\"Tokyo\"}", new DefaultUsage(1200, 20, 1220, nativeUsage));
+        OpenAiClientImpl stubbed = newClient(ChatClient.create(model), retryEngine(1, 1, 5));
+
+        stubbed.generate("Plan a trip", TestDto.class);
+
+        assertThat(model.lastPrompt().getSystemMessage().getText()).startsWith("system prompt").contains("JSON Schema");
+        assertThat(model.lastPrompt().getUserMessage().getText()).isEqualTo("Plan a trip");
+        assertThat(meterRegistry.counter(OpenAiClientImpl.TOKENS_METRIC, "type", "prompt").count()).isEqualTo(1200);
+        assertThat(meterRegistry.counter(OpenAiClientImpl.TOKENS_METRIC, "type", "cached").count()).isEqualTo(1024);
+        assertThat(meterRegistry.counter(OpenAiClientImpl.TOKENS_METRIC, "type", "completion").count()).isEqualTo(20);
+    }
+
+    @Test
+    void generate_whenRecording_storesRawCompletionBeforeParsing() {
+        StubChatModel model = new StubChatModel().thenAnswer("not json");
+        OpenAiClientImpl recording = new OpenAiClientImpl(ChatClient.create(model), retryEngine(1, 1, 5), new ObjectMapper(),
+                meterRegistry, "system prompt", completionService, LlmCompletionService.Mode.RECORD);
+
+        assertThatThrownBy(() -> recording.generate("prompt", TestDto.class))
+                .isInstanceOf(StructuredOutputException.class);
+        verify(completionService).record(startsWith("system prompt"), eq("prompt"), eq(TestDto.class), eq("not json"));
+    }
+
+    @Test
+    void generate_whenReplaying_servesRecordedCompletionWithoutCallingProvider() {
+        StubChatModel model = new StubChatModel();
+        when(completionService.find(startsWith("system prompt"), eq("Plan a trip"), eq(TestDto.class)))
+                .thenReturn(Optional.of("{\"city\":\"Tokyo\"}"));
+        OpenAiClientImpl replaying = new OpenAiClientImpl(ChatClient.create(model), retryEngine(1, 1, 5), new ObjectMapper(),
+                meterRegistry, "system prompt", completionService, LlmCompletionService.Mode.REPLAY);
+
+        TestDto result = replaying.generate("Plan a trip", TestDto.class);
+
+        assertThat(result).isEqualTo(new TestDto("Tokyo"));
+        assertThat(model.calls()).isZero();
+    }
+
+    @Test
+    void generate_whenReplayingUnknownPrompt_failsWithoutCallingProvider() {
+        StubChatModel model = new StubChatModel();
+        when(completionService.find(anyString(), eq("prompt"), eq(TestDto.class))).thenReturn(Optional.empty());
+        OpenAiClientImpl replaying = new OpenAiClientImpl(ChatClient.create(model), retryEngine(1, 1, 5), new ObjectMapper(),
+                meterRegistry, "system prompt", completionService, LlmCompletionService.Mode.REPLAY);
+
+        assertThatThrownBy(() -> replaying.generate("prompt", TestDto.class))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No recorded completion");
+        assertThat(model.calls()).isZero();
+    }
+
+    @Test
+    void generate_whenRouted_sendsRouteModelAndRecordsLatency() {
+        StubChatModel model = new StubChatModel().thenAnswer("{\"city\":\"Tokyo\"}");
+        OpenAiClientImpl routed = newRoutedClient(ChatClient.create(model), retryEngine(1, 1, 5));
+
+        try (LlmCallContext.Scope ignored = LlmCallContext.openWorkload(new LlmCallContext.Workload(10, 0, 0))) {
+            routed.generate("Plan a trip", TestDto.class);
+        }
+
+        assertThat(model.lastPrompt().getOptions().getModel()).isEqualTo("large");
+        assertThat(model.lastPrompt().getOptions().getMaxTokens()).isEqualTo(8000);
+        assertThat(meterRegistry.find(OpenAiClientImpl.ROUTE_LATENCY_METRIC)
+                .tags("route", "heavy", "model", "large", "type", "TestDto", "outcome", "success").timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+    }
+
+    @Test
+    void generate_whenRoutedOutputDoesNotMatchSchema_retriesOnStrongerRoute() {
+        StubChatModel model = new StubChatModel()
+                .thenAnswer("not json")
+                .thenAnswer("{\"city\":\"Tokyo\"}");
+        OpenAiClientImpl routed = newRoutedClient(ChatClient.create(model), retryEngine(3, 2, 5));
+
+        TestDto result = routed.generate("prompt", TestDto.class);
+
+        assertThat(result).isEqualTo(new TestDto("Tokyo"));
+        assertThat(model.models()).containsExactly("mini", "standard");
+        assertThat(meterRegistry.counter(OpenAiClientImpl.ROUTE_ESCALATIONS_METRIC, "from", "light", "to", "standard").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find(OpenAiClientImpl.ROUTE_LATENCY_METRIC).tags("route", "light", "outcome", "failure")
+                .timer()).isNotNull();
+    }
+
+    @Test
+    void generate_whenHedged_slowPrimaryLosesToBackupAndIsCancelled() {
+        // every 10th call of the stub stalls for 5s, the rest take 20ms
+        DelayedChatModel model = new DelayedChatModel(call -> call % 10 == 9 ? 5_000 : 20);
+        OpenAiClientImpl hedged = newHedgedClient(ChatClient.create(model), new LlmHedger(0.9, Duration.ofMillis(500),
+                5, 50, 0.5, 3, null, meterRegistry, null));
+
+        long slowest = 0;
+        for (int i = 0; i < 12; i++) {
+            long started = System.nanoTime();
+            hedged.generate("prompt", TestDto.class);
+            slowest = Math.max(slowest, Duration.ofNanos(System.nanoTime() - started).toMillis());
+        }
+
+        assertThat(slowest).isLessThan(4_000);
+        assertThat(meterRegistry.counter(LlmHedger.HEDGE_METRIC, "outcome", "backup-won").count()).isEqualTo(1);
+        assertThat(model.calls()).isEqualTo(13);
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(
+                () -> assertThat(model.interrupted()).isEqualTo(1));
+    }
+
+    @Test
+    void generate_whenHedgeBudgetSpent_waitsForPrimary() {
+        // after five 20ms calls, every call takes 300ms
+        DelayedChatModel model = new DelayedChatModel(call -> call < 5 ? 20 : 300);
+        OpenAiClientImpl hedged = newHedgedClient(ChatClient.create(model), new LlmHedger(0.5, Duration.ZERO, 5, 5,
+                0, 1, null, meterRegistry, null));
+
+        for (int i = 0; i < 7; i++) {
+            hedged.generate("prompt", TestDto.class);
+        }
+
+        assertThat(meterRegistry.counter(LlmHedger.HEDGE_METRIC, "outcome", "primary-won").count()
+                + meterRegistry.counter(LlmHedger.HEDGE_METRIC, "outcome", "backup-won").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter(LlmHedger.HEDGE_METRIC, "outcome", "over-budget").count()).isEqualTo(1);
+        assertThat(model.calls()).isEqualTo(8);
+    }
+
+    private OpenAiClientImpl newHedgedClient(ChatClient chatClient, LlmHedger hedger) {
+        return new OpenAiClientImpl(chatClient, retryEngine(1, 1, 5), new ObjectMapper(), meterRegistry, "system prompt",
+                null, LlmCompletionService.Mode.OFF, null, hedger);
+    }
+
+    private OpenAiClientImpl newRoutedClient(ChatClient chatClient, LlmRetryEngine retryEngine) {
+        return new OpenAiClientImpl(chatClient, retryEngine, new ObjectMapper(), meterRegistry, "system prompt", null,
+                LlmCompletionService.Mode.OFF,
+                new LlmModelRouter("mini", 1000, "standard", 4000, "large", 8000, 3, 200, 8, 800, true), null);
+    }
+
+    private OpenAiClientImpl newClient(ChatClient chatClient, LlmRetryEngine retryEngine) {
+        return new OpenAiClientImpl(chatClient, retryEngine, new ObjectMapper(), meterRegistry, "system prompt");
+    }
+
+    private static LlmRetryEngine retryEngine(int maxAttempts, int schemaAttempts, int failureThreshold) {
+        return new LlmRetryEngine(maxAttempts, schemaAttempts, Duration.ofMillis(1), Duration.ofMillis(5),
+                Duration.ofSeconds(1), new CircuitBreaker(failureThreshold, Duration.ofMinutes(1)));
+    }
+
     private record TestDto(String city) {}
+
+    /**
+     * Chat model whose n-th call (from 0) takes {@code latency.applyAsLong(n)} milliseconds; an interrupted
+     * call fails.
+     */
+    private static final class DelayedChatModel implements ChatModel {
+
+        private final IntToLongFunction latency;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger interrupted = new AtomicInteger();
+
+        DelayedChatModel(IntToLongFunction latency) {
+            this.latency = latency;
+        }
+
+        int calls() {
+            return calls.get();
+        }
+
+        int interrupted() {
+            return interrupted.get();
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            int call = calls.getAndIncrement();
+            try {
+                Thread.sleep(latency.applyAsLong(call));
+            } catch (InterruptedException ex) {
+                interrupted.incrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("cancelled", ex);
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("{\"city\":\"City " + call + "\"}"))));
+        }
+    }
+
+    /**
+     * Chat model that replays scripted answers and failures, one per call.
+     */
+    private static final class StubChatModel implements ChatModel {
+
+        private final Deque<Supplier<ChatResponse>> script = new ArrayDeque<>();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final List<String> models = new ArrayList<>();
+        private volatile Prompt lastPrompt;
+
+        StubChatModel thenAnswer(String content) {
+            script.addLast(() -> new ChatResponse(List.of(new Generation(new AssistantMessage(content)))));
+            return this;
+        }
+
+        StubChatModel thenAnswer(String content, Usage usage) {
+            script.addLast(() -> new ChatResponse(List.of(new Generation(new AssistantMessage(content))),
+                    ChatResponseMetadata.builder().usage(usage).build()));
+            return this;
+        }
+
+        StubChatModel thenFail(RuntimeException failure) {
+            script.addLast(() -> {
+                throw failure;
+            });
+            return this;
+        }
+
+        int calls() {
+            return calls.get();
+        }
+
+        Prompt lastPrompt() {
+            return lastPrompt;
+        }
+
+        synchronized List<String> models() {
+            return List.copyOf(models);
+        }
+
+        @Override
+        public synchronized ChatResponse call(Prompt prompt) {
+            calls.incrementAndGet();
+            lastPrompt = prompt;
+            models.add(prompt.getOptions() == null ? "" : String.valueOf(prompt.getOptions().getModel()));
+            Supplier<ChatResponse> next = script.pollFirst();
+            if (next == null) {
+                throw new AssertionError("Unexpected call to the chat model");
+            }
+            return next.get();
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package com.demo.api.client.support;
+
+import com.demo.api.client.support.AdaptiveConcurrencyLimiter.Outcome;
+import com.demo.api.client.support.AdaptiveConcurrencyLimiter.Permit;
+import com.demo.api.exception.BusinessException;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter limiter(int initial, int maxQueue, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter(initial, 1, 10, maxQueue, maxWait, 0.5, 2.0, nanos::get);
+    }
+
+    private void elapse(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void release_onRateLimit_halvesLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 10, Duration.ofSeconds(1));
+
+        limiter.release(limiter.acquire("u1"), Outcome.DROPPED);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void release_whenSaturatedAndFast_growsLimitAdditively() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 10, Duration.ofSeconds(1));
+
+        for (int round = 0; round < 3; round++) {
+            Permit first = limiter.acquire("u1");
+            Permit second = limiter.acquire("u1");
+            elapse(100);
+            limiter.release(first, Outcome.SUCCESS);
+            limiter.release(second, Outcome.SUCCESS);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void release_whenLatencyFarAboveBaseline_backsOff() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 10, Duration.ofSeconds(1));
+        Permit warmup = limiter.acquire("u1");
+        elapse(100);
+        limiter.release(warmup, Outcome.SUCCESS);
+
+        Permit slow = limiter.acquire("u1");
+        elapse(500);
+        limiter.release(slow, Outcome.SUCCESS);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void release_whenFailureUnrelatedToCapacity_keepsLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 10, Duration.ofSeconds(1));
+
+        limiter.release(limiter.acquire("u1"), Outcome.IGNORED);
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void tryAcquire_whenLimitReached_returnsNullWithoutQueueing() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 10, Duration.ofSeconds(1));
+        Permit first = limiter.tryAcquire();
+
+        assertThat(first).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+        assertThat(limiter.getQueueDepth()).isZero();
+
+        limiter.release(first, Outcome.IGNORED);
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    void acquire_whenQueueFull_rejects() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 0, Duration.ofSeconds(1));
+        limiter.acquire("u1");
+
+        assertThatThrownBy(() -> limiter.acquire("u2"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("busy");
+    }
+
+    @Test
+    void acquire_whenNoPermitBeforeDeadline_rejectsAndLeavesQueue() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10, Duration.ofMillis(50), 0.5, 2.0);
+        limiter.acquire("u1");
+
+        assertThatThrownBy(() -> limiter.acquire("u2")).isInstanceOf(BusinessException.class);
+        assertThat(limiter.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void grant_alternatesBetweenCallers() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10, Duration.ofSeconds(10), 0.5, 2.0);
+        Permit running = limiter.acquire("busy");
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<Void>> calls = new ArrayList<>();
+            for (String caller : List.of("busy", "busy", "busy", "light")) {
+                calls.add(CompletableFuture.runAsync(() -> {
+                    Permit permit = limiter.acquire(caller);
+                    order.add(caller);
+                    limiter.release(permit, Outcome.IGNORED);
+                }, callers));
+                int expectedDepth = calls.size();
+                await().atMost(Duration.ofSeconds(5)).until(() -> limiter.getQueueDepth() == expectedDepth);
+            }
+
+            limiter.release(running, Outcome.IGNORED);
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+            assertThat(order).containsExactly("busy", "light", "busy", "busy");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.demo.api.client.support;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the JSON itinerary schema with the compact one on a corpus of recorded completions: output tokens,
+ * parse time and end-to-end latency. Latency is modeled as output tokens times the per-token decode time
+ * ({@code -Dbenchmark.ms-per-token}, default 12ms for gpt-4o-mini) plus parse time, since output tokens
+ * dominate it and there is no live provider in tests.
+ * <p>
+ * Run with {@code mvn test -Dtest=CompactItineraryFormatBenchmark -Dbenchmark=true}. The corpus defaults to
+ * {@code src/test/resources/llm-corpus}; {@code -Dbenchmark.corpus=<dir>} points it at a directory of
+ * itinerary completions, e.g. decompressed llm_completion rows.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CompactItineraryFormatBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    void compactFormat_versusJson_onRecordedCorpus() throws Exception {
+        double msPerToken = Double.parseDouble(System.getProperty("benchmark.ms-per-token", "12"));
+        List<Path> corpus = corpus();
+        assertThat(corpus).isNotEmpty();
+
+        long jsonTokens = 0;
+        long compactTokens = 0;
+        double jsonParseMs = 0;
+        double compactParseMs = 0;
+        System.out.printf("%-28s %8s %8s %10s %10s %10s %10s%n",
+                "completion", "json tok", "cmp tok", "json ms", "cmp ms", "json e2e", "cmp e2e");
+        for (Path file : corpus) {
+            String json = Files.readString(file, StandardCharsets.UTF_8);
+            ItineraryDTO itinerary = new LenientOutputConverter<>(ItineraryDTO.class, objectMapper).convert(json);
+            LocalDate start = itinerary.getDailySummaries().stream()
+                    .map(ItineraryDTO.DailySummaryDTO::getDate)
+                    .min(Comparator.naturalOrder())
+                    .orElseThrow();
+            String currency = itinerary.getActivities().stream()
+                    .map(CompactItineraryFormatBenchmark::currency)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElse("AUD");
+            String compact = encode(itinerary, start, currency);
+            CompactItineraryParser parser = new CompactItineraryParser(start, currency);
+
+            JsonNode actual = objectMapper.valueToTree(parser.convert(compact));
+            JsonNode expected = objectMapper.valueToTree(itinerary);
+            assertThat(actual).as("compact round trip of %s", file.getFileName()).isEqualTo(expected);
+
+            int fileJsonTokens = PromptTokenEstimator.estimate(json);
+            int fileCompactTokens = PromptTokenEstimator.estimate(compact);
+            double fileJsonMs = time(() -> new LenientOutputConverter<>(ItineraryDTO.class, objectMapper).convert(json));
+            double fileCompactMs = time(() -> parser.convert(compact));
+            System.out.printf("%-28s %8d %8d %10.4f %10.4f %10.0f %10.0f%n", file.getFileName(),
+                    fileJsonTokens, fileCompactTokens, fileJsonMs, fileCompactMs,
+                    fileJsonTokens * msPerToken + fileJsonMs, fileCompactTokens * msPerToken + fileCompactMs);
+
+            jsonTokens += fileJsonTokens;
+            compactTokens += fileCompactTokens;
+            jsonParseMs += fileJsonMs;
+            compactParseMs += fileCompactMs;
+        }
+        System.out.printf("total: %d -> %d output tokens (%.0f%% fewer), parse %.4fms -> %.4fms, "
+                        + "modeled latency %.0fms -> %.0fms%n",
+                jsonTokens, compactTokens, 100.0 * (jsonTokens - compactTokens) / jsonTokens,
+                jsonParseMs, compactParseMs,
+                jsonTokens * msPerToken + jsonParseMs, compactTokens * msPerToken + compactParseMs);
+
+        assertThat(compactTokens).isLessThan(jsonTokens);
+    }
+
+    private List<Path> corpus() throws IOException, URISyntaxException {
+        String dir = System.getProperty("benchmark.corpus");
+        Path root = dir != null
+                ? Path.of(dir)
+                : Path.of(Objects.requireNonNull(getClass().getResource("/llm-corpus")).toURI());
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(file -> file.toString().endsWith(".json")).sorted().toList();
+        }
+    }
+
+    /**
+     * @return mean milliseconds per call after warm-up
+     */
+    private static double time(Runnable parse) {
+        for (int i = 0; i < WARMUP; i++) {
+            parse.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    /**
+     * Writes an itinerary in the compact format the model would have produced for it.
+     */
+    static String encode(ItineraryDTO itinerary, LocalDate start, String currency) throws IOException {
+        ObjectMapper plain = new ObjectMapper();
+        List<List<Object>> days = new ArrayList<>();
+        for (ItineraryDTO.DailySummaryDTO day : itinerary.getDailySummaries()) {
+            days.add(List.of(offset(start, day.getDate()), nullToEmpty(day.getSummary()),
+                    nullToEmpty(day.getImageDescription())));
+        }
+        List<List<Object>> activities = new ArrayList<>();
+        for (ItineraryDTO.ActivityDTO activity : itinerary.getActivities()) {
+            List<Object> row = new ArrayList<>();
+            row.add(offset(start, activity.getDate()));
+            row.add(activity instanceof ItineraryDTO.TransportationDTO ? "T"
+                    : activity instanceof ItineraryDTO.HotelDTO ? "H" : "A");
+            row.add(activity.getTime());
+            row.add(activity.getTitle());
+            row.add(Boolean.TRUE.equals(activity.getReservationRequired()) ? 1 : 0);
+            if (activity instanceof ItineraryDTO.TransportationDTO leg) {
+                row.addAll(Arrays.asList(leg.getFrom(), leg.getTo(), leg.getProvider(),
+                        leg.getTicketType(), leg.getPrice(), leg.getCurrency()));
+            } else if (activity instanceof ItineraryDTO.HotelDTO hotel) {
+                row.addAll(Arrays.asList(hotel.getHotelName(), hotel.getRoomType(), hotel.getPeople(),
+                        hotel.getNights(), hotel.getPrice(), hotel.getCurrency()));
+            } else if (activity instanceof ItineraryDTO.AttractionDTO attraction) {
+                row.addAll(Arrays.asList(attraction.getLocation(), attraction.getTicketPrice(),
+                        attraction.getPeople(), attraction.getCurrency()));
+            }
+            if (currency.equals(row.get(row.size() - 1))) {
+                row.remove(row.size() - 1);
+            }
+            activities.add(row);
+        }
+        return "{\"d\":" + plain.writeValueAsString(days) + ",\"a\":" + plain.writeValueAsString(activities) + "}";
+    }
+
+    private static String currency(ItineraryDTO.ActivityDTO activity) {
+        if (activity instanceof ItineraryDTO.TransportationDTO leg) {
+            return leg.getCurrency();
+        }
+        if (activity instanceof ItineraryDTO.HotelDTO hotel) {
+            return hotel.getCurrency();
+        }
+        return activity instanceof ItineraryDTO.AttractionDTO attraction ? attraction.getCurrency() : null;
+    }
+
+    private static long offset(LocalDate start, LocalDate date) {
+        return ChronoUnit.DAYS.between(start, date);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
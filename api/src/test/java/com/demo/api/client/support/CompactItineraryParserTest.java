@@ -0,0 +1,99 @@
+package com.demo.api.client.support;
+
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.ItineraryWithInsightsDTO;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CompactItineraryParserTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+    private final CompactItineraryParser parser = new CompactItineraryParser(START, "EUR");
+
+    @Test
+    void convert_expandsRowsIntoTypedActivities() {
+        ItineraryDTO result = parser.convert("""
+                {"d":[[0,"Arrive in Rome","Sunset over the Tiber"],[1,"Ancient Rome","Colosseum at dawn"]],
+                 "a":[[0,"T","08:00","Fly to Rome",1,"Sydney","Rome","Qantas","Economy",1450,"AUD"],
+                      [0,"H","15:00","Check in",1,"Hotel Roma","Double",2,2,320],
+                      [1,"A","09:30","Colosseum",1,"Piazza del Colosseo",18.5,2]]}""");
+
+        assertThat(result.getDailySummaries()).extracting(ItineraryDTO.DailySummaryDTO::getDate)
+                .containsExactly(START, START.plusDays(1));
+        assertThat(result.getDailySummaries().get(1).getImageDescription()).isEqualTo("Colosseum at dawn");
+        assertThat(result.getActivities()).hasExactlyElementsOfTypes(ItineraryDTO.TransportationDTO.class,
+                ItineraryDTO.HotelDTO.class, ItineraryDTO.AttractionDTO.class);
+        assertThat(result.getActivities()).extracting(ItineraryDTO.ActivityDTO::getType)
+                .containsExactly("transportation", "hotel", "attraction");
+        assertThat(result.getActivities()).extracting(ItineraryDTO.ActivityDTO::getStatus).containsOnly("pending");
+        assertThat(result.getActivities().get(0)).isInstanceOfSatisfying(ItineraryDTO.TransportationDTO.class, leg -> {
+            assertThat(leg.getFrom()).isEqualTo("Sydney");
+            assertThat(leg.getPrice()).isEqualTo(1450);
+            assertThat(leg.getCurrency()).isEqualTo("AUD");
+        });
+        assertThat(result.getActivities().get(1)).isInstanceOfSatisfying(ItineraryDTO.HotelDTO.class, hotel -> {
+            assertThat(hotel.getNights()).isEqualTo(2);
+            assertThat(hotel.getCurrency()).isEqualTo("EUR");
+        });
+        assertThat(result.getActivities().get(2)).isInstanceOfSatisfying(ItineraryDTO.AttractionDTO.class, sight -> {
+            assertThat(sight.getDate()).isEqualTo(START.plusDays(1));
+            assertThat(sight.getTicketPrice()).isEqualTo(19);
+            assertThat(sight.getReservationRequired()).isTrue();
+        });
+    }
+
+    @Test
+    void convert_whenFencedWithTrailingCommasAndEscapes_parses() {
+        ItineraryDTO result = parser.convert("""
+                ```json
+                {"v":{"x":[1,2]},"d":[[0,"Caf\\u00e9 \\"crawl\\"",""],],"a":[[0,"X","20:00","Dinner",0,],],}
+                ```""");
+
+        assertThat(result.getDailySummaries().get(0).getSummary()).isEqualTo("Café \"crawl\"");
+        assertThat(result.getActivities()).singleElement().isInstanceOfSatisfying(ItineraryDTO.AttractionDTO.class,
+                dinner -> {
+                    assertThat(dinner.getReservationRequired()).isFalse();
+                    assertThat(dinner.getCurrency()).isEqualTo("EUR");
+                });
+    }
+
+    @Test
+    void convert_whenInsightRowsPresent_returnsItineraryWithInsights() {
+        ItineraryDTO plain = parser.convert("{\"d\":[[0,\"Arrive\",\"Rome\"]],\"a\":[]}");
+        ItineraryDTO result = parser.convert("""
+                {"d":[[0,"Arrive","Rome"]],"a":[],
+                 "i":[["Aperitivo hour","Bars serve snacks with drinks at dusk.","food","🍹"],["Quiet churches","Cover shoulders.","etiquette"]]}""");
+
+        assertThat(plain).isNotInstanceOf(ItineraryWithInsightsDTO.class);
+        assertThat(result).isInstanceOfSatisfying(ItineraryWithInsightsDTO.class, combined -> {
+            assertThat(combined.getDailySummaries()).hasSize(1);
+            assertThat(combined.getInsights()).extracting(InsightResponseDTO.InsightItem::getId).containsExactly("1", "2");
+            assertThat(combined.getInsights().get(0).getIcon()).isEqualTo("🍹");
+            assertThat(combined.getInsights().get(1).getTheme()).isEqualTo("etiquette");
+            assertThat(combined.getInsights().get(1).getIcon()).isNull();
+        });
+    }
+
+    @Test
+    void convert_whenTruncated_throwsStructuredOutputException() {
+        assertThatThrownBy(() -> parser.convert("{\"d\":[[0,\"Arrive\""))
+                .isInstanceOf(StructuredOutputException.class)
+                .hasMessageContaining("offset");
+    }
+
+    @Test
+    void convert_whenDayOffsetMissing_throwsStructuredOutputException() {
+        assertThatThrownBy(() -> parser.convert("{\"d\":[[\"Arrive\"]],\"a\":[]}"))
+                .isInstanceOf(StructuredOutputException.class)
+                .hasMessageContaining("day offset");
+    }
+}
@@ -0,0 +1,97 @@
+package com.demo.api.client.support;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ItineraryStreamParserTest {
+
+    private static final String DOCUMENT = """
+            ```json
+            {
+              "daily_summaries": [
+                {"date":"2025-06-01","summary":"Arrival","image_description":"harbour sunset"},
+                {"date":"2025-06-02","summary":"Café day","image_description":"coffee"}
+              ],
+              "activities": [
+                {"date":"2025-06-01","type":"transportation","time":"09:00","title":"Flight","from":"SYD","to":"MEL","price":320},
+                {"date":"2025-06-01","type":"hotel","time":"15:00","title":"Check in","hotel_name":"Harbour Hotel","nights":2},
+                {"date":"2025-06-02","type":"attraction","time":"10:00","title":"Gallery","location":"Southbank","extra":{"nested":[1,2]}}
+              ]
+            }
+            ```
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    void feed_emitsEachElementAsSoonAsItCloses() {
+        List<String> events = new ArrayList<>();
+        ItineraryStreamParser parser = new ItineraryStreamParser(objectMapper,
+                summary -> events.add("day:" + summary.getDate()),
+                activity -> events.add("activity:" + activity.getType()));
+
+        int firstSummaryEnd = DOCUMENT.indexOf("harbour sunset\"}") + "harbour sunset\"}".length();
+        parser.feed(DOCUMENT.substring(0, firstSummaryEnd - 1));
+        assertThat(events).isEmpty();
+
+        parser.feed(DOCUMENT.substring(firstSummaryEnd - 1, firstSummaryEnd));
+        assertThat(events).containsExactly("day:2025-06-01");
+
+        parser.feed(DOCUMENT.substring(firstSummaryEnd));
+        assertThat(events).containsExactly("day:2025-06-01", "day:2025-06-02",
+                "activity:transportation", "activity:hotel", "activity:attraction");
+    }
+
+    @Test
+    void finish_returnsCompleteItineraryWithTypedActivities() {
+        ItineraryStreamParser parser = new ItineraryStreamParser(objectMapper, summary -> { }, activity -> { });
+        // feed in small slices to split tokens and multi-byte characters
+        for (int i = 0; i < DOCUMENT.length(); i += 7) {
+            parser.feed(DOCUMENT.substring(i, Math.min(DOCUMENT.length(), i + 7)));
+        }
+
+        ItineraryDTO itinerary = parser.finish();
+
+        assertThat(itinerary.getDailySummaries()).extracting(ItineraryDTO.DailySummaryDTO::getSummary)
+                .containsExactly("Arrival", "Café day");
+        assertThat(itinerary.getActivities()).hasSize(3);
+        assertThat(itinerary.getActivities().get(0)).isInstanceOfSatisfying(ItineraryDTO.TransportationDTO.class,
+                transport -> assertThat(transport.getFrom()).isEqualTo("SYD"));
+        assertThat(itinerary.getActivities().get(1)).isInstanceOfSatisfying(ItineraryDTO.HotelDTO.class,
+                hotel -> assertThat(hotel.getHotelName()).isEqualTo("Harbour Hotel"));
+        assertThat(itinerary.getActivities().get(2).getDate()).isEqualTo(LocalDate.parse("2025-06-02"));
+    }
+
+    @Test
+    void finish_whenDocumentTruncated_throwsIllegalState() {
+        ItineraryStreamParser parser = new ItineraryStreamParser(objectMapper, summary -> { }, activity -> { });
+        parser.feed(DOCUMENT.substring(0, DOCUMENT.indexOf("\"activities\"")));
+
+        assertThatThrownBy(parser::finish)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("before the itinerary JSON was complete");
+    }
+
+    @Test
+    void feed_whenElementInvalid_throwsIllegalState() {
+        ItineraryStreamParser parser = new ItineraryStreamParser(objectMapper, summary -> { }, activity -> { });
+
+        assertThatThrownBy(() -> parser.feed("{\"daily_summaries\":[{\"date\":\"not-a-date\"}]}"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("daily_summaries");
+    }
+}
@@ -0,0 +1,74 @@
+package com.demo.api.client.support;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LenientOutputConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private LenientOutputConverter<ItineraryDTO> converter() {
+        return new LenientOutputConverter<>(ItineraryDTO.class, objectMapper);
+    }
+
+    @Test
+    void convert_whenClean_appliesNoRepair() {
+        LenientOutputConverter<ItineraryDTO> converter = converter();
+
+        ItineraryDTO result = converter.convert("""
+                {"daily_summaries":[{"date":"2025-03-01","summary":"Arrive"}],"activities":[]}""");
+
+        assertThat(result.getDailySummaries()).hasSize(1);
+        assertThat(converter.getRepairs()).isEmpty();
+        assertThat(converter.isStrictParseFailed()).isFalse();
+    }
+
+    @Test
+    void convert_whenFencedWithTrailingCommas_repairsSyntax() {
+        LenientOutputConverter<ItineraryDTO> converter = converter();
+
+        ItineraryDTO result = converter.convert("""
+                ```json
+                {"daily_summaries":[{"date":"2025-03-01","summary":"Arrive",},],"activities":[],}
+                ```""");
+
+        assertThat(result.getDailySummaries()).extracting(ItineraryDTO.DailySummaryDTO::getSummary).containsExactly("Arrive");
+        assertThat(converter.getRepairs()).containsExactly("markdown fence", "lenient JSON syntax");
+        assertThat(converter.isStrictParseFailed()).isTrue();
+    }
+
+    @Test
+    void convert_whenActivityTypeUnknown_mapsBySynonymOrFields() {
+        LenientOutputConverter<ItineraryDTO> converter = converter();
+
+        ItineraryDTO result = converter.convert("""
+                {"daily_summaries":[],"activities":[
+                  {"type":"Flight","date":"2025-03-01","from":"Sydney","to":"Rome"},
+                  {"type":"stay","date":"2025-03-01","hotel_name":"Hotel Roma"},
+                  {"type":"restaurant","date":"2025-03-01","title":"Trattoria"}
+                ]}""");
+
+        assertThat(result.getActivities()).hasExactlyElementsOfTypes(ItineraryDTO.TransportationDTO.class,
+                ItineraryDTO.HotelDTO.class, ItineraryDTO.AttractionDTO.class);
+        assertThat(result.getActivities()).extracting(ItineraryDTO.ActivityDTO::getType)
+                .containsExactly("transportation", "hotel", "attraction");
+        assertThat(converter.getRepairs()).hasSize(3);
+    }
+
+    @Test
+    void convert_whenTruncated_throwsStructuredOutputException() {
+        assertThatThrownBy(() -> converter().convert("{\"daily_summaries\":[{\"date\":\"2025-03-01\""))
+                .isInstanceOf(StructuredOutputException.class)
+                .hasMessageContaining("ItineraryDTO");
+    }
+}
@@ -0,0 +1,126 @@
+package com.demo.api.client.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LlmHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LlmHedger warmedUp() {
+        return warmedUp(null);
+    }
+
+    private LlmHedger warmedUp(AdaptiveConcurrencyLimiter limiter) {
+        LlmHedger hedger = new LlmHedger(0.5, Duration.ofMillis(50), 1, 10, 1, 2, "backup-model", meterRegistry,
+                limiter);
+        hedger.call("kind", () -> "warm-up", () -> "unused");
+        return hedger;
+    }
+
+    private static String slow(long millis, RuntimeException failure) throws InterruptedException {
+        Thread.sleep(millis);
+        throw failure;
+    }
+
+    @Test
+    void call_whenTooFewSamples_runsPrimaryOnCallingThreadWithoutHedging() {
+        LlmHedger hedger = new LlmHedger(0.5, Duration.ZERO, 5, 10, 1, 2, null, meterRegistry, null);
+        AtomicReference<Thread> runner = new AtomicReference<>();
+
+        String result = hedger.call("kind", () -> {
+            runner.set(Thread.currentThread());
+            Thread.sleep(100);
+            return "primary";
+        }, () -> "backup");
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(runner.get()).isSameAs(Thread.currentThread());
+        assertThat(meterRegistry.getMeters()).isEmpty();
+        assertThat(hedger.getBackupModel()).isNull();
+    }
+
+    @Test
+    void call_whenPrimaryFailsAfterHedging_returnsBackupResult() {
+        LlmHedger hedger = warmedUp();
+
+        String result = hedger.call("kind", () -> slow(300, new IllegalStateException("primary")), () -> "backup");
+
+        assertThat(result).isEqualTo("backup");
+        assertThat(hedger.getBackupModel()).isEqualTo("backup-model");
+        assertThat(meterRegistry.counter(LlmHedger.HEDGE_METRIC, "outcome", "backup-won").count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_whenBothCallsFail_throwsPrimaryFailure() {
+        LlmHedger hedger = warmedUp();
+
+        assertThatThrownBy(() -> hedger.call("kind", () -> slow(200, new IllegalStateException("primary")),
+                () -> {
+                    throw new IllegalArgumentException("backup");
+                }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("primary");
+    }
+
+    @Test
+    void call_keepsLatencyWindowPerKind() {
+        LlmHedger hedger = warmedUp();
+
+        String result = hedger.call("other kind", () -> {
+            Thread.sleep(100);
+            return "primary";
+        }, () -> "backup");
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(meterRegistry.find(LlmHedger.HEDGE_METRIC).counters()).isEmpty();
+    }
+
+    @Test
+    void call_whenNoPermitIsFree_waitsForPrimaryWithoutHedging() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10, Duration.ofSeconds(1), 0.5, 2.0);
+        LlmHedger hedger = warmedUp(limiter);
+        AdaptiveConcurrencyLimiter.Permit primaryPermit = limiter.acquire("user");
+        AtomicInteger backups = new AtomicInteger();
+
+        String result = hedger.call("kind", () -> {
+            Thread.sleep(200);
+            return "primary";
+        }, () -> {
+            backups.incrementAndGet();
+            return "backup";
+        });
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(backups).hasValue(0);
+        assertThat(meterRegistry.counter(LlmHedger.HEDGE_METRIC, "outcome", "no-permit").count()).isEqualTo(1);
+        limiter.release(primaryPermit, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void call_whenHedged_backupHoldsPermitUntilRaceEnds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2, 10, Duration.ofSeconds(1), 0.5, 2.0);
+        LlmHedger hedger = warmedUp(limiter);
+        AtomicInteger inFlightDuringBackup = new AtomicInteger();
+
+        String result = hedger.call("kind", () -> slow(300, new IllegalStateException("primary")), () -> {
+            inFlightDuringBackup.set(limiter.getInFlight());
+            return "backup";
+        });
+
+        assertThat(result).isEqualTo("backup");
+        assertThat(inFlightDuringBackup).hasValue(1);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
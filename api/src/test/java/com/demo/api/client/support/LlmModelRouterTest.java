@@ -0,0 +1,68 @@
+package com.demo.api.client.support;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LlmModelRouterTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+    private final LlmModelRouter router = router(true);
+
+    private static LlmModelRouter router(boolean escalate) {
+        return new LlmModelRouter("mini", 1000, "standard", 4000, "large", 8000, 3, 200, 8, 800, escalate);
+    }
+
+    private static LlmCallContext.Workload days(int days, String preferences) {
+        return LlmCallContext.Workload.of(START, START.plusDays(days - 1), preferences);
+    }
+
+    @Test
+    void route_whenNoWorkload_takesLightRoute() {
+        LlmModelRouter.Route route = router.route(null, 0);
+
+        assertThat(route.tier()).isEqualTo(LlmModelRouter.Tier.LIGHT);
+        assertThat(route.model()).isEqualTo("mini");
+        assertThat(route.maxTokens()).isEqualTo(1000);
+        assertThat(route.escalated()).isFalse();
+    }
+
+    @Test
+    void route_picksTierByDaysAndPreferenceLength() {
+        assertThat(router.route(days(2, "museums"), 0).tier()).isEqualTo(LlmModelRouter.Tier.LIGHT);
+        assertThat(router.route(days(2, "x".repeat(300)), 0).tier()).isEqualTo(LlmModelRouter.Tier.STANDARD);
+        assertThat(router.route(days(5, null), 0).tier()).isEqualTo(LlmModelRouter.Tier.STANDARD);
+        assertThat(router.route(days(8, null), 0).tier()).isEqualTo(LlmModelRouter.Tier.HEAVY);
+        assertThat(router.route(days(2, "x".repeat(800)), 0).tier()).isEqualTo(LlmModelRouter.Tier.HEAVY);
+        assertThat(router.route(LlmCallContext.Workload.of(null, null, null), 0).tier())
+                .isEqualTo(LlmModelRouter.Tier.STANDARD);
+    }
+
+    @Test
+    void route_whenRepeated_escalatesOneTierPerRepeatUpToHeavy() {
+        LlmCallContext.Workload workload = days(2, null).escalated();
+
+        LlmModelRouter.Route once = router.route(workload, 0);
+        LlmModelRouter.Route thrice = router.route(workload, 2);
+
+        assertThat(once.tier()).isEqualTo(LlmModelRouter.Tier.STANDARD);
+        assertThat(once.base()).isEqualTo(LlmModelRouter.Tier.LIGHT);
+        assertThat(once.escalated()).isTrue();
+        assertThat(thrice.tier()).isEqualTo(LlmModelRouter.Tier.HEAVY);
+        assertThat(thrice.model()).isEqualTo("large");
+    }
+
+    @Test
+    void route_whenEscalationDisabled_keepsBaseTier() {
+        LlmModelRouter.Route route = router(false).route(days(2, null).escalated(), 1);
+
+        assertThat(route.tier()).isEqualTo(LlmModelRouter.Tier.LIGHT);
+        assertThat(route.escalated()).isFalse();
+    }
+}
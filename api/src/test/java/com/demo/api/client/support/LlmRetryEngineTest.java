@@ -0,0 +1,135 @@
+package com.demo.api.client.support;
+
+import com.demo.api.exception.BusinessException;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LlmRetryEngineTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private LlmRetryEngine engine(CircuitBreaker circuitBreaker, double random) {
+        return new LlmRetryEngine(5, 2, Duration.ofMillis(100), Duration.ofMillis(1000), Duration.ofSeconds(10),
+                circuitBreaker, Runnable::run, () -> random);
+    }
+
+    @Test
+    void classify_readsStatusFromSpringAiMessages() {
+        assertThat(LlmFailure.classify(new NonTransientAiException("HTTP 429 - Please try again in 1.5s")))
+                .isEqualTo(new LlmFailure(LlmFailure.Kind.RATE_LIMITED, Duration.ofMillis(1500)));
+        assertThat(LlmFailure.classify(new TransientAiException("503 - overloaded")).kind())
+                .isEqualTo(LlmFailure.Kind.SERVER);
+        assertThat(LlmFailure.classify(new NonTransientAiException("HTTP 401 - bad key")).kind())
+                .isEqualTo(LlmFailure.Kind.CLIENT);
+        assertThat(LlmFailure.classify(new ResourceAccessException("I/O error", new SocketTimeoutException())).kind())
+                .isEqualTo(LlmFailure.Kind.TRANSPORT);
+        assertThat(LlmFailure.classify(new IllegalStateException("wrapped", new StructuredOutputException("bad"))).kind())
+                .isEqualTo(LlmFailure.Kind.SCHEMA);
+    }
+
+    @Test
+    void classify_honorsRetryAfterHeader() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "7");
+
+        LlmFailure failure = LlmFailure.classify(
+                HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null));
+
+        assertThat(failure).isEqualTo(new LlmFailure(LlmFailure.Kind.RATE_LIMITED, Duration.ofSeconds(7)));
+    }
+
+    @Test
+    void nextDelay_growsExponentiallyWithJitterUpToCap() {
+        LlmRetryEngine engine = engine(new CircuitBreaker(5, Duration.ofSeconds(1)), 0.5);
+        LlmFailure server = new LlmFailure(LlmFailure.Kind.SERVER, null);
+
+        assertThat(engine.nextDelay(server, 1)).isEqualTo(Duration.ofMillis(50));
+        assertThat(engine.nextDelay(server, 2)).isEqualTo(Duration.ofMillis(100));
+        assertThat(engine.nextDelay(server, 4)).isEqualTo(Duration.ofMillis(400));
+        assertThat(engine(new CircuitBreaker(5, Duration.ofSeconds(1)), 0.99).nextDelay(server, 4))
+                .isEqualTo(Duration.ofMillis(792));
+        assertThat(engine.nextDelay(server, 5)).isNull();
+    }
+
+    @Test
+    void nextDelay_prefersRetryAfterAndGivesUpWhenTooLong() {
+        LlmRetryEngine engine = engine(new CircuitBreaker(5, Duration.ofSeconds(1)), 0.5);
+
+        assertThat(engine.nextDelay(new LlmFailure(LlmFailure.Kind.RATE_LIMITED, Duration.ofSeconds(3)), 1))
+                .isEqualTo(Duration.ofSeconds(3));
+        assertThat(engine.nextDelay(new LlmFailure(LlmFailure.Kind.RATE_LIMITED, Duration.ofSeconds(60)), 1)).isNull();
+    }
+
+    @Test
+    void nextDelay_retriesSchemaImmediatelyAndClientErrorsNever() {
+        LlmRetryEngine engine = engine(new CircuitBreaker(5, Duration.ofSeconds(1)), 0.5);
+        LlmFailure schema = new LlmFailure(LlmFailure.Kind.SCHEMA, null);
+
+        assertThat(engine.nextDelay(schema, 1)).isZero();
+        assertThat(engine.nextDelay(schema, 2)).isNull();
+        assertThat(engine.nextDelay(new LlmFailure(LlmFailure.Kind.CLIENT, null), 1)).isNull();
+    }
+
+    @Test
+    void execute_schedulesRetryOnTimerInsteadOfBlockingCaller() throws Exception {
+        LlmRetryEngine engine = new LlmRetryEngine(2, 1, Duration.ofMillis(200), Duration.ofMillis(200),
+                Duration.ofSeconds(1), new CircuitBreaker(5, Duration.ofSeconds(1)));
+        AtomicInteger calls = new AtomicInteger();
+
+        long started = System.nanoTime();
+        CompletableFuture<String> result = engine.execute(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new NonTransientAiException("HTTP 429 - Please try again in 200ms");
+            }
+            return "ok";
+        });
+        long returnedAfterMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(returnedAfterMs).isLessThan(200);
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void circuit_opensAfterThresholdAndProbesAfterOpenDuration() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofSeconds(30), nanos::get);
+        LlmRetryEngine engine = new LlmRetryEngine(1, 1, Duration.ZERO, Duration.ZERO, Duration.ZERO,
+                circuitBreaker, Runnable::run, () -> 0);
+        AtomicInteger calls = new AtomicInteger();
+        TransientAiException outage = new TransientAiException("HTTP 503 - down");
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(engine.execute(() -> {
+                calls.incrementAndGet();
+                throw outage;
+            })).isCompletedExceptionally();
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> engine.execute(calls::incrementAndGet).join())
+                .hasCauseInstanceOf(BusinessException.class);
+        assertThat(calls).hasValue(2);
+
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThat(engine.execute(() -> "probe").join()).isEqualTo("probe");
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
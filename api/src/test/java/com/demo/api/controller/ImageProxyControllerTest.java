@@ -0,0 +1,104 @@
+package com.demo.api.controller;
+
+import com.demo.api.service.ImageProxyService;
+import com.demo.api.utils.UnsplashImgUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class ImageProxyControllerTest {
+
+    private static final String ETAG = "\"abc\"";
+
+    @Mock
+    private ImageProxyService imageProxyService;
+
+    @TempDir
+    Path dir;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ImageProxyController(imageProxyService)).build();
+        Path file = Files.writeString(dir.resolve("image.jpg"), "0123456789");
+        lenient().when(imageProxyService.get("photo-1", "w=500&h=500"))
+                .thenReturn(new ImageProxyService.CachedImage(file, 10, ETAG));
+    }
+
+    @DisplayName("GET /ext/unsplash/** serves the cached file with validators")
+    @Test
+    void image_servesCachedFile() throws Exception {
+        mockMvc.perform(get("/ext/unsplash/photo-1?w=500&h=500"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().string("Content-Type", "image/jpeg"))
+                .andExpect(content().bytes("0123456789".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @DisplayName("a matching If-None-Match answers 304 without a body")
+    @Test
+    void image_whenEtagMatches_returnsNotModified() throws Exception {
+        mockMvc.perform(get("/ext/unsplash/photo-1?w=500&h=500").header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @DisplayName("a byte range answers 206 with just those bytes")
+    @Test
+    void image_servesRange() throws Exception {
+        mockMvc.perform(get("/ext/unsplash/photo-1?w=500&h=500").header("Range", "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-4/10"))
+                .andExpect(content().bytes("234".getBytes(StandardCharsets.US_ASCII)));
+
+        mockMvc.perform(get("/ext/unsplash/photo-1?w=500&h=500").header("Range", "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+    }
+
+    @DisplayName("unknown paths answer 404, failed fetches 502 and rate limited misses 503")
+    @Test
+    void image_mapsFailures() throws Exception {
+        when(imageProxyService.get("bad", null)).thenThrow(new IllegalArgumentException("bad"));
+        when(imageProxyService.get("down", null)).thenThrow(new IllegalStateException("down"));
+        when(imageProxyService.get("busy", null)).thenThrow(new UnsplashImgUtils.RateLimitedException("busy"));
+
+        mockMvc.perform(get("/ext/unsplash/bad")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/ext/unsplash/down")).andExpect(status().isBadGateway());
+        mockMvc.perform(get("/ext/unsplash/busy"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "60"));
+    }
+
+    @DisplayName("parseRange handles suffix, open and multiple ranges")
+    @Test
+    void parseRange_variants() {
+        assertThat(ImageProxyController.parseRange("bytes=-3", 10)).containsExactly(7, 9);
+        assertThat(ImageProxyController.parseRange("bytes=5-", 10)).containsExactly(5, 9);
+        assertThat(ImageProxyController.parseRange("bytes=5-100", 10)).containsExactly(5, 9);
+        assertThat(ImageProxyController.parseRange("bytes=0-1,4-5", 10)).isNull();
+        assertThat(ImageProxyController.parseRange("items=0-1", 10)).isNull();
+        assertThat(ImageProxyController.parseRange("bytes=10-", 10)).isSameAs(ImageProxyController.UNSATISFIABLE);
+    }
+}
@@ -3,10 +3,17 @@ package com.demo.api.controller;
 import com.demo.api.dto.ModifyPlanDTO;
 import com.demo.api.dto.TimeLineDTO;
 import com.demo.api.dto.TripDetailDTO;
+import com.demo.api.dto.TripGenerationJobDTO;
 import com.demo.api.dto.TripInsightDTO;
+import com.demo.api.dto.TripInsightsDTO;
 import com.demo.api.dto.TripPreferenceRequestDTO;
+import com.demo.api.enums.TripInsightStatus;
+import com.demo.api.enums.TripJobStatus;
+import com.demo.api.enums.TripJobType;
+import com.demo.api.service.TripGenerationJobService;
 import com.demo.api.service.TripGenerationService;
 import com.demo.api.service.TripInsightService;
+import com.demo.api.service.TripPlanStreamListener;
 import com.demo.api.service.TripService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
@@ -23,24 +30,31 @@ import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
 class TripControllerTest {
 
+    @Mock
+    private TripGenerationJobService tripGenerationJobService;
     @Mock
     private TripGenerationService tripGenerationService;
     @Mock
@@ -54,7 +68,7 @@ class TripControllerTest {
 
     @BeforeEach
     void setUp() {
-        TripController controller = new TripController(tripGenerationService, tripInsightService, tripService);
+        TripController controller = new TripController(tripGenerationJobService, tripGenerationService, tripInsightService, tripService);
         mockMvc = MockMvcBuilders.standaloneSetup(controller)
                 .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
                 .build();
@@ -74,25 +88,65 @@ class TripControllerTest {
     }
 
     @Test
-    void generate_plan_delegates_to_service() throws Exception {
+    void generate_plan_submits_job_and_returns_job_id() throws Exception {
         TripPreferenceRequestDTO dto = new TripPreferenceRequestDTO();
         dto.setFromCity("Sydney");
         dto.setToCity("Tokyo");
+        when(tripGenerationJobService.submitGeneration(dto, "42")).thenReturn(TripGenerationJobDTO.builder()
+                .jobId(5L)
+                .type(TripJobType.GENERATE)
+                .status(TripJobStatus.PENDING)
+                .build());
 
         mockMvc.perform(post("/api/trip/generate-plan")
                         .with(withUser("42"))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(dto)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.code").value(1));
+                .andExpect(jsonPath("$.code").value(1))
+                .andExpect(jsonPath("$.data.jobId").value(5L))
+                .andExpect(jsonPath("$.data.status").value("PENDING"));
 
-        verify(tripGenerationService).generateTripAndReturnJson(dto, "42");
+        verify(tripGenerationJobService).submitGeneration(dto, "42");
     }
 
     @Test
-    void regenerate_plan_delegates_to_service() throws Exception {
+    void generate_plan_stream_sends_job_event_before_worker_events() throws Exception {
+        TripGenerationJobDTO job = TripGenerationJobDTO.builder()
+                .jobId(5L)
+                .type(TripJobType.GENERATE)
+                .status(TripJobStatus.PENDING)
+                .build();
+        // A worker that starts immediately must not get its events in ahead of the queued job
+        when(tripGenerationJobService.submitStreamingGeneration(any(), eq("42"), any())).thenAnswer(invocation -> {
+            TripPlanStreamListener listener = invocation.getArgument(2);
+            listener.onQueued(job);
+            listener.onTripCreated(9L);
+            return job;
+        });
+
+        MvcResult result = mockMvc.perform(post("/api/trip/generate-plan/stream")
+                        .with(withUser("42"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(new TripPreferenceRequestDTO())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).contains("event:job", "event:trip");
+        assertThat(body.indexOf("event:job")).isLessThan(body.indexOf("event:trip"));
+    }
+
+    @Test
+    void regenerate_plan_submits_job() throws Exception {
         ModifyPlanDTO modifyPlanDTO = new ModifyPlanDTO();
         modifyPlanDTO.setSecondPreference("more food");
+        when(tripGenerationJobService.submitRegeneration(12L, modifyPlanDTO, "77")).thenReturn(TripGenerationJobDTO.builder()
+                .jobId(6L)
+                .tripId(12L)
+                .type(TripJobType.REGENERATE)
+                .status(TripJobStatus.PENDING)
+                .build());
 
         mockMvc.perform(post("/api/trip/regenerate-plan")
                         .with(withUser("77"))
@@ -100,9 +154,39 @@ class TripControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsBytes(modifyPlanDTO)))
                 .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(1))
+                .andExpect(jsonPath("$.data.jobId").value(6L));
+
+        verify(tripGenerationJobService).submitRegeneration(12L, modifyPlanDTO, "77");
+    }
+
+    @Test
+    void replay_plan_restores_plan_from_recorded_completions() throws Exception {
+        mockMvc.perform(post("/api/trip/replay-plan")
+                        .with(withUser("77"))
+                        .param("tripId", "12"))
+                .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(1));
 
-        verify(tripGenerationService).regenerateTrip(12L, modifyPlanDTO, "77");
+        verify(tripGenerationService).replayTripPlan(12L, "77");
+    }
+
+    @Test
+    void get_generation_job_returns_status() throws Exception {
+        when(tripGenerationJobService.getJob(6L, "77")).thenReturn(TripGenerationJobDTO.builder()
+                .jobId(6L)
+                .tripId(12L)
+                .status(TripJobStatus.SUCCEEDED)
+                .build());
+
+        mockMvc.perform(get("/api/trip/generation-job")
+                        .with(withUser("77"))
+                        .param("jobId", "6"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.data.tripId").value(12L));
+
+        verify(tripGenerationJobService).getJob(6L, "77");
     }
 
     @Test
@@ -122,15 +206,26 @@ class TripControllerTest {
 
     @Test
     void get_insights_returns_dtos() throws Exception {
-        when(tripInsightService.getOrGenerateInsights(9L))
-                .thenReturn(List.of(new TripInsightDTO("1", "Title", "Content", "theme", "icon")));
+        when(tripInsightService.getInsights(9L)).thenReturn(new TripInsightsDTO(TripInsightStatus.READY,
+                List.of(new TripInsightDTO("1", "Title", "Content", "theme", "icon"))));
 
         mockMvc.perform(get("/api/trip/insights").param("tripId", "9"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(1))
-                .andExpect(jsonPath("$.data[0].title").value("Title"));
+                .andExpect(jsonPath("$.data.status").value("READY"))
+                .andExpect(jsonPath("$.data.insights[0].title").value("Title"));
+
+        verify(tripInsightService).getInsights(9L);
+    }
 
-        verify(tripInsightService).getOrGenerateInsights(9L);
+    @Test
+    void get_insights_when_generating_returns_in_progress() throws Exception {
+        when(tripInsightService.getInsights(9L)).thenReturn(new TripInsightsDTO(TripInsightStatus.IN_PROGRESS, List.of()));
+
+        mockMvc.perform(get("/api/trip/insights").param("tripId", "9"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("IN_PROGRESS"))
+                .andExpect(jsonPath("$.data.insights").isEmpty());
     }
 
     @Test
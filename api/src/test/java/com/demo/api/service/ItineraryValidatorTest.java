@@ -0,0 +1,197 @@
+package com.demo.api.service;
+
+import com.demo.api.client.OpenAiClient;
+import com.demo.api.client.impl.OpenAiClientImpl;
+import com.demo.api.client.support.CompactItineraryParser;
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.ItineraryWithInsightsDTO;
+import com.demo.api.model.Trip;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItineraryValidatorTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+    private static final LocalDate END = START.plusDays(2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ItineraryValidator validator = new ItineraryValidator(meterRegistry, 1);
+    private final Trip trip = Trip.builder().id(1L).fromCity("Sydney").toCity("Rome").startDate(START).endDate(END).build();
+
+    private static ItineraryDTO.ActivityDTO leg(LocalDate date, String from, String to) {
+        return ItineraryDTO.TransportationDTO.builder().type("transportation").date(date).from(from).to(to).title(from + " to " + to).build();
+    }
+
+    private static ItineraryDTO.ActivityDTO attraction(LocalDate date, String title) {
+        return ItineraryDTO.AttractionDTO.builder().type("attraction").date(date).title(title).build();
+    }
+
+    private static ItineraryDTO.DailySummaryDTO summary(LocalDate date) {
+        return ItineraryDTO.DailySummaryDTO.builder().date(date).summary("day " + date).build();
+    }
+
+    private static ItineraryDTO valid() {
+        return ItineraryDTO.builder()
+                .dailySummaries(List.of(summary(START), summary(START.plusDays(1)), summary(END)))
+                .activities(List.of(
+                        leg(START, "Sydney", "Rome"),
+                        attraction(START, "Pantheon"),
+                        attraction(START.plusDays(1), "Colosseum"),
+                        attraction(END, "Trevi Fountain"),
+                        leg(END, "Rome", "Sydney")))
+                .build();
+    }
+
+    @DisplayName("validate accepts an itinerary that already meets the constraints")
+    @Test
+    void validate_whenValid_reportsNothing() {
+        ItineraryValidator.Report report = validator.validate(trip, START, END, valid());
+
+        assertThat(report.valid()).isTrue();
+        assertThat(report.repaired()).isFalse();
+    }
+
+    @DisplayName("validate moves and un-swaps edge legs, fills summaries and caps attractions")
+    @Test
+    void validate_repairsDeterministicDefects() {
+        List<ItineraryDTO.ActivityDTO> activities = new ArrayList<>();
+        activities.add(attraction(START, "Pantheon"));
+        activities.add(leg(START, "Rome", "Sydney"));
+        for (int i = 1; i <= 7; i++) {
+            activities.add(attraction(START.plusDays(1), "Sight " + i));
+        }
+        activities.add(leg(END, "Rome", "Sydney"));
+        activities.add(attraction(END, "Trevi Fountain"));
+        ItineraryDTO itinerary = ItineraryDTO.builder()
+                .dailySummaries(List.of(summary(START), summary(START), summary(END)))
+                .activities(activities)
+                .build();
+
+        ItineraryValidator.Report report = validator.validate(trip, START, END, itinerary);
+
+        assertThat(report.valid()).isTrue();
+        assertThat(report.repairs()).hasSize(6);
+        assertThat(itinerary.getActivities().get(0)).isInstanceOfSatisfying(ItineraryDTO.TransportationDTO.class,
+                departure -> assertThat(departure.getFrom()).isEqualTo("Sydney"));
+        assertThat(itinerary.getActivities().get(itinerary.getActivities().size() - 1))
+                .isInstanceOfSatisfying(ItineraryDTO.TransportationDTO.class,
+                        back -> assertThat(back.getTo()).isEqualTo("Sydney"));
+        assertThat(itinerary.getActivities()).filteredOn(activity -> START.plusDays(1).equals(activity.getDate()))
+                .hasSize(ItineraryValidator.MAX_ATTRACTIONS_PER_DAY);
+        assertThat(itinerary.getDailySummaries()).extracting(ItineraryDTO.DailySummaryDTO::getDate)
+                .containsExactly(START, START.plusDays(1), END);
+        assertThat(itinerary.getDailySummaries().get(1).getSummary()).startsWith("Sight 1");
+    }
+
+    @DisplayName("validate reports empty days and missing legs as defects")
+    @Test
+    void validate_whenDayOrLegMissing_reportsDefects() {
+        ItineraryDTO itinerary = ItineraryDTO.builder()
+                .dailySummaries(List.of(summary(START), summary(START.plusDays(1)), summary(END)))
+                .activities(List.of(attraction(START, "Pantheon"), leg(END, "Rome", "Sydney")))
+                .build();
+
+        ItineraryValidator.Report report = validator.validate(trip, START, END, itinerary);
+
+        assertThat(report.defects()).containsExactly(
+                "no activities on " + START.plusDays(1),
+                "no departure transport on " + START);
+    }
+
+    @DisplayName("generate re-calls the model only for unrepairable defects and counts saved calls")
+    @Test
+    void generate_recallsOnlyWhenRepairIsNotPossible() {
+        OpenAiClient client = mock(OpenAiClient.class);
+        ItineraryDTO broken = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
+        ItineraryDTO swapped = valid();
+        ((ItineraryDTO.TransportationDTO) swapped.getActivities().get(0)).setFrom("Rome");
+        ((ItineraryDTO.TransportationDTO) swapped.getActivities().get(0)).setTo("Sydney");
+        when(client.generate("prompt", ItineraryDTO.class)).thenReturn(broken, swapped);
+
+        ItineraryDTO result = validator.generate(client, "prompt", trip, START, END);
+
+        assertThat(result).isSameAs(swapped);
+        verify(client, times(2)).generate("prompt", ItineraryDTO.class);
+        assertThat(meterRegistry.counter(OpenAiClientImpl.VALIDATION_METRIC, "stage", "itinerary", "result", "unrepairable").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter(OpenAiClientImpl.CALLS_SAVED_METRIC, "stage", "itinerary").count()).isEqualTo(1);
+    }
+
+    @DisplayName("generate parses compact output with the compact parser when the trip has a start date")
+    @Test
+    void generate_whenCompactOutput_usesCompactParser() {
+        ItineraryValidator compact = new ItineraryValidator(meterRegistry, 1, TripPlanPromptBuilder.Output.COMPACT);
+        OpenAiClient client = mock(OpenAiClient.class);
+        when(client.generate(eq("prompt"), eq(ItineraryDTO.class), any(CompactItineraryParser.class))).thenReturn(valid());
+
+        ItineraryDTO result = compact.generate(client, "prompt", trip, START, END);
+
+        assertThat(result.getActivities()).hasSize(5);
+        verify(client).generate(eq("prompt"), eq(ItineraryDTO.class), any(CompactItineraryParser.class));
+    }
+
+    @DisplayName("generate binds the workload of the dates and escalates it on each re-call")
+    @Test
+    void generate_bindsWorkloadAndEscalatesOnRecall() {
+        OpenAiClient client = mock(OpenAiClient.class);
+        ItineraryDTO broken = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
+        List<LlmCallContext.Workload> workloads = new ArrayList<>();
+        when(client.generate("prompt", ItineraryDTO.class)).thenAnswer(invocation -> {
+            workloads.add(LlmCallContext.currentWorkload());
+            return workloads.size() == 1 ? broken : valid();
+        });
+
+        validator.generate(client, "prompt", trip, START, END);
+
+        assertThat(workloads).containsExactly(new LlmCallContext.Workload(3, 0, 0), new LlmCallContext.Workload(3, 0, 1));
+        assertThat(LlmCallContext.currentWorkload()).isNull();
+    }
+
+    @DisplayName("generateWithInsights asks for the combined schema and keeps insights across a re-call")
+    @Test
+    void generateWithInsights_keepsInsightsOfEarlierCompletion() {
+        OpenAiClient client = mock(OpenAiClient.class);
+        InsightResponseDTO.InsightItem insight = new InsightResponseDTO.InsightItem();
+        insight.setTitle("Aperitivo hour");
+        ItineraryWithInsightsDTO broken = new ItineraryWithInsightsDTO(
+                ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build(), List.of(insight));
+        ItineraryWithInsightsDTO recalled = new ItineraryWithInsightsDTO(valid(), null);
+        when(client.generate("prompt", ItineraryWithInsightsDTO.class)).thenReturn(broken, recalled);
+
+        ItineraryDTO result = validator.generateWithInsights(client, "prompt", trip, START, END);
+
+        assertThat(result).isInstanceOfSatisfying(ItineraryWithInsightsDTO.class, combined -> {
+            assertThat(combined.getInsights()).containsExactly(insight);
+            assertThat(combined.getActivities()).hasSize(5);
+        });
+        verify(client, times(2)).generate("prompt", ItineraryWithInsightsDTO.class);
+    }
+
+    @DisplayName("generateWithInsights returns a plain itinerary when the model sent no insights")
+    @Test
+    void generateWithInsights_whenNoInsights_returnsPlainItinerary() {
+        OpenAiClient client = mock(OpenAiClient.class);
+        when(client.generate("prompt", ItineraryWithInsightsDTO.class))
+                .thenReturn(new ItineraryWithInsightsDTO(valid(), List.of()));
+
+        ItineraryDTO result = validator.generateWithInsights(client, "prompt", trip, START, END);
+
+        assertThat(result).isNotInstanceOf(ItineraryWithInsightsDTO.class);
+        assertThat(result.getActivities()).hasSize(5);
+    }
+}
@@ -0,0 +1,119 @@
+package com.demo.api.service;
+
+import com.demo.api.client.OpenAiClient;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.model.Trip;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SegmentedItineraryGeneratorTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+    private final TripPlanPromptBuilder promptBuilder = new TripPlanPromptBuilder();
+    private final ItineraryValidator validator = new ItineraryValidator(new SimpleMeterRegistry(), 0);
+    private final SegmentedItineraryGenerator generator =
+            new SegmentedItineraryGenerator(promptBuilder, validator, Runnable::run, true, 7, 4);
+
+    private static Trip trip(int days) {
+        return Trip.builder()
+                .id(1L)
+                .fromCity("Sydney")
+                .toCity("Rome")
+                .startDate(START)
+                .endDate(START.plusDays(days - 1L))
+                .build();
+    }
+
+    private static ItineraryDTO part(LocalDate from, LocalDate to) {
+        List<LocalDate> dates = from.datesUntil(to.plusDays(1)).toList();
+        return ItineraryDTO.builder()
+                .dailySummaries(dates.stream()
+                        .map(date -> ItineraryDTO.DailySummaryDTO.builder().date(date).summary("day " + date).build())
+                        .toList())
+                .activities(dates.stream()
+                        .map(date -> (ItineraryDTO.ActivityDTO) ItineraryDTO.AttractionDTO.builder()
+                                .type("attraction").date(date).title("visit " + date).build())
+                        .toList())
+                .build();
+    }
+
+    @DisplayName("split spreads days evenly over the fewest segments")
+    @Test
+    void split_spreadsDaysEvenly() {
+        List<SegmentedItineraryGenerator.Segment> segments =
+                SegmentedItineraryGenerator.split(START, START.plusDays(13), 4);
+
+        assertThat(segments).extracting(segment -> segment.end().toEpochDay() - segment.start().toEpochDay() + 1)
+                .containsExactly(4L, 4L, 3L, 3L);
+        assertThat(segments.get(0).start()).isEqualTo(START);
+        assertThat(segments.get(3).end()).isEqualTo(START.plusDays(13));
+    }
+
+    @DisplayName("supports only long trips")
+    @Test
+    void supports_requiresMinimumDuration() {
+        assertThat(generator.supports(trip(6))).isFalse();
+        assertThat(generator.supports(trip(7))).isTrue();
+        assertThat(new SegmentedItineraryGenerator(promptBuilder, validator, Runnable::run, false, 7, 4).supports(trip(14)))
+                .isFalse();
+    }
+
+    @DisplayName("generate calls the model per segment with edge-only routing rules and stitches the parts")
+    @Test
+    void generate_stitchesSegmentsInDateOrder() {
+        Trip trip = trip(8);
+        OpenAiClient client = mock(OpenAiClient.class);
+        when(client.generate(org.mockito.ArgumentMatchers.contains("from 2025-03-01 to 2025-03-04"), eq(ItineraryDTO.class)))
+                .thenReturn(part(START, START.plusDays(4)));
+        when(client.generate(org.mockito.ArgumentMatchers.contains("from 2025-03-05 to 2025-03-08"), eq(ItineraryDTO.class)))
+                .thenReturn(part(START.plusDays(4), START.plusDays(7)));
+
+        ItineraryDTO result = generator.generate(trip, List.of(), client);
+
+        assertThat(result.getDailySummaries()).extracting(ItineraryDTO.DailySummaryDTO::getDate)
+                .containsExactlyElementsOf(START.datesUntil(START.plusDays(8)).toList());
+        // the first part's stray day 5 is dropped in favour of the second segment
+        assertThat(result.getActivities()).hasSize(8);
+    }
+
+    @DisplayName("stitch fails when a day is missing")
+    @Test
+    void stitch_whenDayMissing_throwsIllegalState() {
+        Trip trip = trip(8);
+        List<SegmentedItineraryGenerator.Segment> segments = SegmentedItineraryGenerator.split(START, START.plusDays(7), 4);
+
+        assertThatThrownBy(() -> SegmentedItineraryGenerator.stitch(trip, segments,
+                List.of(part(START, START.plusDays(3)), part(START.plusDays(4), START.plusDays(6)))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("2025-03-08");
+    }
+
+    @DisplayName("buildSegment keeps departure and return rules on the edge segments only")
+    @Test
+    void buildSegment_appliesEdgeRulesOnlyToEdges() {
+        Trip trip = trip(12);
+
+        String first = promptBuilder.buildSegment(trip, List.of(), START, START.plusDays(3));
+        String middle = promptBuilder.buildSegment(trip, List.of(), START.plusDays(4), START.plusDays(7));
+        String last = promptBuilder.buildSegment(trip, List.of(), START.plusDays(8), START.plusDays(11));
+
+        assertThat(first).contains("On day 1, depart from \"Sydney\" to \"Rome\"")
+                .doesNotContain("On the final day")
+                .contains("MUST contain exactly 4 entries");
+        assertThat(middle).doesNotContain("On day 1, depart").doesNotContain("On the final day")
+                .contains("Do NOT add the outbound trip").contains("Do NOT add the return trip");
+        assertThat(last).contains("On the final day, return from \"Rome\" to \"Sydney\"")
+                .doesNotContain("On day 1, depart");
+    }
+}
@@ -0,0 +1,83 @@
+package com.demo.api.service;
+
+import com.demo.api.model.Trip;
+import com.demo.api.repository.TripRepository;
+import com.demo.api.utils.UnsplashImgUtils;
+import com.demo.api.utils.UnsplashRateLimiter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TripCoverImageResolverTest {
+
+    private final TripRepository tripRepository = mock(TripRepository.class);
+    private final UnsplashImgUtils unsplashImgUtils = mock(UnsplashImgUtils.class);
+    private final List<Runnable> queued = new ArrayList<>();
+    private final TripCoverImageResolver resolver = new TripCoverImageResolver(tripRepository, unsplashImgUtils, queued::add);
+
+    private static Trip trip(long id, String toCity) {
+        return Trip.builder().id(id).toCity(toCity).build();
+    }
+
+    @DisplayName("backfill looks each destination up once and stores blanks for destinations without images")
+    @Test
+    void backfill_storesCoversPerDestination() {
+        when(tripRepository.findByCoverImageUrlIsNullOrderByIdDesc(PageRequest.of(0, 50)))
+                .thenReturn(List.of(trip(3L, "Tokyo"), trip(2L, "Atlantis"), trip(1L, "Tokyo")));
+        when(unsplashImgUtils.getFirstImgUrls(List.of("Tokyo", "Atlantis"), 600, 400,
+                UnsplashRateLimiter.Priority.BACKGROUND))
+                .thenReturn(List.of("https://images.unsplash.com/tokyo", ""));
+
+        int stored = resolver.backfill(50);
+
+        assertThat(stored).isEqualTo(3);
+        verify(tripRepository).updateCoverImageUrl(3L, "https://images.unsplash.com/tokyo");
+        verify(tripRepository).updateCoverImageUrl(1L, "https://images.unsplash.com/tokyo");
+        verify(tripRepository).updateCoverImageUrl(2L, "");
+    }
+
+    @DisplayName("schedule looks a new trip up in the background")
+    @Test
+    void schedule_resolvesOnExecutor() {
+        Trip trip = trip(7L, "Rome");
+        when(unsplashImgUtils.getFirstImgUrls(List.of("Rome"), 600, 400,
+                UnsplashRateLimiter.Priority.BACKGROUND)).thenReturn(List.of("https://img/rome"));
+
+        resolver.schedule(trip);
+
+        verifyNoInteractions(unsplashImgUtils);
+        assertThat(queued).hasSize(1);
+        queued.getFirst().run();
+        verify(tripRepository).updateCoverImageUrl(7L, "https://img/rome");
+        assertThat(trip.getCoverImageUrl()).isEqualTo("https://img/rome");
+    }
+
+    @DisplayName("schedule skips trips that already have a cover and leaves rejected ones to the backfill")
+    @Test
+    void schedule_skipsCoveredAndRejected() {
+        Trip covered = trip(8L, "Rome");
+        covered.setCoverImageUrl("");
+        resolver.schedule(covered);
+        assertThat(queued).isEmpty();
+
+        TripCoverImageResolver rejecting = new TripCoverImageResolver(tripRepository, unsplashImgUtils, task -> {
+            throw new TaskRejectedException("full");
+        });
+        rejecting.schedule(trip(9L, "Oslo"));
+
+        verifyNoInteractions(unsplashImgUtils);
+        verify(tripRepository, never()).updateCoverImageUrl(any(), any());
+    }
+}
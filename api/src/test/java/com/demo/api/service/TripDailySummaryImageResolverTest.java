@@ -0,0 +1,75 @@
+package com.demo.api.service;
+
+import com.demo.api.model.TripDailySummary;
+import com.demo.api.repository.TripDailySummaryRepository;
+import com.demo.api.utils.UnsplashImgUtils;
+import com.demo.api.utils.UnsplashRateLimiter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TripDailySummaryImageResolverTest {
+
+    private final TripDailySummaryRepository tripDailySummaryRepository = mock(TripDailySummaryRepository.class);
+    private final UnsplashImgUtils unsplashImgUtils = mock(UnsplashImgUtils.class);
+    private final TripDailySummaryImageResolver resolver =
+            new TripDailySummaryImageResolver(tripDailySummaryRepository, unsplashImgUtils);
+
+    private static TripDailySummary summary(long id, String description) {
+        return TripDailySummary.builder().id(id).tripId(1L).imageDescription(description).build();
+    }
+
+    @DisplayName("backfill takes no more deferred summaries than the background budget allows")
+    @Test
+    void backfill_boundedByBudget() {
+        when(unsplashImgUtils.availableRequests(UnsplashRateLimiter.Priority.BACKGROUND)).thenReturn(2);
+        when(tripDailySummaryRepository.findByImageUrlIsNullOrderByIdAsc(PageRequest.of(0, 2)))
+                .thenReturn(List.of(summary(1L, "harbour"), summary(2L, "harbour")));
+        when(unsplashImgUtils.getFirstImgUrls(List.of("harbour"), 500, 500, UnsplashRateLimiter.Priority.BACKGROUND))
+                .thenReturn(List.of("https://img/harbour"));
+
+        assertThat(resolver.backfill(20)).isEqualTo(2);
+
+        verify(tripDailySummaryRepository).updateImageUrl(1L, "https://img/harbour");
+        verify(tripDailySummaryRepository).updateImageUrl(2L, "https://img/harbour");
+    }
+
+    @DisplayName("lookups still rate limited stay queued, and summaries without a description are closed out")
+    @Test
+    void backfill_keepsRateLimitedQueued() {
+        when(unsplashImgUtils.availableRequests(UnsplashRateLimiter.Priority.BACKGROUND)).thenReturn(100);
+        when(tripDailySummaryRepository.findByImageUrlIsNullOrderByIdAsc(PageRequest.of(0, 20)))
+                .thenReturn(List.of(summary(1L, "harbour"), summary(2L, "storm"), summary(3L, " ")));
+        when(unsplashImgUtils.getFirstImgUrls(List.of("harbour", "storm"), 500, 500,
+                UnsplashRateLimiter.Priority.BACKGROUND)).thenReturn(Arrays.asList("", null));
+
+        assertThat(resolver.backfill(20)).isEqualTo(2);
+
+        verify(tripDailySummaryRepository).updateImageUrl(1L, "");
+        verify(tripDailySummaryRepository).updateImageUrl(3L, "");
+        verify(tripDailySummaryRepository, never()).updateImageUrl(2L, null);
+    }
+
+    @DisplayName("backfill does nothing while the background budget is spent")
+    @Test
+    void backfill_withoutBudget_skips() {
+        when(unsplashImgUtils.availableRequests(UnsplashRateLimiter.Priority.BACKGROUND)).thenReturn(0);
+
+        assertThat(resolver.backfill(20)).isZero();
+
+        verifyNoInteractions(tripDailySummaryRepository);
+        verify(unsplashImgUtils, never()).getFirstImgUrls(any(), anyInt(), anyInt(), any());
+    }
+}
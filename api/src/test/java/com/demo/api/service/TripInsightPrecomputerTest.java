@@ -0,0 +1,159 @@
+package com.demo.api.service;
+
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.model.Trip;
+import com.demo.api.model.TripAttraction;
+import com.demo.api.model.TripInsight;
+import com.demo.api.repository.TripAttractionRepository;
+import com.demo.api.repository.TripInsightRepository;
+import com.demo.api.repository.TripRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TripInsightPrecomputerTest {
+
+    private final TripInsightService tripInsightService = mock(TripInsightService.class);
+    private final TripRepository tripRepository = mock(TripRepository.class);
+    private final TripAttractionRepository tripAttractionRepository = mock(TripAttractionRepository.class);
+    private final TripInsightRepository tripInsightRepository = mock(TripInsightRepository.class);
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private TripInsightPrecomputer precomputer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<TripInsightService> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(tripInsightService);
+        precomputer = new TripInsightPrecomputer(provider, tripRepository, tripAttractionRepository,
+                tripInsightRepository, queued::add, Duration.ofMinutes(5));
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = List.copyOf(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @DisplayName("schedule queues one generation per trip until it finishes")
+    @Test
+    void schedule_deduplicatesPerTrip() {
+        Trip trip = Trip.builder().id(4L).toCity("Kyoto").build();
+        InsightResponseDTO response = new InsightResponseDTO();
+        when(tripRepository.findById(4L)).thenReturn(Optional.of(trip));
+        when(tripAttractionRepository.findByTripId(4L)).thenReturn(List.of(
+                TripAttraction.builder().location("Gion").build(),
+                TripAttraction.builder().location("Gion").build()));
+        when(tripInsightService.generateInsights(trip, List.of("Gion"))).thenReturn(response);
+        when(tripInsightService.storeInsights(4L, response)).thenReturn(List.of(new TripInsight()));
+
+        assertThat(precomputer.schedule(4L)).isTrue();
+        assertThat(precomputer.schedule(4L)).isTrue();
+        assertThat(queued).hasSize(1);
+        assertThat(precomputer.isInProgress(4L)).isTrue();
+
+        runQueued();
+
+        assertThat(precomputer.isInProgress(4L)).isFalse();
+        verify(tripInsightService).storeInsights(4L, response);
+        assertThat(precomputer.schedule(4L)).isTrue();
+        assertThat(queued).hasSize(1);
+    }
+
+    @DisplayName("a trip whose insights are already stored is skipped without an LLM call")
+    @Test
+    void run_whenInsightsStored_skipsGeneration() {
+        when(tripInsightRepository.existsByTripId(5L)).thenReturn(true);
+
+        precomputer.schedule(5L);
+        runQueued();
+
+        verify(tripInsightService, never()).generateInsights(any(), any());
+        assertThat(precomputer.isInProgress(5L)).isFalse();
+    }
+
+    @DisplayName("a failed generation is not scheduled again within the retry-after period")
+    @Test
+    void schedule_afterFailure_waitsForRetryAfter() {
+        when(tripRepository.findById(6L)).thenReturn(Optional.of(Trip.builder().id(6L).build()));
+        when(tripAttractionRepository.findByTripId(6L)).thenReturn(List.of());
+        when(tripInsightService.generateInsights(any(), any())).thenThrow(new IllegalStateException("LLM down"));
+
+        precomputer.schedule(6L);
+        runQueued();
+
+        assertThat(precomputer.schedule(6L)).isFalse();
+        assertThat(queued).isEmpty();
+    }
+
+    @DisplayName("a full worker pool leaves the trip free to be scheduled again")
+    @Test
+    @SuppressWarnings("unchecked")
+    void schedule_whenPoolRejects_returnsFalse() {
+        ObjectProvider<TripInsightService> provider = mock(ObjectProvider.class);
+        TripInsightPrecomputer rejecting = new TripInsightPrecomputer(provider, tripRepository, tripAttractionRepository,
+                tripInsightRepository, task -> {
+                    throw new TaskRejectedException("full");
+                }, Duration.ofMinutes(5));
+
+        assertThat(rejecting.schedule(7L)).isFalse();
+        assertThat(rejecting.isInProgress(7L)).isFalse();
+    }
+
+    @DisplayName("storing a plan reschedules a trip that was polled before it had a plan")
+    @Test
+    void reschedule_afterEmptyRunBeforePlan_submitsAgain() {
+        Trip trip = Trip.builder().id(8L).toCity("Kyoto").build();
+        InsightResponseDTO response = new InsightResponseDTO();
+        when(tripRepository.findById(8L)).thenReturn(Optional.of(trip));
+        when(tripAttractionRepository.findByTripId(8L))
+                .thenReturn(List.of())
+                .thenReturn(List.of(TripAttraction.builder().location("Gion").build()));
+        when(tripInsightService.storeInsights(8L, null)).thenReturn(List.of());
+        precomputer.schedule(8L);
+        runQueued();
+        assertThat(precomputer.schedule(8L)).isFalse();
+        when(tripInsightService.generateInsights(trip, List.of("Gion"))).thenReturn(response);
+        when(tripInsightService.storeInsights(8L, response)).thenReturn(List.of(new TripInsight()));
+
+        assertThat(precomputer.reschedule(8L)).isTrue();
+        runQueued();
+
+        verify(tripInsightService).storeInsights(8L, response);
+    }
+
+    @DisplayName("a generation running while the plan is stored runs once more")
+    @Test
+    void reschedule_whileRunning_runsAgainAfterwards() {
+        Trip trip = Trip.builder().id(9L).toCity("Kyoto").build();
+        when(tripRepository.findById(9L)).thenReturn(Optional.of(trip));
+        when(tripAttractionRepository.findByTripId(9L)).thenReturn(List.of());
+        when(tripInsightService.storeInsights(9L, null)).thenReturn(List.of());
+        precomputer.schedule(9L);
+
+        assertThat(precomputer.reschedule(9L)).isTrue();
+        assertThat(queued).hasSize(1);
+        runQueued();
+
+        assertThat(queued).hasSize(1);
+        assertThat(precomputer.isInProgress(9L)).isTrue();
+        runQueued();
+        assertThat(queued).isEmpty();
+        assertThat(precomputer.isInProgress(9L)).isFalse();
+    }
+}
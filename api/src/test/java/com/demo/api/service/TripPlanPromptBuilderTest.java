@@ -1,5 +1,6 @@
 package com.demo.api.service;
 
+import com.demo.api.client.support.PromptTokenEstimator;
 import com.demo.api.dto.DailyWeatherDTO;
 import com.demo.api.dto.ModifyPlanDTO;
 import com.demo.api.model.Trip;
@@ -140,4 +141,91 @@ class TripPlanPromptBuilderTest {
                 .contains("- Unknown date: min N/A / max N/A, Condition unavailable")
                 .contains("- 2025-06-09: min 3.0°C / max 11.0°C, Snow");
     }
+
+    @DisplayName("prefix-cached layout starts every prompt with the same static prefix and ends with the trip data")
+    @Test
+    void prefixCachedLayout_keepsPrefixByteStableAcrossTrips() {
+        TripPlanPromptBuilder cached = new TripPlanPromptBuilder("prefix-cached");
+        Trip tokyo = Trip.builder().fromCity("Sydney").toCity("Tokyo")
+                .startDate(LocalDate.of(2025, 11, 1)).endDate(LocalDate.of(2025, 11, 10))
+                .budget(5000).currency("AUD").people(2).preferences("Temples").build();
+        Trip seoul = Trip.builder().fromCity("Melbourne").toCity("Seoul")
+                .startDate(LocalDate.of(2026, 4, 10)).endDate(LocalDate.of(2026, 4, 12)).build();
+        ModifyPlanDTO modifyPlanDTO = new ModifyPlanDTO();
+        modifyPlanDTO.setSecondPreference("No museums");
+        List<DailyWeatherDTO> weather = List.of(DailyWeatherDTO.builder()
+                .date(LocalDate.of(2025, 11, 5)).minTemp(10.0).maxTemp(18.0).weatherCondition("Light Rain").build());
+
+        List<String> prompts = List.of(
+                cached.build(tokyo, weather),
+                cached.build(seoul, List.of()),
+                cached.buildForRegeneration(seoul, List.of(), modifyPlanDTO),
+                cached.buildSegment(tokyo, weather, LocalDate.of(2025, 11, 5), LocalDate.of(2025, 11, 8)));
+
+        assertThat(prompts).allSatisfy(prompt -> assertThat(prompt).startsWith(TripPlanPromptBuilder.STATIC_PREFIX));
+        // Only values unique to these trips: the schema examples in the prefix mention Tokyo and 2025-11-01
+        assertThat(TripPlanPromptBuilder.STATIC_PREFIX)
+                .doesNotContain("Sydney", "Melbourne", "Seoul", "Temples", "No museums", "2025-11-10", "2026");
+        assertThat(prompts.get(0).substring(TripPlanPromptBuilder.STATIC_PREFIX.length()))
+                .contains("Destination: Tokyo, Unknown country")
+                .contains("Planned dates: 2025-11-01 to 2025-11-10 (10 days)")
+                .contains("Departure leg: yes")
+                .contains("Light Rain");
+        assertThat(prompts.get(2)).endsWith("- Strict preferences: No museums" + System.lineSeparator());
+        assertThat(prompts.get(3))
+                .contains("Departure leg: no")
+                .contains("Return leg: no")
+                .contains("- 2025-11-05: min 10.0°C / max 18.0°C, Light Rain");
+    }
+
+    @DisplayName("the static prefix is large enough for the provider's prompt cache")
+    @Test
+    void staticPrefix_exceedsMinimumCacheablePrefix() {
+        assertThat(PromptTokenEstimator.estimate(TripPlanPromptBuilder.STATIC_PREFIX)).isGreaterThan(1024);
+        assertThat(PromptTokenEstimator.estimate("Plan 3 days in Tokyo, please.")).isBetween(6, 10);
+    }
+
+    @DisplayName("compact output swaps the format instructions but keeps prompts byte-stable; streaming stays JSON")
+    @Test
+    void compactOutput_usesCompactPrefixExceptWhenStreaming() {
+        TripPlanPromptBuilder compact = new TripPlanPromptBuilder(TripPlanPromptBuilder.Layout.PREFIX_CACHED,
+                TripPlanPromptBuilder.Output.COMPACT);
+        Trip trip = Trip.builder().fromCity("Sydney").toCity("Tokyo")
+                .startDate(LocalDate.of(2025, 11, 1)).endDate(LocalDate.of(2025, 11, 3)).build();
+        Trip undated = Trip.builder().fromCity("Sydney").toCity("Tokyo").build();
+
+        assertThat(compact.build(trip, List.of())).startsWith(TripPlanPromptBuilder.STATIC_PREFIX_COMPACT)
+                .contains("Planned dates: 2025-11-01 to 2025-11-03 (3 days)");
+        assertThat(compact.buildSegment(trip, List.of(), LocalDate.of(2025, 11, 2), LocalDate.of(2025, 11, 3)))
+                .startsWith(TripPlanPromptBuilder.STATIC_PREFIX_COMPACT);
+        assertThat(compact.buildForStreaming(trip, List.of())).startsWith(TripPlanPromptBuilder.STATIC_PREFIX);
+        assertThat(compact.build(undated, List.of())).startsWith(TripPlanPromptBuilder.STATIC_PREFIX);
+        assertThat(PromptTokenEstimator.estimate(TripPlanPromptBuilder.STATIC_PREFIX_COMPACT)).isGreaterThan(1024);
+    }
+
+    @DisplayName("combined insights are asked for after the trip data of the first generation only")
+    @Test
+    void combinedInsights_appendedToFirstGenerationOnly() {
+        TripPlanPromptBuilder combined = new TripPlanPromptBuilder(TripPlanPromptBuilder.Layout.PREFIX_CACHED,
+                TripPlanPromptBuilder.Output.JSON, true);
+        TripPlanPromptBuilder compact = new TripPlanPromptBuilder(TripPlanPromptBuilder.Layout.PREFIX_CACHED,
+                TripPlanPromptBuilder.Output.COMPACT, true);
+        Trip trip = Trip.builder().fromCity("Sydney").toCity("Tokyo")
+                .startDate(LocalDate.of(2025, 11, 1)).endDate(LocalDate.of(2025, 11, 3)).build();
+        ModifyPlanDTO modify = new ModifyPlanDTO();
+        modify.setSecondPreference("More temples");
+
+        String prompt = combined.build(trip, List.of());
+
+        assertThat(combined.isCombinedInsights()).isTrue();
+        assertThat(prompt).startsWith(TripPlanPromptBuilder.STATIC_PREFIX)
+                .contains("Also add a third key \"insights\"");
+        assertThat(prompt.indexOf("TRIP DATA")).isLessThan(prompt.indexOf("Destination insights:"));
+        assertThat(compact.build(trip, List.of())).contains("Also add a third key \"i\"");
+        assertThat(combined.buildSegment(trip, List.of(), LocalDate.of(2025, 11, 2), LocalDate.of(2025, 11, 3)))
+                .doesNotContain("Destination insights:");
+        assertThat(combined.buildForRegeneration(trip, List.of(), modify)).doesNotContain("Destination insights:");
+        assertThat(combined.buildForStreaming(trip, List.of())).doesNotContain("Destination insights:");
+        assertThat(builder.isCombinedInsights()).isFalse();
+    }
 }
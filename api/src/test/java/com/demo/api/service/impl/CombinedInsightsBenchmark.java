@@ -0,0 +1,161 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.client.support.LenientOutputConverter;
+import com.demo.api.client.support.PromptTokenEstimator;
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.ItineraryWithInsightsDTO;
+import com.demo.api.model.Trip;
+import com.demo.api.service.TripPlanPromptBuilder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the two-call flow (itinerary, then insights) with the combined itinerary-and-insights prompt on a
+ * corpus of recorded completions: total tokens (prompt, schema and output) and time-to-complete-trip.
+ * Time is modeled per call as {@code -Dbenchmark.call-overhead-ms} (default 400ms, connection and time to
+ * first token) plus input tokens times {@code -Dbenchmark.ms-per-input-token} (default 0.05ms) plus output
+ * tokens times {@code -Dbenchmark.ms-per-token} (default 12ms for gpt-4o-mini). The insights call waits for
+ * the itinerary, so the two-call time is the sum of both; image resolution runs alongside either way and
+ * is left out.
+ * <p>
+ * Run with {@code mvn test -Dtest=CombinedInsightsBenchmark -Dbenchmark=true}. Itineraries come from
+ * {@code src/test/resources/llm-corpus} and the insights recorded for the same trips from its
+ * {@code insights} directory; {@code -Dbenchmark.corpus=<dir>} points it at another directory of that layout.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CombinedInsightsBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final TripPlanPromptBuilder twoCallBuilder =
+            new TripPlanPromptBuilder(TripPlanPromptBuilder.Layout.PREFIX_CACHED, TripPlanPromptBuilder.Output.JSON);
+    private final TripPlanPromptBuilder combinedBuilder =
+            new TripPlanPromptBuilder(TripPlanPromptBuilder.Layout.PREFIX_CACHED, TripPlanPromptBuilder.Output.JSON, true);
+
+    @Test
+    void combinedInsights_versusTwoCalls_onRecordedCorpus() throws Exception {
+        double overheadMs = Double.parseDouble(System.getProperty("benchmark.call-overhead-ms", "400"));
+        double msPerInputToken = Double.parseDouble(System.getProperty("benchmark.ms-per-input-token", "0.05"));
+        double msPerToken = Double.parseDouble(System.getProperty("benchmark.ms-per-token", "12"));
+        Path root = root();
+        List<Path> corpus = corpus(root);
+        assertThat(corpus).isNotEmpty();
+
+        int itinerarySchema = schemaTokens(ItineraryDTO.class);
+        int insightSchema = schemaTokens(InsightResponseDTO.class);
+        int combinedSchema = schemaTokens(ItineraryWithInsightsDTO.class);
+        long twoCallTokens = 0;
+        long combinedTokens = 0;
+        double twoCallMs = 0;
+        double combinedMs = 0;
+        System.out.printf("%-20s %9s %9s %9s %9s %10s %10s%n",
+                "trip", "2x in", "2x out", "1x in", "1x out", "2x ms", "1x ms");
+        for (Path file : corpus) {
+            String itineraryJson = Files.readString(file, StandardCharsets.UTF_8);
+            String insightsJson = Files.readString(root.resolve("insights").resolve(file.getFileName()), StandardCharsets.UTF_8);
+            ItineraryDTO itinerary = new LenientOutputConverter<>(ItineraryDTO.class, objectMapper).convert(itineraryJson);
+            InsightResponseDTO insights = new LenientOutputConverter<>(InsightResponseDTO.class, objectMapper).convert(insightsJson);
+            Trip trip = trip(file, itinerary);
+            List<String> locations = itinerary.getActivities().stream()
+                    .filter(ItineraryDTO.AttractionDTO.class::isInstance)
+                    .map(activity -> ((ItineraryDTO.AttractionDTO) activity).getLocation())
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+            // the combined completion is the recorded itinerary with the recorded insight items added
+            String combinedJson = itineraryJson.substring(0, itineraryJson.lastIndexOf('}'))
+                    + ", \"insights\": " + objectMapper.writeValueAsString(insights.getInsights()) + "}";
+
+            int itineraryIn = PromptTokenEstimator.estimate(twoCallBuilder.build(trip, List.of())) + itinerarySchema;
+            int itineraryOut = PromptTokenEstimator.estimate(itineraryJson);
+            int insightIn = PromptTokenEstimator.estimate(TripInsightServiceImpl.buildUserPrompt(trip, locations)) + insightSchema;
+            int insightOut = PromptTokenEstimator.estimate(insightsJson);
+            int combinedIn = PromptTokenEstimator.estimate(combinedBuilder.build(trip, List.of())) + combinedSchema;
+            int combinedOut = PromptTokenEstimator.estimate(combinedJson);
+            double fileTwoCallMs = overheadMs + itineraryIn * msPerInputToken + itineraryOut * msPerToken
+                    + overheadMs + insightIn * msPerInputToken + insightOut * msPerToken;
+            double fileCombinedMs = overheadMs + combinedIn * msPerInputToken + combinedOut * msPerToken;
+            System.out.printf("%-20s %9d %9d %9d %9d %10.0f %10.0f%n", file.getFileName(),
+                    itineraryIn + insightIn, itineraryOut + insightOut, combinedIn, combinedOut,
+                    fileTwoCallMs, fileCombinedMs);
+
+            twoCallTokens += itineraryIn + itineraryOut + insightIn + insightOut;
+            combinedTokens += combinedIn + combinedOut;
+            twoCallMs += fileTwoCallMs;
+            combinedMs += fileCombinedMs;
+        }
+        System.out.printf("total: %d -> %d tokens (%.0f%% fewer), modeled time-to-complete-trip %.0fms -> %.0fms "
+                        + "(%.0f%% faster), 2 -> 1 calls per trip%n",
+                twoCallTokens, combinedTokens, 100.0 * (twoCallTokens - combinedTokens) / twoCallTokens,
+                twoCallMs, combinedMs, 100.0 * (twoCallMs - combinedMs) / twoCallMs);
+
+        assertThat(combinedTokens).isLessThan(twoCallTokens);
+        assertThat(combinedMs).isLessThan(twoCallMs);
+    }
+
+    private int schemaTokens(Class<?> type) {
+        return PromptTokenEstimator.estimate(new LenientOutputConverter<>(type, objectMapper).getSchemaFormat());
+    }
+
+    /**
+     * A trip matching the recorded itinerary, named after the file, e.g. rome-4-days.json is a trip to Rome.
+     */
+    private static Trip trip(Path file, ItineraryDTO itinerary) {
+        String name = file.getFileName().toString();
+        String city = name.substring(0, name.indexOf('-'));
+        List<LocalDate> dates = itinerary.getDailySummaries().stream()
+                .map(ItineraryDTO.DailySummaryDTO::getDate)
+                .sorted(Comparator.naturalOrder())
+                .toList();
+        return Trip.builder()
+                .id(1L)
+                .fromCity("Sydney")
+                .fromCountry("Australia")
+                .toCity(city.substring(0, 1).toUpperCase(Locale.ROOT) + city.substring(1))
+                .toCountry("Unknown country")
+                .startDate(dates.get(0))
+                .endDate(dates.get(dates.size() - 1))
+                .people(2)
+                .budget(5000)
+                .currency("AUD")
+                .build();
+    }
+
+    private Path root() throws URISyntaxException {
+        String dir = System.getProperty("benchmark.corpus");
+        return dir != null
+                ? Path.of(dir)
+                : Path.of(Objects.requireNonNull(getClass().getResource("/llm-corpus")).toURI());
+    }
+
+    private static List<Path> corpus(Path root) throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(file -> file.toString().endsWith(".json"))
+                    .filter(file -> Files.exists(root.resolve("insights").resolve(file.getFileName())))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
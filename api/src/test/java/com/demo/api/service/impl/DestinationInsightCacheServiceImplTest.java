@@ -0,0 +1,150 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.dto.InsightResponseDTO;
+import com.demo.api.model.DestinationInsight;
+import com.demo.api.model.Trip;
+import com.demo.api.repository.DestinationInsightRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class DestinationInsightCacheServiceImplTest {
+
+    private static final Instant NOW = Instant.parse("2025-05-01T00:00:00Z");
+
+    private final DestinationInsightRepository repository = mock(DestinationInsightRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DestinationInsightCacheServiceImpl cache(int maxEntries) {
+        return new DestinationInsightCacheServiceImpl(repository, objectMapper, meterRegistry, true, maxEntries,
+                Duration.ofDays(30), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static Trip trip(String city, LocalDate start) {
+        return Trip.builder().toCity(city).toCountry("France").startDate(start).endDate(start.plusDays(3)).build();
+    }
+
+    private static InsightResponseDTO.InsightItem item(String title) {
+        InsightResponseDTO.InsightItem item = new InsightResponseDTO.InsightItem();
+        item.setId("1");
+        item.setTitle(title);
+        item.setContent(title + " content");
+        item.setTheme("culture");
+        return item;
+    }
+
+    private double requests(String tier, String result) {
+        return meterRegistry.counter("trip.insight.cache.requests", "tier", tier, "result", result).count();
+    }
+
+    @Test
+    void lookup_afterStore_returnsCopyForSameDestinationAndMonth() {
+        DestinationInsightCacheServiceImpl cache = cache(10);
+        cache.store(trip("Paris", LocalDate.of(2025, 6, 3)), List.of(item("Café culture")));
+        // store reads the row it upserts; only the lookups below must stay off the database
+        clearInvocations(repository);
+
+        List<InsightResponseDTO.InsightItem> hit = cache.lookup(trip(" paris ", LocalDate.of(2025, 6, 20))).orElseThrow();
+
+        assertThat(hit).extracting(InsightResponseDTO.InsightItem::getTitle).containsExactly("Café culture");
+        hit.get(0).setTitle("changed");
+        assertThat(cache.lookup(trip("Paris", LocalDate.of(2026, 6, 1))).orElseThrow().get(0).getTitle())
+                .isEqualTo("Café culture");
+        assertThat(requests("memory", "hit")).isEqualTo(2);
+        verify(repository, never()).findByCountryKeyAndCityKeyAndTravelMonth(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void lookup_whenMonthDiffers_missesBothTiers() {
+        DestinationInsightCacheServiceImpl cache = cache(10);
+        cache.store(trip("Paris", LocalDate.of(2025, 6, 3)), List.of(item("Café culture")));
+        when(repository.findByCountryKeyAndCityKeyAndTravelMonth("france", "paris", 12)).thenReturn(Optional.empty());
+
+        assertThat(cache.lookup(trip("Paris", LocalDate.of(2025, 12, 3)))).isEmpty();
+        assertThat(requests("memory", "miss")).isEqualTo(1);
+        assertThat(requests("database", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void lookup_onMemoryMiss_readsDatabaseAndKeepsRowInMemory() throws Exception {
+        DestinationInsightCacheServiceImpl cache = cache(10);
+        DestinationInsight row = DestinationInsight.builder()
+                .countryKey("france").cityKey("paris").travelMonth(6)
+                .insights(objectMapper.writeValueAsString(List.of(item("Seine walks"))))
+                .build();
+        row.setUpdatedTime(OffsetDateTime.ofInstant(NOW.minus(Duration.ofDays(2)), ZoneOffset.UTC));
+        when(repository.findByCountryKeyAndCityKeyAndTravelMonth("france", "paris", 6)).thenReturn(Optional.of(row));
+
+        assertThat(cache.lookup(trip("Paris", LocalDate.of(2025, 6, 3)))).isPresent();
+        assertThat(cache.lookup(trip("Paris", LocalDate.of(2025, 6, 3)))).isPresent();
+
+        verify(repository, times(1)).findByCountryKeyAndCityKeyAndTravelMonth("france", "paris", 6);
+        assertThat(requests("database", "hit")).isEqualTo(1);
+        assertThat(requests("memory", "hit")).isEqualTo(1);
+        assertThat(meterRegistry.get("trip.insight.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void lookup_whenDatabaseRowExpired_misses() throws Exception {
+        DestinationInsightCacheServiceImpl cache = cache(10);
+        DestinationInsight row = DestinationInsight.builder()
+                .insights(objectMapper.writeValueAsString(List.of(item("Old news"))))
+                .build();
+        row.setUpdatedTime(OffsetDateTime.ofInstant(NOW.minus(Duration.ofDays(31)), ZoneOffset.UTC));
+        when(repository.findByCountryKeyAndCityKeyAndTravelMonth("france", "paris", 6)).thenReturn(Optional.of(row));
+
+        assertThat(cache.lookup(trip("Paris", LocalDate.of(2025, 6, 3)))).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void store_replacesExistingRow() {
+        DestinationInsight existing = DestinationInsight.builder()
+                .id(3L).countryKey("france").cityKey("paris").travelMonth(6).insights("[]")
+                .build();
+        when(repository.findByCountryKeyAndCityKeyAndTravelMonth("france", "paris", 6)).thenReturn(Optional.of(existing));
+
+        cache(10).store(trip("Paris", LocalDate.of(2025, 6, 3)), List.of(item("Café culture")));
+
+        ArgumentCaptor<DestinationInsight> captor = ArgumentCaptor.forClass(DestinationInsight.class);
+        verify(repository).save(captor.capture());
+        assertThat(captor.getValue().getId()).isEqualTo(3L);
+        assertThat(captor.getValue().getInsights()).contains("Café culture");
+    }
+
+    @Test
+    void store_withoutDestinationOrStartDate_isIgnored() {
+        DestinationInsightCacheServiceImpl cache = cache(10);
+
+        cache.store(Trip.builder().toCity("Paris").build(), List.of(item("Café culture")));
+        cache.store(trip(" ", LocalDate.of(2025, 6, 3)), List.of(item("Café culture")));
+
+        assertThat(cache.size()).isZero();
+        verify(repository, never()).save(any());
+    }
+}
@@ -0,0 +1,188 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.service.ImageProxyService;
+import com.demo.api.utils.UnsplashImgUtils;
+import com.demo.api.utils.UnsplashRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ImageProxyServiceImplTest {
+
+    private static final URI UPSTREAM = URI.create("https://images.unsplash.com");
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<URI> downloads = new ArrayList<>();
+
+    private ImageProxyServiceImpl proxy(long maxBytes, int imageBytes) {
+        return proxy(maxBytes, imageBytes, null);
+    }
+
+    private ImageProxyServiceImpl proxy(long maxBytes, int imageBytes, UnsplashRateLimiter rateLimiter) {
+        return new ImageProxyServiceImpl(meterRegistry, dir, maxBytes, UPSTREAM, Duration.ofSeconds(5),
+                (uri, target, max) -> {
+                    synchronized (downloads) {
+                        downloads.add(uri);
+                    }
+                    Files.write(target, new byte[imageBytes]);
+                }, rateLimiter);
+    }
+
+    private double requests(String result) {
+        return meterRegistry.counter("image.proxy.requests", "result", result).count();
+    }
+
+    @Test
+    void get_onMissFetchesOnceAndServesLaterRequestsFromDisk() {
+        ImageProxyServiceImpl proxy = proxy(1_000, 100);
+
+        ImageProxyService.CachedImage first = proxy.get("photo-1", "w=500&h=500");
+        ImageProxyService.CachedImage second = proxy.get("photo-1", "w=500&h=500");
+
+        assertThat(downloads).containsExactly(URI.create("https://images.unsplash.com/photo-1?w=500&h=500"));
+        assertThat(second.file()).isEqualTo(first.file()).exists();
+        assertThat(second.length()).isEqualTo(100);
+        assertThat(second.etag()).isEqualTo(first.etag()).startsWith("\"");
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(requests("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsedFilesBeyondMaxSize() {
+        ImageProxyServiceImpl proxy = proxy(250, 100);
+        ImageProxyService.CachedImage a = proxy.get("photo-a", null);
+        ImageProxyService.CachedImage b = proxy.get("photo-b", null);
+        proxy.get("photo-a", null);
+
+        proxy.get("photo-c", null);
+
+        assertThat(proxy.size()).isEqualTo(200);
+        assertThat(a.file()).exists();
+        assertThat(b.file()).doesNotExist();
+        assertThat(meterRegistry.get("image.proxy.cache.bytes").gauge().value()).isEqualTo(200);
+    }
+
+    @Test
+    void get_concurrentMissesShareOneFetch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        ImageProxyServiceImpl proxy = new ImageProxyServiceImpl(meterRegistry, dir, 1_000, UPSTREAM,
+                Duration.ofSeconds(5), (uri, target, max) -> {
+                    fetches.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    Files.write(target, new byte[10]);
+                }, null);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ImageProxyService.CachedImage>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> proxy.get("photo-1", "w=500")));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<ImageProxyService.CachedImage> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).length()).isEqualTo(10);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    void get_whenFetchFails_throwsAndLeavesNothingOnDisk() throws IOException {
+        ImageProxyServiceImpl proxy = new ImageProxyServiceImpl(meterRegistry, dir, 1_000, UPSTREAM,
+                Duration.ofSeconds(5), (uri, target, max) -> {
+                    Files.write(target, new byte[3]);
+                    throw new IOException("http status=404");
+                }, null);
+
+        assertThatThrownBy(() -> proxy.get("photo-1", null)).isInstanceOf(IllegalStateException.class);
+        try (var files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void get_rejectsPathsOutsideUnsplashImages() {
+        ImageProxyServiceImpl proxy = proxy(1_000, 10);
+
+        assertThatThrownBy(() -> proxy.get("../etc/passwd", null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> proxy.get("@evil.example/x", null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(downloads).isEmpty();
+    }
+
+    @Test
+    void get_keysOnlyOnSupportedParametersInFixedOrder() {
+        ImageProxyServiceImpl proxy = proxy(1_000, 10);
+
+        ImageProxyService.CachedImage first = proxy.get("photo-1", "ixid=abc&ixlib=rb-4.1.0&h=300&w=500&fit=crop");
+        ImageProxyService.CachedImage second = proxy.get("photo-1", "w=500&fit=crop&h=300&ixid=other");
+
+        assertThat(second.etag()).isEqualTo(first.etag());
+        assertThat(downloads).containsExactly(URI.create("https://images.unsplash.com/photo-1?w=500&h=300&fit=crop"));
+    }
+
+    @Test
+    void get_rejectsUnknownRepeatedOrOutOfRangeParameters() {
+        ImageProxyServiceImpl proxy = proxy(1_000, 10);
+
+        assertThatThrownBy(() -> proxy.get("photo-1", "w=500&cachebust=1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> proxy.get("photo-1", "w=500&w=501")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> proxy.get("photo-1", "w=50000")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> proxy.get("photo-1", "q=0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> proxy.get("photo-1", "fm=gif")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(downloads).isEmpty();
+    }
+
+    @Test
+    void get_whenRateLimitSpent_refusesMissesButServesCachedImages() {
+        ImageProxyServiceImpl proxy = proxy(1_000, 10, new UnsplashRateLimiter(1, 0));
+        proxy.get("photo-1", "w=500");
+
+        assertThatThrownBy(() -> proxy.get("photo-2", "w=500"))
+                .isInstanceOf(UnsplashImgUtils.RateLimitedException.class);
+        assertThat(proxy.get("photo-1", "w=500").length()).isEqualTo(10);
+        assertThat(downloads).hasSize(1);
+    }
+
+    @Test
+    void constructor_picksUpFilesFromEarlierRuns() {
+        proxy(1_000, 100).get("photo-1", null);
+        downloads.clear();
+
+        ImageProxyServiceImpl restarted = proxy(1_000, 100);
+
+        assertThat(restarted.size()).isEqualTo(100);
+        restarted.get("photo-1", null);
+        assertThat(downloads).isEmpty();
+    }
+}
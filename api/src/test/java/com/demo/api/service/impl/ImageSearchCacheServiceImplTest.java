@@ -0,0 +1,120 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.model.ImageSearchCache;
+import com.demo.api.repository.ImageSearchCacheRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ImageSearchCacheServiceImplTest {
+
+    private static final Instant NOW = Instant.parse("2025-05-01T00:00:00Z");
+
+    private final ImageSearchCacheRepository repository = mock(ImageSearchCacheRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ImageSearchCacheServiceImpl cache() {
+        return new ImageSearchCacheServiceImpl(repository, objectMapper, meterRegistry, true, 10,
+                Duration.ofDays(7), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private double requests(String tier, String result) {
+        return meterRegistry.counter("unsplash.search.cache.requests", "tier", tier, "result", result).count();
+    }
+
+    @Test
+    void canonicalQuery_ignoresCaseStopwordsAndWordOrder() {
+        assertThat(ImageSearchCacheServiceImpl.canonicalQuery("Tokyo tower at night"))
+                .isEqualTo(ImageSearchCacheServiceImpl.canonicalQuery(" tokyo  TOWER night, tokyo"))
+                .isEqualTo("night tokyo tower");
+        assertThat(ImageSearchCacheServiceImpl.canonicalQuery("The view")).isEqualTo("the view");
+        assertThat(ImageSearchCacheServiceImpl.canonicalQuery("  ")).isNull();
+    }
+
+    @Test
+    void lookup_afterStore_servesEquivalentQueryFromMemory() {
+        ImageSearchCacheServiceImpl cache = cache();
+        cache.store("Tokyo tower at night", List.of("https://images.example/one"));
+
+        assertThat(cache.lookup("tokyo tower night")).contains(List.of("https://images.example/one"));
+        assertThat(requests("memory", "hit")).isEqualTo(1);
+        verify(repository, times(1)).findByQueryKey(anyString());
+    }
+
+    @Test
+    void lookup_onMemoryMiss_readsDatabaseOnce() throws Exception {
+        ImageSearchCacheServiceImpl cache = cache();
+        ImageSearchCache row = ImageSearchCache.builder()
+                .queryKey("kyoto")
+                .urls(objectMapper.writeValueAsString(List.of("https://images.example/kyoto")))
+                .build();
+        row.setUpdatedTime(OffsetDateTime.ofInstant(NOW.minus(Duration.ofDays(1)), ZoneOffset.UTC));
+        when(repository.findByQueryKey("kyoto")).thenReturn(Optional.of(row));
+
+        assertThat(cache.lookup("Kyoto")).isPresent();
+        assertThat(cache.lookup("kyoto")).isPresent();
+
+        verify(repository, times(1)).findByQueryKey("kyoto");
+        assertThat(requests("database", "hit")).isEqualTo(1);
+        assertThat(requests("memory", "hit")).isEqualTo(1);
+        assertThat(meterRegistry.get("unsplash.search.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void lookup_whenDatabaseRowExpired_misses() throws Exception {
+        ImageSearchCache row = ImageSearchCache.builder()
+                .queryKey("kyoto")
+                .urls(objectMapper.writeValueAsString(List.of("https://images.example/kyoto")))
+                .build();
+        row.setUpdatedTime(OffsetDateTime.ofInstant(NOW.minus(Duration.ofDays(8)), ZoneOffset.UTC));
+        when(repository.findByQueryKey("kyoto")).thenReturn(Optional.of(row));
+
+        assertThat(cache().lookup("Kyoto")).isEmpty();
+        assertThat(requests("database", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void store_replacesExistingRow() {
+        ImageSearchCache existing = ImageSearchCache.builder().id(4L).queryKey("kyoto").urls("[]").build();
+        when(repository.findByQueryKey("kyoto")).thenReturn(Optional.of(existing));
+
+        cache().store("Kyoto", List.of("https://images.example/kyoto"));
+
+        ArgumentCaptor<ImageSearchCache> captor = ArgumentCaptor.forClass(ImageSearchCache.class);
+        verify(repository).save(captor.capture());
+        assertThat(captor.getValue().getId()).isEqualTo(4L);
+        assertThat(captor.getValue().getUrls()).contains("https://images.example/kyoto");
+    }
+
+    @Test
+    void store_whenDisabled_doesNothing() {
+        ImageSearchCacheServiceImpl cache = new ImageSearchCacheServiceImpl(repository, objectMapper, meterRegistry,
+                false, 10, Duration.ofDays(7), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        cache.store("Kyoto", List.of("https://images.example/kyoto"));
+
+        assertThat(cache.lookup("Kyoto")).isEmpty();
+        verify(repository, never()).save(org.mockito.ArgumentMatchers.any());
+    }
+}
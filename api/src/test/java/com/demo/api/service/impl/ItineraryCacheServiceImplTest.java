@@ -0,0 +1,160 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.model.Trip;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ItineraryCacheServiceImplTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 6, 1);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-05-01T00:00:00Z"));
+
+    private ItineraryCacheServiceImpl cache(int maxEntries) {
+        return new ItineraryCacheServiceImpl(objectMapper, meterRegistry, true, maxEntries, Duration.ofHours(1), clock);
+    }
+
+    private static Trip trip(String toCity, LocalDate start, String preferences) {
+        return Trip.builder()
+                .fromCity("Sydney")
+                .toCity(toCity)
+                .toCountry("Japan")
+                .startDate(start)
+                .endDate(start.plusDays(1))
+                .people(2)
+                .budget(3000)
+                .currency("aud")
+                .preferences(preferences)
+                .build();
+    }
+
+    private static ItineraryDTO itinerary() {
+        return ItineraryDTO.builder()
+                .dailySummaries(List.of(
+                        ItineraryDTO.DailySummaryDTO.builder().date(START).summary("Arrive").imageUrl("u1").build(),
+                        ItineraryDTO.DailySummaryDTO.builder().date(START.plusDays(1)).summary("Leave").build()))
+                .activities(List.of(
+                        ItineraryDTO.TransportationDTO.builder().type("transportation").date(START).from("SYD").build(),
+                        ItineraryDTO.AttractionDTO.builder().type("attraction").date(START.plusDays(1)).title("Shrine").build()))
+                .build();
+    }
+
+    @Test
+    void lookup_afterStore_returnsCopyRedatedOntoNewStart() {
+        ItineraryCacheServiceImpl cache = cache(10);
+        cache.store(trip("Tokyo", START, "Food, temples!"), false, itinerary());
+
+        LocalDate newStart = START.plusDays(10);
+        ItineraryDTO hit = cache.lookup(trip(" tokyo ", newStart, "food temples"), false).orElseThrow();
+
+        assertThat(hit.getDailySummaries()).extracting(ItineraryDTO.DailySummaryDTO::getDate)
+                .containsExactly(newStart, newStart.plusDays(1));
+        assertThat(hit.getDailySummaries().get(0).getImageUrl()).isEqualTo("u1");
+        assertThat(hit.getActivities().get(0)).isInstanceOfSatisfying(ItineraryDTO.TransportationDTO.class,
+                transport -> assertThat(transport.getDate()).isEqualTo(newStart));
+        assertThat(hit.getActivities().get(1)).isInstanceOf(ItineraryDTO.AttractionDTO.class);
+
+        hit.getDailySummaries().get(0).setSummary("changed");
+        assertThat(cache.lookup(trip("Tokyo", START, "Food, temples!"), false).orElseThrow()
+                .getDailySummaries().get(0).getSummary()).isEqualTo("Arrive");
+        assertThat(meterRegistry.counter("trip.itinerary.cache.requests", "result", "hit").count()).isEqualTo(2);
+    }
+
+    @Test
+    void lookup_whenPreferencesDiffer_misses() {
+        ItineraryCacheServiceImpl cache = cache(10);
+        cache.store(trip("Tokyo", START, null), false, itinerary());
+
+        assertThat(cache.lookup(trip("Tokyo", START, null), true)).isEmpty();
+        assertThat(cache.lookup(trip("Kyoto", START, null), false)).isEmpty();
+        assertThat(cache.lookup(trip("Tokyo", START, "nightlife"), false)).isEmpty();
+        assertThat(meterRegistry.counter("trip.itinerary.cache.requests", "result", "miss").count()).isEqualTo(3);
+    }
+
+    @Test
+    void lookup_afterTtl_misses() {
+        ItineraryCacheServiceImpl cache = cache(10);
+        cache.store(trip("Tokyo", START, null), false, itinerary());
+
+        clock.advance(Duration.ofMinutes(61));
+
+        assertThat(cache.lookup(trip("Tokyo", START, null), false)).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void store_beyondMaxEntries_evictsLeastRecentlyUsed() {
+        ItineraryCacheServiceImpl cache = cache(2);
+        cache.store(trip("Tokyo", START, null), false, itinerary());
+        cache.store(trip("Kyoto", START, null), false, itinerary());
+        cache.lookup(trip("Tokyo", START, null), false);
+
+        cache.store(trip("Osaka", START, null), false, itinerary());
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.lookup(trip("Kyoto", START, null), false)).isEmpty();
+        assertThat(cache.lookup(trip("Tokyo", START, null), false)).isPresent();
+        assertThat(meterRegistry.get("trip.itinerary.cache.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void cacheKey_bandsSimilarBudgetsTogether() {
+        Trip cheaper = trip("Tokyo", START, null);
+        cheaper.setBudget(3100);
+        Trip luxury = trip("Tokyo", START, null);
+        luxury.setBudget(9000);
+
+        String key = ItineraryCacheServiceImpl.cacheKey(trip("Tokyo", START, null), false);
+
+        assertThat(ItineraryCacheServiceImpl.cacheKey(cheaper, false)).isEqualTo(key);
+        assertThat(ItineraryCacheServiceImpl.cacheKey(luxury, false)).isNotEqualTo(key);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
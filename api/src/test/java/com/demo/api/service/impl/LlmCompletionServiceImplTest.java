@@ -0,0 +1,70 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.client.support.LlmCallContext;
+import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.model.LlmCompletion;
+import com.demo.api.repository.LlmCompletionRepository;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LlmCompletionServiceImplTest {
+
+    @Mock private LlmCompletionRepository completionRepository;
+    @InjectMocks private LlmCompletionServiceImpl completionService;
+
+    @Test
+    void record_storesCompressedCompletionUnderPromptHashWithSubject() {
+        String completion = "{\"daily_summaries\":[],\"activities\":[]}".repeat(20);
+        when(completionRepository.findByPromptHash(anyString())).thenReturn(Optional.empty());
+
+        try (LlmCallContext.Scope ignored = LlmCallContext.openSubject("trip:9")) {
+            completionService.record("system", "prompt", ItineraryDTO.class, completion);
+        }
+
+        ArgumentCaptor<LlmCompletion> saved = ArgumentCaptor.forClass(LlmCompletion.class);
+        verify(completionRepository).save(saved.capture());
+        assertThat(saved.getValue().getPromptHash())
+                .isEqualTo(LlmCompletionServiceImpl.promptHash("system", "prompt", ItineraryDTO.class))
+                .hasSize(64);
+        assertThat(saved.getValue().getResponseType()).isEqualTo("ItineraryDTO");
+        assertThat(saved.getValue().getSubject()).isEqualTo("trip:9");
+        assertThat(saved.getValue().getCompletion().length).isLessThan(completion.length());
+        assertThat(LlmCompletionServiceImpl.decompress(saved.getValue().getCompletion())).isEqualTo(completion);
+    }
+
+    @Test
+    void record_whenRepositoryFails_doesNotThrow() {
+        when(completionRepository.findByPromptHash(anyString())).thenThrow(new IllegalStateException("db down"));
+
+        completionService.record("system", "prompt", ItineraryDTO.class, "{}");
+    }
+
+    @Test
+    void find_returnsDecompressedCompletionForSamePromptOnly() {
+        String hash = LlmCompletionServiceImpl.promptHash("system", "prompt", ItineraryDTO.class);
+        when(completionRepository.findByPromptHash(any())).thenReturn(Optional.empty());
+        when(completionRepository.findByPromptHash(hash)).thenReturn(Optional.of(LlmCompletion.builder()
+                .promptHash(hash)
+                .completion(LlmCompletionServiceImpl.compress("{\"ok\":true}"))
+                .build()));
+
+        assertThat(completionService.find("system", "prompt", ItineraryDTO.class)).contains("{\"ok\":true}");
+        assertThat(completionService.find("system", "other prompt", ItineraryDTO.class)).isEmpty();
+    }
+}
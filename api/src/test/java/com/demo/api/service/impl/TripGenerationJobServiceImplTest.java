@@ -0,0 +1,451 @@
+package com.demo.api.service.impl;
+
+import com.demo.api.dto.ModifyPlanDTO;
+import com.demo.api.dto.TripGenerationJobDTO;
+import com.demo.api.dto.TripPreferenceRequestDTO;
+import com.demo.api.enums.TripJobStatus;
+import com.demo.api.enums.TripJobType;
+import com.demo.api.exception.BusinessException;
+import com.demo.api.model.Trip;
+import com.demo.api.model.TripGenerationJob;
+import com.demo.api.repository.TripGenerationJobRepository;
+import com.demo.api.repository.TripRepository;
+import com.demo.api.service.TripGenerationService;
+import com.demo.api.service.TripPlanStreamListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class TripGenerationJobServiceImplTest {
+
+    @Mock private TripGenerationJobRepository jobRepository;
+    @Mock private TripRepository tripRepository;
+    @Mock private TripGenerationService tripGenerationService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<Long, TripGenerationJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong(100);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(jobRepository.save(any(TripGenerationJob.class))).thenAnswer(invocation -> {
+            TripGenerationJob job = invocation.getArgument(0);
+            if (job.getId() == null) {
+                job.setId(ids.incrementAndGet());
+            }
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        lenient().when(jobRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.<Long>getArgument(0))));
+        // Mirrors the conditional update: unfinished, and either held by the caller or with an expired lease
+        lenient().when(jobRepository.claim(anyLong(), anyCollection(), anyString(), any(), any())).thenAnswer(invocation -> {
+            TripGenerationJob job = jobs.get(invocation.<Long>getArgument(0));
+            String owner = invocation.getArgument(2);
+            OffsetDateTime staleBefore = invocation.getArgument(4);
+            if (job == null || job.getStatus().isTerminal() || !(owner.equals(job.getOwner())
+                    || job.getUpdatedTime() != null && job.getUpdatedTime().isBefore(staleBefore))) {
+                return 0;
+            }
+            job.setOwner(owner);
+            job.setUpdatedTime(invocation.getArgument(3));
+            return 1;
+        });
+    }
+
+    private TripGenerationJobServiceImpl service(TaskExecutor executor) {
+        return new TripGenerationJobServiceImpl(jobRepository, tripRepository, tripGenerationService, objectMapper,
+                executor, new TransactionTemplate(transactionManager), Duration.ofMinutes(2));
+    }
+
+    private static TripGenerationJob abandoned(long id, String owner) {
+        TripGenerationJob job = TripGenerationJob.builder()
+                .id(id)
+                .userId(4L)
+                .tripId(30L)
+                .type(TripJobType.GENERATE)
+                .status(TripJobStatus.RUNNING)
+                .attempts(1)
+                .payload("{}")
+                .owner(owner)
+                .build();
+        job.setUpdatedTime(OffsetDateTime.now().minusMinutes(10));
+        return job;
+    }
+
+    @Test
+    void submitGeneration_runsJobOnWorkerAndMarksSucceeded() {
+        TripPreferenceRequestDTO dto = TripPreferenceRequestDTO.builder()
+                .toCity("Tokyo")
+                .startDate(LocalDate.of(2025, 5, 1))
+                .endDate(LocalDate.of(2025, 5, 3))
+                .build();
+        Trip trip = Trip.builder().id(9L).userId(42L).toCity("Tokyo").build();
+        when(tripGenerationService.createTrip(any(TripPreferenceRequestDTO.class), eq("42"))).thenReturn(trip);
+
+        TripGenerationJobDTO result = service(Runnable::run).submitGeneration(dto, "42");
+
+        verify(tripGenerationService).createTrip(argThat(d -> "Tokyo".equals(d.getToCity())
+                && LocalDate.of(2025, 5, 1).equals(d.getStartDate())), eq("42"));
+        verify(tripGenerationService).generateTripPlan(trip);
+        TripGenerationJob stored = jobs.get(result.getJobId());
+        assertThat(stored.getStatus()).isEqualTo(TripJobStatus.SUCCEEDED);
+        assertThat(stored.getTripId()).isEqualTo(9L);
+        assertThat(stored.getAttempts()).isEqualTo(1);
+        assertThat(stored.getFinishedTime()).isNotNull();
+    }
+
+    @Test
+    void runGeneration_createsTripAndLinksJobInOneTransaction() {
+        Trip trip = Trip.builder().id(9L).build();
+        when(tripGenerationService.createTrip(any(), eq("42"))).thenReturn(trip);
+
+        service(Runnable::run).submitGeneration(TripPreferenceRequestDTO.builder().toCity("Tokyo").build(), "42");
+
+        InOrder order = inOrder(transactionManager, tripGenerationService, jobRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(tripGenerationService).createTrip(any(), eq("42"));
+        order.verify(jobRepository).save(argThat(job -> Long.valueOf(9L).equals(job.getTripId())));
+        order.verify(transactionManager).commit(any());
+        order.verify(tripGenerationService).generateTripPlan(trip);
+    }
+
+    @Test
+    void runJob_whenLeasedByAnotherInstance_skipsJob() {
+        TripGenerationJob job = abandoned(1L, "other-instance");
+        job.setUpdatedTime(OffsetDateTime.now());
+        jobs.put(1L, job);
+
+        service(Runnable::run).runJob(1L);
+
+        verifyNoInteractions(tripGenerationService);
+        assertThat(job.getStatus()).isEqualTo(TripJobStatus.RUNNING);
+        assertThat(job.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void submitGeneration_returnsBeforeWorkerRuns() {
+        List<Runnable> queued = new ArrayList<>();
+
+        TripGenerationJobDTO result = service(queued::add)
+                .submitGeneration(TripPreferenceRequestDTO.builder().toCity("Paris").build(), "3");
+
+        assertThat(result.getStatus()).isEqualTo(TripJobStatus.PENDING);
+        assertThat(result.getType()).isEqualTo(TripJobType.GENERATE);
+        assertThat(queued).hasSize(1);
+        verifyNoInteractions(tripGenerationService);
+    }
+
+    @Test
+    void runJob_whenPipelineFails_marksFailedWithMessage() {
+        Trip trip = Trip.builder().id(11L).build();
+        when(tripGenerationService.createTrip(any(), eq("8"))).thenReturn(trip);
+        doThrow(new IllegalStateException("OpenAI down")).when(tripGenerationService).generateTripPlan(trip);
+
+        TripGenerationJobDTO result = service(Runnable::run)
+                .submitGeneration(TripPreferenceRequestDTO.builder().toCity("Rome").build(), "8");
+
+        TripGenerationJob stored = jobs.get(result.getJobId());
+        assertThat(stored.getStatus()).isEqualTo(TripJobStatus.FAILED);
+        assertThat(stored.getErrorMessage()).isEqualTo("OpenAI down");
+    }
+
+    @Test
+    void submitGeneration_whenQueueFull_marksFailedAndThrows() {
+        TaskExecutor rejecting = task -> {
+            throw new TaskRejectedException("full");
+        };
+
+        assertThatThrownBy(() -> service(rejecting)
+                .submitGeneration(TripPreferenceRequestDTO.builder().toCity("Oslo").build(), "1"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("queue is full");
+        assertThat(jobs.values()).singleElement()
+                .extracting(TripGenerationJob::getStatus)
+                .isEqualTo(TripJobStatus.FAILED);
+    }
+
+    @Test
+    void submitStreamingGeneration_streamsPlanAndNotifiesListener() {
+        Trip trip = Trip.builder().id(13L).userId(5L).toCity("Perth").build();
+        when(tripGenerationService.createTrip(any(), eq("5"))).thenReturn(trip);
+        TripPlanStreamListener listener = mock(TripPlanStreamListener.class);
+
+        TripGenerationJobDTO result = service(Runnable::run)
+                .submitStreamingGeneration(TripPreferenceRequestDTO.builder().toCity("Perth").build(), "5", listener);
+
+        InOrder order = inOrder(listener, tripGenerationService);
+        order.verify(listener).onQueued(argThat(job -> job.getJobId().equals(result.getJobId())
+                && job.getStatus() == TripJobStatus.PENDING));
+        order.verify(listener).onTripCreated(13L);
+        order.verify(tripGenerationService).streamTripPlan(trip, listener);
+        order.verify(listener).onCompleted(13L);
+        verify(tripGenerationService, never()).generateTripPlan(any());
+        assertThat(jobs.get(result.getJobId()).getStatus()).isEqualTo(TripJobStatus.SUCCEEDED);
+    }
+
+    @Test
+    void submitStreamingGeneration_whenStreamFails_notifiesListener() {
+        Trip trip = Trip.builder().id(14L).build();
+        when(tripGenerationService.createTrip(any(), eq("6"))).thenReturn(trip);
+        IllegalStateException failure = new IllegalStateException("stream cut");
+        TripPlanStreamListener listener = mock(TripPlanStreamListener.class);
+        doThrow(failure).when(tripGenerationService).streamTripPlan(trip, listener);
+
+        TripGenerationJobDTO result = service(Runnable::run)
+                .submitStreamingGeneration(TripPreferenceRequestDTO.builder().toCity("Cairns").build(), "6", listener);
+
+        verify(listener).onFailed(14L, failure);
+        verify(listener, never()).onCompleted(any());
+        assertThat(jobs.get(result.getJobId()).getErrorMessage()).isEqualTo("stream cut");
+    }
+
+    @Test
+    void submitGeneration_whenDuplicateInFlight_returnsSameJob() {
+        List<Runnable> queued = new ArrayList<>();
+        TripGenerationJobServiceImpl service = service(queued::add);
+        TripPreferenceRequestDTO dto = TripPreferenceRequestDTO.builder().toCity("Oslo").people(2).build();
+
+        TripGenerationJobDTO first = service.submitGeneration(dto, "4");
+        TripGenerationJobDTO duplicate = service.submitGeneration(
+                TripPreferenceRequestDTO.builder().toCity("Oslo").people(2).build(), "4");
+        TripGenerationJobDTO otherUser = service.submitGeneration(dto, "5");
+
+        assertThat(duplicate.getJobId()).isEqualTo(first.getJobId());
+        assertThat(otherUser.getJobId()).isNotEqualTo(first.getJobId());
+        assertThat(queued).hasSize(2);
+    }
+
+    @Test
+    void submitGeneration_afterJobFinished_startsNewJob() {
+        Trip trip = Trip.builder().id(21L).build();
+        when(tripGenerationService.createTrip(any(), eq("4"))).thenReturn(trip);
+        TripGenerationJobServiceImpl service = service(Runnable::run);
+        TripPreferenceRequestDTO dto = TripPreferenceRequestDTO.builder().toCity("Oslo").build();
+
+        TripGenerationJobDTO first = service.submitGeneration(dto, "4");
+        TripGenerationJobDTO second = service.submitGeneration(dto, "4");
+
+        assertThat(second.getJobId()).isNotEqualTo(first.getJobId());
+        verify(tripGenerationService, times(2)).generateTripPlan(trip);
+    }
+
+    @Test
+    void submitGeneration_concurrentDuplicates_runOnePipeline() throws Exception {
+        List<Runnable> queued = Collections.synchronizedList(new ArrayList<>());
+        TripGenerationJobServiceImpl service = service(queued::add);
+        TripPreferenceRequestDTO dto = TripPreferenceRequestDTO.builder().toCity("Hanoi").build();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<TripGenerationJobDTO>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return service.submitGeneration(dto, "9");
+                }));
+            }
+            start.countDown();
+            Set<Long> jobIds = new HashSet<>();
+            for (Future<TripGenerationJobDTO> result : results) {
+                jobIds.add(result.get().getJobId());
+            }
+
+            assertThat(jobIds).hasSize(1);
+            assertThat(queued).hasSize(1);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void submitRegeneration_whenSameTripInFlight_returnsSameJob() {
+        Trip trip = Trip.builder().id(30L).userId(7L).build();
+        when(tripRepository.findByIdAndUserId(30L, 7L)).thenReturn(Optional.of(trip));
+        List<Runnable> queued = new ArrayList<>();
+        TripGenerationJobServiceImpl service = service(queued::add);
+
+        TripGenerationJobDTO first = service.submitRegeneration(30L, new ModifyPlanDTO(), "7");
+        TripGenerationJobDTO duplicate = service.submitRegeneration(30L, new ModifyPlanDTO(), "7");
+
+        assertThat(duplicate.getJobId()).isEqualTo(first.getJobId());
+        assertThat(queued).hasSize(1);
+    }
+
+    @Test
+    void submitRegeneration_whenSameTripInFlightWithOtherInstructions_rejectsInsteadOfDropping() {
+        Trip trip = Trip.builder().id(30L).userId(7L).build();
+        when(tripRepository.findByIdAndUserId(30L, 7L)).thenReturn(Optional.of(trip));
+        List<Runnable> queued = new ArrayList<>();
+        TripGenerationJobServiceImpl service = service(queued::add);
+        ModifyPlanDTO first = new ModifyPlanDTO();
+        first.setSecondPreference("more museums");
+        ModifyPlanDTO second = new ModifyPlanDTO();
+        second.setSecondPreference("more food");
+
+        service.submitRegeneration(30L, first, "7");
+
+        assertThatThrownBy(() -> service.submitRegeneration(30L, second, "7"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("still being regenerated");
+        assertThat(queued).hasSize(1);
+    }
+
+    @Test
+    void submitRegeneration_checksOwnershipAndRunsRegeneration() {
+        when(tripRepository.findByIdAndUserId(12L, 77L)).thenReturn(Optional.of(Trip.builder().id(12L).build()));
+        ModifyPlanDTO modify = new ModifyPlanDTO();
+        modify.setSecondPreference("more food");
+
+        TripGenerationJobDTO result = service(Runnable::run).submitRegeneration(12L, modify, "77");
+
+        verify(tripGenerationService).regenerateTrip(eq(12L), argThat(m -> "more food".equals(m.getSecondPreference())), eq("77"));
+        assertThat(jobs.get(result.getJobId()).getStatus()).isEqualTo(TripJobStatus.SUCCEEDED);
+    }
+
+    @Test
+    void submitRegeneration_whenTripNotOwned_throwsIllegalArgument() {
+        when(tripRepository.findByIdAndUserId(12L, 5L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service(Runnable::run).submitRegeneration(12L, new ModifyPlanDTO(), "5"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Trip not found");
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void resumeUnfinishedJobs_reusesTripCreatedBeforeRestart() {
+        Trip trip = Trip.builder().id(30L).build();
+        TripGenerationJob interrupted = abandoned(1L, "stopped-instance");
+        jobs.put(1L, interrupted);
+        when(jobRepository.findByStatusInAndUpdatedTimeBeforeOrderByIdAsc(anyCollection(), any()))
+                .thenReturn(List.of(interrupted));
+        when(tripRepository.findById(30L)).thenReturn(Optional.of(trip));
+
+        assertThat(service(Runnable::run).resumeUnfinishedJobs()).isEqualTo(1);
+
+        verify(tripGenerationService, never()).createTrip(any(), anyString());
+        verify(tripGenerationService).generateTripPlan(trip);
+        assertThat(interrupted.getStatus()).isEqualTo(TripJobStatus.SUCCEEDED);
+        assertThat(interrupted.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void resumeUnfinishedJobs_whenAnotherInstanceClaimedFirst_doesNotRunJob() {
+        TripGenerationJob interrupted = abandoned(1L, "stopped-instance");
+        when(jobRepository.findByStatusInAndUpdatedTimeBeforeOrderByIdAsc(anyCollection(), any()))
+                .thenReturn(List.of(interrupted));
+        when(jobRepository.claim(eq(1L), anyCollection(), anyString(), any(), any())).thenReturn(0);
+        List<Runnable> queued = new ArrayList<>();
+
+        assertThat(service(queued::add).resumeUnfinishedJobs()).isZero();
+
+        assertThat(queued).isEmpty();
+    }
+
+    @Test
+    void resumeUnfinishedJobs_whenPoolRejects_releasesRegenerationKey() {
+        Trip trip = Trip.builder().id(30L).userId(4L).build();
+        when(tripRepository.findByIdAndUserId(30L, 4L)).thenReturn(Optional.of(trip));
+        TripGenerationJob interrupted = abandoned(1L, "stopped-instance");
+        interrupted.setType(TripJobType.REGENERATE);
+        interrupted.setCoalesceKey("regenerate:30");
+        jobs.put(1L, interrupted);
+        when(jobRepository.findByStatusInAndUpdatedTimeBeforeOrderByIdAsc(anyCollection(), any()))
+                .thenReturn(List.of(interrupted));
+        List<Runnable> queued = new ArrayList<>();
+        AtomicLong rejections = new AtomicLong(1);
+        TripGenerationJobServiceImpl service = service(task -> {
+            if (rejections.getAndDecrement() > 0) {
+                throw new TaskRejectedException("full");
+            }
+            queued.add(task);
+        });
+
+        assertThat(service.resumeUnfinishedJobs()).isZero();
+        assertThat(interrupted.getStatus()).isEqualTo(TripJobStatus.FAILED);
+
+        ModifyPlanDTO modify = new ModifyPlanDTO();
+        modify.setSecondPreference("more food");
+        TripGenerationJobDTO next = service.submitRegeneration(30L, modify, "4");
+        assertThat(next.getJobId()).isNotEqualTo(1L);
+        assertThat(queued).hasSize(1);
+    }
+
+    @Test
+    void runJob_whenFinalSaveFails_releasesRegenerationKey() {
+        Trip trip = Trip.builder().id(30L).userId(7L).build();
+        when(tripRepository.findByIdAndUserId(30L, 7L)).thenReturn(Optional.of(trip));
+        doThrow(new IllegalStateException("database down")).when(tripGenerationService)
+                .regenerateTrip(eq(30L), argThat(m -> "boom".equals(m.getSecondPreference())), eq("7"));
+        List<Runnable> queued = new ArrayList<>();
+        TripGenerationJobServiceImpl service = service(queued::add);
+        ModifyPlanDTO first = new ModifyPlanDTO();
+        first.setSecondPreference("boom");
+        service.submitRegeneration(30L, first, "7");
+        // the run's own saves succeed, the one recording the outcome fails
+        when(jobRepository.save(argThat(job -> job != null && job.getStatus() == TripJobStatus.FAILED)))
+                .thenThrow(new IllegalStateException("database down"));
+
+        assertThatThrownBy(queued.removeFirst()::run).isInstanceOf(IllegalStateException.class);
+
+        ModifyPlanDTO second = new ModifyPlanDTO();
+        second.setSecondPreference("more food");
+        assertThat(service.submitRegeneration(30L, second, "7").getJobId()).isNotNull();
+        assertThat(queued).hasSize(1);
+    }
+
+    @Test
+    void renewLeases_renewsUnfinishedJobsOfThisInstance() {
+        when(jobRepository.renewLeases(anyString(), anyCollection(), any())).thenReturn(2);
+
+        assertThat(service(Runnable::run).renewLeases()).isEqualTo(2);
+
+        verify(jobRepository).renewLeases(anyString(),
+                eq(List.of(TripJobStatus.PENDING, TripJobStatus.RUNNING)), any(OffsetDateTime.class));
+    }
+
+    @Test
+    void getJob_whenMissing_throwsIllegalArgument() {
+        when(jobRepository.findByIdAndUserId(99L, 1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service(Runnable::run).getJob(99L, "1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("99");
+    }
+}
@@ -1,30 +1,50 @@
 package com.demo.api.service.impl;
 
 import com.demo.api.client.OpenAiClient;
+import com.demo.api.dto.DailyWeatherDTO;
+import com.demo.api.dto.InsightResponseDTO;
 import com.demo.api.dto.ItineraryDTO;
+import com.demo.api.dto.ItineraryWithInsightsDTO;
 import com.demo.api.dto.TripPreferenceRequestDTO;
 import com.demo.api.dto.ModifyPlanDTO;
 import com.demo.api.model.Trip;
-import com.demo.api.model.TripWeather;
+import com.demo.api.repository.TripGenerationCheckpointRepository;
 import com.demo.api.repository.TripRepository;
-import com.demo.api.repository.TripWeatherRepository;
+import com.demo.api.service.ItineraryCacheService;
+import com.demo.api.service.ItineraryValidator;
+import com.demo.api.service.LlmCompletionService;
+import com.demo.api.service.SegmentedItineraryGenerator;
+import com.demo.api.service.TripGenerationCheckpointSaver;
+import com.demo.api.service.TripCoverImageResolver;
+import com.demo.api.service.TripInsightPrecomputer;
+import com.demo.api.service.TripInsightService;
 import com.demo.api.service.TripStorageService;
 import com.demo.api.service.WeatherService;
 import com.demo.api.service.TripPlanPromptBuilder;
+import com.demo.api.service.TripPlanStreamListener;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.SyncTaskExecutor;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -34,26 +54,45 @@ import static org.mockito.Mockito.*;
 class TripGenerationServiceImplTest {
 
     @Mock private WeatherService weatherService;
-    @Mock private TripWeatherRepository tripWeatherRepository;
     @Mock private TripPlanPromptBuilder tripPlanPromptBuilder;
     @Mock private ObjectProvider<OpenAiClient> openAiClientProvider;
     @Mock private ObjectProvider<TripStorageService> tripStorageServiceProvider;
     @Mock private TripRepository tripRepository;
     @Mock private OpenAiClient openAiClient;
     @Mock private TripStorageService tripStorageService;
+    @Mock private ItineraryCacheService itineraryCacheService;
+    @Mock private SegmentedItineraryGenerator segmentedItineraryGenerator;
+    @Mock private ItineraryValidator itineraryValidator;
+    @Mock private TripInsightService tripInsightService;
+    @Mock private TripInsightPrecomputer tripInsightPrecomputer;
+    @Mock private TripCoverImageResolver tripCoverImageResolver;
+    @Mock private TripGenerationCheckpointRepository checkpointRepository;
+    @Mock private LlmCompletionService llmCompletionService;
 
     private TripGenerationServiceImpl tripGenerationService;
 
     @BeforeEach
     void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         tripGenerationService = new TripGenerationServiceImpl(
                 new ModelMapper(),
                 weatherService,
-                tripWeatherRepository,
                 tripPlanPromptBuilder,
                 openAiClientProvider,
                 tripStorageServiceProvider,
-                tripRepository
+                tripRepository,
+                objectMapper,
+                itineraryCacheService,
+                segmentedItineraryGenerator,
+                itineraryValidator,
+                tripInsightService,
+                tripInsightPrecomputer,
+                tripCoverImageResolver,
+                new TripGenerationCheckpointSaver(checkpointRepository, objectMapper),
+                new SyncTaskExecutor(),
+                llmCompletionService,
+                1
         );
     }
 
@@ -73,28 +112,197 @@ class TripGenerationServiceImplTest {
             entity.setId(321L);
             return entity;
         });
-        TripWeather weather = TripWeather.builder()
-                .tripId(321L)
+        List<DailyWeatherDTO> forecast = List.of(DailyWeatherDTO.builder()
                 .date(LocalDate.now().plusDays(1))
                 .minTemp(10.0)
                 .maxTemp(18.0)
                 .weatherCondition("Cloudy")
-                .build();
-        when(tripWeatherRepository.findByTripId(321L)).thenReturn(List.of(weather));
-        when(tripPlanPromptBuilder.build(any(Trip.class), anyList())).thenReturn("prompt");
+                .build());
+        when(weatherService.fetchForecast(any(Trip.class))).thenReturn(forecast);
+        when(tripPlanPromptBuilder.build(any(Trip.class), eq(forecast))).thenReturn("prompt");
         when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
         when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
         ItineraryDTO itineraryDTO = ItineraryDTO.builder()
                 .dailySummaries(List.of())
                 .activities(List.of())
                 .build();
-        when(openAiClient.generate("prompt", ItineraryDTO.class)).thenReturn(itineraryDTO);
+        when(itineraryValidator.generate(eq(openAiClient), eq("prompt"), any(Trip.class),
+                eq(dto.getStartDate()), eq(dto.getEndDate()))).thenReturn(itineraryDTO);
 
         tripGenerationService.generateTripAndReturnJson(dto, "42");
 
-        verify(weatherService).fetchAndStoreWeather(argThat(trip -> trip.getUserId().equals(42L)));
-        verify(openAiClient).generate("prompt", ItineraryDTO.class);
-        verify(tripStorageService).storeTripPlan(any(Trip.class), eq(itineraryDTO));
+        verify(tripCoverImageResolver).schedule(argThat(trip -> trip.getId().equals(321L)));
+        verify(weatherService).fetchForecast(argThat(trip -> trip.getUserId().equals(42L)));
+        verify(weatherService).storeWeather(any(Trip.class), eq(forecast));
+        verify(itineraryValidator).generate(eq(openAiClient), eq("prompt"), any(Trip.class), any(), any());
+        InOrder storage = inOrder(tripStorageService);
+        storage.verify(tripStorageService).resolveImages(any(Trip.class), eq(itineraryDTO));
+        storage.verify(tripStorageService).storeTripPlan(any(Trip.class), eq(itineraryDTO));
+    }
+
+    @Test
+    void generateTripPlan_whenCached_skipsOpenAiAndStoresCachedPlan() {
+        Trip trip = Trip.builder()
+                .id(12L)
+                .toCity("Tokyo")
+                .startDate(LocalDate.now().plusDays(20))
+                .endDate(LocalDate.now().plusDays(24))
+                .build();
+        ItineraryDTO cached = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
+        when(itineraryCacheService.lookup(trip, false)).thenReturn(Optional.of(cached));
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+
+        tripGenerationService.generateTripPlan(trip);
+
+        verifyNoInteractions(openAiClientProvider, openAiClient, tripPlanPromptBuilder);
+        verify(itineraryCacheService, never()).store(any(), anyBoolean(), any());
+        verify(tripStorageService).storeTripPlan(trip, cached);
+    }
+
+    @Test
+    void generateTripPlan_whenNotCached_storesGeneratedPlanInCache() {
+        Trip trip = Trip.builder()
+                .id(13L)
+                .toCity("Osaka")
+                .startDate(LocalDate.now().plusDays(20))
+                .endDate(LocalDate.now().plusDays(22))
+                .build();
+        ItineraryDTO generated = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
+        when(tripPlanPromptBuilder.build(trip, List.of())).thenReturn("prompt");
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(itineraryValidator.generate(openAiClient, "prompt", trip, trip.getStartDate(), trip.getEndDate()))
+                .thenReturn(generated);
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+
+        tripGenerationService.generateTripPlan(trip);
+
+        InOrder order = inOrder(tripStorageService, itineraryCacheService);
+        order.verify(tripStorageService).resolveImages(trip, generated);
+        order.verify(itineraryCacheService).store(trip, false, generated);
+        order.verify(tripStorageService).storeTripPlan(trip, generated);
+    }
+
+    @Test
+    void generateTripPlan_whenTripIsLong_usesSegmentedGeneration() {
+        Trip trip = Trip.builder()
+                .id(14L)
+                .toCity("Lisbon")
+                .startDate(LocalDate.now().plusDays(20))
+                .endDate(LocalDate.now().plusDays(33))
+                .build();
+        ItineraryDTO stitched = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+        when(segmentedItineraryGenerator.supports(trip)).thenReturn(true);
+        when(segmentedItineraryGenerator.generate(trip, List.of(), openAiClient)).thenReturn(stitched);
+
+        tripGenerationService.generateTripPlan(trip);
+
+        verify(tripPlanPromptBuilder, never()).build(any(), any());
+        verify(openAiClient, never()).generate(anyString(), any());
+        verify(tripStorageService).storeTripPlan(trip, stitched);
+    }
+
+    @Test
+    void generateTripPlan_generatesAndStoresInsightsForPlannedAttractions() {
+        Trip trip = Trip.builder()
+                .id(15L)
+                .toCity("Rome")
+                .startDate(LocalDate.now().plusDays(20))
+                .endDate(LocalDate.now().plusDays(21))
+                .build();
+        ItineraryDTO cached = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of(
+                ItineraryDTO.AttractionDTO.builder().type("attraction").date(trip.getStartDate()).location("Colosseum").build(),
+                ItineraryDTO.AttractionDTO.builder().type("attraction").date(trip.getEndDate()).location("Colosseum").build(),
+                ItineraryDTO.HotelDTO.builder().type("hotel").date(trip.getStartDate()).title("Hotel Roma").build()
+        )).build();
+        InsightResponseDTO insights = new InsightResponseDTO();
+        when(itineraryCacheService.lookup(trip, false)).thenReturn(Optional.of(cached));
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+        when(tripInsightService.generateInsights(trip, List.of("Colosseum"))).thenReturn(insights);
+
+        tripGenerationService.generateTripPlan(trip);
+
+        // insights go in before the plan: storing the plan schedules the background precompute, which must
+        // find them already stored instead of asking the model a second time
+        InOrder order = inOrder(tripStorageService, tripInsightService);
+        order.verify(tripInsightService).storeInsights(15L, insights);
+        order.verify(tripStorageService).storeTripPlan(trip, cached);
+    }
+
+    @Test
+    void generateTripPlan_whenItineraryCarriesInsights_storesThemWithoutInsightsCall() {
+        Trip trip = Trip.builder()
+                .id(14L)
+                .toCity("Rome")
+                .toCountry("Italy")
+                .startDate(LocalDate.now().plusDays(20))
+                .endDate(LocalDate.now().plusDays(21))
+                .build();
+        ItineraryDTO plain = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of(
+                ItineraryDTO.AttractionDTO.builder().type("attraction").date(trip.getStartDate()).location("Colosseum").build()
+        )).build();
+        InsightResponseDTO.InsightItem insight = new InsightResponseDTO.InsightItem();
+        insight.setTitle("Aperitivo hour");
+        when(tripPlanPromptBuilder.build(trip, List.of())).thenReturn("prompt");
+        when(tripPlanPromptBuilder.isCombinedInsights()).thenReturn(true);
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(itineraryValidator.generateWithInsights(openAiClient, "prompt", trip, trip.getStartDate(), trip.getEndDate()))
+                .thenReturn(new ItineraryWithInsightsDTO(plain, List.of(insight)));
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+
+        tripGenerationService.generateTripPlan(trip);
+
+        verify(tripInsightService, never()).generateInsights(any(), any());
+        verify(itineraryCacheService).store(trip, false, plain);
+        verify(tripStorageService).storeTripPlan(trip, plain);
+        verify(tripInsightService).storeInsights(eq(14L), argThat(response ->
+                response.getInsights().equals(List.of(insight)) && "Rome, Italy".equals(response.getMeta().getDestination())));
+    }
+
+    @Test
+    void generateTripPlan_whenStoreFailsOnce_resumesWithoutRegenerating() {
+        Trip trip = Trip.builder()
+                .id(16L)
+                .toCity("Osaka")
+                .startDate(LocalDate.now().plusDays(20))
+                .endDate(LocalDate.now().plusDays(22))
+                .build();
+        ItineraryDTO generated = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
+        when(tripPlanPromptBuilder.build(trip, List.of())).thenReturn("prompt");
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(itineraryValidator.generate(openAiClient, "prompt", trip, trip.getStartDate(), trip.getEndDate()))
+                .thenReturn(generated);
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+        doThrow(new IllegalStateException("connection reset")).doNothing()
+                .when(tripStorageService).storeTripPlan(trip, generated);
+
+        tripGenerationService.generateTripPlan(trip);
+
+        verify(itineraryValidator, times(1)).generate(any(), any(), any(), any(), any());
+        verify(tripStorageService, times(1)).resolveImages(any(), any());
+        verify(tripStorageService, times(2)).storeTripPlan(trip, generated);
+        verify(checkpointRepository).deleteByThreadId("trip:16");
+    }
+
+    @Test
+    void generateTripPlan_whenResumesExhausted_rethrowsNodeFailure() {
+        Trip trip = Trip.builder()
+                .id(17L)
+                .toCity("Osaka")
+                .startDate(LocalDate.now().plusDays(20))
+                .endDate(LocalDate.now().plusDays(22))
+                .build();
+        ItineraryDTO cached = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
+        when(itineraryCacheService.lookup(trip, false)).thenReturn(Optional.of(cached));
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+        doThrow(new IllegalStateException("connection reset")).when(tripStorageService).storeTripPlan(trip, cached);
+
+        assertThatThrownBy(() -> tripGenerationService.generateTripPlan(trip))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("connection reset");
+        verify(tripStorageService, times(2)).storeTripPlan(trip, cached);
+        verify(itineraryCacheService, times(1)).lookup(trip, false);
     }
 
     @Test
@@ -128,27 +336,198 @@ class TripGenerationServiceImplTest {
                 .endDate(LocalDate.now().plusDays(6))
                 .build();
         when(tripRepository.findByIdAndUserId(55L, 7L)).thenReturn(Optional.of(trip));
-        when(tripWeatherRepository.findByTripId(55L)).thenReturn(List.of(
-                TripWeather.builder()
-                        .tripId(55L)
-                        .date(LocalDate.now().plusDays(3))
-                        .minTemp(12.0)
-                        .maxTemp(24.0)
-                        .weatherCondition("Clear")
-                        .build()
-        ));
-        when(tripPlanPromptBuilder.buildForRegeneration(eq(trip), anyList(), any(ModifyPlanDTO.class)))
+        List<DailyWeatherDTO> forecast = List.of(DailyWeatherDTO.builder()
+                .date(LocalDate.now().plusDays(3))
+                .minTemp(12.0)
+                .maxTemp(24.0)
+                .weatherCondition("Clear")
+                .build());
+        when(weatherService.fetchForecast(trip)).thenReturn(forecast);
+        when(tripPlanPromptBuilder.buildForRegeneration(eq(trip), eq(forecast), any(ModifyPlanDTO.class)))
                 .thenReturn("regen-prompt");
         when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
         when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
         ItineraryDTO regenDto = ItineraryDTO.builder().dailySummaries(List.of()).activities(List.of()).build();
-        when(openAiClient.generate(eq("regen-prompt"), eq(ItineraryDTO.class))).thenReturn(regenDto);
+        when(itineraryValidator.generate(openAiClient, "regen-prompt", trip, trip.getStartDate(), trip.getEndDate()))
+                .thenReturn(regenDto);
 
         tripGenerationService.regenerateTrip(55L, new ModifyPlanDTO(), "7");
 
-        verify(tripWeatherRepository).deleteByTripIdIn(List.of(55L));
-        verify(weatherService).fetchAndStoreWeather(trip);
-        verify(openAiClient).generate("regen-prompt", ItineraryDTO.class);
+        verify(weatherService).replaceWeather(trip, forecast);
+        verify(itineraryValidator).generate(openAiClient, "regen-prompt", trip, trip.getStartDate(), trip.getEndDate());
+        verify(tripStorageService).resolveImages(trip, regenDto);
         verify(tripStorageService).storeTripPlan(eq(trip), eq(regenDto));
     }
+
+    @Test
+    void replayTripPlan_stitchesNewestRecordedCompletionPerDateAndStoresIt() {
+        Trip trip = Trip.builder()
+                .id(56L)
+                .userId(7L)
+                .toCity("Seoul")
+                .startDate(LocalDate.of(2025, 3, 1))
+                .endDate(LocalDate.of(2025, 3, 2))
+                .build();
+        when(tripRepository.findByIdAndUserId(56L, 7L)).thenReturn(Optional.of(trip));
+        when(llmCompletionService.findBySubject("trip:56", ItineraryDTO.class)).thenReturn(List.of(
+                "{\"daily_summaries\":[{\"date\":\"2025-03-02\",\"summary\":\"B2\"}],\"activities\":["
+                        + "{\"date\":\"2025-03-02\",\"type\":\"attraction\",\"title\":\"Palace\"}]}",
+                "{\"daily_summaries\":[{\"date\":\"2025-03-01\",\"summary\":\"A\"},{\"date\":\"2025-03-02\",\"summary\":\"B1\"}],"
+                        + "\"activities\":[{\"date\":\"2025-03-01\",\"type\":\"attraction\",\"title\":\"Market\"},"
+                        + "{\"date\":\"2025-03-02\",\"type\":\"attraction\",\"title\":\"Tower\"}]}"));
+        when(llmCompletionService.findBySubject("trip:56", ItineraryWithInsightsDTO.class)).thenReturn(List.of());
+        when(llmCompletionService.findBySubject("trip:56", InsightResponseDTO.class)).thenReturn(List.of());
+        when(itineraryValidator.validate(eq(trip), eq(trip.getStartDate()), eq(trip.getEndDate()), any()))
+                .thenReturn(new ItineraryValidator.Report(List.of(), List.of()));
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+
+        tripGenerationService.replayTripPlan(56L, "7");
+
+        verifyNoInteractions(openAiClientProvider, openAiClient, weatherService);
+        verify(tripStorageService).storeTripPlan(eq(trip), argThat(plan ->
+                plan.getDailySummaries().stream().map(ItineraryDTO.DailySummaryDTO::getSummary).toList().equals(List.of("A", "B2"))
+                        && plan.getActivities().stream().map(ItineraryDTO.ActivityDTO::getTitle).toList().equals(List.of("Market", "Palace"))));
+        verify(tripInsightService, never()).storeInsights(any(), any());
+    }
+
+    @Test
+    void replayTripPlan_withCombinedCompletion_restoresItsDaysAndInsightsUnderNewerCompletions() {
+        Trip trip = Trip.builder()
+                .id(58L)
+                .userId(7L)
+                .toCity("Seoul")
+                .toCountry("South Korea")
+                .startDate(LocalDate.of(2025, 3, 1))
+                .endDate(LocalDate.of(2025, 3, 2))
+                .build();
+        when(tripRepository.findByIdAndUserId(58L, 7L)).thenReturn(Optional.of(trip));
+        // A later regeneration of 2025-03-02 wins over the combined first generation for that day
+        when(llmCompletionService.findBySubject("trip:58", ItineraryDTO.class)).thenReturn(List.of(
+                "{\"daily_summaries\":[{\"date\":\"2025-03-02\",\"summary\":\"B2\"}],\"activities\":["
+                        + "{\"date\":\"2025-03-02\",\"type\":\"attraction\",\"title\":\"Palace\"}]}"));
+        when(llmCompletionService.findBySubject("trip:58", ItineraryWithInsightsDTO.class)).thenReturn(List.of(
+                "{\"daily_summaries\":[{\"date\":\"2025-03-01\",\"summary\":\"A\"},{\"date\":\"2025-03-02\",\"summary\":\"B1\"}],"
+                        + "\"activities\":[{\"date\":\"2025-03-01\",\"type\":\"attraction\",\"title\":\"Market\"},"
+                        + "{\"date\":\"2025-03-02\",\"type\":\"attraction\",\"title\":\"Tower\"}],"
+                        + "\"insights\":[{\"id\":\"1\",\"title\":\"Subway etiquette\",\"content\":\"Stand on the right.\"}]}"));
+        when(llmCompletionService.findBySubject("trip:58", InsightResponseDTO.class)).thenReturn(List.of());
+        when(itineraryValidator.validate(eq(trip), eq(trip.getStartDate()), eq(trip.getEndDate()), any()))
+                .thenReturn(new ItineraryValidator.Report(List.of(), List.of()));
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+
+        tripGenerationService.replayTripPlan(58L, "7");
+
+        verifyNoInteractions(openAiClientProvider, openAiClient, weatherService);
+        verify(tripStorageService).storeTripPlan(eq(trip), argThat(plan ->
+                plan.getDailySummaries().stream().map(ItineraryDTO.DailySummaryDTO::getSummary).toList().equals(List.of("A", "B2"))
+                        && plan.getActivities().stream().map(ItineraryDTO.ActivityDTO::getTitle).toList().equals(List.of("Market", "Palace"))));
+        ArgumentCaptor<InsightResponseDTO> insights = ArgumentCaptor.forClass(InsightResponseDTO.class);
+        verify(tripInsightService).storeInsights(eq(58L), insights.capture());
+        assertThat(insights.getValue().getInsights()).extracting(InsightResponseDTO.InsightItem::getTitle)
+                .containsExactly("Subway etiquette");
+        assertThat(insights.getValue().getMeta().getDestination()).isEqualTo("Seoul, South Korea");
+    }
+
+    @Test
+    void replayTripPlan_whenNothingRecorded_throwsIllegalArgument() {
+        Trip trip = Trip.builder().id(57L).userId(7L).build();
+        when(tripRepository.findByIdAndUserId(57L, 7L)).thenReturn(Optional.of(trip));
+        when(llmCompletionService.findBySubject("trip:57", ItineraryDTO.class)).thenReturn(List.of());
+
+        assertThatThrownBy(() -> tripGenerationService.replayTripPlan(57L, "7"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("No recorded itinerary");
+    }
+
+    @Test
+    void streamTripPlan_storesEachDayAsItArrives() {
+        Trip trip = Trip.builder()
+                .id(77L)
+                .userId(3L)
+                .toCity("Hobart")
+                .startDate(LocalDate.now().plusDays(30))
+                .endDate(LocalDate.now().plusDays(31))
+                .build();
+        LocalDate day1 = trip.getStartDate();
+        LocalDate day2 = trip.getEndDate();
+        when(tripPlanPromptBuilder.buildForStreaming(trip, List.of())).thenReturn("stream-prompt");
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+        when(openAiClient.stream("stream-prompt", ItineraryDTO.class)).thenReturn(Flux.just(
+                "{\"daily_summaries\":[{\"date\":\"" + day1 + "\",\"summary\":\"A\"},",
+                "{\"date\":\"" + day2 + "\",\"summary\":\"B\"}],\"activities\":[",
+                "{\"date\":\"" + day1 + "\",\"type\":\"attraction\",\"title\":\"Museum\"},",
+                "{\"date\":\"" + day2 + "\",\"type\":\"hotel\",\"title\":\"Stay\"}]}"));
+        when(itineraryValidator.validate(eq(trip), eq(day1), eq(day2), any())).thenReturn(new ItineraryValidator.Report(List.of(), List.of()));
+        TripPlanStreamListener listener = mock(TripPlanStreamListener.class);
+
+        tripGenerationService.streamTripPlan(trip, listener);
+
+        verifyNoInteractions(weatherService);
+        InOrder order = inOrder(tripStorageService, listener);
+        order.verify(tripStorageService).clearTripPlan(trip);
+        order.verify(tripStorageService).storeDailySummary(eq(trip), argThat(s -> "A".equals(s.getSummary())));
+        order.verify(listener).onDayStored(77L, day1);
+        order.verify(tripStorageService).storeDailySummary(eq(trip), argThat(s -> "B".equals(s.getSummary())));
+        order.verify(listener).onDayStored(77L, day2);
+        order.verify(tripStorageService).storeActivities(eq(trip), argThat(a -> a.size() == 1
+                && a.get(0) instanceof ItineraryDTO.AttractionDTO));
+        order.verify(listener).onDayStored(77L, day1);
+        order.verify(tripStorageService).storeActivities(eq(trip), argThat(a -> a.size() == 1
+                && a.get(0) instanceof ItineraryDTO.HotelDTO));
+        order.verify(listener).onDayStored(77L, day2);
+        verify(tripStorageService, never()).storeTripPlan(any(), any());
+        verify(tripInsightPrecomputer).reschedule(77L);
+    }
+
+    @Test
+    void streamTripPlan_whenChunksArriveOnAnotherThread_storesDaysOnCallingThread() {
+        Trip trip = Trip.builder().id(78L).userId(3L).toCity("Hobart").build();
+        when(tripPlanPromptBuilder.buildForStreaming(trip, List.of())).thenReturn("stream-prompt");
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+        LocalDate day = LocalDate.now().plusDays(30);
+        when(openAiClient.stream("stream-prompt", ItineraryDTO.class)).thenReturn(Flux.just(
+                        "{\"daily_summaries\":[{\"date\":\"" + day + "\",\"summary\":\"A\"}],",
+                        "\"activities\":[{\"date\":\"" + day + "\",\"type\":\"attraction\",\"title\":\"Museum\"}]}")
+                .publishOn(Schedulers.parallel()));
+        List<Thread> storingThreads = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> storingThreads.add(Thread.currentThread()))
+                .when(tripStorageService).resolveImages(eq(trip), any());
+        doAnswer(invocation -> storingThreads.add(Thread.currentThread()))
+                .when(tripStorageService).storeDailySummary(eq(trip), any());
+
+        tripGenerationService.streamTripPlan(trip, mock(TripPlanStreamListener.class));
+
+        assertThat(storingThreads).hasSize(2).containsOnly(Thread.currentThread());
+    }
+
+    @Test
+    void streamTripPlan_whenRepairChangesPlan_storesRepairedPlanAgain() {
+        Trip trip = Trip.builder()
+                .id(79L)
+                .userId(3L)
+                .toCity("Hobart")
+                .startDate(LocalDate.now().plusDays(30))
+                .endDate(LocalDate.now().plusDays(30))
+                .build();
+        LocalDate day = trip.getStartDate();
+        when(tripPlanPromptBuilder.buildForStreaming(trip, List.of())).thenReturn("stream-prompt");
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(tripStorageServiceProvider.getIfAvailable()).thenReturn(tripStorageService);
+        when(openAiClient.stream("stream-prompt", ItineraryDTO.class)).thenReturn(Flux.just(
+                "{\"daily_summaries\":[],\"activities\":[{\"date\":\"" + day + "\",\"type\":\"attraction\",\"title\":\"Museum\"}]}"));
+        when(itineraryValidator.validate(eq(trip), eq(day), eq(day), any()))
+                .thenReturn(new ItineraryValidator.Report(List.of("added missing daily summary for " + day), List.of()));
+
+        tripGenerationService.streamTripPlan(trip, mock(TripPlanStreamListener.class));
+
+        InOrder order = inOrder(tripStorageService);
+        order.verify(tripStorageService).storeActivities(eq(trip), anyList());
+        order.verify(tripStorageService).resolveImages(eq(trip), any());
+        order.verify(tripStorageService).storeTripPlan(eq(trip), any());
+        // storing the whole plan schedules the insights itself
+        verifyNoInteractions(tripInsightPrecomputer);
+        verify(itineraryCacheService).store(eq(trip), eq(false), any());
+    }
 }
@@ -2,29 +2,34 @@ package com.demo.api.service.impl;
 
 import com.demo.api.client.OpenAiClient;
 import com.demo.api.dto.InsightResponseDTO;
-import com.demo.api.dto.TripInsightDTO;
+import com.demo.api.dto.TripInsightsDTO;
+import com.demo.api.enums.TripInsightStatus;
 import com.demo.api.mapper.TripInsightMapper;
 import com.demo.api.model.Trip;
-import com.demo.api.model.TripAttraction;
 import com.demo.api.model.TripInsight;
-import com.demo.api.repository.TripAttractionRepository;
 import com.demo.api.repository.TripInsightRepository;
-import com.demo.api.repository.TripRepository;
+import com.demo.api.service.DestinationInsightCacheService;
+import com.demo.api.service.TripInsightPrecomputer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -33,10 +38,10 @@ import static org.mockito.Mockito.*;
 class TripInsightServiceImplTest {
 
     @Mock private TripInsightRepository tripInsightRepository;
-    @Mock private TripRepository tripRepository;
-    @Mock private TripAttractionRepository tripAttractionRepository;
     @Mock private ObjectProvider<OpenAiClient> openAiClientProvider;
     @Mock private OpenAiClient openAiClient;
+    @Mock private TripInsightPrecomputer tripInsightPrecomputer;
+    @Mock private DestinationInsightCacheService destinationInsightCacheService;
 
     private TripInsightServiceImpl tripInsightService;
 
@@ -45,73 +50,162 @@ class TripInsightServiceImplTest {
         tripInsightService = new TripInsightServiceImpl(
                 new TripInsightMapper(),
                 tripInsightRepository,
-                tripRepository,
-                tripAttractionRepository,
-                openAiClientProvider
+                openAiClientProvider,
+                tripInsightPrecomputer,
+                destinationInsightCacheService,
+                Runnable::run
         );
     }
 
     @Test
-    void generateAndStoreInsights_whenItineraryAvailable_persistsInsights() {
-        Trip trip = Trip.builder()
-                .id(12L)
-                .toCity("Kyoto")
-                .toCountry("Japan")
-                .startDate(LocalDate.of(2025, 5, 1))
-                .endDate(LocalDate.of(2025, 5, 5))
-                .build();
-        when(tripRepository.findById(12L)).thenReturn(Optional.of(trip));
-        when(tripAttractionRepository.findByTripId(12L)).thenReturn(List.of(
-                TripAttraction.builder().location("Fushimi Inari").build()
-        ));
-        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
-        InsightResponseDTO.InsightItem item = new InsightResponseDTO.InsightItem();
-        item.setId("1");
-        item.setTitle("Shrine Etiquette");
-        item.setContent("Be respectful at shrines.");
+    void storeInsights_replacesStoredInsightsOfTheTrip() {
+        InsightResponseDTO.InsightItem item = item("Shrine Etiquette");
         item.setTheme("culture");
         item.setIcon("⛩️");
-        InsightResponseDTO response = new InsightResponseDTO();
-        response.setInsights(List.of(item));
-        when(openAiClient.generate(anyString(), eq(InsightResponseDTO.class))).thenReturn(response);
-        when(tripInsightRepository.saveAll(anyList())).thenAnswer(invocation -> {
-            List<TripInsight> saved = invocation.getArgument(0);
-            long counter = 1L;
-            for (TripInsight insight : saved) {
-                if (insight.getId() == null) {
-                    insight.setId(counter++);
-                }
-            }
-            return saved;
-        });
-
-        List<TripInsight> results = tripInsightService.generateAndStoreInsights(12L);
+        when(tripInsightRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<TripInsight> results = tripInsightService.storeInsights(12L, response(item));
 
         assertThat(results).hasSize(1);
         TripInsight insight = results.getFirst();
         assertThat(insight.getTripId()).isEqualTo(12L);
         assertThat(insight.getTitle()).isEqualTo("Shrine Etiquette");
+        assertThat(insight.getIcon()).isEqualTo("⛩️");
+        InOrder order = inOrder(tripInsightRepository);
+        order.verify(tripInsightRepository).deleteByTripId(12L);
+        order.verify(tripInsightRepository).saveAll(anyList());
+    }
+
+    @Test
+    void storeInsights_whenNothingGenerated_keepsStoredInsights() {
+        assertThat(tripInsightService.storeInsights(44L, null)).isEmpty();
+
+        verifyNoInteractions(tripInsightRepository);
+    }
+
+    private static InsightResponseDTO.InsightItem item(String title) {
+        InsightResponseDTO.InsightItem item = new InsightResponseDTO.InsightItem();
+        item.setId("9");
+        item.setTitle(title);
+        item.setContent(title + " content");
+        return item;
+    }
 
-        ArgumentCaptor<List<TripInsight>> captor = ArgumentCaptor.forClass(List.class);
-        verify(tripInsightRepository).saveAll(captor.capture());
-        assertThat(captor.getValue()).hasSize(1);
-        verify(openAiClient).generate(contains("Kyoto"), eq(InsightResponseDTO.class));
+    private static InsightResponseDTO response(InsightResponseDTO.InsightItem... items) {
+        InsightResponseDTO response = new InsightResponseDTO();
+        response.setInsights(List.of(items));
+        return response;
     }
 
     @Test
-    void generateAndStoreInsights_whenNoAttractions_returnsEmpty() {
-        Trip trip = Trip.builder().id(44L).build();
-        when(tripRepository.findById(44L)).thenReturn(Optional.of(trip));
-        when(tripAttractionRepository.findByTripId(44L)).thenReturn(List.of());
+    void generateInsights_whenDestinationCached_onlyAsksForAttractionTips() {
+        Trip trip = Trip.builder().id(12L).toCity("Kyoto").toCountry("Japan")
+                .startDate(LocalDate.of(2025, 5, 1)).endDate(LocalDate.of(2025, 5, 5)).build();
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(destinationInsightCacheService.isEnabled()).thenReturn(true);
+        when(destinationInsightCacheService.lookup(trip)).thenReturn(Optional.of(List.of(item("Tea ceremony"))));
+        when(openAiClient.generate(anyString(), eq(InsightResponseDTO.class))).thenReturn(response(item("Gate tunnel")));
 
-        List<TripInsight> results = tripInsightService.generateAndStoreInsights(44L);
+        InsightResponseDTO result = tripInsightService.generateInsights(trip, List.of("Fushimi Inari"));
 
-        assertThat(results).isEmpty();
-        verifyNoInteractions(openAiClientProvider);
+        assertThat(result.getInsights()).extracting(InsightResponseDTO.InsightItem::getTitle)
+                .containsExactly("Tea ceremony", "Gate tunnel");
+        assertThat(result.getInsights()).extracting(InsightResponseDTO.InsightItem::getId).containsExactly("1", "2");
+        verify(openAiClient).generate(contains("Fushimi Inari"), eq(InsightResponseDTO.class));
+        verify(destinationInsightCacheService, never()).store(any(), any());
+    }
+
+    @Test
+    void generateInsights_whenDestinationNotCached_storesEvergreenPartForOtherTrips() {
+        Trip trip = Trip.builder().id(12L).toCity("Kyoto").toCountry("Japan")
+                .startDate(LocalDate.of(2025, 5, 1)).endDate(LocalDate.of(2025, 5, 5)).build();
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(destinationInsightCacheService.isEnabled()).thenReturn(true);
+        when(destinationInsightCacheService.lookup(trip)).thenReturn(Optional.empty());
+        when(openAiClient.generate(contains("Travel month: May"), eq(InsightResponseDTO.class)))
+                .thenReturn(response(item("Tea ceremony"), item("Temple etiquette")));
+        InsightResponseDTO contextual = response(item("Gate tunnel"));
+        contextual.setMeta(meta("Kyoto, Japan"));
+        when(openAiClient.generate(contains("Fushimi Inari"), eq(InsightResponseDTO.class))).thenReturn(contextual);
+
+        InsightResponseDTO result = tripInsightService.generateInsights(trip, List.of("Fushimi Inari"));
+
+        assertThat(result.getInsights()).extracting(InsightResponseDTO.InsightItem::getTitle)
+                .containsExactly("Tea ceremony", "Temple etiquette", "Gate tunnel");
+        assertThat(result.getMeta().getDestination()).isEqualTo("Kyoto, Japan");
+        ArgumentCaptor<List<InsightResponseDTO.InsightItem>> captor = ArgumentCaptor.forClass(List.class);
+        verify(destinationInsightCacheService).store(eq(trip), captor.capture());
+        assertThat(captor.getValue()).extracting(InsightResponseDTO.InsightItem::getTitle)
+                .containsExactly("Tea ceremony", "Temple etiquette");
+    }
+
+    @Test
+    void generateInsights_whenDestinationNotCached_asksForBothPartsAtOnce() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        try {
+            TripInsightServiceImpl service = new TripInsightServiceImpl(new TripInsightMapper(), tripInsightRepository,
+                    openAiClientProvider, tripInsightPrecomputer, destinationInsightCacheService, executor);
+            Trip trip = Trip.builder().id(12L).toCity("Kyoto").toCountry("Japan")
+                    .startDate(LocalDate.of(2025, 5, 1)).endDate(LocalDate.of(2025, 5, 5)).build();
+            when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+            when(destinationInsightCacheService.isEnabled()).thenReturn(true);
+            when(destinationInsightCacheService.lookup(trip)).thenReturn(Optional.empty());
+            // each call only returns once the other one is in flight too
+            CountDownLatch inFlight = new CountDownLatch(2);
+            InsightResponseDTO evergreen = response(item("Tea ceremony"));
+            evergreen.setMeta(meta("Kyoto"));
+            when(openAiClient.generate(contains("Travel month: May"), eq(InsightResponseDTO.class)))
+                    .thenAnswer(invocation -> awaitBoth(inFlight, evergreen));
+            InsightResponseDTO contextual = response(item("Gate tunnel"));
+            when(openAiClient.generate(contains("Fushimi Inari"), eq(InsightResponseDTO.class)))
+                    .thenAnswer(invocation -> awaitBoth(inFlight, contextual));
+
+            InsightResponseDTO result = service.generateInsights(trip, List.of("Fushimi Inari"));
+
+            assertThat(result.getInsights()).extracting(InsightResponseDTO.InsightItem::getTitle)
+                    .containsExactly("Tea ceremony", "Gate tunnel");
+            // the contextual part came back without meta, so the evergreen part's is kept
+            assertThat(result.getMeta().getDestination()).isEqualTo("Kyoto");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void generateInsights_whenContextualCallFails_stillCachesEvergreenPart() {
+        Trip trip = Trip.builder().id(12L).toCity("Kyoto").toCountry("Japan")
+                .startDate(LocalDate.of(2025, 5, 1)).endDate(LocalDate.of(2025, 5, 5)).build();
+        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
+        when(destinationInsightCacheService.isEnabled()).thenReturn(true);
+        when(destinationInsightCacheService.lookup(trip)).thenReturn(Optional.empty());
+        when(openAiClient.generate(contains("Travel month: May"), eq(InsightResponseDTO.class)))
+                .thenReturn(response(item("Tea ceremony")));
+        when(openAiClient.generate(contains("Fushimi Inari"), eq(InsightResponseDTO.class)))
+                .thenThrow(new IllegalStateException("model down"));
+
+        assertThatThrownBy(() -> tripInsightService.generateInsights(trip, List.of("Fushimi Inari")))
+                .isInstanceOf(IllegalStateException.class);
+        verify(destinationInsightCacheService).store(eq(trip), anyList());
+    }
+
+    private static InsightResponseDTO awaitBoth(CountDownLatch inFlight, InsightResponseDTO response)
+            throws InterruptedException {
+        inFlight.countDown();
+        if (!inFlight.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("insight calls ran one after the other");
+        }
+        return response;
+    }
+
+    private static InsightResponseDTO.Meta meta(String destination) {
+        InsightResponseDTO.Meta meta = new InsightResponseDTO.Meta();
+        meta.setDestination(destination);
+        return meta;
     }
 
     @Test
-    void getOrGenerateInsights_whenCached_returnsDtoList() {
+    void getInsights_whenStored_returnsReadyDtoList() {
         TripInsight stored = new TripInsight();
         stored.setId(5L);
         stored.setTripId(22L);
@@ -120,47 +214,34 @@ class TripInsightServiceImplTest {
         stored.setTheme("culture");
         stored.setIcon("🏯");
 
-        when(tripInsightRepository.existsByTripId(22L)).thenReturn(true);
         when(tripInsightRepository.findByTripIdOrderById(22L)).thenReturn(List.of(stored));
 
-        List<TripInsightDTO> dtos = tripInsightService.getOrGenerateInsights(22L);
+        TripInsightsDTO result = tripInsightService.getInsights(22L);
 
-        assertThat(dtos).hasSize(1);
-        assertThat(dtos.getFirst().getTitle()).isEqualTo("History");
+        assertThat(result.getStatus()).isEqualTo(TripInsightStatus.READY);
+        assertThat(result.getInsights()).hasSize(1);
+        assertThat(result.getInsights().getFirst().getTitle()).isEqualTo("History");
+        verifyNoInteractions(tripInsightPrecomputer, openAiClientProvider);
+    }
+
+    @Test
+    void getInsights_whenNotStored_schedulesGenerationWithoutCallingModel() {
+        when(tripInsightRepository.findByTripIdOrderById(30L)).thenReturn(List.of());
+        when(tripInsightPrecomputer.schedule(30L)).thenReturn(true);
+
+        TripInsightsDTO result = tripInsightService.getInsights(30L);
+
+        assertThat(result.getStatus()).isEqualTo(TripInsightStatus.IN_PROGRESS);
+        assertThat(result.getInsights()).isEmpty();
+        verifyNoInteractions(openAiClientProvider);
         verify(tripInsightRepository, never()).saveAll(anyList());
     }
 
     @Test
-    void getOrGenerateInsights_whenNotCached_triggersGeneration() {
-        Trip trip = Trip.builder().id(30L).build();
-        TripAttraction attraction = TripAttraction.builder().location("Sydney Harbour").build();
-        when(tripInsightRepository.existsByTripId(30L)).thenReturn(false);
-        when(tripRepository.findById(30L)).thenReturn(Optional.of(trip));
-        when(tripAttractionRepository.findByTripId(30L)).thenReturn(List.of(attraction));
-        when(openAiClientProvider.getIfAvailable()).thenReturn(openAiClient);
-        InsightResponseDTO response = new InsightResponseDTO();
-        InsightResponseDTO.InsightItem item = new InsightResponseDTO.InsightItem();
-        item.setId("1");
-        item.setTitle("Harbour Cruise");
-        item.setContent("Enjoy the harbour.");
-        item.setIcon("⛴️");
-        item.setTheme("scenery");
-        response.setInsights(List.of(item));
-        when(openAiClient.generate(anyString(), eq(InsightResponseDTO.class))).thenReturn(response);
-        when(tripInsightRepository.saveAll(anyList())).thenAnswer(invocation -> {
-            List<TripInsight> saved = invocation.getArgument(0);
-            long counter = 1L;
-            for (TripInsight insight : saved) {
-                if (insight.getId() == null) {
-                    insight.setId(counter++);
-                }
-            }
-            return saved;
-        });
-
-        List<TripInsightDTO> results = tripInsightService.getOrGenerateInsights(30L);
+    void getInsights_whenGenerationCannotBeScheduled_returnsUnavailable() {
+        when(tripInsightRepository.findByTripIdOrderById(31L)).thenReturn(List.of());
+        when(tripInsightPrecomputer.schedule(31L)).thenReturn(false);
 
-        assertThat(results).hasSize(1);
-        verify(tripInsightRepository).saveAll(anyList());
+        assertThat(tripInsightService.getInsights(31L).getStatus()).isEqualTo(TripInsightStatus.UNAVAILABLE);
     }
 }
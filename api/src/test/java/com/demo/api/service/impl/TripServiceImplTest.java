@@ -1,10 +1,10 @@
 package com.demo.api.service.impl;
 
 import com.demo.api.dto.TimeLineDTO;
+import com.demo.api.dto.TripDetailDTO;
 import com.demo.api.model.*;
 import com.demo.api.repository.*;
 import com.demo.api.support.TestDataFactory;
-import com.demo.api.utils.UnsplashImgUtils;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
@@ -13,8 +13,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,7 +27,6 @@ import static org.mockito.Mockito.*;
 class TripServiceImplTest {
 
     @Mock private TripRepository tripRepository;
-    @Mock private UnsplashImgUtils unsplashImgUtils;
     @Mock private TripAttractionRepository tripAttractionRepository;
     @Mock private TripHotelRepository tripHotelRepository;
     @Mock private TripTransportationRepository tripTransportationRepository;
@@ -38,25 +39,48 @@ class TripServiceImplTest {
     private TripServiceImpl tripService;
 
     @Test
-    void getTripDetails_enrichesTripsWithImage() {
+    void getTripDetails_mapsStoredCoverThroughImageProxy() {
         Trip trip = TestDataFactory.trip(200L);
         trip.setToCity("Tokyo");
         trip.setToCountry("Japan");
         trip.setStartDate(LocalDate.now());
         trip.setEndDate(LocalDate.now().plusDays(1));
+        trip.setCoverImageUrl("https://images.unsplash.com/photo-1?w=600&h=400");
+        Trip uncovered = TestDataFactory.trip(201L);
+        Trip noImage = TestDataFactory.trip(202L);
+        noImage.setCoverImageUrl("");
 
         when(tripRepository.findByUserIdOrderByUpdatedTimeDesc(101L))
-                .thenReturn(List.of(trip));
+                .thenReturn(List.of(trip, uncovered, noImage));
 
-        when(unsplashImgUtils.getImgUrls(anyString(), anyInt(), anyInt(), anyInt()))
-                .thenReturn(List.of("https://images/tokyo.jpg"));
+        List<TripDetailDTO> results = tripService.getTripDetails(101L);
 
-        List<?> results = tripService.getTripDetails(101L);
+        assertThat(results).extracting(TripDetailDTO::getTripId).containsExactly(200L, 201L, 202L);
+        assertThat(results).extracting(TripDetailDTO::getImgUrl)
+                .containsExactly("/ext/unsplash/photo-1?w=600&h=400", null, null);
+    }
 
-        assertThat(results).hasSize(1);
-        assertThat(results).first()
-                .hasFieldOrPropertyWithValue("tripId", 200L)
-                .hasFieldOrPropertyWithValue("imgUrl", "https://images/tokyo.jpg");
+    @Test
+    void getTripDetails_latencyDoesNotGrowWithTripCount() {
+        List<Trip> trips = LongStream.rangeClosed(1, 200)
+                .mapToObj(id -> {
+                    Trip trip = TestDataFactory.trip(id);
+                    trip.setCoverImageUrl("https://images.unsplash.com/photo-" + id);
+                    return trip;
+                })
+                .toList();
+        when(tripRepository.findByUserIdOrderByUpdatedTimeDesc(101L)).thenReturn(trips);
+        tripService.getTripDetails(101L);
+
+        long start = System.nanoTime();
+        List<TripDetailDTO> results = tripService.getTripDetails(101L);
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(results).hasSize(200);
+        // one external round trip per trip used to take ~100ms each; the listing is now pure mapping
+        assertThat(elapsedMs).isLessThan(100);
+        verify(tripRepository, times(2)).findByUserIdOrderByUpdatedTimeDesc(101L);
+        verifyNoMoreInteractions(tripRepository);
     }
 
     @Test
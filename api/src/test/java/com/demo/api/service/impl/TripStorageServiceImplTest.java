@@ -10,6 +10,7 @@ import com.demo.api.repository.TripAttractionRepository;
 import com.demo.api.repository.TripDailySummaryRepository;
 import com.demo.api.repository.TripHotelRepository;
 import com.demo.api.repository.TripTransportationRepository;
+import com.demo.api.service.TripInsightPrecomputer;
 import com.demo.api.utils.UnsplashImgUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayNameGeneration;
@@ -21,6 +22,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,6 +41,7 @@ class TripStorageServiceImplTest {
     @Mock private TripAttractionRepository tripAttractionRepository;
     @Mock private TripDailySummaryRepository tripDailySummaryRepository;
     @Mock private UnsplashImgUtils unsplashImgUtils;
+    @Mock private TripInsightPrecomputer tripInsightPrecomputer;
 
     @BeforeEach
     void setUp() {
@@ -47,7 +50,8 @@ class TripStorageServiceImplTest {
                 tripHotelRepository,
                 tripAttractionRepository,
                 tripDailySummaryRepository,
-                unsplashImgUtils
+                unsplashImgUtils,
+                tripInsightPrecomputer
         );
     }
 
@@ -130,6 +134,7 @@ class TripStorageServiceImplTest {
         verify(tripAttractionRepository).saveAll(attractionCaptor.capture());
         TripAttraction attraction = attractionCaptor.getValue().getFirst();
         assertThat(attraction.getLocation()).isEqualTo("Sydney");
+        verify(tripInsightPrecomputer).reschedule(900L);
     }
 
     @Test
@@ -227,4 +232,64 @@ class TripStorageServiceImplTest {
         verifyNoMoreInteractions(tripDailySummaryRepository, tripTransportationRepository,
                 tripHotelRepository, tripAttractionRepository);
     }
+
+    @Test
+    void resolveImages_fillsMissingUrlsAndKeepsExistingOnes() {
+        Trip trip = Trip.builder().id(12L).build();
+        ItineraryDTO.DailySummaryDTO missing = ItineraryDTO.DailySummaryDTO.builder()
+                .date(LocalDate.parse("2025-08-01"))
+                .imageDescription("harbour")
+                .build();
+        ItineraryDTO.DailySummaryDTO present = ItineraryDTO.DailySummaryDTO.builder()
+                .date(LocalDate.parse("2025-08-02"))
+                .imageUrl("https://img/kept.jpg")
+                .build();
+        ItineraryDTO.DailySummaryDTO failing = ItineraryDTO.DailySummaryDTO.builder()
+                .date(LocalDate.parse("2025-08-03"))
+                .imageDescription("storm")
+                .build();
+        when(unsplashImgUtils.getFirstImgUrls(List.of("harbour", "storm"), 500, 500))
+                .thenReturn(List.of("https://img/harbour.jpg", ""));
+
+        tripStorageService.resolveImages(trip, ItineraryDTO.builder()
+                .dailySummaries(List.of(missing, present, failing))
+                .build());
+
+        assertThat(missing.getImageUrl()).isEqualTo("https://img/harbour.jpg");
+        assertThat(present.getImageUrl()).isEqualTo("https://img/kept.jpg");
+        assertThat(failing.getImageUrl()).isEmpty();
+        verifyNoInteractions(tripDailySummaryRepository);
+    }
+
+    @Test
+    void resolveImages_whenLookupFails_leavesBlankUrls() {
+        Trip trip = Trip.builder().id(12L).build();
+        ItineraryDTO.DailySummaryDTO day = ItineraryDTO.DailySummaryDTO.builder()
+                .date(LocalDate.parse("2025-08-01"))
+                .imageDescription("harbour")
+                .build();
+        when(unsplashImgUtils.getFirstImgUrls(List.of("harbour"), 500, 500)).thenThrow(new RuntimeException("boom"));
+
+        tripStorageService.resolveImages(trip, ItineraryDTO.builder().dailySummaries(List.of(day)).build());
+
+        assertThat(day.getImageUrl()).isEmpty();
+    }
+
+    @Test
+    void resolveImages_whenRateLimited_storesNullUrlForDeferredLookup() {
+        Trip trip = Trip.builder().id(12L).build();
+        ItineraryDTO.DailySummaryDTO day = ItineraryDTO.DailySummaryDTO.builder()
+                .date(LocalDate.parse("2025-08-01"))
+                .imageDescription("harbour")
+                .build();
+        when(unsplashImgUtils.getFirstImgUrls(List.of("harbour"), 500, 500)).thenReturn(Arrays.asList((String) null));
+
+        tripStorageService.resolveImages(trip, ItineraryDTO.builder().dailySummaries(List.of(day)).build());
+        tripStorageService.storeDailySummary(trip, day);
+
+        assertThat(day.getImageUrl()).isNull();
+        ArgumentCaptor<List<TripDailySummary>> captor = ArgumentCaptor.forClass(List.class);
+        verify(tripDailySummaryRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).singleElement().satisfies(summary -> assertThat(summary.getImageUrl()).isNull());
+    }
 }
@@ -1,5 +1,6 @@
 package com.demo.api.service.impl;
 
+import com.demo.api.dto.DailyWeatherDTO;
 import com.demo.api.model.Trip;
 import com.demo.api.model.TripWeather;
 import com.demo.api.repository.TripWeatherRepository;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
@@ -17,13 +19,21 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -289,4 +299,186 @@ class WeatherServiceImplTest {
         assertThat(updated.getWeatherCondition()).isEqualTo("Clouds");
     }
 
+    @Test
+    void fetchForecast_returnsSummariesWithoutTouchingRepository() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        Trip trip = Trip.builder()
+                .id(102L)
+                .toCity("Rome")
+                .toCountry("IT")
+                .startDate(start)
+                .endDate(start)
+                .build();
+        Instant dt = start.atStartOfDay().toInstant(ZoneOffset.UTC);
+        String payload = """
+                {
+                  "city":{"timezone":0},
+                  "list":[{"dt":%d,"main":{"temp_min":14.0,"temp_max":25.0},"weather":[{"main":"Clear"}]}]
+                }
+                """.formatted(dt.getEpochSecond());
+        when(restTemplate.getForObject(any(), eq(String.class))).thenReturn(payload);
+
+        List<DailyWeatherDTO> summaries = weatherService.fetchForecast(trip);
+
+        assertThat(summaries).singleElement().satisfies(summary -> {
+            assertThat(summary.getDate()).isEqualTo(start);
+            assertThat(summary.getMaxTemp()).isEqualTo(25.0);
+        });
+        verifyNoInteractions(tripWeatherRepository);
+    }
+
+    @Test
+    void replaceWeather_deletesExistingRowsBeforeSaving() {
+        Trip trip = Trip.builder().id(103L).toCity("Oslo").build();
+        DailyWeatherDTO summary = DailyWeatherDTO.builder()
+                .date(LocalDate.now().plusDays(1))
+                .minTemp(1.0)
+                .maxTemp(6.0)
+                .weatherCondition("Snow")
+                .build();
+
+        weatherService.replaceWeather(trip, List.of(summary));
+
+        InOrder inOrder = inOrder(tripWeatherRepository);
+        inOrder.verify(tripWeatherRepository).deleteByTripIdIn(List.of(103L));
+        ArgumentCaptor<List<TripWeather>> captor = ArgumentCaptor.forClass(List.class);
+        inOrder.verify(tripWeatherRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).singleElement()
+                .extracting(TripWeather::getTripId, TripWeather::getWeatherCondition)
+                .containsExactly(103L, "Snow");
+    }
+
+    private static String twoDayPayload(LocalDate first) {
+        return """
+                {
+                  "city":{"timezone":0},
+                  "list":[
+                    {"dt":%d,"main":{"temp_min":14.0,"temp_max":25.0},"weather":[{"main":"Clear"}]},
+                    {"dt":%d,"main":{"temp_min":12.0,"temp_max":20.0},"weather":[{"main":"Rain"}]}
+                  ]
+                }
+                """.formatted(first.atStartOfDay().toInstant(ZoneOffset.UTC).getEpochSecond(),
+                first.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).getEpochSecond());
+    }
+
+    @Test
+    void fetchForecast_sameDestination_callsOpenWeatherOnceAndSlicesEachTripWindow() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        when(restTemplate.getForObject(any(), eq(String.class))).thenReturn(twoDayPayload(start));
+        Trip first = Trip.builder().id(1L).toCity("Tokyo").toCountry("JP").startDate(start).endDate(start).build();
+        Trip second = Trip.builder().id(2L).toCity(" tokyo").toCountry("jp")
+                .startDate(start.plusDays(1)).endDate(start.plusDays(3)).build();
+
+        List<DailyWeatherDTO> firstDays = weatherService.fetchForecast(first);
+        List<DailyWeatherDTO> secondDays = weatherService.fetchForecast(second);
+
+        assertThat(firstDays).extracting(DailyWeatherDTO::getWeatherCondition).containsExactly("Clear");
+        assertThat(secondDays).extracting(DailyWeatherDTO::getWeatherCondition).containsExactly("Rain");
+        verify(restTemplate, times(1)).getForObject(any(), eq(String.class));
+    }
+
+    @Test
+    void fetchForecast_afterNextForecastUpdate_callsOpenWeatherAgain() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        Instant now = Instant.parse("2030-01-01T02:59:00Z");
+        ReflectionTestUtils.setField(weatherService, "clock", Clock.fixed(now, ZoneOffset.UTC));
+        when(restTemplate.getForObject(any(), eq(String.class))).thenReturn(twoDayPayload(start));
+        Trip trip = Trip.builder().id(1L).toCity("Tokyo").startDate(start).build();
+
+        weatherService.fetchForecast(trip);
+        ReflectionTestUtils.setField(weatherService, "clock", Clock.fixed(now.plusSeconds(120), ZoneOffset.UTC));
+        weatherService.fetchForecast(trip);
+
+        verify(restTemplate, times(2)).getForObject(any(), eq(String.class));
+    }
+
+    @Test
+    void fetchForecast_whenCallFails_doesNotCacheTheFailure() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        when(restTemplate.getForObject(any(), eq(String.class)))
+                .thenThrow(new RestClientException("timeout"))
+                .thenReturn(twoDayPayload(start));
+        Trip trip = Trip.builder().id(1L).toCity("Tokyo").startDate(start).build();
+
+        assertThat(weatherService.fetchForecast(trip)).isEmpty();
+        assertThat(weatherService.fetchForecast(trip)).hasSize(2);
+    }
+
+    @Test
+    void fetchForecast_concurrentRequestsForSameDestination_shareOneCall() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(restTemplate.getForObject(any(), eq(String.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return twoDayPayload(start);
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<DailyWeatherDTO>>> results = new ArrayList<>();
+            for (long id = 1; id <= 4; id++) {
+                Trip trip = Trip.builder().id(id).toCity("Tokyo").startDate(start).build();
+                results.add(pool.submit(() -> weatherService.fetchForecast(trip)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<List<DailyWeatherDTO>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).hasSize(2);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(restTemplate, times(1)).getForObject(any(), eq(String.class));
+    }
+
+    @Test
+    void fetchDestinationForecast_returnsEveryForecastDay() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        when(restTemplate.getForObject(any(), eq(String.class))).thenReturn(twoDayPayload(start));
+
+        List<DailyWeatherDTO> days = weatherService.fetchDestinationForecast("Tokyo", "JP");
+
+        assertThat(days).extracting(DailyWeatherDTO::getDate).containsExactly(start, start.plusDays(1));
+        verifyNoInteractions(tripWeatherRepository);
+    }
+
+    @Test
+    void refreshWeather_writesOnlyNewAndChangedRowsInOneBatch() {
+        LocalDate start = LocalDate.of(2025, 5, 1);
+        List<DailyWeatherDTO> forecast = List.of(
+                DailyWeatherDTO.builder().date(start).minTemp(14.0).maxTemp(25.0).weatherCondition("Clear").build(),
+                DailyWeatherDTO.builder().date(start.plusDays(1)).minTemp(12.0).maxTemp(20.0).weatherCondition("Rain").build());
+        Trip first = Trip.builder().id(1L).toCity("Tokyo").startDate(start).endDate(start.plusDays(1)).build();
+        Trip second = Trip.builder().id(2L).toCity("Tokyo").startDate(start.plusDays(1)).endDate(start.plusDays(4)).build();
+        TripWeather unchanged = TripWeather.builder().id(10L).tripId(1L).date(start)
+                .minTemp(14.0).maxTemp(25.0).weatherCondition("Clear").build();
+        TripWeather stale = TripWeather.builder().id(11L).tripId(1L).date(start.plusDays(1))
+                .minTemp(12.0).maxTemp(20.0).weatherCondition("Clouds").build();
+        when(tripWeatherRepository.findByTripIdIn(List.of(1L, 2L))).thenReturn(List.of(unchanged, stale));
+
+        int written = weatherService.refreshWeather(List.of(first, second), forecast);
+
+        assertThat(written).isEqualTo(2);
+        ArgumentCaptor<List<TripWeather>> captor = ArgumentCaptor.forClass(List.class);
+        verify(tripWeatherRepository).saveAll(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(TripWeather::getId, TripWeather::getTripId, TripWeather::getWeatherCondition)
+                .containsExactly(
+                        tuple(11L, 1L, "Rain"),
+                        tuple(null, 2L, "Rain"));
+        verify(tripWeatherRepository, never()).deleteAll(any());
+    }
+
+    @Test
+    void refreshWeather_whenNothingChanged_savesNothing() {
+        LocalDate start = LocalDate.of(2025, 5, 1);
+        Trip trip = Trip.builder().id(1L).toCity("Tokyo").startDate(start).endDate(start).build();
+        when(tripWeatherRepository.findByTripIdIn(List.of(1L))).thenReturn(List.of(TripWeather.builder()
+                .id(10L).tripId(1L).date(start).minTemp(14.0).maxTemp(25.0).weatherCondition("Clear").build()));
+
+        int written = weatherService.refreshWeather(List.of(trip), List.of(DailyWeatherDTO.builder()
+                .date(start).minTemp(14.0).maxTemp(25.0).weatherCondition("Clear").build()));
+
+        assertThat(written).isZero();
+        verify(tripWeatherRepository, never()).saveAll(any());
+    }
 }
@@ -1,15 +1,118 @@
 package com.demo.api.task;
 
+import com.demo.api.dto.DailyWeatherDTO;
+import com.demo.api.model.Trip;
+import com.demo.api.repository.TripRepository;
+import com.demo.api.service.WeatherService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
 
+@ExtendWith(MockitoExtension.class)
 class WeatherMonitorTaskTest {
 
+    private static final LocalDate TODAY = LocalDate.of(2025, 5, 1);
+
+    @Mock
+    private TripRepository tripRepository;
+    @Mock
+    private WeatherService weatherService;
+
+    private WeatherMonitorTask task;
+
+    @BeforeEach
+    void setUp() {
+        task = new WeatherMonitorTask(tripRepository, weatherService, Runnable::run,
+                Clock.fixed(Instant.parse("2025-05-01T08:00:00Z"), ZoneOffset.UTC));
+    }
+
+    private static Trip trip(long id, String city, String country, LocalDate start) {
+        return Trip.builder().id(id).toCity(city).toCountry(country).startDate(start).endDate(start.plusDays(2)).build();
+    }
+
+    private static List<DailyWeatherDTO> forecast() {
+        return List.of(DailyWeatherDTO.builder().date(TODAY).minTemp(10.0).maxTemp(20.0).weatherCondition("Clear").build());
+    }
+
+    @Test
+    @DisplayName("refresh calls the weather API once per destination and updates every trip going there")
+    void refresh_groupsTripsByDestination() {
+        Trip tokyo = trip(1L, "Tokyo", "Japan", TODAY.plusDays(1));
+        Trip tokyoAgain = trip(2L, " tokyo", "JAPAN", TODAY.plusDays(3));
+        Trip paris = trip(3L, "Paris", "France", TODAY);
+        when(tripRepository.findUpcoming(TODAY, TODAY.plusDays(5))).thenReturn(List.of(tokyo, paris, tokyoAgain));
+        when(weatherService.fetchDestinationForecast(any(), any())).thenReturn(forecast());
+        when(weatherService.refreshWeather(anyList(), anyList())).thenReturn(2, 1);
+
+        assertThat(task.refresh()).isEqualTo(3);
+
+        verify(weatherService).fetchDestinationForecast("Paris", "France");
+        verify(weatherService).fetchDestinationForecast("Tokyo", "Japan");
+        ArgumentCaptor<List<Trip>> captor = ArgumentCaptor.forClass(List.class);
+        verify(weatherService, times(2)).refreshWeather(captor.capture(), anyList());
+        assertThat(captor.getAllValues()).extracting(List::size).containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("refresh stops at max-calls, keeping the soonest departures")
+    void refresh_respectsCallBudget() {
+        ReflectionTestUtils.setField(task, "maxCalls", 1);
+        when(tripRepository.findUpcoming(TODAY, TODAY.plusDays(5))).thenReturn(List.of(
+                trip(1L, "Tokyo", "Japan", TODAY.plusDays(4)),
+                trip(2L, "Paris", "France", TODAY.plusDays(1))));
+        when(weatherService.fetchDestinationForecast("Paris", "France")).thenReturn(forecast());
+        when(weatherService.refreshWeather(anyList(), anyList())).thenReturn(1);
+
+        assertThat(task.refresh()).isEqualTo(1);
+
+        verify(weatherService, never()).fetchDestinationForecast(eq("Tokyo"), any());
+    }
+
     @Test
-    void canInstantiateTask() {
-        WeatherMonitorTask task = new WeatherMonitorTask();
+    @DisplayName("refresh skips the database when a forecast is unavailable and carries on after failures")
+    void refresh_toleratesFailingDestinations() {
+        when(tripRepository.findUpcoming(TODAY, TODAY.plusDays(5))).thenReturn(List.of(
+                trip(1L, "Tokyo", "Japan", TODAY),
+                trip(2L, "Paris", "France", TODAY.plusDays(1)),
+                trip(3L, "Rome", "Italy", TODAY.plusDays(2))));
+        when(weatherService.fetchDestinationForecast("Tokyo", "Japan")).thenReturn(List.of());
+        when(weatherService.fetchDestinationForecast("Paris", "France")).thenThrow(new IllegalStateException("boom"));
+        when(weatherService.fetchDestinationForecast("Rome", "Italy")).thenReturn(forecast());
+        when(weatherService.refreshWeather(anyList(), anyList())).thenReturn(1);
+
+        assertThat(task.refresh()).isEqualTo(1);
+
+        verify(weatherService, times(1)).refreshWeather(anyList(), anyList());
+    }
+
+    @Test
+    @DisplayName("refreshUpcomingWeather leaves destinations rejected by a full queue for the next run")
+    void refreshUpcomingWeather_whenQueueFull_skipsDestination() {
+        task = new WeatherMonitorTask(tripRepository, weatherService, runnable -> {
+            throw new TaskRejectedException("full");
+        }, Clock.fixed(Instant.parse("2025-05-01T08:00:00Z"), ZoneOffset.UTC));
+        when(tripRepository.findUpcoming(TODAY, TODAY.plusDays(5)))
+                .thenReturn(List.of(trip(1L, "Tokyo", "Japan", TODAY)));
+
+        task.refreshUpcomingWeather();
 
-        assertThat(task).isNotNull();
+        verifyNoInteractions(weatherService);
     }
 }
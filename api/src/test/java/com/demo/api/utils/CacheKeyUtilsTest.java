@@ -0,0 +1,29 @@
+package com.demo.api.utils;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CacheKeyUtilsTest {
+
+    @Test
+    void normalize_ignoresCasePunctuationAndSpacing() {
+        assertThat(CacheKeyUtils.normalize("  New-York,  USA ")).isEqualTo("new york usa");
+        assertThat(CacheKeyUtils.normalize("Tokyo ")).isEqualTo(CacheKeyUtils.normalize("tokyo"));
+    }
+
+    @Test
+    void normalize_foldsFullWidthCharactersAndKeepsNonLatinLetters() {
+        assertThat(CacheKeyUtils.normalize("ＴＯＫＹＯ")).isEqualTo("tokyo");
+        assertThat(CacheKeyUtils.normalize("東京都")).isEqualTo("東京都");
+    }
+
+    @Test
+    void normalize_whenBlank_returnsEmpty() {
+        assertThat(CacheKeyUtils.normalize(null)).isEmpty();
+        assertThat(CacheKeyUtils.normalize("  ")).isEmpty();
+    }
+}
@@ -1,5 +1,6 @@
 package com.demo.api.utils;
 
+import com.demo.api.service.ImageSearchCacheService;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
@@ -11,11 +12,17 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
 class UnsplashImgUtilsTest {
@@ -104,5 +111,129 @@ class UnsplashImgUtilsTest {
                 .isInstanceOf(java.util.NoSuchElementException.class)
                 .hasMessageContaining("Unsplash has no result");
     }
-}
 
+    @Test
+    void getFirstImgUrls_looksUpQueriesConcurrentlyAndKeepsOrder() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ExchangeFunction exchangeFunction = request -> {
+            String query = request.url().getQuery().replaceAll(".*query=([^&]+).*", "$1");
+            String body = "{\"results\":[{\"urls\":{\"raw\":\"https://images.example/" + query + "\"}}]}";
+            return Mono.fromCallable(() -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .delayElement(Duration.ofMillis(200))
+                    .doOnNext(ignored -> inFlight.decrementAndGet())
+                    .map(ignored -> ClientResponse.create(HttpStatus.OK)
+                            .header("Content-Type", "application/json")
+                            .body(body)
+                            .build());
+        };
+        UnsplashImgUtils utils = new UnsplashImgUtils(WebClient.builder().exchangeFunction(exchangeFunction), "key",
+                2, Duration.ofSeconds(2));
+        utils.getFirstImgUrls(List.of("warm-up"), 500, 500);
+
+        long start = System.nanoTime();
+        List<String> urls = utils.getFirstImgUrls(List.of("rome", "paris", "oslo", "lima"), 500, 500);
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(urls).hasSize(4);
+        assertThat(urls.get(0)).startsWith("https://images.example/rome?");
+        assertThat(urls.get(3)).startsWith("https://images.example/lima?").contains("w=500");
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(elapsedMs).isLessThan(700);
+    }
+
+    @Test
+    void getFirstImgUrls_whenLookupFailsOrTimesOut_returnsBlank() {
+        ExchangeFunction exchangeFunction = request -> {
+            if (request.url().getQuery().contains("query=slow")) {
+                return Mono.never();
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header("Content-Type", "application/json")
+                    .body("{\"results\":[{\"urls\":{\"raw\":\"https://images.example/one\"}}]}")
+                    .build());
+        };
+        UnsplashImgUtils utils = new UnsplashImgUtils(WebClient.builder().exchangeFunction(exchangeFunction), "key",
+                4, Duration.ofMillis(200));
+
+        List<String> urls = utils.getFirstImgUrls(java.util.Arrays.asList("slow", null, "rome"), 500, 500);
+
+        assertThat(urls.get(0)).isEmpty();
+        assertThat(urls.get(1)).isEmpty();
+        assertThat(urls.get(2)).startsWith("https://images.example/one?");
+    }
+
+    @Test
+    void getImgUrls_whenSearchCached_sizesCachedUrlsWithoutCallingUnsplash() {
+        ImageSearchCacheService cache = mock(ImageSearchCacheService.class);
+        when(cache.lookup("Kyoto")).thenReturn(Optional.of(List.of("https://images.example/one?ixid=1")));
+        AtomicInteger calls = new AtomicInteger();
+        ExchangeFunction exchangeFunction = request -> {
+            calls.incrementAndGet();
+            return Mono.empty();
+        };
+        UnsplashImgUtils utils = new UnsplashImgUtils(WebClient.builder().exchangeFunction(exchangeFunction), "key",
+                4, Duration.ofSeconds(2), cache);
+
+        List<String> urls = utils.getImgUrls("Kyoto", 1, 600, 400);
+
+        assertThat(urls).containsExactly("https://images.example/one?ixid=1&w=600&h=400&fit=crop&fm=jpg&q=60&auto=format");
+        assertThat(calls.get()).isZero();
+    }
+
+    @Test
+    void getImgUrls_whenSearchNotCached_storesUnsizedUrls() {
+        ImageSearchCacheService cache = mock(ImageSearchCacheService.class);
+        when(cache.lookup("Kyoto")).thenReturn(Optional.empty());
+        ExchangeFunction exchangeFunction = request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header("Content-Type", "application/json")
+                .body("{\"results\":[{\"urls\":{\"raw\":\"https://images.example/one\"}}]}")
+                .build());
+        UnsplashImgUtils utils = new UnsplashImgUtils(WebClient.builder().exchangeFunction(exchangeFunction), "key",
+                4, Duration.ofSeconds(2), cache);
+
+        List<String> urls = utils.getImgUrls("Kyoto", 1, 600, 400);
+
+        assertThat(urls.getFirst()).startsWith("https://images.example/one?w=600");
+        verify(cache).store("Kyoto", List.of("https://images.example/one"));
+    }
+
+    @Test
+    void getFirstImgUrls_whenRemainingQuotaRunsOut_defersLaterLookupsWithoutCallingUnsplash() {
+        AtomicInteger calls = new AtomicInteger();
+        ExchangeFunction exchangeFunction = request -> {
+            calls.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header("Content-Type", "application/json")
+                    .header("X-Ratelimit-Limit", "50")
+                    .header("X-Ratelimit-Remaining", "0")
+                    .body("{\"results\":[{\"urls\":{\"raw\":\"https://images.example/one\"}}]}")
+                    .build());
+        };
+        UnsplashImgUtils utils = new UnsplashImgUtils(WebClient.builder().exchangeFunction(exchangeFunction), "key",
+                1, Duration.ofSeconds(2), null, new UnsplashRateLimiter(50, 0));
+
+        List<String> urls = utils.getFirstImgUrls(List.of("rome", "paris"), 500, 500);
+
+        assertThat(urls.get(0)).startsWith("https://images.example/one?");
+        assertThat(urls.get(1)).isNull();
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(utils.availableRequests(UnsplashRateLimiter.Priority.INTERACTIVE)).isZero();
+    }
+
+    @Test
+    void getFirstImgUrls_whenUnsplashAnswersTooManyRequests_defersLookup() {
+        ExchangeFunction exchangeFunction = request -> Mono.just(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Content-Type", "text/plain")
+                .body("Rate Limit Exceeded")
+                .build());
+        UnsplashImgUtils utils = new UnsplashImgUtils(WebClient.builder().exchangeFunction(exchangeFunction), "key",
+                4, Duration.ofSeconds(2), null, new UnsplashRateLimiter(50, 10));
+
+        List<String> urls = utils.getFirstImgUrls(List.of("rome"), 500, 500, UnsplashRateLimiter.Priority.BACKGROUND);
+
+        assertThat(urls).containsExactly((String) null);
+        assertThat(utils.availableRequests(UnsplashRateLimiter.Priority.BACKGROUND)).isZero();
+        assertThatThrownBy(() -> utils.getImgUrls("rome", 1)).isInstanceOf(UnsplashImgUtils.RateLimitedException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.demo.api.utils;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class UnsplashRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private UnsplashRateLimiter limiter(int requestsPerHour, int backgroundReserve) {
+        return new UnsplashRateLimiter(requestsPerHour, backgroundReserve, now::get);
+    }
+
+    private static HttpHeaders headers(String limit, String remaining) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(UnsplashRateLimiter.LIMIT_HEADER, limit);
+        headers.add(UnsplashRateLimiter.REMAINING_HEADER, remaining);
+        return headers;
+    }
+
+    @Test
+    void tryAcquire_keepsBackgroundReserveForInteractiveRequests() {
+        UnsplashRateLimiter limiter = limiter(3, 2);
+
+        assertThat(limiter.tryAcquire(UnsplashRateLimiter.Priority.BACKGROUND)).isTrue();
+        assertThat(limiter.tryAcquire(UnsplashRateLimiter.Priority.BACKGROUND)).isFalse();
+        assertThat(limiter.tryAcquire(UnsplashRateLimiter.Priority.INTERACTIVE)).isTrue();
+        assertThat(limiter.tryAcquire(UnsplashRateLimiter.Priority.INTERACTIVE)).isTrue();
+        assertThat(limiter.tryAcquire(UnsplashRateLimiter.Priority.INTERACTIVE)).isFalse();
+    }
+
+    @Test
+    void tryAcquire_refillsEvenlyOverTheHour() {
+        UnsplashRateLimiter limiter = limiter(60, 0);
+        for (int i = 0; i < 60; i++) {
+            limiter.tryAcquire(UnsplashRateLimiter.Priority.INTERACTIVE);
+        }
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.INTERACTIVE)).isZero();
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.INTERACTIVE)).isEqualTo(2);
+        now.addAndGet(Duration.ofHours(2).toNanos());
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.INTERACTIVE)).isEqualTo(60);
+    }
+
+    @Test
+    void update_followsLimitAndLowerRemainingFromHeaders() {
+        UnsplashRateLimiter limiter = limiter(50, 10);
+
+        limiter.update(headers("5000", "30"));
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.INTERACTIVE)).isEqualTo(30);
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.BACKGROUND)).isEqualTo(20);
+
+        limiter.update(headers("5000", "4000"));
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.INTERACTIVE)).isEqualTo(30);
+
+        now.addAndGet(Duration.ofMinutes(6).toNanos());
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.INTERACTIVE)).isEqualTo(530);
+    }
+
+    @Test
+    void update_ignoresMissingOrUnreadableHeaders() {
+        UnsplashRateLimiter limiter = limiter(50, 0);
+
+        limiter.update(new HttpHeaders());
+        limiter.update(headers("lots", "-"));
+
+        assertThat(limiter.available(UnsplashRateLimiter.Priority.INTERACTIVE)).isEqualTo(50);
+    }
+
+    @Test
+    void exhausted_blocksAllRequestsUntilRefill() {
+        UnsplashRateLimiter limiter = limiter(60, 0);
+
+        limiter.exhausted();
+
+        assertThat(limiter.tryAcquire(UnsplashRateLimiter.Priority.INTERACTIVE)).isFalse();
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(limiter.tryAcquire(UnsplashRateLimiter.Priority.INTERACTIVE)).isTrue();
+    }
+}
@@ -21,6 +21,15 @@ export interface TripInsightsResponse {
     theme: string;
     icon: string;
 }
+
+// READY: insights stored; IN_PROGRESS: generation scheduled, poll again; UNAVAILABLE: nothing to show
+export type TripInsightsStatus = 'READY' | 'IN_PROGRESS' | 'UNAVAILABLE';
+
+export interface TripInsights {
+    status: TripInsightsStatus;
+    insights: TripInsightsResponse[];
+}
+
 export interface TripDetail {
     tripId: number;
     fromCountry: string;
@@ -69,8 +78,20 @@ export interface ModifyPlanPayload {
     secondPreference: string;
 }
 
+export type GenerationJobStatus = 'PENDING' | 'RUNNING' | 'SUCCEEDED' | 'FAILED';
+
+export interface GenerationJob {
+    jobId: number;
+    tripId?: number | null;
+    type: 'GENERATE' | 'REGENERATE';
+    status: GenerationJobStatus;
+    errorMessage?: string | null;
+    createdTime?: string | null;
+    finishedTime?: string | null;
+}
+
 export async function generateTrip(payload: generateTripPayload) {
-    return apiRequest<void>('/api/trip/generate-plan', {
+    return apiRequest<GenerationJob>('/api/trip/generate-plan', {
         method: 'POST',
         body: payload,
     });
@@ -78,14 +99,28 @@ export async function generateTrip(payload: generateTripPayload) {
 
 export async function regenerateTrip(tripId: string | number, payload: ModifyPlanPayload) {
     const qs = new URLSearchParams({ tripId: String(tripId) }).toString();
-    return apiRequest<void>(`/api/trip/regenerate-plan?${qs}`, {
+    return apiRequest<GenerationJob>(`/api/trip/regenerate-plan?${qs}`, {
         method: 'POST',
         body: payload,
     });
 }
 
+export async function getGenerationJob(jobId: number) {
+    return apiRequest<GenerationJob>(`/api/trip/generation-job?jobId=${encodeURIComponent(jobId)}`);
+}
+
+// Poll a generation job until it leaves PENDING/RUNNING; rejects when the job fails
+export async function waitForGenerationJob(jobId: number, intervalMs = 3000): Promise<GenerationJob> {
+    for (;;) {
+        const job = await getGenerationJob(jobId);
+        if (job.status === 'SUCCEEDED') return job;
+        if (job.status === 'FAILED') throw new Error(job.errorMessage || 'Trip generation failed');
+        await new Promise((resolve) => setTimeout(resolve, intervalMs));
+    }
+}
+
 export async function getTripInsights(tripId: string) {
-    return apiRequest<TripInsightsResponse[]>(`/api/trip/insights?tripId=${tripId}`);
+    return apiRequest<TripInsights>(`/api/trip/insights?tripId=${tripId}`);
 }
 
 export async function getTripDetails() {
@@ -11,7 +11,7 @@ import {
     Select
 } from 'antd'
 import { LocationAutoComplete, type Location } from '../../components/LocationAutoComplete'
-import { generateTrip, type generateTripPayload } from '../../api/trip';
+import { generateTrip, waitForGenerationJob, type generateTripPayload } from '../../api/trip';
 import dayjs from 'dayjs';
 import { useState } from 'react'
 import { useNavigate } from 'react-router-dom'
@@ -88,12 +88,16 @@ export default function CreateTripPage() {
         console.log('Submit payload:', payload);
 
         generateTrip(payload)
-            .then(() => {
-                message.success('Trip generation started');
-                navigate('/trips', { replace: true });
+            .then((job) => {
+                message.info('Generating your trip, this can take a minute...');
+                return waitForGenerationJob(job.jobId);
+            })
+            .then((job) => {
+                message.success('Trip generated');
+                navigate(job.tripId ? `/trips/${job.tripId}` : '/trips', { replace: true });
             })
             .catch((err) => {
-                message.error(err?.message || 'Failed to start trip generation');
+                message.error(err?.message || 'Trip generation failed');
             })
             .finally(() => {
                 setSubmitLoading(false)
@@ -1,4 +1,4 @@
-import React, {useCallback, useEffect, useMemo, useState} from 'react';
+import React, {useCallback, useEffect, useMemo, useRef, useState} from 'react';
 import {Link, useParams} from 'react-router-dom';
 import {
     getTripDetails,
@@ -11,6 +11,7 @@ import {
     type HotelTimeLineDTO,
     type TransportationTimeLineDTO,
     regenerateTrip,
+    waitForGenerationJob,
     type ModifyPlanPayload,
 } from '../../api/trip';
 import {
@@ -42,6 +43,9 @@ import {generateRoute, type MapRouteResponse, type MapProvider} from '../../api/
 
 const {Title, Text} = Typography;
 
+// Interval between insight requests while their generation is still in progress
+const INSIGHTS_POLL_MS = 3000;
+
 function parseTimeToMinutes(time?: string | null): number {
     if (!time) return Number.MAX_SAFE_INTEGER;
     const m = time.match(/^(\d{1,2}):(\d{2})/);
@@ -510,16 +514,30 @@ export default function TripOverview() {
         }
     }, []);
 
+    // Bumped by every new load and on unmount, so an older poll stops instead of overwriting newer results
+    const insightsLoad = useRef(0);
+
     const loadInsightsData = useCallback(async (tid: string) => {
+        const load = ++insightsLoad.current;
         setLoadingInsights(true);
         try {
-            const insights = await getTripInsights(tid);
-            setTripInsights(insights ?? []);
+            for (;;) {
+                const result = await getTripInsights(tid);
+                if (load !== insightsLoad.current) return;
+                setTripInsights(result?.insights ?? []);
+                if (result?.status !== 'IN_PROGRESS') return;
+                await new Promise((resolve) => setTimeout(resolve, INSIGHTS_POLL_MS));
+                if (load !== insightsLoad.current) return;
+            }
         } finally {
-            setLoadingInsights(false);
+            if (load === insightsLoad.current) setLoadingInsights(false);
         }
     }, []);
 
+    useEffect(() => () => {
+        insightsLoad.current += 1;
+    }, []);
+
     const reloadData = useCallback((tid: string) => {
         void loadTimelineData(tid);
         void loadInsightsData(tid);
@@ -559,7 +577,8 @@ export default function TripOverview() {
             if (!tripId) return;
             setSubmittingReplan(true);
             const payload: ModifyPlanPayload = { secondPreference: values.secondPreference.trim() };
-            await regenerateTrip(tripId, payload);
+            const job = await regenerateTrip(tripId, payload);
+            await waitForGenerationJob(job.jobId);
             setReplanOpen(false);
             messageApi.success('Plan regenerated');
             await reloadData(tripId);